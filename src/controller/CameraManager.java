@@ -2,12 +2,15 @@ package controller;
 
 import model.*;
 import model.cameras.Camera;
+import model.cameras.CoverSolver;
 
 import java.util.*;
 
 /**
  * The CameraManager class is responsible for managing and optimizing the placement of cameras on a SparseMap.
  * It calculates the minimal and cost-effective camera coverage for observing streets.
+ * Every query takes one snapshot of the observed map and reads its cells and line of sight index only,
+ * so it is not affected by changes of the map while it runs.
  */
 
 public class CameraManager {
@@ -85,69 +88,122 @@ public class CameraManager {
      * @throws IllegalArgumentException if observedMap or cameras is null
      */
     public boolean isCameraCover(ArrayList<Camera> cameras) {
+        return getUncoveredStreetCells(cameras).isEmpty();
+    }
+
+    /**
+     * Computes the streets of the observed map that none of the given cameras observes.
+     *
+     * @param cameras a list of cameras placed on the map
+     * @return the uncovered streets in row-major order
+     * @throws IllegalArgumentException if observedMap or cameras is null
+     */
+    public ArrayList<BasicVertex> getUncoveredStreets(ArrayList<Camera> cameras) {
+        checkArguments(cameras);
+        MapSnapshot view = observedMap.getSnapshot();
+        BitSet uncovered = getUncoveredStreetCells(cameras, view);
+        int columns = view.getColumns();
+        ArrayList<BasicVertex> uncoveredStreets = new ArrayList<>(uncovered.cardinality());
+        for (int cell = uncovered.nextSetBit(0); cell >= 0; cell = uncovered.nextSetBit(cell + 1)) {
+            uncoveredStreets.add(view.getVertex(cell / columns, cell % columns));
+        }
+        return uncoveredStreets;
+    }
+
+    /**
+     * Computes the cell indices of all streets that none of the given cameras observes,
+     * by combining the observed cells of the cameras with OR and removing them from the street cells.
+     *
+     * @param cameras a list of cameras placed on the map
+     * @return bitset of the uncovered street cells
+     * @throws IllegalArgumentException if observedMap or cameras is null
+     */
+    public BitSet getUncoveredStreetCells(ArrayList<Camera> cameras) {
+        checkArguments(cameras);
+        return getUncoveredStreetCells(cameras, observedMap.getSnapshot());
+    }
+
+    /**
+     * Checks the arguments of the coverage queries.
+     *
+     * @param cameras a list of cameras placed on the map
+     * @throws IllegalArgumentException if observedMap or cameras is null
+     */
+    private void checkArguments(ArrayList<Camera> cameras) {
         if (observedMap == null || cameras == null) {
             throw new IllegalArgumentException("observedMap and cameras cannot be null");
         }
-        Set<BasicVertex> observedStreets = new HashSet<>();
-        for (BasicVertex[] row : observedMap.getSparseVertexArray()) {
-            for (BasicVertex vertex : row) {
-                if (vertex instanceof BasicStreet){
-                    observedStreets.add(vertex);
-                }
-            }
-        }
+    }
 
-        ArrayList<BasicVertex> coveredVertices = new ArrayList<>();
+    /**
+     * Computes the cell indices of all streets of a snapshot that none of the given cameras observes.
+     *
+     * @param cameras a list of cameras placed on the map
+     * @param view the snapshot of the observed map
+     * @return bitset of the uncovered street cells
+     */
+    private BitSet getUncoveredStreetCells(ArrayList<Camera> cameras, MapSnapshot view) {
+        BitSet covered = new BitSet();
         for (Camera camera : cameras) {
-            coveredVertices.addAll(camera.getObservedVertices());
+            covered.or(camera.getObservedCells(view));
         }
+        BitSet uncovered = getStreetCells(view);
+        uncovered.andNot(covered);
+        return uncovered;
+    }
 
-        for (BasicVertex street : observedStreets) {
-            if (!coveredVertices.contains(street)) {
-                return false;
+    /**
+     * Collects the cell indices of all streets of a snapshot of the observed map.
+     *
+     * @param view the snapshot of the observed map
+     * @return bitset of the street cells
+     */
+    private BitSet getStreetCells(MapSnapshot view) {
+        BitSet streets = new BitSet(view.getRows() * view.getColumns());
+        for (int row = 0; row < view.getRows(); row++) {
+            for (int column = 0; column < view.getColumns(); column++) {
+                if (view.getVertex(row, column) instanceof BasicStreet) {
+                    streets.set(view.getCellIndex(row, column));
+                }
             }
         }
-        return true;
+        return streets;
     }
 
 
     /**
      * Computes a set of nodes that covers all streets of a specified type within a given range.
+     * Among the smallest covers the one with the lexicographically smallest values in row-major order is chosen,
+     * ties are broken by the row-major order of the nodes.
      *
      * @param range the range of the cameras
      * @param type the type of nodes to be covered
-     * @return a sorted list of nodes that cover all streets of the specified type
+     * @return a sorted list of nodes that cover all streets of the specified type, empty if there is no cover
      */
     public ArrayList<BasicVertex> computeCover(int range, BasicVertexType type) {
         ArrayList<BasicVertex> candidateNodes = new ArrayList<>();
-        ArrayList<BasicVertex> streetNodes = new ArrayList<>();
-        BasicVertex[][] vertexArray = observedMap.getSparseVertexArray();
+        MapSnapshot view = observedMap.getSnapshot();
 
-        for (BasicVertex[] row : vertexArray) {
-            for (BasicVertex vertex : row) {
-                if (matchesType(vertex, type)) {
-                    candidateNodes.add(vertex);
-                }
-                if (vertex instanceof BasicStreet) {
-                    streetNodes.add(vertex);
+        for (int row = 0; row < view.getRows(); row++) {
+            for (int column = 0; column < view.getColumns(); column++) {
+                if (matchesType(view.getVertex(row, column), type)) {
+                    candidateNodes.add(view.getVertex(row, column));
                 }
             }
         }
 
-        ArrayList<ArrayList<BasicVertex>> combinations = generateCombinations(candidateNodes, 5);
-
-        ArrayList<BasicVertex> bestCover = new ArrayList<>();
-        for (ArrayList<BasicVertex> combination : combinations) {
-            if (coversAllStreets(combination, streetNodes, range) &&
-                    (bestCover.isEmpty() || combination.size() < bestCover.size() ||
-                            (combination.size() == bestCover.size() && isLexicographicallySmaller(combination, bestCover)))) {
-                bestCover = new ArrayList<>(combination);
-            }
+        int[] streetNumbers = numberStreets(view);
+        int streetCount = countStreets(streetNumbers);
+        if (streetCount == 0) {
+            // every single node is a cover, the one with the smallest value wins
+            ArrayList<BasicVertex> bestCover = new ArrayList<>();
+            candidateNodes.stream().min(Comparator.comparingInt(BasicVertex::getValue)).ifPresent(bestCover::add);
+            return bestCover;
         }
 
-        bestCover.sort(Comparator.comparingInt(BasicVertex::getValue));
-
-        return bestCover;
+        long[] costs = new long[candidateNodes.size()];
+        Arrays.fill(costs, 1);
+        return solveCover(view, candidateNodes, costs, range, streetNumbers, streetCount);
     }
 
     /**
@@ -168,166 +224,142 @@ public class CameraManager {
     }
 
     /**
-     * Generates all combinations of the nodes with the specified maximum size.
-     *
-     * @param nodes the list of nodes to generate combinations from
-     * @param maxSize the maximum size of the combinations
-     * @return a list of combinations of nodes
+     * Helper Function for ComputeCover and ComputeMinCover that numbers the streets in row-major order
+     * @param view the snapshot of the observed map
+     * @return the street number of every cell index, -1 for cells that are no street
      */
-    private ArrayList<ArrayList<BasicVertex>> generateCombinations(ArrayList<BasicVertex> nodes, int maxSize) {
-        ArrayList<ArrayList<BasicVertex>> result = new ArrayList<>();
-        for (int i = 1; i <= maxSize; i++) {
-            generateCombinationsHelp(nodes, i, 0, new ArrayList<>(), result);
+    private int[] numberStreets(MapSnapshot view) {
+        int columns = view.getColumns();
+        int[] streetNumbers = new int[view.getRows() * columns];
+        int streetCount = 0;
+        for (int row = 0; row < view.getRows(); row++) {
+            for (int column = 0; column < columns; column++) {
+                streetNumbers[row * columns + column] =
+                        view.getVertex(row, column) instanceof BasicStreet ? streetCount++ : -1;
+            }
         }
-        return result;
+        return streetNumbers;
     }
 
     /**
-     * Helper Function to generate Combinations
-     * @param nodes list of nodes to generate combinations
-     * @param k size of the combination
-     * @param start starting index for the combination
-     * @param current current index of the combination
-     * @param result the list where the combinations are stored
+     * Helper Function for ComputeCover and ComputeMinCover that counts the numbered streets
+     * @param streetNumbers the street number of every cell index
+     * @return the number of streets
      */
-    private void generateCombinationsHelp(ArrayList<BasicVertex> nodes, int k, int start,
-                                            ArrayList<BasicVertex> current, ArrayList<ArrayList<BasicVertex>> result) {
-        if (k == 0) {
-            result.add(new ArrayList<>(current));
-            return;
-        }
-        for (int i = start; i < nodes.size(); i++) {
-            current.add(nodes.get(i));
-            generateCombinationsHelp(nodes, k - 1, i + 1, current, result);
-            current.removeLast();
+    private int countStreets(int[] streetNumbers) {
+        int streetCount = 0;
+        for (int streetNumber : streetNumbers) {
+            if (streetNumber >= 0) {
+                streetCount++;
+            }
         }
+        return streetCount;
     }
 
-
     /**
-     * Helper Function for ComputeCover and ComputeMinCover that checks if all Streets are Covered by Cameras
-     * @param cover the combination of vertices
-     * @param streetNodes the list of street vertices
+     * Helper Function for ComputeCover and ComputeMinCover that runs the exact cover search
+     * @param view the snapshot of the observed map
+     * @param candidateNodes the possible camera positions in row-major order
+     * @param costs the cost of every candidate
      * @param range the camera range
-     * @return true if all streets are covered by cameras, false if not
+     * @param streetNumbers the street number of every cell index
+     * @param streetCount the number of streets
+     * @return the optimal cover sorted by value, empty if the candidates cannot cover all streets
      */
-    private boolean coversAllStreets(ArrayList<BasicVertex> cover, ArrayList<BasicVertex> streetNodes, int range) {
-        Set<BasicVertex> coveredStreets = new HashSet<>();
-        for (BasicVertex cameraNode : cover) {
-            for (BasicVertex streetNode : streetNodes) {
-                if (cameraNode.getBasicManhattanDistance(streetNode) <= range && isVisible(cameraNode, streetNode)) {
-                    coveredStreets.add(streetNode);
-                }
+    private ArrayList<BasicVertex> solveCover(MapSnapshot view, ArrayList<BasicVertex> candidateNodes, long[] costs,
+                                              int range, int[] streetNumbers, int streetCount) {
+        long[][] masks = new long[candidateNodes.size()][];
+        int[] values = new int[candidateNodes.size()];
+        for (int i = 0; i < candidateNodes.size(); i++) {
+            masks[i] = coveredStreets(view, candidateNodes.get(i), range, streetNumbers, streetCount);
+            values[i] = candidateNodes.get(i).getValue();
+        }
+
+        int[] cover = new CoverSolver(masks, streetCount, costs, values).solve();
+        ArrayList<BasicVertex> bestCover = new ArrayList<>();
+        if (cover != null) {
+            for (int candidate : cover) {
+                bestCover.add(candidateNodes.get(candidate));
             }
         }
-        return coveredStreets.size() == streetNodes.size();
+        bestCover.sort(Comparator.comparingInt(BasicVertex::getValue));
+        return bestCover;
     }
 
-
     /**
-     * Helper Function for CoversAllStreets that checks for Visibility as Buildings obstruct sight
-     * @param start starting vertex
-     * @param end ending vertex
-     * @return true if the line of sight is open, false otherwise
+     * Helper Function for solveCover that collects the streets a camera on the given node observes.
+     * A street is observed if it lies in the same row or column within the range and no building stands
+     * between the node and the street, so only the four rays from the node up to the next building are walked.
+     * @param view the snapshot of the observed map
+     * @param cameraNode the node of the camera
+     * @param range the camera range
+     * @param streetNumbers the street number of every cell index
+     * @param streetCount the number of streets
+     * @return bitset words of the observed street numbers
      */
-    private boolean isVisible(BasicVertex start, BasicVertex end) {
-        BasicVertex[][] vertexArray = observedMap.getSparseVertexArray();
-        int startRow = start.getPosition().getRow();
-        int startCol = start.getPosition().getColumn();
-        int endRow = end.getPosition().getRow();
-        int endCol = end.getPosition().getColumn();
-
-        if (startRow == endRow) {
-            int minCol = Math.min(startCol, endCol);
-            int maxCol = Math.max(startCol, endCol);
-            for (int col = minCol + 1; col < maxCol; col++) {
-                if (vertexArray[startRow][col] instanceof BasicBuilding) {
-                    return false;
-                }
-            }
-        } else if (startCol == endCol) {
-            int minRow = Math.min(startRow, endRow);
-            int maxRow = Math.max(startRow, endRow);
-            for (int row = minRow + 1; row < maxRow; row++) {
-                if (vertexArray[row][startCol] instanceof BasicBuilding) {
-                    return false;
-                }
-            }
-        } else {
-            return false;
+    private long[] coveredStreets(MapSnapshot view, BasicVertex cameraNode, int range, int[] streetNumbers,
+                                  int streetCount) {
+        LineOfSightIndex lineOfSight = view.getLineOfSightIndex();
+        int cameraRow = cameraNode.getPosition().getRow();
+        int cameraColumn = cameraNode.getPosition().getColumn();
+        long[] mask = new long[(streetCount + 63) >>> 6];
+        if (range < 0) {
+            return mask;
         }
-        return true;
-    }
 
+        int top = Math.max(cameraRow - range, lineOfSight.getBuildingUp(cameraRow, cameraColumn) + 1);
+        int bottom = Math.min(cameraRow + range, lineOfSight.getBuildingDown(cameraRow, cameraColumn) - 1);
+        int left = Math.max(cameraColumn - range, lineOfSight.getBuildingLeft(cameraRow, cameraColumn) + 1);
+        int right = Math.min(cameraColumn + range, lineOfSight.getBuildingRight(cameraRow, cameraColumn) - 1);
+        for (int row = top; row <= bottom; row++) {
+            markStreet(mask, streetNumbers[view.getCellIndex(row, cameraColumn)]);
+        }
+        for (int column = left; column <= right; column++) {
+            markStreet(mask, streetNumbers[view.getCellIndex(cameraRow, column)]);
+        }
+        return mask;
+    }
 
     /**
-     * Helper function for ComputeCover and ComputeMinCover that compares 2 Lists of BasicVertices Lexicographically
-     * @param a 1 of the compared Lists
-     * @param b The other of the compared Lists
-     * @return true if a is lexicographically smaller, false otherwise
+     * Helper Function for coveredStreets that sets the bit of a street
+     * @param mask bitset words of street numbers
+     * @param streetNumber the street number, -1 if the cell is no street
      */
-    private boolean isLexicographicallySmaller(ArrayList<BasicVertex> a, ArrayList<BasicVertex> b) {
-        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
-            int compare = Integer.compare(a.get(i).getValue(), b.get(i).getValue());
-            if (compare != 0) {
-                return compare < 0;
-            }
+    private void markStreet(long[] mask, int streetNumber) {
+        if (streetNumber >= 0) {
+            mask[streetNumber >>> 6] |= 1L << streetNumber;
         }
-        return a.size() < b.size();
     }
 
 
     /**
      * Computes a minimal cost set of nodes that covers all streets within a given range.
+     * Among the cheapest covers the smallest one is chosen, further ties are broken like in computeCover.
      *
      * @param range the range of the cameras
-     * @return a sorted list of nodes that cover all streets at minimal cost
+     * @return a sorted list of nodes that cover all streets at minimal cost, empty if there is no cover
      */
     public ArrayList<BasicVertex> computeMinCover(int range) {
         ArrayList<BasicVertex> streetNodes = new ArrayList<>();
-        BasicVertex[][] vertexArray = observedMap.getSparseVertexArray();
+        MapSnapshot view = observedMap.getSnapshot();
 
-        for (BasicVertex[] basicVertices : vertexArray) {
-            for (BasicVertex basicVertex : basicVertices) {
-                if (basicVertex instanceof BasicStreet) {
-                    streetNodes.add(basicVertex);
+        for (int row = 0; row < view.getRows(); row++) {
+            for (int column = 0; column < view.getColumns(); column++) {
+                if (view.getVertex(row, column) instanceof BasicStreet) {
+                    streetNodes.add(view.getVertex(row, column));
                 }
             }
         }
-
-        ArrayList<ArrayList<BasicVertex>> combinations = generateCombinations(streetNodes, 5);
-
-        ArrayList<BasicVertex> bestCover = new ArrayList<>();
-        int minCost = Integer.MAX_VALUE;
-
-        for (ArrayList<BasicVertex> combination : combinations) {
-            if (coversAllStreets(combination, streetNodes, range)) {
-                int currentCost = calculateCost(combination);
-                if (currentCost < minCost ||
-                        (currentCost == minCost && combination.size() < bestCover.size()) ||
-                        (currentCost == minCost && combination.size() == bestCover.size() && isLexicographicallySmaller(combination, bestCover))) {
-                    bestCover = new ArrayList<>(combination);
-                    minCost = currentCost;
-                }
-            }
+        if (streetNodes.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        bestCover.sort(Comparator.comparingInt(BasicVertex::getValue));
-
-        return bestCover;
-    }
-
-
-    /**
-     * Helper Function for ComputeMinCover that calculates COsts of placing a camera on a BasicVertex
-     * @param cover list of cover vertices
-     * @return the total cost of placing camera on the cover vertices
-     */
-    private int calculateCost(ArrayList<BasicVertex> cover) {
-        int totalCost = 0;
-        for (BasicVertex vertex : cover) {
-            totalCost += cameraCosts[vertex.getPosition().getRow()][vertex.getPosition().getColumn()];
+        long[] costs = new long[streetNodes.size()];
+        for (int i = 0; i < streetNodes.size(); i++) {
+            Position2D position = streetNodes.get(i).getPosition();
+            costs[i] = cameraCosts[position.getRow()][position.getColumn()];
         }
-        return totalCost;
+        int[] streetNumbers = numberStreets(view);
+        return solveCover(view, streetNodes, costs, range, streetNumbers, streetNodes.size());
     }
 }
@@ -1,6 +1,7 @@
 package controller;
 
 import model.*;
+import model.abstractClasses.MapView;
 import model.sites.Hospital;
 import model.sites.PoliceStation;
 import model.sites.Site;
@@ -10,7 +11,8 @@ import java.util.stream.Collectors;
 
 
 /**
- * Class to manage Construction Sites in the SparseMap
+ * Class to manage Construction Sites in the SparseMap.
+ * Every query reads one snapshot of the map, so it is not affected by changes of the map while it runs.
  */
 public class SiteManager {
     private SparseMap siteMap;
@@ -37,32 +39,25 @@ public class SiteManager {
     }
 
     /**
-     * Checks if replacing Vertices with Sites Disconnects street components
+     * Checks if replacing Vertices with Sites Disconnects street components.
+     * The sites are placed on an overlay of a snapshot of the map, the map itself is not changed.
      *
      * @param positionList list of vertices to be replaced
      * @return true if components go up by at least 1 when vertices get replaced
      */
     public boolean isDisconnectingSet(ArrayList<Position2D> positionList) {
-        Map<Position2D, BasicVertex> originalVertices = new HashMap<>();
+        MapSnapshot snapshot = siteMap.getSnapshot();
+        MapOverlay overlay = new MapOverlay(snapshot);
         for (Position2D position : positionList) {
-            Optional<BasicVertex> vertex = siteMap.getBasicVertex(position);
-            if (vertex.isPresent()) {
-                originalVertices.put(position, vertex.get());
-                Site site = new Site(position.getRow(), position.getColumn(), vertex.get().getValue(), 0);
-                site.setContainingMap(vertex.get().getContainingMap());
-                siteMap.replaceVertex(position, site);
+            if (snapshot.isInBound(position.getRow(), position.getColumn())) {
+                BasicVertex vertex = snapshot.getVertex(position);
+                Site site = new Site(position.getRow(), position.getColumn(), vertex.getValue(), 0);
+                site.setContainingMap(vertex.getContainingMap());
+                overlay.replaceVertex(position, site);
             }
         }
 
-
-        int initialComponents = countComponents();
-        for (Position2D position : positionList) {
-            siteMap.replaceVertex(position, originalVertices.get(position));
-        }
-        int newComponents = countComponents();
-
-
-        return newComponents < initialComponents;
+        return countComponents(overlay, true) > countComponents(snapshot, true);
     }
 
 
@@ -72,16 +67,45 @@ public class SiteManager {
      * @return the number of components
      */
     public int countComponents() {
-        Set<BasicVertex> visited = new HashSet<>();
+        return countComponents(siteMap.getSnapshot(), true);
+    }
+
+    /**
+     * Counts the street components of a view of the map with an iterative search over cell indices
+     *
+     * @param view         the view of the map
+     * @param drivableOnly true to count only streets with a speed limit other than 0
+     * @return the number of components
+     */
+    private int countComponents(MapView view, boolean drivableOnly) {
+        int rows = view.getRows();
+        int columns = view.getColumns();
+        boolean[] visited = new boolean[rows * columns];
+        int[] stack = new int[rows * columns];
         int components = 0;
 
-        for (BasicVertex[] row : siteMap.getSparseVertexArray()) {
-            for (BasicVertex v : row) {
-                if (v instanceof BasicStreet && ((BasicStreet) v).getSpeedLimit() != 0 && !visited.contains(v)) {
-                    List<BasicVertex> component = new ArrayList<>();
-                    dfs(v, visited, component);
-                    if (!component.isEmpty()) {
-                        components++;
+        for (int cell = 0; cell < rows * columns; cell++) {
+            if (visited[cell] || !isCountedStreet(view, cell / columns, cell % columns, drivableOnly)) {
+                continue;
+            }
+            components++;
+            visited[cell] = true;
+            int stackSize = 0;
+            stack[stackSize++] = cell;
+            while (stackSize > 0) {
+                int current = stack[--stackSize];
+                int row = current / columns;
+                int column = current % columns;
+                for (int direction = 0; direction < 4; direction++) {
+                    int neighbourRow = row + (direction == 0 ? -1 : direction == 1 ? 1 : 0);
+                    int neighbourColumn = column + (direction == 2 ? -1 : direction == 3 ? 1 : 0);
+                    if (!view.isInBound(neighbourRow, neighbourColumn)) {
+                        continue;
+                    }
+                    int neighbour = neighbourRow * columns + neighbourColumn;
+                    if (!visited[neighbour] && isCountedStreet(view, neighbourRow, neighbourColumn, drivableOnly)) {
+                        visited[neighbour] = true;
+                        stack[stackSize++] = neighbour;
                     }
                 }
             }
@@ -89,20 +113,49 @@ public class SiteManager {
         return components;
     }
 
+    /**
+     * @param view         the view of the map
+     * @param row          the row of the cell to check
+     * @param column       the column of the cell to check
+     * @param drivableOnly true to count only streets with a speed limit other than 0
+     * @return true if the cell holds a street that is counted for the components
+     */
+    private boolean isCountedStreet(MapView view, int row, int column, boolean drivableOnly) {
+        return view.getVertex(row, column) instanceof BasicStreet
+                && (!drivableOnly || view.getSpeedLimit(row, column) != 0);
+    }
+
+    /**
+     * Looks up the neighbour of a vertex in a view, in the order up, down, left, right
+     *
+     * @param view      the view of the map
+     * @param v         the vertex
+     * @param direction the direction of the neighbour, between 0 and 3
+     * @return the neighbour, null if it lies outside the map
+     */
+    private BasicVertex neighbourOf(MapView view, BasicVertex v, int direction) {
+        int row = v.getPosition().getRow() + (direction == 0 ? -1 : direction == 1 ? 1 : 0);
+        int column = v.getPosition().getColumn() + (direction == 2 ? -1 : direction == 3 ? 1 : 0);
+        return view.isInBound(row, column) ? view.getVertex(row, column) : null;
+    }
+
     /**
      * depth first search to help find components
      *
+     * @param view      the view of the map
      * @param v         current vertex
      * @param visited   List of visited vertices
      * @param component List of vertices in current component
      */
-    private void dfs(BasicVertex v, Set<BasicVertex> visited, List<BasicVertex> component) {
+    private void dfs(MapView view, BasicVertex v, Set<BasicVertex> visited, List<BasicVertex> component) {
         visited.add(v);
         component.add(v);
 
-        for (BasicVertex neighbour : v.getNeighbours()) {
-            if (neighbour instanceof BasicStreet && ((BasicStreet) neighbour).getSpeedLimit() != 0 && !visited.contains(neighbour)) {
-                dfs(neighbour, visited, component);
+        for (int direction = 0; direction < 4; direction++) {
+            BasicVertex neighbour = neighbourOf(view, v, direction);
+            if (neighbour instanceof BasicStreet && !visited.contains(neighbour) && view.getSpeedLimit(
+                    neighbour.getPosition().getRow(), neighbour.getPosition().getColumn()) != 0) {
+                dfs(view, neighbour, visited, component);
             }
         }
     }
@@ -114,12 +167,14 @@ public class SiteManager {
      * to a police station and a street connected to a hospital, false otherwise
      */
     public boolean hasValidSites() {
-        List<List<BasicVertex>> components = getComponents();
+        MapSnapshot snapshot = siteMap.getSnapshot();
+        List<List<BasicVertex>> components = getComponents(snapshot);
         for (int i = 0; i < components.size(); i++) {
             boolean hasHospital = false;
             boolean hasPoliceStation = false;
             for (BasicVertex v : components.get(i)) {
-                for (BasicVertex neighbour : v.getNeighbours()) {
+                for (int direction = 0; direction < 4; direction++) {
+                    BasicVertex neighbour = neighbourOf(snapshot, v, direction);
                     if (neighbour instanceof Hospital) {
                         hasHospital = true;
                     }
@@ -141,15 +196,25 @@ public class SiteManager {
      * @return all the components
      */
     public List<List<BasicVertex>> getComponents() {
+        return getComponents(siteMap.getSnapshot());
+    }
+
+    /**
+     * Collects the components of drivable streets of a view
+     *
+     * @param view the view of the map
+     * @return all the components
+     */
+    private List<List<BasicVertex>> getComponents(MapView view) {
         Set<BasicVertex> visited = new HashSet<>();
         List<List<BasicVertex>> components = new ArrayList<>();
 
-        for (BasicVertex[] row : siteMap.getSparseVertexArray()) {
-            for (BasicVertex v : row) {
-
-                if (v instanceof BasicStreet && ((BasicStreet) v).getSpeedLimit() > 0 && !visited.contains(v)) {
+        for (int row = 0; row < view.getRows(); row++) {
+            for (int column = 0; column < view.getColumns(); column++) {
+                BasicVertex v = view.getVertex(row, column);
+                if (v instanceof BasicStreet && view.getSpeedLimit(row, column) > 0 && !visited.contains(v)) {
                     List<BasicVertex> newComponent = new ArrayList<>();
-                    dfs(v, visited, newComponent);
+                    dfs(view, v, visited, newComponent);
                     components.add(newComponent);
                 }
             }
@@ -230,7 +295,8 @@ public class SiteManager {
      * @throws IllegalStateException if there are more than 15 road nodes in the siteMap
      */
     public BasicStreet[] getCutSet(int k) {
-        List<BasicStreet> allStreets = getAllStreets();
+        MapSnapshot snapshot = siteMap.getSnapshot();
+        List<BasicStreet> allStreets = getAllStreets(snapshot);
         if (allStreets.size() > 15) {
             throw new IllegalStateException("There should never be more than 15 road nodes in siteMap.");
         }
@@ -239,11 +305,11 @@ public class SiteManager {
 
 
         List<BasicStreet> minLexiSet = null;
-        int originalComponents = countComponents();
+        int originalComponents = countComponents(snapshot, true);
         generateCombinations(allStreets, new ArrayList<>(), combinations, k, originalComponents);
 
         for (List<BasicStreet> combo : combinations) {
-            if (isValidCutSet(combo, originalComponents)) {
+            if (isValidCutSet(snapshot, combo, originalComponents)) {
                 if (minLexiSet == null || isLexicographicallySmaller(combo, minLexiSet)) {
                     minLexiSet = new ArrayList<>(combo);
                 }
@@ -260,15 +326,16 @@ public class SiteManager {
     }
 
     /**
-     * Gets all street vertices from the map
+     * Gets all street vertices from a view of the map
+     * @param view the view of the map
      * @return a list of all street objects
      */
-    private List<BasicStreet> getAllStreets() {
+    private List<BasicStreet> getAllStreets(MapView view) {
         List<BasicStreet> streets = new ArrayList<>();
-        for (BasicVertex[] row : siteMap.getSparseVertexArray()) {
-            for (BasicVertex vertex : row) {
-                if (vertex instanceof BasicStreet) {
-                    streets.add((BasicStreet) vertex);
+        for (int row = 0; row < view.getRows(); row++) {
+            for (int column = 0; column < view.getColumns(); column++) {
+                if (view.getVertex(row, column) instanceof BasicStreet street) {
+                    streets.add(street);
                 }
             }
         }
@@ -347,40 +414,33 @@ public class SiteManager {
 
     /**
      * Checks if replacing a given street node with a green space increases the number of components in the siteMap.
+     * The green is placed on an overlay of the view, the map itself is not changed.
      *
+     * @param view               the view of the map
      * @param street             the street node to be replaced
      * @param originalComponents the original number of components in the siteMap
      * @return true if replacing the street node increases the number of components, false otherwise
      */
-    private boolean isStreetEffective(BasicStreet street, int originalComponents) {
-        siteMap.replaceVertex(street.getPosition(), new BasicGreen(street.getPosition().getRow(), street.getPosition().getColumn(), street.getValue()));
-        int newComponents = countComponents();
-        siteMap.replaceVertex(street.getPosition(), street);
-
-        return newComponents > originalComponents;
+    private boolean isStreetEffective(MapView view, BasicStreet street, int originalComponents) {
+        MapOverlay overlay = new MapOverlay(view).replaceWithGreen(street);
+        return countComponents(overlay, true) > originalComponents;
     }
 
     /**
      * Checks if a combination of street nodes forms a valid cut set that increases the number of components in the siteMap.
+     * The greens are placed on an overlay of the view, the map itself is not changed.
      *
+     * @param view               the view of the map
      * @param combo              the combination of street nodes
      * @param originalComponents the original number of components in the siteMap
      * @return true if the combination forms a valid cut set, false otherwise
      */
-    private boolean isValidCutSet(List<BasicStreet> combo, int originalComponents) {
-        Map<BasicStreet, BasicVertex> originalVertices = new HashMap<>();
+    private boolean isValidCutSet(MapView view, List<BasicStreet> combo, int originalComponents) {
+        MapOverlay overlay = new MapOverlay(view);
         for (BasicStreet street : combo) {
-            originalVertices.put(street, siteMap.getBasicVertex(street.getPosition()).orElse(null));
-            siteMap.replaceVertex(street.getPosition(), new BasicGreen(street.getPosition().getRow(), street.getPosition().getColumn(), street.getValue()));
-        }
-
-        int newComponents = countComponents2();
-
-        for (Map.Entry<BasicStreet, BasicVertex> entry : originalVertices.entrySet()) {
-            siteMap.replaceVertex(entry.getKey().getPosition(), entry.getValue());
+            overlay.replaceWithGreen(street);
         }
-
-        return newComponents > originalComponents;
+        return countComponents(overlay, false) > originalComponents;
     }
 
 
@@ -399,45 +459,4 @@ public class SiteManager {
         }
         return combo1.size() < combo2.size();
     }
-
-    /**
-     * Counts the number of connected components in the siteMap considering only street nodes.
-     *
-     * @return the number of connected components
-     */
-    private int countComponents2() {
-        Set<BasicVertex> visited = new HashSet<>();
-        int components = 0;
-
-        for (int i = 0; i < siteMap.getSparseVertexArray().length; i++) {
-            for (int j = 0; j < siteMap.getSparseVertexArray()[i].length; j++) {
-                BasicVertex vertex = siteMap.getSparseVertexArray()[i][j];
-                if (vertex instanceof BasicStreet && !visited.contains(vertex)) {
-
-                    dfs(vertex, visited);
-                    components++;
-                }
-            }
-        }
-        return components;
-    }
-
-
-    /**
-     * Performs a depth first search  to mark all reachable street nodes from a given starting vertex.
-     *
-     * @param vertex  the starting vertex
-     * @param visited the set of already visited vertices
-     */
-    private void dfs(BasicVertex vertex, Set<BasicVertex> visited) {
-
-        visited.add(vertex);
-
-        for (BasicVertex neighbor : vertex.getNeighbours()) {
-            if (neighbor instanceof BasicStreet && !visited.contains(neighbor)) {
-                dfs(neighbor, visited);
-            }
-        }
-    }
 }
-
@@ -84,6 +84,7 @@ public class SparseController {
             green.setContainingMap(sparseMap);
             sparseMap.getSparseVertexArray()[position.getRow()][position.getColumn()] = green;
         }
+        sparseMap.invalidateIndexes();
 
 
 
@@ -109,7 +110,8 @@ public class SparseController {
 
         for (BasicStreet street : streetsList) {
             int streetNeighbourCount = 0;
-            for (BasicVertex neighbour : street.getNeighbours()) {
+            for (int i = 0, count = street.getNeighbourCount(); i < count; i++) {
+                BasicVertex neighbour = street.getNeighbour(i);
                 if (neighbour instanceof BasicStreet) {
                     streetNeighbourCount++;
             }}
@@ -154,6 +156,7 @@ public class SparseController {
 
             }
         }
+        sparseMap.invalidateIndexes();
 
         return sparseMap;
 
@@ -214,7 +214,8 @@ public class BasicMap extends BasicMapTemplate {
 
                 visited.add(current);
                 boolean hasNeighbours = false;
-                for (BasicVertex neighbour : current.getNeighbours()) {
+                for (int i = 0, count = current.getNeighbourCount(); i < count; i++) {
+                    BasicVertex neighbour = current.getNeighbour(i);
                     if (neighbour.getValue() == value && !visited.contains(neighbour)) {
                         stack.push(neighbour);
 
@@ -239,7 +240,8 @@ public class BasicMap extends BasicMapTemplate {
             for (BasicVertex vertex : row) {
                 if (vertex instanceof BasicBuilding) {
                     boolean hasAdjacentStreets = false;
-                    for (BasicVertex neighbour : vertex.getNeighbours()) {
+                    for (int i = 0, count = vertex.getNeighbourCount(); i < count; i++) {
+                        BasicVertex neighbour = vertex.getNeighbour(i);
                         if (neighbour instanceof BasicStreet) {
                             hasAdjacentStreets = true;
                             break;
@@ -288,10 +290,8 @@ public class BasicMap extends BasicMapTemplate {
     }
 
     private boolean isConnectedToAnotherStreet(BasicVertex street) {
-        List<BasicVertex> neighbours = street.getNeighbours();
-
-        for (BasicVertex neighbour : neighbours) {
-            if (neighbour instanceof BasicStreet) {
+        for (int i = 0, count = street.getNeighbourCount(); i < count; i++) {
+            if (street.getNeighbour(i) instanceof BasicStreet) {
                 return true;
             }
         }
@@ -1,7 +1,5 @@
 package model;
 
-import java.util.List;
-
 public class BasicStreet extends BasicVertex{
     private int speedLimit;
     public BasicStreet(int row, int column, int value, int speedLimit) {
@@ -11,10 +9,9 @@ public class BasicStreet extends BasicVertex{
     }
 
     public boolean isBasicDeadEnd() {
-        List<BasicVertex> neighbours = this.getNeighbours();
         int connectedStreets = 0;
-        for (BasicVertex neighbour : neighbours) {
-            if (neighbour instanceof BasicStreet) {
+        for (int i = 0, count = getNeighbourCount(); i < count; i++) {
+            if (getNeighbour(i) instanceof BasicStreet) {
                 connectedStreets++;
             }
         }
@@ -28,4 +25,17 @@ public class BasicStreet extends BasicVertex{
     public void setSpeedLimit(int speedLimit) {
         this.speedLimit = speedLimit;
     }
+
+    /**
+     * Creates a street of the same kind at the same position, with the same value and containing map and the
+     * given speed limit. This street is not changed.
+     *
+     * @param speedLimit the speed limit of the copy
+     * @return the copy
+     */
+    public BasicStreet withSpeedLimit(int speedLimit) {
+        BasicStreet street = new BasicStreet(getPosition().getRow(), getPosition().getColumn(), getValue(), speedLimit);
+        street.setContainingMap(getContainingMap());
+        return street;
+    }
 }
@@ -70,7 +70,8 @@ public class BasicVertex extends BasicVertexTemplate {
             BasicVertex currentVertex = q.poll();
             int currentDistance = distances.get(currentVertex);
 
-            for (BasicVertex neighbor : currentVertex.getNeighbours()) {
+            for (int i = 0, count = currentVertex.getNeighbourCount(); i < count; i++) {
+                BasicVertex neighbor = currentVertex.getNeighbour(i);
                 if (!visited.contains(neighbor) && neighbor.getValue() == requiredConnectValue) {
                     q.add(neighbor);
                     distances.put(neighbor, currentDistance + 1);
@@ -82,30 +83,91 @@ public class BasicVertex extends BasicVertexTemplate {
         return distances;
     }
     public List<BasicVertex> getNeighbours() {
-        List<BasicVertex> neighbours = new ArrayList<>();
+        int count = getNeighbourCount();
+        List<BasicVertex> neighbours = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            neighbours.add(getNeighbour(i));
+        }
+        return neighbours;
+    }
+
+    /**
+     * Anzahl der direkten Nachbarn dieses Knotens in der Karte, ohne eine Liste anzulegen.
+     *
+     * @return die Anzahl der Nachbarn, zwischen 2 und 4 (bzw. weniger bei einzeiligen Karten)
+     */
+    public int getNeighbourCount() {
         int row = getPosition().getRow();
         int column = getPosition().getColumn();
         BasicVertex[][] map = getContainingMap().getVertexArray();
-
+        int count = 0;
         if (row > 0) {
-            neighbours.add(map[row - 1][column]);
+            count++;
         }
         if (row < map.length - 1) {
-            neighbours.add(map[row + 1][column]);
+            count++;
         }
         if (column > 0) {
-            neighbours.add(map[row][column - 1]);
+            count++;
         }
         if (column < map[0].length - 1) {
-            neighbours.add(map[row][column + 1]);
+            count++;
         }
+        return count;
+    }
 
-        return neighbours;
+    /**
+     * Liefert den Nachbarn mit dem gegebenen Index, in derselben Reihenfolge wie getNeighbours()
+     * (oben, unten, links, rechts). Zusammen mit getNeighbourCount() lassen sich die Nachbarn so
+     * ohne Allokation durchlaufen.
+     *
+     * @param index der Index des Nachbarn, zwischen 0 und getNeighbourCount() - 1
+     * @return der Nachbar mit dem gegebenen Index
+     * @throws IndexOutOfBoundsException wenn es keinen Nachbarn mit diesem Index gibt
+     */
+    public BasicVertex getNeighbour(int index) {
+        int row = getPosition().getRow();
+        int column = getPosition().getColumn();
+        BasicVertex[][] map = getContainingMap().getVertexArray();
+        int remaining = index;
+
+        if (row > 0 && remaining-- == 0) {
+            return map[row - 1][column];
+        }
+        if (row < map.length - 1 && remaining-- == 0) {
+            return map[row + 1][column];
+        }
+        if (column > 0 && remaining-- == 0) {
+            return map[row][column - 1];
+        }
+        if (column < map[0].length - 1 && remaining == 0) {
+            return map[row][column + 1];
+        }
+        throw new IndexOutOfBoundsException("No neighbour with index " + index);
+    }
+
+    /**
+     * Prüft, ob der gegebene Knoten ein direkter Nachbar dieses Knotens ist.
+     *
+     * @param v der zu prüfende Knoten
+     * @return true, wenn v einer der Nachbarn ist, sonst false
+     */
+    public boolean hasNeighbour(BasicVertex v) {
+        for (int i = 0, count = getNeighbourCount(); i < count; i++) {
+            if (getNeighbour(i).equals(v)) {
+                return true;
+            }
+        }
+        return false;
     }
 
 
     @Override
     public boolean isBasicStreetConnectedTo(BasicVertex v) {
+        if (v != null && getContainingMap() instanceof SparseMap sparseMap
+                && sparseMap.getSparseVertexArray() == sparseMap.getVertexArray()) {
+            return sparseMap.areStreetConnected(this, v);
+        }
         return isBasicStreetConnectedTo(v, new HashSet<>());
     }
 
@@ -126,7 +188,8 @@ public class BasicVertex extends BasicVertexTemplate {
                 return true;
             }
 
-            for (BasicVertex neighbour : current.getNeighbours()) {
+            for (int i = 0, count = current.getNeighbourCount(); i < count; i++) {
+                BasicVertex neighbour = current.getNeighbour(i);
                 if (!visited.contains(neighbour) && (neighbour instanceof BasicStreet || neighbour.equals(v)) && !blackList.contains(neighbour)) {
                     q.add(neighbour);
 
@@ -0,0 +1,700 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Block-cut tree over the street cells of a map.
+ * Every street cell is addressed by its cell index row * columns + column. The streets are split into their
+ * biconnected blocks with Tarjan's algorithm, the tree links every block to the articulation streets it
+ * contains. A street that is no articulation is represented by its only block, an articulation street by its
+ * own cut node. Any route between two streets passes all cut nodes on their tree path and stays inside the
+ * blocks on it, so whether removed streets separate two streets is decided on the tree path, only blocks
+ * that lose two or more streets are searched.
+ * When a cell becomes a street or stops being one, only the street components around it are rebuilt on the
+ * next query.
+ * The index is safe for concurrent queries. Every build is published as an immutable Tree through a volatile
+ * field, queries keep the tree they started with and take their scratch arrays from a pool, so a query never
+ * writes to state another query reads. Changes and rebuilds are serialized on the index.
+ */
+public class BlockCutIndex {
+    /** Number of rows of the indexed map. */
+    private final int rows;
+    /** Number of columns of the indexed map. */
+    private final int columns;
+    /** True for every cell that holds a street. */
+    private final boolean[] streets;
+    /** Tree node of every street cell, its cut node or its only block, -1 for cells that are no street. */
+    private final int[] cellNode;
+    /** Number of street cells. */
+    private int streetCount;
+
+    /** Parent of every tree node, -1 for the root of a street component. */
+    private int[] nodeParent;
+    /** Depth of every tree node below the root of its street component. */
+    private int[] nodeDepth;
+    /** Street cell of every cut node, -1 for blocks. */
+    private int[] nodeCell;
+    /** Root of the tree of every node, equal for all nodes of one street component. */
+    private int[] nodeRoot;
+    /** Number of tree nodes including nodes of rebuilt components that are no longer referenced. */
+    private int nodeCount;
+
+    /** Cells that changed since the last rebuild. */
+    private int[] dirtyCells;
+    /** Number of cells that changed since the last rebuild. */
+    private int dirtyCount;
+
+    /** Build generation in which a cell was last visited. */
+    private final int[] visitStamps;
+    /** Current build generation. */
+    private int visitStamp;
+    /** Discovery time of every visited cell. */
+    private final int[] discovery;
+    /** Lowest discovery time reachable from the subtree of every visited cell. */
+    private final int[] low;
+    /** Number of blocks containing every visited cell. */
+    private final int[] memberCounts;
+    /** First block containing every visited cell. */
+    private final int[] firstBlocks;
+    /** Block containing every visited cell and its parent in the search, -1 for the search root. */
+    private final int[] lowerBlocks;
+    /** Street on which every block was closed by the search. */
+    private int[] blockTops;
+    /** Stack of Tarjan's search. */
+    private final int[] stack;
+    /** Next direction to explore of every cell on the stack of Tarjan's search. */
+    private final int[] directions;
+    /** Cells of the blocks not closed yet by Tarjan's search. */
+    private final int[] blockStack;
+    /** Cells of the component currently built. */
+    private final int[] componentCells;
+
+    /** Tree of the latest build, null if a street changed since. */
+    private volatile Tree tree;
+    /** Scratch arrays of finished queries, reused by the next queries. */
+    private final ConcurrentLinkedQueue<Query> idleQueries = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Builds the index over the given vertex array.
+     *
+     * @param vertexArray the vertices of the map, null entries count as no street
+     */
+    public BlockCutIndex(BasicVertex[][] vertexArray) {
+        this.rows = vertexArray.length;
+        this.columns = rows == 0 ? 0 : vertexArray[0].length;
+        int cells = rows * columns;
+        this.streets = new boolean[cells];
+        this.cellNode = new int[cells];
+        this.visitStamps = new int[cells];
+        this.discovery = new int[cells];
+        this.low = new int[cells];
+        this.memberCounts = new int[cells];
+        this.firstBlocks = new int[cells];
+        this.lowerBlocks = new int[cells];
+        this.stack = new int[cells];
+        this.directions = new int[cells];
+        this.blockStack = new int[cells];
+        this.componentCells = new int[cells];
+        this.dirtyCells = new int[16];
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (vertexArray[row][column] instanceof BasicStreet) {
+                    streets[row * columns + column] = true;
+                    streetCount++;
+                }
+            }
+        }
+        rebuildAll();
+        publish();
+    }
+
+    /**
+     * Records whether a cell holds a street. The tree is brought up to date on the next query.
+     *
+     * @param cell the cell index
+     * @param street true if the cell holds a street now
+     */
+    public synchronized void setStreet(int cell, boolean street) {
+        if (streets[cell] == street) {
+            return;
+        }
+        streets[cell] = street;
+        streetCount += street ? 1 : -1;
+        if (dirtyCount == dirtyCells.length) {
+            dirtyCells = Arrays.copyOf(dirtyCells, dirtyCount * 2);
+        }
+        dirtyCells[dirtyCount++] = cell;
+        tree = null;
+    }
+
+    /**
+     * Checks if a cell is registered as street.
+     *
+     * @param cell the cell index
+     * @return true if the cell is a street, false otherwise
+     */
+    public boolean isStreet(int cell) {
+        return currentTree().cellNode[cell] >= 0;
+    }
+
+    /**
+     * Checks if a street cell is an articulation of the street graph, removing it disconnects its component.
+     *
+     * @param cell the cell index
+     * @return true if the cell is an articulation street, false otherwise
+     */
+    public boolean isArticulation(int cell) {
+        Tree current = currentTree();
+        int node = current.cellNode[cell];
+        return node >= 0 && current.nodeCell[node] == cell;
+    }
+
+    /**
+     * Checks if a street of the first set is connected to a street of the second set over streets that
+     * are not removed. Cells that are no street or removed are ignored in both sets.
+     *
+     * @param from the cell indices of the first set
+     * @param to the cell indices of the second set
+     * @param removedCells the cell indices of the removed streets
+     * @return true if at least one pair of streets is connected, false otherwise
+     */
+    public boolean isConnectedWithout(int[] from, int[] to, int[] removedCells) {
+        Tree current = currentTree();
+        Query query = idleQueries.poll();
+        if (query == null) {
+            query = new Query(rows * columns);
+        }
+        try {
+            return query.isConnectedWithout(current, from, to, removedCells);
+        } finally {
+            query.tree = null;
+            idleQueries.offer(query);
+        }
+    }
+
+    /**
+     * Returns the tree of the latest build, bringing it up to date first if a street changed.
+     *
+     * @return the current tree
+     */
+    private Tree currentTree() {
+        Tree current = tree;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (tree == null) {
+                update();
+                publish();
+            }
+            return tree;
+        }
+    }
+
+    /**
+     * Publishes the built tree. The node arrays are shared with later builds, which only append nodes behind
+     * the published ones or replace the arrays, the cell nodes are copied.
+     */
+    private void publish() {
+        tree = new Tree(columns, rows, cellNode.clone(), nodeParent, nodeDepth, nodeCell, nodeRoot, nodeCount);
+    }
+
+    /**
+     * Rebuilds the street components around the cells that changed since the last rebuild.
+     * All streets of a component that contained or touched a changed cell are visited again, the nodes of
+     * their old components are dropped. Once the dropped nodes outweigh the live ones the whole tree is
+     * rebuilt.
+     */
+    private void update() {
+        if (dirtyCount == 0) {
+            return;
+        }
+        if (nodeCount > 4 * streetCount + 1024) {
+            rebuildAll();
+            return;
+        }
+        nextVisitStamp();
+        for (int i = 0; i < dirtyCount; i++) {
+            int cell = dirtyCells[i];
+            if (!streets[cell]) {
+                cellNode[cell] = -1;
+            } else if (visitStamps[cell] != visitStamp) {
+                buildComponent(cell);
+            }
+            for (int direction = 0; direction < 4; direction++) {
+                int neighbour = neighbour(cell, direction, rows, columns);
+                if (neighbour >= 0 && streets[neighbour] && visitStamps[neighbour] != visitStamp) {
+                    buildComponent(neighbour);
+                }
+            }
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * Rebuilds the tree of all street components from scratch.
+     */
+    private void rebuildAll() {
+        nodeCount = 0;
+        int capacity = Math.max(16, streetCount);
+        nodeParent = new int[capacity];
+        nodeDepth = new int[capacity];
+        nodeCell = new int[capacity];
+        nodeRoot = new int[capacity];
+        blockTops = new int[capacity];
+        Arrays.fill(cellNode, -1);
+        nextVisitStamp();
+        for (int cell = 0; cell < streets.length; cell++) {
+            if (streets[cell] && visitStamps[cell] != visitStamp) {
+                buildComponent(cell);
+            }
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * Starts a new build generation.
+     */
+    private void nextVisitStamp() {
+        visitStamp++;
+        if (visitStamp == 0) {
+            Arrays.fill(visitStamps, 0);
+            visitStamp = 1;
+        }
+    }
+
+    /**
+     * Splits the street component of a cell into blocks with an iterative Tarjan search and links the blocks
+     * and the articulation streets of the component to a tree rooted at the start cell.
+     *
+     * @param start a street cell of the component
+     */
+    private void buildComponent(int start) {
+        int firstNode = nodeCount;
+        int componentSize = 0;
+        int time = 0;
+        int stackSize = 0;
+        int blockStackSize = 0;
+
+        visit(start, time++);
+        componentCells[componentSize++] = start;
+        stack[stackSize] = start;
+        directions[stackSize++] = 0;
+        blockStack[blockStackSize++] = start;
+
+        while (stackSize > 0) {
+            int cell = stack[stackSize - 1];
+            int parent = stackSize > 1 ? stack[stackSize - 2] : -1;
+            if (directions[stackSize - 1] < 4) {
+                int neighbour = neighbour(cell, directions[stackSize - 1]++, rows, columns);
+                if (neighbour < 0 || !streets[neighbour]) {
+                    continue;
+                }
+                if (visitStamps[neighbour] != visitStamp) {
+                    visit(neighbour, time++);
+                    componentCells[componentSize++] = neighbour;
+                    stack[stackSize] = neighbour;
+                    directions[stackSize++] = 0;
+                    blockStack[blockStackSize++] = neighbour;
+                } else if (neighbour != parent) {
+                    low[cell] = Math.min(low[cell], discovery[neighbour]);
+                }
+                continue;
+            }
+            stackSize--;
+            if (parent < 0) {
+                continue;
+            }
+            low[parent] = Math.min(low[parent], low[cell]);
+            if (low[cell] >= discovery[parent]) {
+                int block = newNode(-1);
+                blockTops[block] = parent;
+                int member;
+                do {
+                    member = blockStack[--blockStackSize];
+                    addMember(member, block);
+                    lowerBlocks[member] = block;
+                } while (member != cell);
+                addMember(parent, block);
+            }
+        }
+        if (nodeCount == firstNode) {
+            int block = newNode(-1);
+            blockTops[block] = start;
+            addMember(start, block);
+        }
+
+        int blockEnd = nodeCount;
+        for (int i = 0; i < componentSize; i++) {
+            int cell = componentCells[i];
+            cellNode[cell] = memberCounts[cell] > 1 ? newNode(cell) : firstBlocks[cell];
+        }
+        for (int node = firstNode; node < nodeCount; node++) {
+            nodeRoot[node] = firstNode;
+            if (node < blockEnd) {
+                int top = blockTops[node];
+                nodeParent[node] = memberCounts[top] > 1 ? cellNode[top] : -1;
+            } else {
+                nodeParent[node] = lowerBlocks[nodeCell[node]];
+            }
+        }
+        for (int block = blockEnd - 1; block >= firstNode; block--) {
+            int parent = nodeParent[block];
+            if (parent < 0) {
+                nodeDepth[block] = 0;
+            } else {
+                nodeDepth[parent] = nodeParent[parent] < 0 ? 0 : nodeDepth[nodeParent[parent]] + 1;
+                nodeDepth[block] = nodeDepth[parent] + 1;
+            }
+        }
+    }
+
+    /**
+     * Marks a cell as visited by the current build.
+     *
+     * @param cell the cell index
+     * @param time the discovery time of the cell
+     */
+    private void visit(int cell, int time) {
+        visitStamps[cell] = visitStamp;
+        discovery[cell] = time;
+        low[cell] = time;
+        memberCounts[cell] = 0;
+        lowerBlocks[cell] = -1;
+    }
+
+    /**
+     * Records that a cell belongs to a block.
+     *
+     * @param cell the cell index
+     * @param block the block node
+     */
+    private void addMember(int cell, int block) {
+        if (memberCounts[cell]++ == 0) {
+            firstBlocks[cell] = block;
+        }
+    }
+
+    /**
+     * Appends a tree node, growing the node arrays if necessary.
+     *
+     * @param cell the street cell of a cut node, -1 for a block
+     * @return the new node
+     */
+    private int newNode(int cell) {
+        if (nodeCount == nodeParent.length) {
+            int capacity = nodeCount * 2;
+            nodeParent = Arrays.copyOf(nodeParent, capacity);
+            nodeDepth = Arrays.copyOf(nodeDepth, capacity);
+            nodeCell = Arrays.copyOf(nodeCell, capacity);
+            nodeRoot = Arrays.copyOf(nodeRoot, capacity);
+            blockTops = Arrays.copyOf(blockTops, capacity);
+        }
+        nodeCell[nodeCount] = cell;
+        return nodeCount++;
+    }
+
+    /**
+     * Looks up the neighbouring cell in the given direction.
+     *
+     * @param cell the cell index
+     * @param direction 0 for up, 1 for down, 2 for left, 3 for right
+     * @param rows the number of rows of the map
+     * @param columns the number of columns of the map
+     * @return the cell index of the neighbour, or -1 if it is outside the map
+     */
+    private static int neighbour(int cell, int direction, int rows, int columns) {
+        int row = cell / columns;
+        int column = cell % columns;
+        return switch (direction) {
+            case 0 -> row > 0 ? cell - columns : -1;
+            case 1 -> row < rows - 1 ? cell + columns : -1;
+            case 2 -> column > 0 ? cell - 1 : -1;
+            default -> column < columns - 1 ? cell + 1 : -1;
+        };
+    }
+
+    /**
+     * Appends a value to a growable array.
+     *
+     * @param array the array
+     * @param size the number of values in the array
+     * @param value the value to append
+     * @return the array holding the value, a larger copy if it was full
+     */
+    private static int[] append(int[] array, int size, int value) {
+        int[] result = size == array.length ? Arrays.copyOf(array, size * 2) : array;
+        result[size] = value;
+        return result;
+    }
+
+    /**
+     * Block-cut tree of one build. It is never changed after it was published.
+     */
+    private static final class Tree {
+        /** Number of columns of the indexed map. */
+        private final int columns;
+        /** Number of rows of the indexed map. */
+        private final int rows;
+        /** Tree node of every street cell, -1 for cells that are no street. */
+        private final int[] cellNode;
+        /** Parent of every tree node, -1 for the root of a street component. */
+        private final int[] nodeParent;
+        /** Depth of every tree node below the root of its street component. */
+        private final int[] nodeDepth;
+        /** Street cell of every cut node, -1 for blocks. */
+        private final int[] nodeCell;
+        /** Root of the tree of every node. */
+        private final int[] nodeRoot;
+        /** Number of tree nodes of this build, later entries of the node arrays belong to later builds. */
+        private final int nodeCount;
+
+        /**
+         * Constructor of a tree from the arrays of a build.
+         *
+         * @param columns the number of columns of the map
+         * @param rows the number of rows of the map
+         * @param cellNode the tree node of every cell
+         * @param nodeParent the parent of every node
+         * @param nodeDepth the depth of every node
+         * @param nodeCell the street cell of every node
+         * @param nodeRoot the root of every node
+         * @param nodeCount the number of nodes
+         */
+        private Tree(int columns, int rows, int[] cellNode, int[] nodeParent, int[] nodeDepth, int[] nodeCell,
+                     int[] nodeRoot, int nodeCount) {
+            this.columns = columns;
+            this.rows = rows;
+            this.cellNode = cellNode;
+            this.nodeParent = nodeParent;
+            this.nodeDepth = nodeDepth;
+            this.nodeCell = nodeCell;
+            this.nodeRoot = nodeRoot;
+            this.nodeCount = nodeCount;
+        }
+    }
+
+    /**
+     * Scratch arrays of one query. A query is used by one thread at a time and only reads its tree.
+     */
+    private static final class Query {
+        /** Tree the running query reads. */
+        private Tree tree;
+        /** Query generation in which a cell was removed. */
+        private final int[] removedStamps;
+        /** Query generation of the removal count of every node. */
+        private int[] countStamps = new int[16];
+        /** Number of removed streets in every block whose count stamp is current. */
+        private int[] removedCounts = new int[16];
+        /** Current query generation. */
+        private int queryStamp;
+        /** Search generation in which a cell was reached inside a block. */
+        private final int[] searchStamps;
+        /** Current search generation. */
+        private int searchStamp;
+        /** Queue of the search inside a block. */
+        private final int[] queue;
+        /** Tree nodes on the way up from the first street of a query. */
+        private int[] upPath = new int[16];
+        /** Tree nodes on the way up from the second street of a query. */
+        private int[] downPath = new int[16];
+
+        /**
+         * Constructor of the scratch arrays for a map.
+         *
+         * @param cells the number of cells of the map
+         */
+        private Query(int cells) {
+            this.removedStamps = new int[cells];
+            this.searchStamps = new int[cells];
+            this.queue = new int[cells];
+        }
+
+        /**
+         * Answers isConnectedWithout on the given tree.
+         *
+         * @param tree the tree to read
+         * @param from the cell indices of the first set
+         * @param to the cell indices of the second set
+         * @param removedCells the cell indices of the removed streets
+         * @return true if at least one pair of streets is connected, false otherwise
+         */
+        private boolean isConnectedWithout(Tree tree, int[] from, int[] to, int[] removedCells) {
+            this.tree = tree;
+            if (countStamps.length < tree.nodeCount) {
+                countStamps = Arrays.copyOf(countStamps, tree.nodeCount);
+                removedCounts = Arrays.copyOf(removedCounts, tree.nodeCount);
+            }
+            nextQueryStamp();
+            int[] cellNode = tree.cellNode;
+            for (int cell : removedCells) {
+                if (cellNode[cell] < 0 || removedStamps[cell] == queryStamp) {
+                    continue;
+                }
+                removedStamps[cell] = queryStamp;
+                int node = cellNode[cell];
+                if (tree.nodeCell[node] == cell) {
+                    node = tree.nodeParent[node];
+                }
+                if (node >= 0) {
+                    if (countStamps[node] != queryStamp) {
+                        countStamps[node] = queryStamp;
+                        removedCounts[node] = 0;
+                    }
+                    removedCounts[node]++;
+                }
+            }
+
+            for (int a : from) {
+                if (cellNode[a] < 0 || removedStamps[a] == queryStamp) {
+                    continue;
+                }
+                for (int b : to) {
+                    if (cellNode[b] >= 0 && removedStamps[b] != queryStamp && isConnected(a, b)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Checks if two streets that are not removed are connected without the removed streets of the current
+         * query by walking their tree path.
+         *
+         * @param a the first street
+         * @param b the second street
+         * @return true if the streets are connected, false otherwise
+         */
+        private boolean isConnected(int a, int b) {
+            if (a == b) {
+                return true;
+            }
+            int up = tree.cellNode[a];
+            int down = tree.cellNode[b];
+            if (tree.nodeRoot[up] != tree.nodeRoot[down]) {
+                return false;
+            }
+            int upLength = 0;
+            int downLength = 0;
+            while (up != down) {
+                if (tree.nodeDepth[up] >= tree.nodeDepth[down]) {
+                    upPath = append(upPath, upLength++, up);
+                    up = tree.nodeParent[up];
+                } else {
+                    downPath = append(downPath, downLength++, down);
+                    down = tree.nodeParent[down];
+                }
+            }
+            upPath = append(upPath, upLength++, up);
+            while (downLength > 0) {
+                upPath = append(upPath, upLength++, downPath[--downLength]);
+            }
+
+            for (int i = 0; i < upLength; i++) {
+                int node = upPath[i];
+                if (tree.nodeCell[node] >= 0) {
+                    if (removedStamps[tree.nodeCell[node]] == queryStamp) {
+                        return false;
+                    }
+                    continue;
+                }
+                int entry = i == 0 ? a : tree.nodeCell[upPath[i - 1]];
+                int exit = i == upLength - 1 ? b : tree.nodeCell[upPath[i + 1]];
+                if (removedCount(node) >= 2 && !isConnectedInBlock(node, entry, exit)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param block a block node
+         * @return the number of removed streets in the block
+         */
+        private int removedCount(int block) {
+            int count = countStamps[block] == queryStamp ? removedCounts[block] : 0;
+            int parent = tree.nodeParent[block];
+            if (parent >= 0 && removedStamps[tree.nodeCell[parent]] == queryStamp) {
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Searches a path between two streets of a block over its streets that are not removed.
+         *
+         * @param block the block node
+         * @param entry the street the path starts on
+         * @param exit the street the path ends on
+         * @return true if the path exists, false otherwise
+         */
+        private boolean isConnectedInBlock(int block, int entry, int exit) {
+            searchStamp++;
+            if (searchStamp == 0) {
+                Arrays.fill(searchStamps, 0);
+                searchStamp = 1;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = entry;
+            searchStamps[entry] = searchStamp;
+            while (head < tail) {
+                int cell = queue[head++];
+                if (cell == exit) {
+                    return true;
+                }
+                for (int direction = 0; direction < 4; direction++) {
+                    int neighbour = neighbour(cell, direction, tree.rows, tree.columns);
+                    if (neighbour >= 0 && tree.cellNode[neighbour] >= 0 && searchStamps[neighbour] != searchStamp
+                            && removedStamps[neighbour] != queryStamp && isInBlock(neighbour, block)) {
+                        searchStamps[neighbour] = searchStamp;
+                        queue[tail++] = neighbour;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param cell a street cell
+         * @param block a block node
+         * @return true if the street belongs to the block
+         */
+        private boolean isInBlock(int cell, int block) {
+            int node = tree.cellNode[cell];
+            if (tree.nodeCell[node] != cell) {
+                return node == block;
+            }
+            return tree.nodeParent[block] == node || tree.nodeParent[node] == block;
+        }
+
+        /**
+         * Starts a new query generation.
+         */
+        private void nextQueryStamp() {
+            queryStamp++;
+            if (queryStamp == 0) {
+                Arrays.fill(removedStamps, 0);
+                Arrays.fill(countStamps, 0);
+                queryStamp = 1;
+            }
+        }
+    }
+
+    /**
+     * @return the number of rows of the indexed map
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns of the indexed map
+     */
+    public int getColumns() {
+        return columns;
+    }
+}
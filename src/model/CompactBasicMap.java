@@ -0,0 +1,604 @@
+package model;
+
+import model.abstractClasses.BasicMapTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Struct-of-arrays implementation of BasicMapTemplate.
+ * Instead of one BasicVertex object per cell, the map keeps the cell type in a byte array
+ * and the values and attributes (speed limit of streets, height of buildings) in int arrays,
+ * all addressed by the cell index row * columns + column.
+ * The vertex of a cell is created on its first request through getBasicVertex(Position2D) and kept. It is
+ * attached to this map and reads and writes its value, speed limit or height in the arrays of this map.
+ * getVertexArray() creates the vertices of all cells, the neighbour lookups of BasicVertex read it.
+ */
+public class CompactBasicMap extends BasicMapTemplate {
+    /** Type code of a plain BasicVertex, matching the base data code. */
+    public static final byte TYPE_VERTEX = 1;
+    /** Type code of a BasicStreet, matching the base data code. */
+    public static final byte TYPE_STREET = 2;
+    /** Type code of a BasicBuilding, matching the base data code. */
+    public static final byte TYPE_BUILDING = 3;
+    /** Type code of a BasicGreen, matching the base data code. */
+    public static final byte TYPE_GREEN = 4;
+
+    /** Number of rows of the map. */
+    private int rows;
+    /** Number of columns of the map. */
+    private int columns;
+    /** Type code of every cell. */
+    private byte[] types;
+    /** Value of every cell. */
+    private int[] values;
+    /** Speed limit for street cells, height for building cells, -1 otherwise. */
+    private int[] attributes;
+    /** Vertex of every cell requested so far, null for the other cells and before the first request. */
+    private BasicVertex[][] cellVertices;
+    /** True once cellVertices holds the vertex of every cell. */
+    private boolean allCellVerticesCreated;
+
+    /**
+     * Constructs a CompactBasicMap with the specified base data.
+     *
+     * @param baseData the base data for initializing the map, using the same codes as BasicMap
+     */
+    public CompactBasicMap(int[][] baseData) {
+        super(baseData);
+    }
+
+    /**
+     * Initializes the primitive arrays from the base data.
+     * Unknown codes are stored as plain vertices, like BasicMap does.
+     *
+     * @param baseData the base data for initializing the map
+     */
+    @Override
+    public void initVertexArray(int[][] baseData) {
+        rows = baseData.length;
+        columns = baseData[0].length;
+        types = new byte[rows * columns];
+        values = new int[rows * columns];
+        attributes = new int[rows * columns];
+        Arrays.fill(values, -1);
+        Arrays.fill(attributes, -1);
+        cellVertices = null;
+        allCellVerticesCreated = false;
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                int code = baseData[i][j];
+                types[i * columns + j] = code >= TYPE_STREET && code <= TYPE_GREEN ? (byte) code : TYPE_VERTEX;
+            }
+        }
+    }
+
+    @Override
+    public void putValuesToBasicMap(int[][] valueArray) {
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(valueArray[row], 0, values, row * columns, columns);
+        }
+    }
+
+    /**
+     * Returns the vertex of the matching subtype for the cell at the given position, creating it on the first
+     * request. The vertex is attached to this map, changes through its setters are written into the arrays.
+     *
+     * @param pos the position of the cell
+     * @return the vertex, or an empty Optional if the position is outside the map
+     */
+    @Override
+    public Optional<BasicVertex> getBasicVertex(Position2D pos) {
+        if (!isInBound(pos.getRow(), pos.getColumn())) {
+            return Optional.empty();
+        }
+        return Optional.of(cellVertex(pos.getRow(), pos.getColumn()));
+    }
+
+    /**
+     * Returns the vertices of all cells, creating the ones that were not requested yet.
+     *
+     * @return the vertex array of this map
+     */
+    @Override
+    public BasicVertex[][] getVertexArray() {
+        if (!allCellVerticesCreated) {
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    cellVertex(row, column);
+                }
+            }
+            allCellVerticesCreated = true;
+        }
+        return cellVertices;
+    }
+
+    /**
+     * Returns the vertex of a cell, creating and attaching it on the first request.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the vertex of the cell
+     */
+    private BasicVertex cellVertex(int row, int column) {
+        if (cellVertices == null) {
+            cellVertices = new BasicVertex[rows][columns];
+        }
+        BasicVertex vertex = cellVertices[row][column];
+        if (vertex == null) {
+            vertex = switch (types[row * columns + column]) {
+                case TYPE_STREET -> new CellStreet(row, column);
+                case TYPE_BUILDING -> new CellBuilding(row, column);
+                case TYPE_GREEN -> new CellGreen(row, column);
+                default -> new CellVertex(row, column);
+            };
+            vertex.setContainingMap(this);
+            cellVertices[row][column] = vertex;
+        }
+        return vertex;
+    }
+
+    @Override
+    public int countBasicVerticesWithValue(int vertexValue) {
+        int count = 0;
+        for (int value : values) {
+            if (value == vertexValue) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int countBasicBuildings() {
+        return countType(TYPE_BUILDING);
+    }
+
+    @Override
+    public int countBasicStreets() {
+        return countType(TYPE_STREET);
+    }
+
+    @Override
+    public int countBasicGreens() {
+        return countType(TYPE_GREEN);
+    }
+
+    /**
+     * Counts the cells with the given type code.
+     *
+     * @param type the type code
+     * @return the number of cells with that type
+     */
+    private int countType(byte type) {
+        int count = 0;
+        for (byte t : types) {
+            if (t == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if the vertices form a path over streets, with the same rules as BasicMap:
+     * at least three vertices, all consecutive vertices adjacent, no vertex visited twice,
+     * street, green or building at both ends and only streets in between.
+     * The types are read from this map at the positions of the given vertices.
+     *
+     * @param vertexList the path to check
+     * @return true if the path is a valid path over streets, false otherwise
+     */
+    @Override
+    public boolean isBasicPathOverStreets(ArrayList<BasicVertex> vertexList) {
+        if (vertexList == null || vertexList.size() < 3) {
+            return false;
+        }
+        int size = vertexList.size();
+        int[] path = new int[size];
+        for (int i = 0; i < size; i++) {
+            Position2D position = vertexList.get(i).getPosition();
+            if (!isInBound(position.getRow(), position.getColumn())) {
+                return false;
+            }
+            path[i] = position.getRow() * columns + position.getColumn();
+            if (i > 0 && !areAdjacent(path[i - 1], path[i])) {
+                return false;
+            }
+        }
+
+        if (!isValidEndType(types[path[0]]) || !isValidEndType(types[path[size - 1]])) {
+            return false;
+        }
+        for (int i = 1; i < size - 1; i++) {
+            if (types[path[i]] != TYPE_STREET) {
+                return false;
+            }
+        }
+
+        int[] sorted = path.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < size; i++) {
+            if (sorted[i] == sorted[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a type code is allowed at the ends of a path over streets.
+     *
+     * @param type the type code
+     * @return true for streets, greens and buildings
+     */
+    private boolean isValidEndType(byte type) {
+        return type == TYPE_STREET || type == TYPE_GREEN || type == TYPE_BUILDING;
+    }
+
+    /**
+     * Checks if the cells with the given value can be walked in one go, with the same
+     * depth first walk as BasicMap: the walk stops as soon as a cell has no unvisited neighbour with the value.
+     *
+     * @param value the value to check
+     * @return true if the walk visits all cells with the value, false otherwise
+     */
+    @Override
+    public boolean isBasicPathByValue(int value) {
+        int first = -1;
+        int total = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                if (first < 0) {
+                    first = i;
+                }
+                total++;
+            }
+        }
+        if (first < 0) {
+            return false;
+        }
+
+        boolean[] visited = new boolean[values.length];
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = first;
+        visited[first] = true;
+        int visitedCount = 1;
+
+        while (top > 0) {
+            int current = stack[--top];
+            if (!visited[current]) {
+                visited[current] = true;
+                visitedCount++;
+            }
+            boolean hasNeighbours = false;
+            int row = current / columns;
+            int column = current % columns;
+            for (int direction = 0; direction < 4; direction++) {
+                int neighbour = neighbourIndex(row, column, direction);
+                if (neighbour >= 0 && values[neighbour] == value && !visited[neighbour]) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = neighbour;
+                    hasNeighbours = true;
+                }
+            }
+            if (!hasNeighbours) {
+                break;
+            }
+        }
+        return visitedCount == total;
+    }
+
+    @Override
+    public boolean hasValidBuildingPlacements() {
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == TYPE_BUILDING && !hasStreetNeighbour(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isValidBasicMap() {
+        for (int value : values) {
+            if (value < 1) {
+                return false;
+            }
+        }
+        if (!hasValidBuildingPlacements()) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == TYPE_STREET && !hasStreetNeighbour(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a cell has at least one street as direct neighbour.
+     *
+     * @param index the cell index
+     * @return true if a neighbouring cell is a street, false otherwise
+     */
+    private boolean hasStreetNeighbour(int index) {
+        int row = index / columns;
+        int column = index % columns;
+        for (int direction = 0; direction < 4; direction++) {
+            int neighbour = neighbourIndex(row, column, direction);
+            if (neighbour >= 0 && types[neighbour] == TYPE_STREET) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the index of a neighbouring cell, in the order up, down, left, right used by BasicVertex.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @param direction 0 for up, 1 for down, 2 for left, 3 for right
+     * @return the index of the neighbour, or -1 if it lies outside the map
+     */
+    private int neighbourIndex(int row, int column, int direction) {
+        return switch (direction) {
+            case 0 -> row > 0 ? (row - 1) * columns + column : -1;
+            case 1 -> row < rows - 1 ? (row + 1) * columns + column : -1;
+            case 2 -> column > 0 ? row * columns + column - 1 : -1;
+            default -> column < columns - 1 ? row * columns + column + 1 : -1;
+        };
+    }
+
+    /**
+     * Checks if two cells share an edge.
+     *
+     * @param a index of the first cell
+     * @param b index of the second cell
+     * @return true if the Manhattan distance of the cells is 1
+     */
+    private boolean areAdjacent(int a, int b) {
+        return Math.abs(a / columns - b / columns) + Math.abs(a % columns - b % columns) == 1;
+    }
+
+    /**
+     * Checks if the given position lies inside the map.
+     *
+     * @param row the row index
+     * @param column the column index
+     * @return true if the position is inside the map, false otherwise
+     */
+    private boolean isInBound(int row, int column) {
+        return row >= 0 && row < rows && column >= 0 && column < columns;
+    }
+
+    /**
+     * @return the number of rows of the map
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns of the map
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the type code of the cell
+     */
+    public byte getType(int row, int column) {
+        return types[row * columns + column];
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the value of the cell
+     */
+    public int getValue(int row, int column) {
+        return values[row * columns + column];
+    }
+
+    /**
+     * Sets the value of a cell.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @param value the new value
+     */
+    public void setValue(int row, int column, int value) {
+        values[row * columns + column] = value;
+    }
+
+    /**
+     * @param row the row of the street
+     * @param column the column of the street
+     * @return the speed limit of the street, or -1 if the cell is no street
+     */
+    public int getSpeedLimit(int row, int column) {
+        int index = row * columns + column;
+        return types[index] == TYPE_STREET ? attributes[index] : -1;
+    }
+
+    /**
+     * Sets the speed limit of a street.
+     *
+     * @param row the row of the street
+     * @param column the column of the street
+     * @param speedLimit the new speed limit
+     * @throws IllegalArgumentException if the cell is no street
+     */
+    public void setSpeedLimit(int row, int column, int speedLimit) {
+        int index = row * columns + column;
+        if (types[index] != TYPE_STREET) {
+            throw new IllegalArgumentException("Cell is not a street");
+        }
+        attributes[index] = speedLimit;
+    }
+
+    /**
+     * @param row the row of the building
+     * @param column the column of the building
+     * @return the height of the building, or -1 if the cell is no building
+     */
+    public int getHeight(int row, int column) {
+        int index = row * columns + column;
+        return types[index] == TYPE_BUILDING ? attributes[index] : -1;
+    }
+
+    /**
+     * Sets the height of a building.
+     *
+     * @param row the row of the building
+     * @param column the column of the building
+     * @param height the new height
+     * @throws IllegalArgumentException if the cell is no building
+     */
+    public void setHeight(int row, int column, int height) {
+        int index = row * columns + column;
+        if (types[index] != TYPE_BUILDING) {
+            throw new IllegalArgumentException("Cell is not a building");
+        }
+        attributes[index] = height;
+    }
+
+    /**
+     * Plain vertex of a cell, its value is kept in the arrays of the map.
+     */
+    private final class CellVertex extends BasicVertex {
+        /** Cell index of the vertex. */
+        private final int index;
+
+        /**
+         * @param row the row of the cell
+         * @param column the column of the cell
+         */
+        private CellVertex(int row, int column) {
+            super(row, column, -1);
+            this.index = row * columns + column;
+        }
+
+        @Override
+        public int getValue() {
+            return values[index];
+        }
+
+        @Override
+        public void setValue(int value) {
+            values[index] = value;
+        }
+    }
+
+    /**
+     * Street of a cell, its value and speed limit are kept in the arrays of the map.
+     */
+    private final class CellStreet extends BasicStreet {
+        /** Cell index of the street. */
+        private final int index;
+
+        /**
+         * @param row the row of the cell
+         * @param column the column of the cell
+         */
+        private CellStreet(int row, int column) {
+            super(row, column, -1, -1);
+            this.index = row * columns + column;
+        }
+
+        @Override
+        public int getValue() {
+            return values[index];
+        }
+
+        @Override
+        public void setValue(int value) {
+            values[index] = value;
+        }
+
+        @Override
+        public int getSpeedLimit() {
+            return attributes[index];
+        }
+
+        @Override
+        public void setSpeedLimit(int speedLimit) {
+            attributes[index] = speedLimit;
+        }
+    }
+
+    /**
+     * Building of a cell, its value and height are kept in the arrays of the map.
+     */
+    private final class CellBuilding extends BasicBuilding {
+        /** Cell index of the building. */
+        private final int index;
+
+        /**
+         * @param row the row of the cell
+         * @param column the column of the cell
+         */
+        private CellBuilding(int row, int column) {
+            super(row, column, -1, -1);
+            this.index = row * columns + column;
+        }
+
+        @Override
+        public int getValue() {
+            return values[index];
+        }
+
+        @Override
+        public void setValue(int value) {
+            values[index] = value;
+        }
+
+        @Override
+        public int getHeight() {
+            return attributes[index];
+        }
+
+        @Override
+        public void setHeight(int height) {
+            attributes[index] = height;
+        }
+    }
+
+    /**
+     * Green area of a cell, its value is kept in the arrays of the map.
+     */
+    private final class CellGreen extends BasicGreen {
+        /** Cell index of the green area. */
+        private final int index;
+
+        /**
+         * @param row the row of the cell
+         * @param column the column of the cell
+         */
+        private CellGreen(int row, int column) {
+            super(row, column, -1);
+            this.index = row * columns + column;
+        }
+
+        @Override
+        public int getValue() {
+            return values[index];
+        }
+
+        @Override
+        public void setValue(int value) {
+            values[index] = value;
+        }
+    }
+}
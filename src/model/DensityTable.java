@@ -0,0 +1,229 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Summed-area tables of the streets, buildings, green areas and filled cells of a map.
+ * Every table holds at (row, column) the number of matching cells above and left of that corner, so the count
+ * of any rectangle of the map is read from its four corners. The tables are built in one pass over the map and
+ * are not updated, SparseMap drops them when a cell changes its kind and builds them again on the next query.
+ */
+public class DensityTable {
+    /** Number of rows of the counted map. */
+    private final int rows;
+    /** Number of columns of the counted map. */
+    private final int columns;
+    /** Streets above and left of every corner, (rows + 1) * (columns + 1) entries. */
+    private final int[] streets;
+    /** Buildings above and left of every corner. */
+    private final int[] buildings;
+    /** Green areas above and left of every corner. */
+    private final int[] greens;
+    /** Cells holding a vertex above and left of every corner. */
+    private final int[] vertices;
+
+    /**
+     * Builds the tables in one pass over the given vertex array.
+     *
+     * @param vertexArray the vertices of the map
+     */
+    public DensityTable(BasicVertex[][] vertexArray) {
+        this.rows = vertexArray.length;
+        this.columns = rows == 0 ? 0 : vertexArray[0].length;
+        int width = columns + 1;
+        this.streets = new int[(rows + 1) * width];
+        this.buildings = new int[(rows + 1) * width];
+        this.greens = new int[(rows + 1) * width];
+        this.vertices = new int[(rows + 1) * width];
+
+        for (int row = 0; row < rows; row++) {
+            int streetRow = 0;
+            int buildingRow = 0;
+            int greenRow = 0;
+            int vertexRow = 0;
+            for (int column = 0; column < columns; column++) {
+                BasicVertex vertex = vertexArray[row][column];
+                if (vertex instanceof BasicStreet) {
+                    streetRow++;
+                } else if (vertex instanceof BasicBuilding) {
+                    buildingRow++;
+                } else if (vertex instanceof BasicGreen) {
+                    greenRow++;
+                }
+                if (vertex != null) {
+                    vertexRow++;
+                }
+                int corner = (row + 1) * width + column + 1;
+                streets[corner] = streets[corner - width] + streetRow;
+                buildings[corner] = buildings[corner - width] + buildingRow;
+                greens[corner] = greens[corner - width] + greenRow;
+                vertices[corner] = vertices[corner - width] + vertexRow;
+            }
+        }
+    }
+
+    /**
+     * Reads the count of a rectangle from the four corners of a table.
+     *
+     * @param table the summed-area table
+     * @param row the top row of the rectangle
+     * @param column the left column of the rectangle
+     * @param height the number of rows of the rectangle
+     * @param width the number of columns of the rectangle
+     * @return the number of counted cells inside the rectangle
+     */
+    private int sum(int[] table, int row, int column, int height, int width) {
+        if (row < 0 || column < 0 || height < 0 || width < 0 || row + height > rows || column + width > columns) {
+            throw new IllegalArgumentException("Rectangle must lie on the map");
+        }
+        int stride = columns + 1;
+        int top = row * stride;
+        int bottom = (row + height) * stride;
+        return table[bottom + column + width] - table[bottom + column] - table[top + column + width] + table[top + column];
+    }
+
+    /**
+     * @param row the top row of the rectangle
+     * @param column the left column of the rectangle
+     * @param height the number of rows of the rectangle
+     * @param width the number of columns of the rectangle
+     * @return the number of streets inside the rectangle
+     * @throws IllegalArgumentException if the rectangle does not lie on the map
+     */
+    public int countStreets(int row, int column, int height, int width) {
+        return sum(streets, row, column, height, width);
+    }
+
+    /**
+     * @param row the top row of the rectangle
+     * @param column the left column of the rectangle
+     * @param height the number of rows of the rectangle
+     * @param width the number of columns of the rectangle
+     * @return the number of buildings, including hospitals and police stations, inside the rectangle
+     * @throws IllegalArgumentException if the rectangle does not lie on the map
+     */
+    public int countBuildings(int row, int column, int height, int width) {
+        return sum(buildings, row, column, height, width);
+    }
+
+    /**
+     * @param row the top row of the rectangle
+     * @param column the left column of the rectangle
+     * @param height the number of rows of the rectangle
+     * @param width the number of columns of the rectangle
+     * @return the number of green areas inside the rectangle
+     * @throws IllegalArgumentException if the rectangle does not lie on the map
+     */
+    public int countGreens(int row, int column, int height, int width) {
+        return sum(greens, row, column, height, width);
+    }
+
+    /**
+     * @param row the top row of the rectangle
+     * @param column the left column of the rectangle
+     * @param height the number of rows of the rectangle
+     * @param width the number of columns of the rectangle
+     * @return the number of cells holding a vertex inside the rectangle
+     * @throws IllegalArgumentException if the rectangle does not lie on the map
+     */
+    public int countVertices(int row, int column, int height, int width) {
+        return sum(vertices, row, column, height, width);
+    }
+
+    /**
+     * @param row the top row of the square
+     * @param column the left column of the square
+     * @param size the number of rows and columns of the square
+     * @return the number of streets inside the square
+     * @throws IllegalArgumentException if the square does not lie on the map
+     */
+    public int countStreetsInSquare(int row, int column, int size) {
+        return countStreets(row, column, size, size);
+    }
+
+    /**
+     * @param row the top row of the square
+     * @param column the left column of the square
+     * @param size the number of rows and columns of the square
+     * @return the number of buildings inside the square
+     * @throws IllegalArgumentException if the square does not lie on the map
+     */
+    public int countBuildingsInSquare(int row, int column, int size) {
+        return countBuildings(row, column, size, size);
+    }
+
+    /**
+     * @param row the top row of the square
+     * @param column the left column of the square
+     * @param size the number of rows and columns of the square
+     * @return the number of green areas inside the square
+     * @throws IllegalArgumentException if the square does not lie on the map
+     */
+    public int countGreensInSquare(int row, int column, int size) {
+        return countGreens(row, column, size, size);
+    }
+
+    /**
+     * Streams all squares of the given size whose cells all hold a vertex, from the fewest streets to the most.
+     * The squares are ordered by a counting sort over their street counts, squares with the same number of
+     * streets follow each other row by row. Only the top left corners are kept in memory, the windows are
+     * created while the stream is consumed.
+     *
+     * @param size the number of rows and columns of the squares
+     * @return the squares ordered by their number of streets
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public Stream<SquareWindow> streamSquares(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Square size must be positive");
+        }
+        int anchorRows = Math.max(0, rows - size + 1);
+        int anchorColumns = Math.max(0, columns - size + 1);
+        int full = size * size;
+        int[] bucketStarts = new int[full + 2];
+        int[] streetCounts = new int[anchorRows * anchorColumns];
+        int squareCount = 0;
+        for (int row = 0; row < anchorRows; row++) {
+            for (int column = 0; column < anchorColumns; column++) {
+                int anchor = row * anchorColumns + column;
+                if (countVertices(row, column, size, size) == full) {
+                    streetCounts[anchor] = countStreets(row, column, size, size);
+                    bucketStarts[streetCounts[anchor] + 1]++;
+                    squareCount++;
+                } else {
+                    streetCounts[anchor] = -1;
+                }
+            }
+        }
+        for (int count = 1; count < bucketStarts.length; count++) {
+            bucketStarts[count] += bucketStarts[count - 1];
+        }
+        int[] anchors = new int[squareCount];
+        for (int anchor = 0; anchor < streetCounts.length; anchor++) {
+            if (streetCounts[anchor] >= 0) {
+                anchors[bucketStarts[streetCounts[anchor]]++] = anchor;
+            }
+        }
+        return Arrays.stream(anchors).mapToObj(anchor -> {
+            int row = anchor / anchorColumns;
+            int column = anchor % anchorColumns;
+            return new SquareWindow(row, column, size, countStreets(row, column, size, size),
+                    countBuildings(row, column, size, size), countGreens(row, column, size, size));
+        });
+    }
+
+    /**
+     * @return the number of rows of the counted map
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns of the counted map
+     */
+    public int getColumns() {
+        return columns;
+    }
+}
@@ -0,0 +1,271 @@
+package model;
+
+import model.abstractClasses.MapView;
+
+/**
+ * Index of the nearest building in each of the four directions of every cell of a map.
+ * Every cell is addressed by row and column. Buildings block the line of sight,
+ * two cells in the same row or column see each other if no building lies strictly between them,
+ * which the index answers with one comparison.
+ * The index is immutable and can be read from any number of threads. When a cell turns into a building or
+ * stops being one, withBuilding returns a new index that shares all rows and columns except the two it
+ * recomputes.
+ */
+public class LineOfSightIndex {
+    /** Number of rows of the indexed map. */
+    private final int rows;
+    /** Number of columns of the indexed map. */
+    private final int columns;
+    /** True for every cell that holds a building, by row and column. */
+    private final boolean[][] buildings;
+    /** Row of the nearest building above every cell, -1 if there is none, by column and row. */
+    private final int[][] buildingUp;
+    /** Row of the nearest building below every cell, rows if there is none, by column and row. */
+    private final int[][] buildingDown;
+    /** Column of the nearest building left of every cell, -1 if there is none, by row and column. */
+    private final int[][] buildingLeft;
+    /** Column of the nearest building right of every cell, columns if there is none, by row and column. */
+    private final int[][] buildingRight;
+
+    /**
+     * Builds the index in one pass per row and column over the given vertex array.
+     *
+     * @param vertexArray the vertices of the map
+     */
+    public LineOfSightIndex(BasicVertex[][] vertexArray) {
+        this(buildingsOf(vertexArray.length, vertexArray.length == 0 ? 0 : vertexArray[0].length,
+                (row, column) -> vertexArray[row][column]));
+    }
+
+    /**
+     * Builds the index in one pass per row and column over the cells of a view.
+     *
+     * @param view the view of the map
+     */
+    public LineOfSightIndex(MapView view) {
+        this(buildingsOf(view.getRows(), view.getColumns(), view::getVertex));
+    }
+
+    /**
+     * Builds the index from the building cells of a map.
+     *
+     * @param buildings true for every cell that holds a building, by row and column
+     */
+    private LineOfSightIndex(boolean[][] buildings) {
+        this.rows = buildings.length;
+        this.columns = rows == 0 ? 0 : buildings[0].length;
+        this.buildings = buildings;
+        this.buildingLeft = new int[rows][];
+        this.buildingRight = new int[rows][];
+        this.buildingUp = new int[columns][];
+        this.buildingDown = new int[columns][];
+        for (int row = 0; row < rows; row++) {
+            updateRow(row);
+        }
+        for (int column = 0; column < columns; column++) {
+            updateColumn(column);
+        }
+    }
+
+    /**
+     * Marks the cells that hold a building.
+     *
+     * @param rows the number of rows of the map
+     * @param columns the number of columns of the map
+     * @param vertices the vertex of every cell
+     * @return true for every cell that holds a building, by row and column
+     */
+    private static boolean[][] buildingsOf(int rows, int columns, CellVertices vertices) {
+        boolean[][] buildings = new boolean[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                buildings[row][column] = vertices.getVertex(row, column) instanceof BasicBuilding;
+            }
+        }
+        return buildings;
+    }
+
+    /**
+     * Source of the vertex of every cell while the index is built.
+     */
+    private interface CellVertices {
+        /**
+         * @param row the row of the cell
+         * @param column the column of the cell
+         * @return the vertex of the cell
+         */
+        BasicVertex getVertex(int row, int column);
+    }
+
+    /**
+     * Constructor of a copy that shares all rows and columns with the given index.
+     *
+     * @param base the copied index
+     */
+    private LineOfSightIndex(LineOfSightIndex base) {
+        this.rows = base.rows;
+        this.columns = base.columns;
+        this.buildings = base.buildings.clone();
+        this.buildingLeft = base.buildingLeft.clone();
+        this.buildingRight = base.buildingRight.clone();
+        this.buildingUp = base.buildingUp.clone();
+        this.buildingDown = base.buildingDown.clone();
+    }
+
+    /**
+     * Returns the index after a cell turned into a building or stopped being one. Only the row and the column
+     * of the cell are recomputed, everything else is shared with this index, which stays unchanged.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @param building true if the cell holds a building now
+     * @return the updated index, this index if the cell did not change
+     */
+    public LineOfSightIndex withBuilding(int row, int column, boolean building) {
+        if (buildings[row][column] == building) {
+            return this;
+        }
+        LineOfSightIndex updated = new LineOfSightIndex(this);
+        updated.buildings[row] = buildings[row].clone();
+        updated.buildings[row][column] = building;
+        updated.updateRow(row);
+        updated.updateColumn(column);
+        return updated;
+    }
+
+    /**
+     * Computes the nearest buildings to the left and right of the cells of a row into new arrays.
+     *
+     * @param row the row
+     */
+    private void updateRow(int row) {
+        boolean[] buildingRow = buildings[row];
+        int[] left = new int[columns];
+        int[] right = new int[columns];
+        int nearest = -1;
+        for (int column = 0; column < columns; column++) {
+            left[column] = nearest;
+            if (buildingRow[column]) {
+                nearest = column;
+            }
+        }
+        nearest = columns;
+        for (int column = columns - 1; column >= 0; column--) {
+            right[column] = nearest;
+            if (buildingRow[column]) {
+                nearest = column;
+            }
+        }
+        buildingLeft[row] = left;
+        buildingRight[row] = right;
+    }
+
+    /**
+     * Computes the nearest buildings above and below the cells of a column into new arrays.
+     *
+     * @param column the column
+     */
+    private void updateColumn(int column) {
+        int[] up = new int[rows];
+        int[] down = new int[rows];
+        int nearest = -1;
+        for (int row = 0; row < rows; row++) {
+            up[row] = nearest;
+            if (buildings[row][column]) {
+                nearest = row;
+            }
+        }
+        nearest = rows;
+        for (int row = rows - 1; row >= 0; row--) {
+            down[row] = nearest;
+            if (buildings[row][column]) {
+                nearest = row;
+            }
+        }
+        buildingUp[column] = up;
+        buildingDown[column] = down;
+    }
+
+    /**
+     * Checks if two cells see each other: they share a row or column and no building lies strictly between them.
+     * The cells themselves may be buildings.
+     *
+     * @param fromRow the row of the first cell
+     * @param fromColumn the column of the first cell
+     * @param toRow the row of the second cell
+     * @param toColumn the column of the second cell
+     * @return true if the line of sight is open, false otherwise
+     */
+    public boolean isVisible(int fromRow, int fromColumn, int toRow, int toColumn) {
+        if (fromRow == toRow) {
+            return toColumn >= fromColumn ? buildingRight[fromRow][fromColumn] >= toColumn
+                    : buildingLeft[fromRow][fromColumn] <= toColumn;
+        }
+        if (fromColumn == toColumn) {
+            return toRow >= fromRow ? buildingDown[fromColumn][fromRow] >= toRow
+                    : buildingUp[fromColumn][fromRow] <= toRow;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a cell holds a building.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return true if the cell holds a building
+     */
+    public boolean isBuilding(int row, int column) {
+        return buildings[row][column];
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the row of the nearest building above the cell, -1 if there is none
+     */
+    public int getBuildingUp(int row, int column) {
+        return buildingUp[column][row];
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the row of the nearest building below the cell, the number of rows if there is none
+     */
+    public int getBuildingDown(int row, int column) {
+        return buildingDown[column][row];
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the column of the nearest building left of the cell, -1 if there is none
+     */
+    public int getBuildingLeft(int row, int column) {
+        return buildingLeft[row][column];
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the column of the nearest building right of the cell, the number of columns if there is none
+     */
+    public int getBuildingRight(int row, int column) {
+        return buildingRight[row][column];
+    }
+
+    /**
+     * @return the number of rows of the indexed map
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns of the indexed map
+     */
+    public int getColumns() {
+        return columns;
+    }
+}
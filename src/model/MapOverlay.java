@@ -0,0 +1,177 @@
+package model;
+
+import model.abstractClasses.MapView;
+
+import java.util.Arrays;
+
+/**
+ * Hypothetical version of a map: a small set of replaced cells layered over a base view.
+ * Reads of replaced cells return the replacement, all other reads go to the base, which is neither copied
+ * nor changed. The replacements are kept in an open addressing table keyed by cell index, so a read costs
+ * one probe in the common case. Any number of overlays can be read at the same time as long as the base
+ * does not change; an overlay itself must not be changed while it is read by other threads.
+ */
+public class MapOverlay implements MapView {
+    /**
+     * The view the overlay is layered over
+     */
+    private final MapView base;
+    /**
+     * Number of columns of the base
+     */
+    private final int columns;
+    /**
+     * Cell index + 1 of every slot of the table, 0 for an empty slot
+     */
+    private int[] keys;
+    /**
+     * Replacement vertex of every slot of the table
+     */
+    private BasicVertex[] vertices;
+    /**
+     * Number of replaced cells
+     */
+    private int size;
+
+    /**
+     * Constructor of an overlay without replaced cells
+     * @param base the view the overlay is layered over
+     */
+    public MapOverlay(MapView base) {
+        this.base = base;
+        this.columns = base.getColumns();
+        this.keys = new int[16];
+        this.vertices = new BasicVertex[16];
+    }
+
+    /**
+     * Replaces the vertex of a cell in this overlay
+     * @param position the position of the cell
+     * @param vertex the vertex seen at the position from now on
+     * @return this overlay
+     */
+    public MapOverlay replaceVertex(Position2D position, BasicVertex vertex) {
+        return replaceVertex(position.getRow(), position.getColumn(), vertex);
+    }
+
+    /**
+     * Replaces the vertex of a cell in this overlay
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @param vertex the vertex seen in the cell from now on
+     * @return this overlay
+     */
+    public MapOverlay replaceVertex(int row, int column, BasicVertex vertex) {
+        if (!isInBound(row, column)) {
+            throw new IllegalArgumentException("Position " + row + "," + column + " is outside the map");
+        }
+        if (2 * (size + 1) > keys.length) {
+            grow();
+        }
+        int key = row * columns + column + 1;
+        int slot = slotOf(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        vertices[slot] = vertex;
+        return this;
+    }
+
+    /**
+     * Replaces the cell of a vertex with a green of the same value, as if the vertex had been turned into a park
+     * @param vertex the vertex to replace
+     * @return this overlay
+     */
+    public MapOverlay replaceWithGreen(BasicVertex vertex) {
+        Position2D position = vertex.getPosition();
+        BasicGreen green = new BasicGreen(position.getRow(), position.getColumn(), vertex.getValue());
+        green.setContainingMap(vertex.getContainingMap());
+        return replaceVertex(position, green);
+    }
+
+    @Override
+    public BasicVertex getVertex(int row, int column) {
+        if (size > 0) {
+            int slot = slotOf(row * columns + column + 1);
+            if (keys[slot] != 0) {
+                return vertices[slot];
+            }
+        }
+        return base.getVertex(row, column);
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return true if the cell is replaced in this overlay
+     */
+    public boolean isReplaced(int row, int column) {
+        return size > 0 && keys[slotOf(row * columns + column + 1)] != 0;
+    }
+
+    /**
+     * Finds the slot holding a key or the empty slot where it belongs
+     * @param key cell index + 1
+     * @return the slot
+     */
+    private int slotOf(int key) {
+        int mask = keys.length - 1;
+        int hash = key * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the table and inserts all replacements again
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        BasicVertex[] oldVertices = vertices;
+        keys = new int[oldKeys.length * 2];
+        vertices = new BasicVertex[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                vertices[slot] = oldVertices[i];
+            }
+        }
+    }
+
+    /**
+     * Removes all replacements
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(vertices, null);
+        size = 0;
+    }
+
+    @Override
+    public int getRows() {
+        return base.getRows();
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of replaced cells
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the view the overlay is layered over
+     */
+    public MapView getBase() {
+        return base;
+    }
+}
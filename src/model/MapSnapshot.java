@@ -0,0 +1,363 @@
+package model;
+
+import model.abstractClasses.MapView;
+
+import java.util.Arrays;
+
+/**
+ * Immutable version of the vertices and speed limits of a SparseMap.
+ * The rows are grouped in chunks of 64 rows. An update copies only the rows it changes, the chunks holding
+ * them and the small array of chunks, all other rows are shared with the previous version. A reader that
+ * keeps a snapshot for the length of a query therefore needs no lock and never sees a half-applied update.
+ *
+ * A snapshot pins the cell contents, the speed limits, and its own line of sight and street component
+ * indexes. The indexes are built from the cells of the snapshot on first request. A snapshot taken by an
+ * update carries the indexes of its predecessor forward: the line of sight index is updated copy-on-write,
+ * added streets are merged into a copy of the street component index when it is next requested, and a
+ * removed street drops it. The vertex objects are shared with the live map, so their neighbour lookups follow
+ * the live map; readers resolve neighbours by row and column through the snapshot instead. Routing reads a
+ * snapshot through DistanceDurationGrid(MapSnapshot) and ShortestPathEngine, camera coverage and site checks
+ * through the indexes and cells of a snapshot.
+ */
+public final class MapSnapshot implements MapView {
+    /** Number of bits of the row index inside a chunk. */
+    private static final int CHUNK_SHIFT = 6;
+    /** Number of rows per chunk. */
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+
+    /** Number of rows of the map. */
+    private final int rows;
+    /** Number of columns of the map. */
+    private final int columns;
+    /** Modification count of the map this snapshot was taken at. */
+    private final int version;
+    /** Vertices by chunk, row inside the chunk and column. */
+    private final BasicVertex[][][] vertexChunks;
+    /** Speed limits by chunk, row inside the chunk and column, -1 for cells that are no street. */
+    private final int[][][] speedChunks;
+    /** Line of sight index of this version, built on first request. */
+    private volatile LineOfSightIndex lineOfSightIndex;
+    /** Street component index of this version, built on first request. */
+    private volatile StreetComponentIndex streetComponentIndex;
+    /** Streets to merge into the index of an earlier version on first request, null once merged or if none. */
+    private volatile PendingStreets pendingStreets;
+
+    /**
+     * Constructor of a snapshot from its chunks.
+     *
+     * @param rows the number of rows of the map
+     * @param columns the number of columns of the map
+     * @param version the modification count of the map
+     * @param vertexChunks the vertices by chunk
+     * @param speedChunks the speed limits by chunk
+     */
+    private MapSnapshot(int rows, int columns, int version, BasicVertex[][][] vertexChunks, int[][][] speedChunks) {
+        this.rows = rows;
+        this.columns = columns;
+        this.version = version;
+        this.vertexChunks = vertexChunks;
+        this.speedChunks = speedChunks;
+    }
+
+    /**
+     * Returns the line of sight index of this version, building it if necessary.
+     *
+     * @return the line of sight index
+     */
+    public LineOfSightIndex getLineOfSightIndex() {
+        LineOfSightIndex index = lineOfSightIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (lineOfSightIndex == null) {
+                lineOfSightIndex = new LineOfSightIndex(this);
+            }
+            return lineOfSightIndex;
+        }
+    }
+
+    /**
+     * Returns the street component index of this version, building it or merging the added streets into the
+     * index of an earlier version if necessary.
+     *
+     * @return the street component index
+     */
+    public StreetComponentIndex getStreetComponentIndex() {
+        StreetComponentIndex index = streetComponentIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (streetComponentIndex == null) {
+                PendingStreets pending = pendingStreets;
+                streetComponentIndex = pending != null ? pending.index().withStreets(pending.cells(), pending.count())
+                        : new StreetComponentIndex(this);
+                pendingStreets = null;
+            }
+            return streetComponentIndex;
+        }
+    }
+
+    /**
+     * Checks if vertex b can be reached from vertex a over streets of this version, using the street
+     * component index. This is the case if a and b are the same vertex, if they are adjacent, or if a street
+     * next to a and a street next to b lie in the same street component. b has to be the vertex stored in
+     * its cell in this version.
+     *
+     * @param a the start vertex
+     * @param b the target vertex
+     * @return true if b is reachable from a over streets, false otherwise
+     */
+    public boolean areStreetConnected(BasicVertex a, BasicVertex b) {
+        if (a == b) return true;
+        if (a == null || b == null || !isInBound(a.getPosition().getRow(), a.getPosition().getColumn())
+                || !isInBound(b.getPosition().getRow(), b.getPosition().getColumn())) return false;
+
+        int rowB = b.getPosition().getRow();
+        int columnB = b.getPosition().getColumn();
+        if (getVertex(rowB, columnB) != b) return false;
+        if (a.getBasicManhattanDistance(b) == 1) return true;
+
+        StreetComponentIndex index = getStreetComponentIndex();
+        int rowA = a.getPosition().getRow();
+        int columnA = a.getPosition().getColumn();
+        for (int directionA = 0; directionA < 4; directionA++) {
+            int streetA = streetNeighbour(index, rowA, columnA, directionA);
+            if (streetA < 0) continue;
+            for (int directionB = 0; directionB < 4; directionB++) {
+                int streetB = streetNeighbour(index, rowB, columnB, directionB);
+                if (streetB >= 0 && index.sameComponent(streetA, streetB)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks up the neighbouring cell in the given direction if it is a street.
+     *
+     * @param index the street component index
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @param direction 0 for up, 1 for down, 2 for left, 3 for right
+     * @return the cell index of the neighbour, or -1 if it is outside the map or no street
+     */
+    private int streetNeighbour(StreetComponentIndex index, int row, int column, int direction) {
+        int neighbourRow = row + (direction == 0 ? -1 : direction == 1 ? 1 : 0);
+        int neighbourColumn = column + (direction == 2 ? -1 : direction == 3 ? 1 : 0);
+        if (!isInBound(neighbourRow, neighbourColumn)) {
+            return -1;
+        }
+        int cell = neighbourRow * columns + neighbourColumn;
+        return index.isStreet(cell) ? cell : -1;
+    }
+
+    /**
+     * Takes a full copy of a vertex array.
+     *
+     * @param vertexArray the vertices of the map
+     * @param version the modification count of the map
+     * @return the snapshot
+     */
+    static MapSnapshot of(BasicVertex[][] vertexArray, int version) {
+        int rows = vertexArray.length;
+        int columns = rows == 0 ? 0 : vertexArray[0].length;
+        int chunkCount = (rows + CHUNK_ROWS - 1) >> CHUNK_SHIFT;
+        BasicVertex[][][] vertexChunks = new BasicVertex[chunkCount][][];
+        int[][][] speedChunks = new int[chunkCount][][];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int chunkRows = Math.min(CHUNK_ROWS, rows - (chunk << CHUNK_SHIFT));
+            vertexChunks[chunk] = new BasicVertex[chunkRows][];
+            speedChunks[chunk] = new int[chunkRows][];
+            for (int i = 0; i < chunkRows; i++) {
+                BasicVertex[] row = vertexArray[(chunk << CHUNK_SHIFT) + i].clone();
+                int[] speeds = new int[columns];
+                for (int column = 0; column < columns; column++) {
+                    speeds[column] = speedLimitOf(row[column]);
+                }
+                vertexChunks[chunk][i] = row;
+                speedChunks[chunk][i] = speeds;
+            }
+        }
+        return new MapSnapshot(rows, columns, version, vertexChunks, speedChunks);
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the speed limit of a street, -1 for other vertices
+     */
+    private static int speedLimitOf(BasicVertex vertex) {
+        return vertex instanceof BasicStreet street ? street.getSpeedLimit() : -1;
+    }
+
+    @Override
+    public BasicVertex getVertex(int row, int column) {
+        return vertexChunks[row >> CHUNK_SHIFT][row & (CHUNK_ROWS - 1)][column];
+    }
+
+    /**
+     * Returns the speed limit of a cell at the time of the snapshot.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the speed limit of the street in the cell, -1 if the cell is no street
+     */
+    @Override
+    public int getSpeedLimit(int row, int column) {
+        return speedChunks[row >> CHUNK_SHIFT][row & (CHUNK_ROWS - 1)][column];
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the modification count of the map this snapshot was taken at
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return a builder for the next version, starting from this snapshot
+     */
+    Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Collects the changes of one update and copies every touched row and chunk once.
+     * The indexes of the base are carried forward as described in the class comment.
+     */
+    static final class Builder {
+        /** The snapshot the update starts from. */
+        private final MapSnapshot base;
+        /** Vertex chunks of the new version. */
+        private final BasicVertex[][][] vertexChunks;
+        /** Speed limit chunks of the new version. */
+        private final int[][][] speedChunks;
+        /** True for every chunk already copied by this update. */
+        private final boolean[] copiedChunks;
+        /** True for every row already copied by this update. */
+        private final boolean[] copiedRows;
+        /** Line of sight index of the new version, null if the base had none. */
+        private LineOfSightIndex lineOfSightIndex;
+        /** Street component index the added streets are merged into, null if it has to be rebuilt. */
+        private StreetComponentIndex streetBase;
+        /** Cell indices of the streets added since streetBase. */
+        private int[] addedStreets;
+        /** Number of cells in addedStreets. */
+        private int addedStreetCount;
+
+        /**
+         * Constructor of a builder without changes.
+         *
+         * @param base the snapshot the update starts from
+         */
+        private Builder(MapSnapshot base) {
+            this.base = base;
+            this.vertexChunks = base.vertexChunks.clone();
+            this.speedChunks = base.speedChunks.clone();
+            this.copiedChunks = new boolean[vertexChunks.length];
+            this.copiedRows = new boolean[base.rows];
+            this.lineOfSightIndex = base.lineOfSightIndex;
+            PendingStreets pending = base.pendingStreets;
+            StreetComponentIndex index = base.streetComponentIndex;
+            if (pending != null) {
+                streetBase = pending.index();
+                addedStreets = Arrays.copyOf(pending.cells(), pending.cells().length);
+                addedStreetCount = pending.count();
+            } else if (index != null) {
+                streetBase = index;
+                addedStreets = new int[8];
+            }
+        }
+
+        /**
+         * Records the vertex of a cell and its current speed limit.
+         *
+         * @param row the row of the cell
+         * @param column the column of the cell
+         * @param vertex the vertex stored in the cell now
+         * @return this builder
+         */
+        Builder set(int row, int column, BasicVertex vertex) {
+            int chunk = row >> CHUNK_SHIFT;
+            int index = row & (CHUNK_ROWS - 1);
+            if (!copiedChunks[chunk]) {
+                vertexChunks[chunk] = vertexChunks[chunk].clone();
+                speedChunks[chunk] = speedChunks[chunk].clone();
+                copiedChunks[chunk] = true;
+            }
+            if (!copiedRows[row]) {
+                vertexChunks[chunk][index] = vertexChunks[chunk][index].clone();
+                speedChunks[chunk][index] = speedChunks[chunk][index].clone();
+                copiedRows[row] = true;
+            }
+            BasicVertex previous = vertexChunks[chunk][index][column];
+            vertexChunks[chunk][index][column] = vertex;
+            speedChunks[chunk][index][column] = speedLimitOf(vertex);
+            if (lineOfSightIndex != null) {
+                lineOfSightIndex = lineOfSightIndex.withBuilding(row, column, vertex instanceof BasicBuilding);
+            }
+            if (streetBase != null && previous instanceof BasicStreet != vertex instanceof BasicStreet) {
+                if (vertex instanceof BasicStreet) {
+                    addStreet(row * base.columns + column);
+                } else {
+                    streetBase = null;
+                    addedStreets = null;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Records an added street, or drops the street component index once merging the added streets would
+         * cost about as much as building it again.
+         *
+         * @param cell the cell index of the street
+         */
+        private void addStreet(int cell) {
+            if (addedStreetCount >= Math.max(64, base.rows * base.columns / 16)) {
+                streetBase = null;
+                addedStreets = null;
+                return;
+            }
+            if (addedStreetCount == addedStreets.length) {
+                addedStreets = Arrays.copyOf(addedStreets, addedStreets.length * 2);
+            }
+            addedStreets[addedStreetCount++] = cell;
+        }
+
+        /**
+         * @param version the modification count of the map
+         * @return the new snapshot
+         */
+        MapSnapshot build(int version) {
+            MapSnapshot snapshot = new MapSnapshot(base.rows, base.columns, version, vertexChunks, speedChunks);
+            snapshot.lineOfSightIndex = lineOfSightIndex;
+            if (streetBase != null && addedStreetCount == 0) {
+                snapshot.streetComponentIndex = streetBase;
+            } else if (streetBase != null) {
+                snapshot.pendingStreets = new PendingStreets(streetBase, addedStreets, addedStreetCount);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Street component index of an earlier version together with the streets added since.
+     *
+     * @param index the street component index of the earlier version
+     * @param cells the cell indices of the added streets
+     * @param count the number of cells in the array
+     */
+    private record PendingStreets(StreetComponentIndex index, int[] cells, int count) {
+    }
+}
@@ -1,21 +1,35 @@
 package model;
 
 import model.abstractClasses.DensityChecker;
+import model.abstractClasses.MapView;
 import model.sites.Hospital;
 import model.sites.PoliceStation;
 import model.sites.Site;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 
 
 /**
- * The SparseMap class extends BasicMap and implements DensityChecker.
+ * The SparseMap class extends BasicMap and implements DensityChecker and MapView.
  * It represents a sparse map and provides methods to manipulate and query the map.
  */
-public class SparseMap extends BasicMap implements DensityChecker {
+public class SparseMap extends BasicMap implements DensityChecker, MapView {
     /** The sparse vertex array representing the map. */
     private BasicVertex[][] sparseVertexArray;
+    /** Block-cut tree of the street graph, built on first use and rebuilt locally when a street changes. */
+    private volatile BlockCutIndex blockCutIndex;
+    /** Summed-area tables of the kinds of cells, built on first use and dropped when a cell changes its kind. */
+    private volatile DensityTable densityTable;
+    /** Number of changes made to the sparse vertex array, lets callers detect stale cached results. */
+    private int modificationCount;
+    /** Number of 2x2 windows made of four streets, -1 if not counted yet. */
+    private volatile int denseSquareCount = -1;
+    /** Latest published snapshot, taken on first request and kept up to date by the writing methods. */
+    private volatile MapSnapshot snapshot;
+    /** Changes of the running batch of writes, published as one snapshot at its end, null outside a batch. */
+    private MapSnapshot.Builder snapshotUpdate;
 
     /**
      * Constructs a SparseMap with the specified base data.
@@ -32,9 +46,14 @@ public class SparseMap extends BasicMap implements DensityChecker {
      */
     public void initSparseVertexArray() {
         sparseVertexArray = getVertexArray();
+        invalidateIndexes();
     }
 
     /**
+     * Returns the sparse vertex array.
+     * Callers that write into the array directly instead of using replaceVertex(Position2D, BasicVertex)
+     * have to call invalidateIndexes() afterwards.
+     *
      * @return the sparse vertex array
      */
     public BasicVertex[][] getSparseVertexArray() {
@@ -47,6 +66,207 @@ public class SparseMap extends BasicMap implements DensityChecker {
      */
     public void setSparseVertexArray(BasicVertex[][] sparseVertexArray) {
         this.sparseVertexArray = sparseVertexArray;
+        invalidateIndexes();
+    }
+
+    @Override
+    public int getRows() {
+        return sparseVertexArray.length;
+    }
+
+    @Override
+    public int getColumns() {
+        return sparseVertexArray[0].length;
+    }
+
+    @Override
+    public BasicVertex getVertex(int row, int column) {
+        return sparseVertexArray[row][column];
+    }
+
+    /**
+     * Drops all indexes derived from the sparse vertex array, they are rebuilt on their next use.
+     */
+    public synchronized void invalidateIndexes() {
+        blockCutIndex = null;
+        densityTable = null;
+        snapshot = null;
+        denseSquareCount = -1;
+        modificationCount++;
+    }
+
+    /**
+     * @return the number of changes made to the sparse vertex array so far
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Returns the latest snapshot of the map for lock-free reads, taking a full copy if there is none yet.
+     * The writing methods of this map (replaceVertex, putHospitals, putPoliceStations, setSpeedLimit) publish
+     * a new snapshot after every change, copying only the touched rows. Readers keep the returned snapshot for
+     * the length of a query and never observe a half-applied update. A snapshot pins the cell contents, the
+     * speed limits and its line of sight and street component indexes.
+     *
+     * @return the latest snapshot
+     */
+    public MapSnapshot getSnapshot() {
+        MapSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = MapSnapshot.of(sparseVertexArray, modificationCount);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Records a changed cell for the next snapshot, published at once outside a batch of writes.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @param vertex the vertex stored in the cell now
+     */
+    private void recordSnapshotChange(int row, int column, BasicVertex vertex) {
+        if (snapshotUpdate != null) {
+            snapshotUpdate.set(row, column, vertex);
+        } else if (snapshot != null) {
+            snapshot = snapshot.toBuilder().set(row, column, vertex).build(modificationCount);
+        }
+    }
+
+    /**
+     * Starts a batch of writes that is published as one snapshot.
+     */
+    private void beginSnapshotUpdate() {
+        if (snapshot != null) {
+            snapshotUpdate = snapshot.toBuilder();
+        }
+    }
+
+    /**
+     * Publishes the snapshot of the running batch of writes.
+     */
+    private void publishSnapshotUpdate() {
+        if (snapshotUpdate != null) {
+            snapshot = snapshotUpdate.build(modificationCount);
+            snapshotUpdate = null;
+        }
+    }
+
+    /**
+     * Returns the street component index of the latest snapshot, building it if necessary.
+     * The index is immutable, a reader that needs the cells it describes takes getSnapshot() and asks the
+     * snapshot for its index instead.
+     *
+     * @return the street component index
+     */
+    public StreetComponentIndex getStreetComponentIndex() {
+        return getSnapshot().getStreetComponentIndex();
+    }
+
+    /**
+     * Returns the line of sight index of the latest snapshot, building it if necessary.
+     * The index is immutable, a reader that needs the cells it describes takes getSnapshot() and asks the
+     * snapshot for its index instead.
+     *
+     * @return the line of sight index
+     */
+    public LineOfSightIndex getLineOfSightIndex() {
+        return getSnapshot().getLineOfSightIndex();
+    }
+
+    /**
+     * Returns the block-cut index of the map, building it if necessary.
+     * The index may be queried from several threads while the map is changed through replaceVertex.
+     *
+     * @return the block-cut index
+     */
+    public BlockCutIndex getBlockCutIndex() {
+        BlockCutIndex index = blockCutIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (blockCutIndex == null) {
+                blockCutIndex = new BlockCutIndex(sparseVertexArray);
+            }
+            return blockCutIndex;
+        }
+    }
+
+    /**
+     * Returns the summed-area tables of the map, building them if necessary.
+     * The tables are never changed after they are built, a write that changes the kind of a cell drops them.
+     *
+     * @return the density table
+     */
+    public DensityTable getDensityTable() {
+        DensityTable table = densityTable;
+        if (table != null) {
+            return table;
+        }
+        synchronized (this) {
+            if (densityTable == null) {
+                densityTable = new DensityTable(sparseVertexArray);
+            }
+            return densityTable;
+        }
+    }
+
+    /**
+     * Computes the cell index used by the indexes of this map.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the cell index row * columns + column
+     */
+    public int getCellIndex(int row, int column) {
+        return row * sparseVertexArray[0].length + column;
+    }
+
+    /**
+     * Keeps the derived indexes in step after one cell of the sparse vertex array was replaced.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @param oldVertex the vertex that was stored in the cell before
+     * @param newVertex the vertex that is stored in the cell now
+     */
+    private void onVertexReplaced(int row, int column, BasicVertex oldVertex, BasicVertex newVertex) {
+        modificationCount++;
+        boolean wasStreet = oldVertex instanceof BasicStreet;
+        boolean isStreet = newVertex instanceof BasicStreet;
+        if (blockCutIndex != null && wasStreet != isStreet) {
+            blockCutIndex.setStreet(getCellIndex(row, column), isStreet);
+        }
+        if (denseSquareCount >= 0 && wasStreet != isStreet) {
+            int squares = countStreetSquaresAround(row, column);
+            denseSquareCount += isStreet ? squares : -squares;
+        }
+        if (densityTable != null && kindOf(oldVertex) != kindOf(newVertex)) {
+            densityTable = null;
+        }
+        recordSnapshotChange(row, column, newVertex);
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the kind of cell counted by the density table, 0 street, 1 building, 2 green, 3 anything else
+     */
+    private static int kindOf(BasicVertex vertex) {
+        if (vertex instanceof BasicStreet) {
+            return 0;
+        } else if (vertex instanceof BasicBuilding) {
+            return 1;
+        } else if (vertex instanceof BasicGreen) {
+            return 2;
+        }
+        return 3;
     }
 
     /**
@@ -54,16 +274,21 @@ public class SparseMap extends BasicMap implements DensityChecker {
      *
      * @param hospitals the positions where hospitals should be placed
      */
-    public void putHospitals(ArrayList<Position2D> hospitals) {
-        for (Position2D position : hospitals) {
-            BasicVertex existingBuilding = sparseVertexArray[position.getRow()][position.getColumn()];
-            if (existingBuilding instanceof BasicBuilding building) {
-                Hospital hospital = new Hospital(position.getRow(), position.getColumn(), building.getValue(), building.getHeight());
-                hospital.setContainingMap(this);
-                sparseVertexArray[position.getRow()][position.getColumn()] = hospital;
+    public synchronized void putHospitals(ArrayList<Position2D> hospitals) {
+        beginSnapshotUpdate();
+        try {
+            for (Position2D position : hospitals) {
+                BasicVertex existingBuilding = sparseVertexArray[position.getRow()][position.getColumn()];
+                if (existingBuilding instanceof BasicBuilding building) {
+                    Hospital hospital = new Hospital(position.getRow(), position.getColumn(), building.getValue(), building.getHeight());
+                    hospital.setContainingMap(this);
+                    sparseVertexArray[position.getRow()][position.getColumn()] = hospital;
+                    onVertexReplaced(position.getRow(), position.getColumn(), building, hospital);
+                }
             }
+        } finally {
+            publishSnapshotUpdate();
         }
-
     }
 
     /**
@@ -71,14 +296,20 @@ public class SparseMap extends BasicMap implements DensityChecker {
      *
      * @param policeStations the positions where police stations should be placed
      */
-    public void putPoliceStations(ArrayList<Position2D> policeStations) {
-        for (Position2D position : policeStations) {
-            BasicVertex existingBuilding = sparseVertexArray[position.getRow()][position.getColumn()];
-            if (existingBuilding instanceof BasicBuilding building) {
-                PoliceStation policeStation = new PoliceStation(position.getRow(), position.getColumn(), building.getValue(), building.getHeight());
-                policeStation.setContainingMap(this);
-                sparseVertexArray[position.getRow()][position.getColumn()] = policeStation;
+    public synchronized void putPoliceStations(ArrayList<Position2D> policeStations) {
+        beginSnapshotUpdate();
+        try {
+            for (Position2D position : policeStations) {
+                BasicVertex existingBuilding = sparseVertexArray[position.getRow()][position.getColumn()];
+                if (existingBuilding instanceof BasicBuilding building) {
+                    PoliceStation policeStation = new PoliceStation(position.getRow(), position.getColumn(), building.getValue(), building.getHeight());
+                    policeStation.setContainingMap(this);
+                    sparseVertexArray[position.getRow()][position.getColumn()] = policeStation;
+                    onVertexReplaced(position.getRow(), position.getColumn(), building, policeStation);
+                }
             }
+        } finally {
+            publishSnapshotUpdate();
         }
 
     }
@@ -102,6 +333,18 @@ public class SparseMap extends BasicMap implements DensityChecker {
         return squares;
     }
 
+    /**
+     * Streams all squares of the given size in the sparse vertex array, from the fewest streets to the most.
+     * The counts come from the summed-area tables of getDensityTable(), so every square costs the same
+     * no matter its size and no TreeSet has to compare the squares.
+     *
+     * @param size the number of rows and columns of the squares
+     * @return the squares ordered by their number of streets
+     */
+    public Stream<SquareWindow> computeAllSquares(int size) {
+        return getDensityTable().streamSquares(size);
+    }
+
 
 
     /**
@@ -110,59 +353,78 @@ public class SparseMap extends BasicMap implements DensityChecker {
      * @return true if the map is connected by streets, false otherwise
      */
     public boolean isBasicStreetConnectedMap() {
-        BasicVertex start = null;
-
-        for (BasicVertex[] row : sparseVertexArray) {
-            for (BasicVertex vertex : row) {
-                if (vertex instanceof BasicStreet) {
-                    start = vertex;
-                    break;
-                }
-            }
-            if (start != null) break;
-        }
-        if (start == null) return true;
+        return getStreetComponentIndex().getComponentCount() <= 1;
+    }
 
-        Set<BasicVertex> visited = new HashSet<>();
-        Queue<BasicVertex> queue = new LinkedList<>();
 
-        queue.add(start);
-        visited.add(start);
+    /**
+     * Checks that no 2x2 square of the map consists of four streets.
+     * The number of such squares is counted once and then kept up to date by replaceVertex and the other
+     * writing methods, which only look at the four squares around the changed cell.
+     *
+     * @return true if the map is sparse, false otherwise
+     */
+    @Override
+    public boolean isSparse() {
+        return getDenseSquareCount() == 0;
+    }
 
-        while (!queue.isEmpty()) {
-            BasicVertex current = queue.poll();
-            for (BasicVertex neighbour : current.getNeighbours()) {
-                if (neighbour instanceof BasicStreet && !visited.contains(neighbour)) {
-                    visited.add(neighbour);
-                    queue.add(neighbour);
-                }
-            }
-        }
-        for (BasicVertex[] row : sparseVertexArray) {
-            for (BasicVertex vertex : row) {
-                if (vertex instanceof BasicStreet && !visited.contains(vertex)) {
-                    return false;
+    /**
+     * Counts the 2x2 squares made of four streets under the lock of the writing methods.
+     *
+     * @return the number of squares
+     */
+    private synchronized int countDenseSquares() {
+        if (denseSquareCount < 0) {
+            int count = 0;
+            for (int i = 0; i < sparseVertexArray.length - 1; i++) {
+                for (int j = 0; j < sparseVertexArray[i].length - 1; j++) {
+                    if (sparseVertexArray[i][j] instanceof BasicStreet && sparseVertexArray[i][j + 1] instanceof BasicStreet
+                            && sparseVertexArray[i + 1][j] instanceof BasicStreet
+                            && sparseVertexArray[i + 1][j + 1] instanceof BasicStreet) {
+                        count++;
+                    }
                 }
             }
+            denseSquareCount = count;
         }
-        return true;
+        return denseSquareCount;
     }
 
-
-    @Override
-    public boolean isSparse() {
-        for (int i = 0; i < sparseVertexArray.length - 1; i++) {
-            for (int j = 0; j < sparseVertexArray[i].length - 1; j++) {
-                BasicVertex anchor = sparseVertexArray[i][j];
-                if (isValidSquare(anchor, i, j)) {
-                    Square square = new Square(anchor);
-                    if (!square.isSparse()) {
-                        return false;
+    /**
+     * Counts the 2x2 squares containing a cell whose other three cells are streets.
+     *
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the number of squares, between 0 and 4
+     */
+    private int countStreetSquaresAround(int row, int column) {
+        int count = 0;
+        for (int top = row - 1; top <= row; top++) {
+            for (int left = column - 1; left <= column; left++) {
+                if (top < 0 || left < 0 || top + 1 >= sparseVertexArray.length || left + 1 >= sparseVertexArray[0].length) {
+                    continue;
+                }
+                boolean streets = true;
+                for (int i = top; i <= top + 1 && streets; i++) {
+                    for (int j = left; j <= left + 1 && streets; j++) {
+                        streets = (i == row && j == column) || sparseVertexArray[i][j] instanceof BasicStreet;
                     }
                 }
+                if (streets) {
+                    count++;
+                }
             }
         }
-        return true;
+        return count;
+    }
+
+    /**
+     * @return the number of 2x2 squares of the map consisting of four streets
+     */
+    public int getDenseSquareCount() {
+        int count = denseSquareCount;
+        return count >= 0 ? count : countDenseSquares();
     }
 
 
@@ -244,7 +506,8 @@ public class SparseMap extends BasicMap implements DensityChecker {
 
         while (!queue.isEmpty()) {
             BasicVertex current = queue.poll();
-            for (BasicVertex neighbour : current.getNeighbours()) {
+            for (int i = 0, count = current.getNeighbourCount(); i < count; i++) {
+                BasicVertex neighbour = current.getNeighbour(i);
                 if (neighbour.getValue() == connectValue && !visited.contains(neighbour)) {
                     visited.add(neighbour);
                     queue.add(neighbour);
@@ -257,7 +520,9 @@ public class SparseMap extends BasicMap implements DensityChecker {
 
 
     /**
-     * Checks if the specified path is a crucial path.
+     * Checks if the specified path is a crucial path, i.e. its end vertices are no longer connected over
+     * streets once the streets inside the path are gone. Answered by the block-cut index without
+     * changing the map.
      *
      * @param vertexList the list of vertices representing the path
      * @return true if the path is crucial, false otherwise
@@ -273,21 +538,38 @@ public class SparseMap extends BasicMap implements DensityChecker {
 
         BasicVertex s = vertexList.getFirst();
         BasicVertex t = vertexList.getLast();
-
-        List<BasicVertex> streetVertices = new ArrayList<>(vertexList.subList(1, vertexList.size() - 1));
-        Map<Position2D, BasicVertex> originalMap = new HashMap<>();
-        for (BasicVertex vertex : streetVertices) {
-            originalMap.put(vertex.getPosition(), vertex);
-            replaceWithBasicGreen(vertex);
+        if (!isInBound(t.getPosition()) || sparseVertexArray[t.getPosition().getRow()][t.getPosition().getColumn()] != t) {
+            return true;
         }
-        boolean result = !s.isBasicStreetConnectedTo(t);
-
-        for (Map.Entry<Position2D, BasicVertex> entry : originalMap.entrySet()) {
-            resetBackToBasicStreet(entry.getKey(), entry.getValue());
+        if (s.getBasicManhattanDistance(t) == 1) {
+            return false;
         }
 
+        int[] removedCells = new int[vertexList.size() - 2];
+        for (int i = 1; i < vertexList.size() - 1; i++) {
+            Position2D position = vertexList.get(i).getPosition();
+            removedCells[i - 1] = getCellIndex(position.getRow(), position.getColumn());
+        }
+        BlockCutIndex index = getBlockCutIndex();
+        return !index.isConnectedWithout(neighbourCells(s.getPosition()), neighbourCells(t.getPosition()), removedCells);
+    }
 
-        return result;
+    /**
+     * Collects the cell indices of the neighbours of a position inside the map.
+     *
+     * @param position the position
+     * @return the cell indices of up to four neighbours
+     */
+    private int[] neighbourCells(Position2D position) {
+        int row = position.getRow();
+        int column = position.getColumn();
+        int[] cells = new int[4];
+        int count = 0;
+        if (row > 0) cells[count++] = getCellIndex(row - 1, column);
+        if (row < sparseVertexArray.length - 1) cells[count++] = getCellIndex(row + 1, column);
+        if (column > 0) cells[count++] = getCellIndex(row, column - 1);
+        if (column < sparseVertexArray[0].length - 1) cells[count++] = getCellIndex(row, column + 1);
+        return Arrays.copyOf(cells, count);
     }
 
 
@@ -369,7 +651,7 @@ public class SparseMap extends BasicMap implements DensityChecker {
         BasicVertex next = vertexList.get(i + 1);
 
 
-        if (!current.getNeighbours().contains(next) || (visited.contains(next) && !next.equals(start))) {
+        if (!current.hasNeighbour(next) || (visited.contains(next) && !next.equals(start))) {
             return false;
         }
 
@@ -453,7 +735,8 @@ public class SparseMap extends BasicMap implements DensityChecker {
         path.add(current);
         recursionStack.add(current);
 
-        for (BasicVertex neighbor : current.getNeighbours()) {
+        for (int i = 0, count = current.getNeighbourCount(); i < count; i++) {
+            BasicVertex neighbor = current.getNeighbour(i);
             if (neighbor.equals(start) && recursionStack.size() > 2) {
                 return true;
             }
@@ -496,10 +779,8 @@ public class SparseMap extends BasicMap implements DensityChecker {
      * @return true if the street is connected to another street, false otherwise
      */
     private boolean isConnectedToAnotherStreet(BasicVertex street) {
-        List<BasicVertex> neighbours = street.getNeighbours();
-
-        for (BasicVertex neighbour : neighbours) {
-            if (neighbour instanceof BasicStreet) {
+        for (int i = 0, count = street.getNeighbourCount(); i < count; i++) {
+            if (street.getNeighbour(i) instanceof BasicStreet) {
                 return true;
             }
         }
@@ -567,60 +848,56 @@ public class SparseMap extends BasicMap implements DensityChecker {
 
 
     /**
-     * Replaces a vertex with a BasicGreen vertex.
+     * Replaces a vertex at a given position with a new vertex.
      *
-     * @param vertex the vertex to replace
+     * @param position the position of the vertex
+     * @param newVertex the new vertex to replace the old vertex
      */
-    private void replaceWithBasicGreen(BasicVertex vertex) {
-        int row = vertex.getPosition().getRow();
-        int column = vertex.getPosition().getColumn();
-        BasicGreen basicGreen = new BasicGreen(row, column, vertex.getValue());
-        sparseVertexArray[row][column] = basicGreen;
+    public synchronized void replaceVertex(Position2D position, BasicVertex newVertex) {
+        BasicVertex oldVertex = sparseVertexArray[position.getRow()][position.getColumn()];
+        sparseVertexArray[position.getRow()][position.getColumn()] = newVertex;
+        onVertexReplaced(position.getRow(), position.getColumn(), oldVertex, newVertex);
     }
 
     /**
-     * Resets a position to its original vertex.
+     * Changes the speed limit of the street at a given position by replacing the street with a copy that has
+     * the new speed limit, published in a new snapshot. The old street is not changed, so readers holding it
+     * or an older snapshot keep seeing the old speed limit.
      *
-     * @param position2D the position
-     * @param originalVertex the original vertex
+     * @param position the position of the street
+     * @param speedLimit the new speed limit
+     * @throws IllegalArgumentException if there is no street at the position
      */
-    private void resetBackToBasicStreet(Position2D position2D, BasicVertex originalVertex) {
-        sparseVertexArray[position2D.getRow()][position2D.getColumn()] = originalVertex;
+    public synchronized void setSpeedLimit(Position2D position, int speedLimit) {
+        if (!(sparseVertexArray[position.getRow()][position.getColumn()] instanceof BasicStreet street)) {
+            throw new IllegalArgumentException("No street at " + position.getRow() + "," + position.getColumn());
+        }
+        replaceVertex(position, street.withSpeedLimit(speedLimit));
     }
 
-
     /**
-     * Replaces a vertex at a given position with a new vertex.
+     * Checks if vertex b can be reached from vertex a over streets, using the street component index of the
+     * latest snapshot. This is the case if a and b are the same vertex, if they are adjacent, or if a street
+     * next to a and a street next to b lie in the same street component.
      *
-     * @param position the position of the vertex
-     * @param newVertex the new vertex to replace the old vertex
+     * @param a the start vertex
+     * @param b the target vertex
+     * @return true if b is reachable from a over streets, false otherwise
      */
-    public void replaceVertex(Position2D position, BasicVertex newVertex) {
-        sparseVertexArray[position.getRow()][position.getColumn()] = newVertex;
-    }
-
     public boolean areStreetConnected(BasicVertex a, BasicVertex b) {
-        if (a == b) return true;
-
-        Queue<BasicVertex> q = new LinkedList<>();
-        Set<BasicVertex> visited = new HashSet<>();
-
-        q.offer(a);
-        visited.add(a);
-
-        while (!q.isEmpty()){
-            BasicVertex current = q.poll();
-            if (current == b) return true;
+        return getSnapshot().areStreetConnected(a, b);
+    }
 
-            for (BasicVertex neighbour : current.getNeighbours()) {
-                if (!visited.contains(neighbour) && neighbour instanceof BasicStreet || neighbour == b) {
-                    q.offer(neighbour);
-                    visited.add(neighbour);
-                }
-            }
-        }
-        return false;
+    /**
+     * Checks if the given position lies inside the sparse vertex array.
+     *
+     * @param position the position to check
+     * @return true if the position is inside the map, false otherwise
+     */
+    private boolean isInBound(Position2D position) {
+        return position.getRow() >= 0 && position.getRow() < sparseVertexArray.length
+                && position.getColumn() >= 0 && position.getColumn() < sparseVertexArray[0].length;
     }
 
 
-}
+}
\ No newline at end of file
@@ -11,6 +11,8 @@ import java.util.List;
 public class Square implements DensityChecker, Comparable<Square> {
     /** An array of BasicVertex objects that make up the square. */
     private BasicVertex[] squareMembers;
+    /** Number of street vertices among the square members, -1 if not counted yet. */
+    private int streetCount = -1;
 
     /**
      * Constructs a Square with the specified BasicVertex as the anchor point.
@@ -55,6 +57,7 @@ public class Square implements DensityChecker, Comparable<Square> {
         squareMembers[1] = findRightNeighbour(basicVertex);
         squareMembers[2] = findBottomNeighbour(squareMembers[1]);
         squareMembers[3] = findBottomNeighbour(basicVertex);
+        streetCount = -1;
     }
 
     /**
@@ -120,17 +123,21 @@ public class Square implements DensityChecker, Comparable<Square> {
 
 
     /**
-     * Counts the number of street vertices in the square.
+     * Counts the number of street vertices in the square once, compareTo asks for it on every comparison.
      *
      * @return the number of street vertices
      */
     private int countStreetVertices() {
+        if (streetCount >= 0) {
+            return streetCount;
+        }
         int count = 0;
         for (BasicVertex vertex : squareMembers) {
             if (vertex instanceof BasicStreet) {
                 count++;
             }
         }
+        streetCount = count;
         return count;
 
     }
@@ -151,6 +158,7 @@ public class Square implements DensityChecker, Comparable<Square> {
      */
     public void setSquareMembers(BasicVertex[] squareMembers) {
         this.squareMembers = squareMembers;
+        this.streetCount = -1;
     }
 
     /**
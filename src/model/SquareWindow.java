@@ -0,0 +1,89 @@
+package model;
+
+/**
+ * Square of any size on a map together with the number of streets, buildings and green areas inside it.
+ */
+public class SquareWindow {
+    /** Top row of the square. */
+    private final int row;
+    /** Left column of the square. */
+    private final int column;
+    /** Number of rows and columns of the square. */
+    private final int size;
+    /** Number of streets inside the square. */
+    private final int streetCount;
+    /** Number of buildings inside the square. */
+    private final int buildingCount;
+    /** Number of green areas inside the square. */
+    private final int greenCount;
+
+    /**
+     * Constructs a window with its counts.
+     *
+     * @param row the top row of the square
+     * @param column the left column of the square
+     * @param size the number of rows and columns of the square
+     * @param streetCount the number of streets inside the square
+     * @param buildingCount the number of buildings inside the square
+     * @param greenCount the number of green areas inside the square
+     */
+    public SquareWindow(int row, int column, int size, int streetCount, int buildingCount, int greenCount) {
+        this.row = row;
+        this.column = column;
+        this.size = size;
+        this.streetCount = streetCount;
+        this.buildingCount = buildingCount;
+        this.greenCount = greenCount;
+    }
+
+    /**
+     * @return the top row of the square
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * @return the left column of the square
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return the number of rows and columns of the square
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of streets inside the square
+     */
+    public int getStreetCount() {
+        return streetCount;
+    }
+
+    /**
+     * @return the number of buildings inside the square
+     */
+    public int getBuildingCount() {
+        return buildingCount;
+    }
+
+    /**
+     * @return the number of green areas inside the square
+     */
+    public int getGreenCount() {
+        return greenCount;
+    }
+
+    /**
+     * A square is sparse if at least one of its cells is no street, like Square.isSparse() for 2x2 squares.
+     *
+     * @return true if the square is sparse, false otherwise
+     */
+    public boolean isSparse() {
+        return streetCount < size * size;
+    }
+}
@@ -0,0 +1,213 @@
+package model;
+
+import model.abstractClasses.MapView;
+
+import java.util.Arrays;
+
+/**
+ * Union-find index over the street cells of a map.
+ * Every street cell is addressed by its cell index row * columns + column and belongs to exactly one
+ * street component, two streets are in the same component if they are connected over adjacent streets.
+ * The index is immutable once built, its queries do not compress paths and can run from any number of threads.
+ * Components are merged by size, so a query follows at most a logarithmic number of parents.
+ * withStreets returns a new index with additional streets, removing a street is not supported and requires
+ * a new index.
+ */
+public final class StreetComponentIndex {
+    /** Number of rows of the indexed map. */
+    private final int rows;
+    /** Number of columns of the indexed map. */
+    private final int columns;
+    /** Union-find parent of every street cell, -1 for cells that are no street. */
+    private final int[] parent;
+    /** Size of the component of every root cell. */
+    private final int[] size;
+    /** Number of street components. */
+    private int componentCount;
+
+    /**
+     * Builds the index in one pass over the given vertex array.
+     *
+     * @param vertexArray the vertices of the map, null entries count as no street
+     */
+    public StreetComponentIndex(BasicVertex[][] vertexArray) {
+        this(vertexArray.length, vertexArray.length == 0 ? 0 : vertexArray[0].length);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (vertexArray[row][column] instanceof BasicStreet) {
+                    addStreet(row * columns + column);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the index in one pass over the cells of a view.
+     *
+     * @param view the view of the map
+     */
+    public StreetComponentIndex(MapView view) {
+        this(view.getRows(), view.getColumns());
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (view.getVertex(row, column) instanceof BasicStreet) {
+                    addStreet(row * columns + column);
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor of an index without streets.
+     *
+     * @param rows the number of rows of the map
+     * @param columns the number of columns of the map
+     */
+    private StreetComponentIndex(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.parent = new int[rows * columns];
+        this.size = new int[rows * columns];
+        Arrays.fill(parent, -1);
+    }
+
+    /**
+     * Constructor of a copy of the given index.
+     *
+     * @param base the copied index
+     */
+    private StreetComponentIndex(StreetComponentIndex base) {
+        this.rows = base.rows;
+        this.columns = base.columns;
+        this.parent = base.parent.clone();
+        this.size = base.size.clone();
+        this.componentCount = base.componentCount;
+    }
+
+    /**
+     * Returns an index in which the given cells are streets as well, merged with the street components
+     * around them. This index stays unchanged.
+     *
+     * @param cells the cell indices of the new streets, cells that already are streets are skipped
+     * @param count the number of cells to take from the array
+     * @return the new index, this index if there are no cells
+     */
+    public StreetComponentIndex withStreets(int[] cells, int count) {
+        if (count == 0) {
+            return this;
+        }
+        StreetComponentIndex updated = new StreetComponentIndex(this);
+        for (int i = 0; i < count; i++) {
+            updated.addStreet(cells[i]);
+        }
+        return updated;
+    }
+
+    /**
+     * Registers a new street cell and merges it with the street components around it, only used while an
+     * index is built. Does nothing if the cell already is a street.
+     *
+     * @param cell the cell index of the new street
+     */
+    private void addStreet(int cell) {
+        if (parent[cell] >= 0) {
+            return;
+        }
+        parent[cell] = cell;
+        size[cell] = 1;
+        componentCount++;
+
+        int row = cell / columns;
+        int column = cell % columns;
+        if (row > 0 && parent[cell - columns] >= 0) {
+            union(cell, cell - columns);
+        }
+        if (row < rows - 1 && parent[cell + columns] >= 0) {
+            union(cell, cell + columns);
+        }
+        if (column > 0 && parent[cell - 1] >= 0) {
+            union(cell, cell - 1);
+        }
+        if (column < columns - 1 && parent[cell + 1] >= 0) {
+            union(cell, cell + 1);
+        }
+    }
+
+    /**
+     * Checks if a cell is registered as street.
+     *
+     * @param cell the cell index
+     * @return true if the cell is a street, false otherwise
+     */
+    public boolean isStreet(int cell) {
+        return parent[cell] >= 0;
+    }
+
+    /**
+     * Finds the representative of the component of a street cell without changing the index.
+     *
+     * @param cell the cell index of a street
+     * @return the cell index of the component representative
+     */
+    public int find(int cell) {
+        int current = cell;
+        while (parent[current] != current) {
+            current = parent[current];
+        }
+        return current;
+    }
+
+    /**
+     * Checks if two cells are streets of the same component.
+     *
+     * @param a the first cell index
+     * @param b the second cell index
+     * @return true if both cells are streets connected over streets, false otherwise
+     */
+    public boolean sameComponent(int a, int b) {
+        return parent[a] >= 0 && parent[b] >= 0 && find(a) == find(b);
+    }
+
+    /**
+     * Merges the components of two street cells, attaching the smaller one to the larger one.
+     *
+     * @param a the first cell index
+     * @param b the second cell index
+     */
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (size[rootA] < size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+        componentCount--;
+    }
+
+    /**
+     * @return the number of street components
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * @return the number of rows of the indexed map
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns of the indexed map
+     */
+    public int getColumns() {
+        return columns;
+    }
+}
@@ -1,12 +1,11 @@
 package model.abstractClasses;
 
-import model.BasicMap;
 import model.BasicVertex;
 import model.Position2D;
 
 public abstract class BasicVertexTemplate {
 
-	private BasicMap containingMap;
+	private BasicMapTemplate containingMap;
 	private Position2D position;
 	private int value;
 
@@ -27,11 +26,11 @@ public abstract class BasicVertexTemplate {
 
 	public abstract boolean isBasicStreetConnectedTo(BasicVertex v);
 
-	public BasicMap getContainingMap() {
+	public BasicMapTemplate getContainingMap() {
 		return containingMap;
 	}
 
-	public void setContainingMap(BasicMap containingMap) {
+	public void setContainingMap(BasicMapTemplate containingMap) {
 		this.containingMap = containingMap;
 	}
 
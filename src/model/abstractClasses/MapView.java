@@ -0,0 +1,68 @@
+package model.abstractClasses;
+
+import model.BasicStreet;
+import model.BasicVertex;
+import model.Position2D;
+
+/**
+ * Read-only view of the vertices of a map, addressed by row and column
+ */
+public interface MapView {
+
+    /**
+     * @return the number of rows of the map
+     */
+    int getRows();
+
+    /**
+     * @return the number of columns of the map
+     */
+    int getColumns();
+
+    /**
+     * Returns the vertex of a cell as seen through this view
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the vertex of the cell
+     */
+    BasicVertex getVertex(int row, int column);
+
+    /**
+     * Returns the vertex at a position as seen through this view
+     * @param position the position of the cell
+     * @return the vertex at the position
+     */
+    default BasicVertex getVertex(Position2D position) {
+        return getVertex(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * Returns the speed limit of a cell as seen through this view
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the speed limit of the street in the cell, -1 if the cell is no street
+     */
+    default int getSpeedLimit(int row, int column) {
+        return getVertex(row, column) instanceof BasicStreet street ? street.getSpeedLimit() : -1;
+    }
+
+    /**
+     * Computes the cell index of a cell, the address used by the indexes of a map
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the cell index row * columns + column
+     */
+    default int getCellIndex(int row, int column) {
+        return row * getColumns() + column;
+    }
+
+    /**
+     * Checks if a cell lies inside the map
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return true if the cell is inside the map, false otherwise
+     */
+    default boolean isInBound(int row, int column) {
+        return row >= 0 && row < getRows() && column >= 0 && column < getColumns();
+    }
+}
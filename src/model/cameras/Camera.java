@@ -3,6 +3,7 @@ package model.cameras;
 import model.*;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 
@@ -27,6 +28,10 @@ public class Camera {
      * ArrayList of vertices that are observed by the camera
      */
     private ArrayList<BasicVertex> observedVertices;
+    /**
+     * Cell indices of the observed vertices that are stored in the last snapshot asked for, created on first use
+     */
+    private ObservedCells observedCells;
 
     /**
      * Constructor of the Camera with the specified range, position and observed map
@@ -44,76 +49,84 @@ public class Camera {
 
     /**
      * Initializes the observedVertices list with the vertices that the camera can observe.
-     * The vertices are added to the list if they are within the camera's range and visible.
-     * The list is sorted by the value of the vertices.
+     * The vertices are added to the list if they are within the camera's range and visible,
+     * which only holds on the four rays from the camera up to the next building in each direction.
+     * The rays are walked in row-major order and the list is sorted by the value of the vertices.
+     * The cells and the line of sight are read from one snapshot of the observed map.
      */
     public void initObservedVertices() {
-        BasicVertex[][] vertexArray = observedMap.getSparseVertexArray();
-        BasicVertex cameraVertex = vertexArray[position.getRow()][position.getColumn()];
-
-        for (int negativeRangeRow = -range; negativeRangeRow <= range; negativeRangeRow++) {
-            for (int negativeRangeCol = -range; negativeRangeCol <= range; negativeRangeCol++) {
-                int currentRow = position.getRow() + negativeRangeRow;
-                int currentColumn = position.getColumn() + negativeRangeCol;
-
-                if (isInBound(currentRow, currentColumn, vertexArray)) {
-                    BasicVertex current = vertexArray[currentRow][currentColumn];
-                    if (cameraVertex.getBasicManhattanDistance(current) <= range && isVisible(current, vertexArray)) {
-                        observedVertices.add(current);
-                    }
-                }
+        MapSnapshot view = observedMap.getSnapshot();
+        LineOfSightIndex lineOfSight = view.getLineOfSightIndex();
+        int cameraRow = position.getRow();
+        int cameraColumn = position.getColumn();
+        BasicVertex cameraVertex = view.getVertex(cameraRow, cameraColumn);
+        if (range < 0) {
+            return;
+        }
+
+        int top = Math.max(cameraRow - range, lineOfSight.getBuildingUp(cameraRow, cameraColumn) + 1);
+        int bottom = Math.min(cameraRow + range, lineOfSight.getBuildingDown(cameraRow, cameraColumn) - 1);
+        int left = Math.max(cameraColumn - range, lineOfSight.getBuildingLeft(cameraRow, cameraColumn) + 1);
+        int right = Math.min(cameraColumn + range, lineOfSight.getBuildingRight(cameraRow, cameraColumn) - 1);
+
+        for (int row = top; row < cameraRow; row++) {
+            observedVertices.add(view.getVertex(row, cameraColumn));
+        }
+        for (int column = left; column <= right; column++) {
+            if (column != cameraColumn || !(cameraVertex instanceof BasicBuilding)) {
+                observedVertices.add(view.getVertex(cameraRow, column));
             }
         }
+        for (int row = cameraRow + 1; row <= bottom; row++) {
+            observedVertices.add(view.getVertex(row, cameraColumn));
+        }
         observedVertices.sort(Comparator.comparingInt(BasicVertex::getValue));
     }
 
     /**
-     * Checks if the current vertex is visible from the cameras position
-     * @param current vertex to be checked for visibility
-     * @param basicVertexArray the array of vertices in the map
-     * @return true if current vertex is visible, false otherwise
+     * Returns the observed vertices as a bitset over the cell indices of the latest snapshot of the observed map.
+     * @return bitset of the observed cells
      */
-    private boolean isVisible(BasicVertex current, BasicVertex[][] basicVertexArray) {
-        if (current instanceof BasicBuilding) {
-            return false;
-        }
-        int cameraRow = position.getRow();
-        int cameraColumn = position.getColumn();
-        int endRow = current.getPosition().getRow();
-        int endColumn = current.getPosition().getColumn();
-
-        if (cameraRow == endRow) {
-            int minCol = Math.min(cameraColumn, endColumn);
-            int maxCol = Math.max(cameraColumn, endColumn);
-            for (int col = minCol + 1; col < maxCol; col++) {
-                if (basicVertexArray[cameraRow][col] instanceof BasicBuilding) {
-                    return false;
-                }
-            }
+    public BitSet getObservedCells() {
+        return getObservedCells(observedMap.getSnapshot());
+    }
+
+    /**
+     * Returns the observed vertices as a bitset over the cell indices of a snapshot of the observed map.
+     * A cell is only set if the observed vertex is the vertex stored in that cell of the snapshot.
+     * The result for the last snapshot is kept.
+     * @param view the snapshot the cells are checked against
+     * @return bitset of the observed cells
+     */
+    public BitSet getObservedCells(MapSnapshot view) {
+        ObservedCells cached = observedCells;
+        if (cached != null && cached.view() == view) {
+            return cached.cells();
         }
-        else if (cameraColumn == endColumn) {
-            int minRow = Math.min(cameraRow, endRow);
-            int maxRow = Math.max(cameraRow, endRow);
-            for (int row = minRow + 1; row < maxRow; row++) {
-                if (basicVertexArray[row][cameraColumn] instanceof BasicBuilding) {
-                    return false;
-                }
+        BitSet cells = new BitSet();
+        for (BasicVertex vertex : observedVertices) {
+            int row = vertex.getPosition().getRow();
+            int column = vertex.getPosition().getColumn();
+            if (view.isInBound(row, column) && view.getVertex(row, column) == vertex) {
+                cells.set(view.getCellIndex(row, column));
             }
-        } else {
-            return false;
         }
-        return true;
+        observedCells = new ObservedCells(view, cells);
+        return cells;
     }
 
     /**
-     * Checks if the given position is within the bounds of the vertex array
-     * @param currentRow row index to check
-     * @param currentColumn column index to check
-     * @param vertexArray the array of vertices in the map
-     * @return true if vertex is within bounds, false otherwise
+     * Checks if the current vertex is visible from the cameras position, regardless of the range.
+     * Buildings are never visible and block the view on the cells behind them.
+     * @param current vertex to be checked for visibility
+     * @return true if current vertex is visible, false otherwise
      */
-    private boolean isInBound(int currentRow, int currentColumn, BasicVertex[][] vertexArray) {
-        return currentRow >= 0 && currentRow < vertexArray.length && currentColumn >= 0 && currentColumn < vertexArray[0].length;
+    public boolean isVisible(BasicVertex current) {
+        if (current instanceof BasicBuilding) {
+            return false;
+        }
+        return observedMap.getSnapshot().getLineOfSightIndex().isVisible(position.getRow(), position.getColumn(),
+                current.getPosition().getRow(), current.getPosition().getColumn());
     }
 
     /**
@@ -157,6 +170,7 @@ public class Camera {
      */
     public void setObservedMap(SparseMap observedMap) {
         this.observedMap = observedMap;
+        this.observedCells = null;
     }
 
     /**
@@ -171,5 +185,14 @@ public class Camera {
      */
     public void setObservedVertices(ArrayList<BasicVertex> observedVertices) {
         this.observedVertices = observedVertices;
+        this.observedCells = null;
+    }
+
+    /**
+     * Observed cells of the camera in one snapshot of the observed map
+     * @param view the snapshot
+     * @param cells the observed cells
+     */
+    private record ObservedCells(MapSnapshot view, BitSet cells) {
     }
 }
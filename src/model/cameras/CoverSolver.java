@@ -0,0 +1,943 @@
+package model.cameras;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Exact weighted set cover solver over bitsets.
+ * Every candidate covers a set of elements, given as a bitset of element indices, and has a cost and a value.
+ * The solver returns the cover with the smallest key (cost, size, values, indices), where values is the
+ * sequence of candidate values and indices the sequence of candidate indices, both in ascending index order
+ * and compared lexicographically. These are the tie-break rules the camera covers always used.
+ *
+ * The search runs in two phases:
+ * <ol>
+ *     <li>A branch and bound search finds the optimal (cost, size). It branches over the candidates of the
+ *     uncovered element with the fewest options, skips candidates that are dominated by another candidate
+ *     and prunes with the lower bound of a Lagrangian relaxation, whose multipliers are handed down the tree.
+ *     The first levels of the search tree run as fork/join tasks.</li>
+ *     <li>The cover is then fixed candidate by candidate in ascending index order. For every position the
+ *     smallest value is taken for which the chosen prefix can still be completed to a cover with the optimal
+ *     (cost, size), which the same branch and bound search decides. Prefixes with equal values are kept
+ *     side by side until the end, where the one with the smallest indices wins.</li>
+ * </ol>
+ * Candidates with negative cost make every cover cheaper and are therefore part of every optimal cover.
+ */
+public class CoverSolver {
+    /**
+     * Depth of the branch and bound tree up to which the branches run as parallel tasks
+     */
+    private static final int PARALLEL_DEPTH = 3;
+    /**
+     * Number of subgradient steps for a lower bound that starts from scratch
+     */
+    private static final int ROOT_ITERATIONS = 100;
+    /**
+     * Number of subgradient steps for a lower bound that starts from the multipliers of the parent node
+     */
+    private static final int NODE_ITERATIONS = 30;
+    /**
+     * Tolerance for rounding the floating point bounds up
+     */
+    private static final double EPSILON = 1e-6;
+
+    /**
+     * Number of candidates
+     */
+    private final int candidateCount;
+    /**
+     * Number of 64 bit words of an element bitset
+     */
+    private final int words;
+    /**
+     * Covered elements of every candidate
+     */
+    private final long[][] masks;
+    /**
+     * Cost of every candidate
+     */
+    private final long[] costs;
+    /**
+     * Value of every candidate, used for the tie-break
+     */
+    private final int[] values;
+    /**
+     * Bitset of all elements
+     */
+    private final long[] allElements;
+    /**
+     * Candidates covering every element in ascending index order
+     */
+    private final int[][] coverers;
+    /**
+     * Elements ordered by ascending number of coverers, the lower bound picks them in this order
+     */
+    private final int[] elementOrder;
+    /**
+     * True if all candidates cost 1, the cost bound then equals the size bound
+     */
+    private final boolean unitCosts;
+    /**
+     * Coverers of every element that are not dominated, ordered by descending coverage
+     */
+    private int[][] branchCoverers;
+    /**
+     * Number of candidates with negative cost from every candidate index on
+     */
+    private int[] forcedCountFrom;
+    /**
+     * Cost of the candidates with negative cost from every candidate index on
+     */
+    private long[] forcedCostFrom;
+    /**
+     * Elements covered by the candidates with negative cost from every candidate index on
+     */
+    private long[][] forcedMaskFrom;
+
+    /**
+     * Constructor of the solver for the specified candidates
+     * @param masks covered elements of every candidate as bitset words
+     * @param elementCount number of elements that have to be covered
+     * @param costs cost of every candidate
+     * @param values value of every candidate, used for the tie-break
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public CoverSolver(long[][] masks, int elementCount, long[] costs, int[] values) {
+        if (masks.length != costs.length || masks.length != values.length) {
+            throw new IllegalArgumentException("masks, costs and values must have the same length");
+        }
+        this.candidateCount = masks.length;
+        this.words = (elementCount + 63) >>> 6;
+        this.masks = masks;
+        this.costs = costs;
+        this.values = values;
+        this.allElements = new long[words];
+        for (int element = 0; element < elementCount; element++) {
+            allElements[element >>> 6] |= 1L << element;
+        }
+
+        int[] counts = new int[elementCount];
+        for (long[] mask : masks) {
+            forEachElement(mask, element -> counts[element]++);
+        }
+        this.coverers = new int[elementCount][];
+        for (int element = 0; element < elementCount; element++) {
+            coverers[element] = new int[counts[element]];
+        }
+        Arrays.fill(counts, 0);
+        for (int candidate = 0; candidate < candidateCount; candidate++) {
+            int current = candidate;
+            forEachElement(masks[candidate], element -> coverers[element][counts[element]++] = current);
+        }
+
+        this.unitCosts = Arrays.stream(costs).allMatch(cost -> cost == 1);
+        this.elementOrder = sortedBy(elementCount, element -> coverers[element].length);
+    }
+
+    /**
+     * Computes the optimal cover
+     * @return the indices of the chosen candidates in ascending order, null if the candidates cannot cover all elements
+     */
+    public int[] solve() {
+        for (int[] options : coverers) {
+            if (options.length == 0) {
+                return null;
+            }
+        }
+        initForcedCandidates();
+        initBranchCoverers();
+
+        long[] covered = forcedMaskFrom[0];
+        long cost = forcedCostFrom[0];
+        int size = forcedCountFrom[0];
+        long[] greedy = greedyKey(covered, cost, size);
+        Bound bound = lowerBound(andNotCopy(allElements, covered), 0, null, null, pruneLimit(greedy, cost, size));
+        BranchSearch optimum = new BranchSearch(greedy, new long[]{cost + bound.cost(), size + bound.size()});
+        optimum.run(covered, 0, cost, size);
+        long[] target = optimum.bestKey.get();
+
+        List<Prefix> prefixes = List.of(new Prefix(new int[0], new long[words], 0));
+        for (int position = 0; position < target[1]; position++) {
+            prefixes = extend(prefixes, target);
+        }
+        return prefixes.stream()
+                .map(prefix -> prefix.chosen)
+                .min(Arrays::compare)
+                .orElseThrow();
+    }
+
+    /**
+     * Precomputes the suffix tables of the candidates with negative cost
+     */
+    private void initForcedCandidates() {
+        forcedCountFrom = new int[candidateCount + 1];
+        forcedCostFrom = new long[candidateCount + 1];
+        forcedMaskFrom = new long[candidateCount + 1][];
+        forcedMaskFrom[candidateCount] = new long[words];
+        for (int candidate = candidateCount - 1; candidate >= 0; candidate--) {
+            boolean forced = costs[candidate] < 0;
+            forcedCountFrom[candidate] = forcedCountFrom[candidate + 1] + (forced ? 1 : 0);
+            forcedCostFrom[candidate] = forcedCostFrom[candidate + 1] + (forced ? costs[candidate] : 0);
+            forcedMaskFrom[candidate] = forced
+                    ? orCopy(forcedMaskFrom[candidate + 1], masks[candidate]) : forcedMaskFrom[candidate + 1];
+        }
+    }
+
+    /**
+     * Removes dominated candidates from the branching lists. A candidate is dominated if a candidate with a higher
+     * index covers all of its elements at no higher cost. Because the searches only ever exclude the candidates
+     * below some index, the dominating candidate is available whenever the dominated one is.
+     */
+    private void initBranchCoverers() {
+        boolean[] dominated = new boolean[candidateCount];
+        for (int candidate = 0; candidate < candidateCount; candidate++) {
+            int first = nextElement(masks[candidate], 0);
+            if (first < 0 || costs[candidate] < 0) {
+                continue;
+            }
+            for (int other : coverers[first]) {
+                if (other > candidate && costs[other] <= costs[candidate] && isSubset(masks[candidate], masks[other])) {
+                    dominated[candidate] = true;
+                    break;
+                }
+            }
+        }
+
+        int[] coverage = new int[candidateCount];
+        for (int candidate = 0; candidate < candidateCount; candidate++) {
+            coverage[candidate] = cardinality(masks[candidate]);
+        }
+        branchCoverers = new int[coverers.length][];
+        for (int element = 0; element < coverers.length; element++) {
+            branchCoverers[element] = Arrays.stream(coverers[element])
+                    .filter(candidate -> !dominated[candidate])
+                    .boxed()
+                    .sorted(Comparator.<Integer>comparingInt(candidate -> -coverage[candidate])
+                            .thenComparingLong(candidate -> costs[candidate]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    /**
+     * Builds a first cover greedily, its (cost, size) is the initial upper bound of the branch and bound search
+     * @param covered elements covered by the candidates with negative cost
+     * @param cost cost of the candidates with negative cost
+     * @param size number of candidates with negative cost
+     * @return the (cost, size) of the greedy cover
+     */
+    private long[] greedyKey(long[] covered, long cost, int size) {
+        long[] current = covered.clone();
+        long[] uncovered = andNotCopy(allElements, current);
+        while (!isEmpty(uncovered)) {
+            int element = nextElement(uncovered, 0);
+            int best = -1;
+            int bestGain = 0;
+            for (int candidate : coverers[element]) {
+                int gain = intersectionCount(masks[candidate], uncovered);
+                if (best < 0 || gain > bestGain || (gain == bestGain && costs[candidate] < costs[best])) {
+                    best = candidate;
+                    bestGain = gain;
+                }
+            }
+            or(current, masks[best]);
+            cost += costs[best];
+            size++;
+            uncovered = andNotCopy(allElements, current);
+        }
+        return new long[]{cost, size};
+    }
+
+    /**
+     * Chosen candidates of a cover prefix in ascending index order
+     * @param chosen the chosen candidates
+     * @param covered the elements covered by them
+     * @param cost their cost
+     */
+    private record Prefix(int[] chosen, long[] covered, long cost) {
+        /**
+         * @return the highest chosen index, -1 for the empty prefix
+         */
+        private int last() {
+            return chosen.length == 0 ? -1 : chosen[chosen.length - 1];
+        }
+    }
+
+    /**
+     * Extends the prefixes by one candidate with the smallest value that still allows a cover with the target
+     * (cost, size). Extensions with the same last candidate, covered elements and cost have the same completions,
+     * only the first one of them is kept, which is also the one with the smaller indices.
+     * @param prefixes the current prefixes, all with equal values
+     * @param target the optimal (cost, size)
+     * @return the extended prefixes
+     */
+    private List<Prefix> extend(List<Prefix> prefixes, long[] target) {
+        ArrayList<long[]> moves = new ArrayList<>();
+        for (int index = 0; index < prefixes.size(); index++) {
+            Prefix prefix = prefixes.get(index);
+            long[] uncovered = andNotCopy(allElements, prefix.covered);
+            for (int candidate = prefix.last() + 1; candidate < candidateCount; candidate++) {
+                boolean forced = costs[candidate] < 0;
+                if (forced || intersects(andNotCopy(masks[candidate], forcedMaskFrom[candidate + 1]), uncovered)) {
+                    moves.add(new long[]{values[candidate], index, candidate});
+                }
+                if (forced) {
+                    break;
+                }
+            }
+        }
+        moves.sort(Comparator.<long[]>comparingLong(move -> move[0]).thenComparingLong(move -> move[1])
+                .thenComparingLong(move -> move[2]));
+
+        ArrayList<Prefix> extended = new ArrayList<>();
+        HashSet<List<Long>> seen = new HashSet<>();
+        for (int start = 0; start < moves.size() && extended.isEmpty(); ) {
+            int end = start;
+            while (end < moves.size() && moves.get(end)[0] == moves.get(start)[0]) {
+                end++;
+            }
+            for (long[] move : moves.subList(start, end)) {
+                Prefix prefix = prefixes.get((int) move[1]);
+                int candidate = (int) move[2];
+                int[] chosen = Arrays.copyOf(prefix.chosen, prefix.chosen.length + 1);
+                chosen[prefix.chosen.length] = candidate;
+                Prefix next = new Prefix(chosen, orCopy(prefix.covered, masks[candidate]), prefix.cost + costs[candidate]);
+                ArrayList<Long> state = new ArrayList<>();
+                state.add((long) candidate);
+                state.add(next.cost);
+                for (long word : next.covered) {
+                    state.add(word);
+                }
+                if (!seen.contains(state) && isCompletable(next, target)) {
+                    seen.add(state);
+                    extended.add(next);
+                }
+            }
+            start = end;
+        }
+        return extended;
+    }
+
+    /**
+     * Checks if a prefix can be completed with candidates of higher index to a cover with the target (cost, size)
+     * @param prefix the prefix
+     * @param target the optimal (cost, size)
+     * @return true if such a cover exists
+     */
+    private boolean isCompletable(Prefix prefix, long[] target) {
+        int from = prefix.last() + 1;
+        long[] covered = orCopy(prefix.covered, forcedMaskFrom[from]);
+        long cost = prefix.cost + forcedCostFrom[from];
+        int size = prefix.chosen.length + forcedCountFrom[from];
+        long[] uncovered = andNotCopy(allElements, covered);
+        if (isEmpty(uncovered)) {
+            return cost == target[0] && size == target[1];
+        }
+        Bound bound = lowerBound(uncovered, from, null, null, target[0] - cost + 1);
+        if (bound == null || cost + bound.cost() > target[0] || size + bound.size() > target[1]) {
+            return false;
+        }
+        BranchSearch completion = new BranchSearch(new long[]{target[0], target[1] + 1}, target);
+        completion.run(covered, from, cost, size);
+        return completion.isStopped();
+    }
+
+    /**
+     * Branch and bound search for the smallest (cost, size) of a cover. The search stops early
+     * as soon as it reaches a known lower limit.
+     */
+    private final class BranchSearch {
+        /**
+         * Best (cost, size) found so far
+         */
+        private final AtomicReference<long[]> bestKey;
+        /**
+         * (cost, size) that cannot be improved, the search stops when it is reached
+         */
+        private final long[] stopKey;
+
+        /**
+         * Constructor of a search
+         * @param initialKey (cost, size) a cover has to improve on to be recorded
+         * @param stopKey (cost, size) that cannot be improved
+         */
+        private BranchSearch(long[] initialKey, long[] stopKey) {
+            this.bestKey = new AtomicReference<>(initialKey);
+            this.stopKey = stopKey;
+        }
+
+        /**
+         * Runs the search from the given partial cover on the common fork/join pool
+         * @param covered elements covered by the chosen candidates
+         * @param from lowest candidate index that may be chosen
+         * @param cost cost of the chosen candidates
+         * @param size number of chosen candidates
+         */
+        private void run(long[] covered, int from, long cost, int size) {
+            if (!isStopped()) {
+                ForkJoinPool.commonPool().invoke(new BranchTask(covered, new long[(candidateCount + 63) >>> 6],
+                        null, from, cost, size, 0));
+            }
+        }
+
+        /**
+         * @return true if the search reached the stop key
+         */
+        private boolean isStopped() {
+            long[] best = bestKey.get();
+            return best[0] == stopKey[0] && best[1] == stopKey[1];
+        }
+
+        /**
+         * Branch and bound node, the node and its descendants up to PARALLEL_DEPTH run as fork/join tasks
+         */
+        private final class BranchTask extends RecursiveAction {
+            /**
+             * Version of the serialized form, tasks are never serialized
+             */
+            private static final long serialVersionUID = 1L;
+            /**
+             * Elements covered by the chosen candidates
+             */
+            private final long[] covered;
+            /**
+             * Candidates that must not be chosen in this subtree
+             */
+            private final long[] excluded;
+            /**
+             * Lagrangian multipliers of the parent node, null for the root
+             */
+            private final double[] multipliers;
+            /**
+             * Lowest candidate index that may be chosen
+             */
+            private final int from;
+            /**
+             * Cost of the chosen candidates
+             */
+            private final long cost;
+            /**
+             * Number of chosen candidates
+             */
+            private final int size;
+            /**
+             * Depth of the node in the search tree
+             */
+            private final int depth;
+
+            /**
+             * Constructor of a branch and bound node
+             * @param covered elements covered by the chosen candidates
+             * @param excluded candidates that must not be chosen in this subtree
+             * @param multipliers Lagrangian multipliers of the parent node, null for the root
+             * @param from lowest candidate index that may be chosen
+             * @param cost cost of the chosen candidates
+             * @param size number of chosen candidates
+             * @param depth depth of the node in the search tree
+             */
+            private BranchTask(long[] covered, long[] excluded, double[] multipliers, int from, long cost, int size,
+                               int depth) {
+                this.covered = covered;
+                this.excluded = excluded;
+                this.multipliers = multipliers;
+                this.from = from;
+                this.cost = cost;
+                this.size = size;
+                this.depth = depth;
+            }
+
+            @Override
+            protected void compute() {
+                branch(covered, excluded, multipliers, from, cost, size, depth);
+            }
+        }
+
+        /**
+         * Expands a node of the search
+         * @param covered elements covered by the chosen candidates
+         * @param excluded candidates that must not be chosen in this subtree
+         * @param multipliers Lagrangian multipliers of the parent node, null for the root
+         * @param from lowest candidate index that may be chosen
+         * @param cost cost of the chosen candidates
+         * @param size number of chosen candidates
+         * @param depth depth of the node in the search tree
+         */
+        private void branch(long[] covered, long[] excluded, double[] multipliers, int from, long cost, int size,
+                            int depth) {
+            if (isStopped()) {
+                return;
+            }
+            long[] uncovered = andNotCopy(allElements, covered);
+            if (isEmpty(uncovered)) {
+                offer(cost, size);
+                return;
+            }
+            Bound bound = lowerBound(uncovered, from, excluded, multipliers, pruneLimit(bestKey.get(), cost, size));
+            if (bound == null || !improves(cost + bound.cost(), size + bound.size())) {
+                return;
+            }
+            if (bound.fixed() != null) {
+                excluded = orCopy(excluded, bound.fixed());
+            }
+
+            int element = -1;
+            int fewest = Integer.MAX_VALUE;
+            for (int e = nextElement(uncovered, 0); e >= 0 && fewest > 0; e = nextElement(uncovered, e + 1)) {
+                int count = 0;
+                for (int candidate : branchCoverers[e]) {
+                    if (candidate >= from && !isSet(excluded, candidate)) {
+                        count++;
+                    }
+                }
+                if (count < fewest) {
+                    fewest = count;
+                    element = e;
+                }
+            }
+            if (fewest == 0) {
+                return;
+            }
+
+            int[] options = availableOptions(branchCoverers[element], uncovered, excluded, from);
+            long[] childExcluded = excluded.clone();
+            for (int candidate : branchCoverers[element]) {
+                if (candidate >= from && Arrays.stream(options).noneMatch(option -> option == candidate)) {
+                    childExcluded[candidate >>> 6] |= 1L << candidate;
+                }
+            }
+            List<BranchTask> tasks = depth < PARALLEL_DEPTH ? new ArrayList<>() : null;
+            for (int candidate : options) {
+                long[] childCovered = orCopy(covered, masks[candidate]);
+                if (tasks != null) {
+                    tasks.add(new BranchTask(childCovered, childExcluded.clone(), bound.multipliers(), from,
+                            cost + costs[candidate], size + 1, depth + 1));
+                } else {
+                    branch(childCovered, childExcluded, bound.multipliers(), from, cost + costs[candidate], size + 1,
+                            depth + 1);
+                }
+                childExcluded[candidate >>> 6] |= 1L << candidate;
+            }
+            if (tasks != null) {
+                RecursiveAction.invokeAll(tasks);
+            }
+        }
+
+        /**
+         * Collects the options to branch over. An option is left out if another option covers all of its uncovered
+         * elements at no higher cost, because replacing it by the other option never makes a cover worse.
+         * @param options the coverers of the branching element
+         * @param uncovered the uncovered elements
+         * @param excluded candidates that must not be chosen
+         * @param from lowest candidate index that may be chosen
+         * @return the options to branch over, in the order of the given options
+         */
+        private int[] availableOptions(int[] options, long[] uncovered, long[] excluded, int from) {
+            int[] available = new int[options.length];
+            long[][] useful = new long[options.length][];
+            int count = 0;
+            for (int candidate : options) {
+                if (candidate >= from && !isSet(excluded, candidate)) {
+                    useful[count] = andNotCopy(uncovered, andNotCopy(uncovered, masks[candidate]));
+                    available[count++] = candidate;
+                }
+            }
+            boolean[] dominated = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < count && !dominated[i]; j++) {
+                    dominated[i] = j != i && costs[available[j]] <= costs[available[i]] && isSubset(useful[i], useful[j])
+                            && (j < i || costs[available[j]] < costs[available[i]] || !isSubset(useful[j], useful[i]));
+                }
+            }
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (!dominated[i]) {
+                    available[kept++] = available[i];
+                }
+            }
+            return Arrays.copyOf(available, kept);
+        }
+
+        /**
+         * Checks if a (cost, size) is better than the best one found so far
+         * @param cost the cost
+         * @param size the size
+         * @return true if it is strictly smaller
+         */
+        private boolean improves(long cost, long size) {
+            long[] best = bestKey.get();
+            return cost < best[0] || (cost == best[0] && size < best[1]);
+        }
+
+        /**
+         * Records the (cost, size) of a found cover if it is better than the best one so far
+         * @param cost the cost of the cover
+         * @param size the size of the cover
+         */
+        private void offer(long cost, int size) {
+            long[] key = {cost, size};
+            long[] best = bestKey.get();
+            while ((cost < best[0] || (cost == best[0] && size < best[1])) && !bestKey.compareAndSet(best, key)) {
+                best = bestKey.get();
+            }
+        }
+    }
+
+    /**
+     * Computes the limit at which a lower bound prunes a node: the bound on the primary objective,
+     * the size for unit costs and the cost otherwise, from which on no completion improves the best key
+     * @param best the best (cost, size) so far
+     * @param cost cost of the chosen candidates
+     * @param size number of chosen candidates
+     * @return the limit
+     */
+    private long pruneLimit(long[] best, long cost, int size) {
+        long costRoom = best[0] - cost;
+        return unitCosts && best[1] - size <= costRoom ? costRoom : costRoom + 1;
+    }
+
+    /**
+     * Lower bounds of a node
+     * @param cost lower bound of the cost still needed
+     * @param size lower bound of the number of candidates still needed
+     * @param multipliers the Lagrangian multipliers of the bound, the children start from them
+     * @param fixed candidates whose choice alone lifts the bound to the limit, null if there are none
+     */
+    private record Bound(long cost, long size, double[] multipliers, long[] fixed) {
+    }
+
+    /**
+     * Computes lower bounds for covering the given elements with a Lagrangian relaxation of the set cover.
+     * Every element receives a multiplier, every cover then costs at least the sum of the multipliers plus the
+     * negative reduced costs of the candidates. Without start multipliers the search starts from a feasible dual
+     * solution, built by splitting the cost of every candidate among its elements. The multipliers are improved
+     * by subgradient steps until the bound reaches the limit. Candidates with a reduced cost that lifts the bound
+     * to the limit cannot be part of an improving cover and are reported as fixed.
+     * The relaxation works on the cost, for unit costs that is also the size. Otherwise the size bound comes
+     * from the feasible dual solution with unit costs.
+     * @param uncovered the elements that still have to be covered, none of them covered by a candidate of negative cost
+     * @param from lowest candidate index that may still be chosen
+     * @param excluded candidates that must not be chosen, null if there are none
+     * @param start multipliers to start from, null to start from scratch
+     * @param limit bound on the cost at which the node is pruned
+     * @return the bounds, null if an element cannot be covered
+     */
+    private Bound lowerBound(long[] uncovered, int from, long[] excluded, double[] start, long limit) {
+        int[] first = new int[coverers.length];
+        boolean[] available = new boolean[candidateCount];
+        for (int element = nextElement(uncovered, 0); element >= 0; element = nextElement(uncovered, element + 1)) {
+            int position = Arrays.binarySearch(coverers[element], from);
+            first[element] = position < 0 ? -position - 1 : position;
+            boolean coverable = false;
+            for (int k = first[element]; k < coverers[element].length; k++) {
+                int candidate = coverers[element][k];
+                if (excluded == null || !isSet(excluded, candidate)) {
+                    available[candidate] = true;
+                    coverable = true;
+                }
+            }
+            if (!coverable) {
+                return null;
+            }
+        }
+
+        double[] weights = new double[candidateCount];
+        for (int candidate = 0; candidate < candidateCount; candidate++) {
+            weights[candidate] = Math.max(0, costs[candidate]);
+        }
+        double[] multipliers = start == null ? dualAscent(uncovered, first, available, weights) : start.clone();
+        double[] bestMultipliers = multipliers.clone();
+        double[] reducedCosts = new double[candidateCount];
+        double best = Double.NEGATIVE_INFINITY;
+        double step = 2;
+        int iterations = start == null ? ROOT_ITERATIONS : NODE_ITERATIONS;
+        for (int iteration = 0; iteration <= iterations && Math.ceil(best - EPSILON) < limit; iteration++) {
+            double value = lagrangianValue(uncovered, first, available, weights, multipliers, reducedCosts);
+            if (value > best) {
+                best = value;
+                System.arraycopy(multipliers, 0, bestMultipliers, 0, multipliers.length);
+            }
+            if (iteration == iterations) {
+                break;
+            }
+            double[] gradient = new double[coverers.length];
+            double norm = 0;
+            for (int element = nextElement(uncovered, 0); element >= 0; element = nextElement(uncovered, element + 1)) {
+                gradient[element] = 1;
+                for (int k = first[element]; k < coverers[element].length; k++) {
+                    int candidate = coverers[element][k];
+                    if (available[candidate] && reducedCosts[candidate] < 0) {
+                        gradient[element]--;
+                    }
+                }
+                norm += gradient[element] * gradient[element];
+            }
+            if (norm == 0) {
+                break;
+            }
+            double scale = step * (limit - value) / norm;
+            for (int element = nextElement(uncovered, 0); element >= 0; element = nextElement(uncovered, element + 1)) {
+                multipliers[element] = Math.max(0, multipliers[element] + scale * gradient[element]);
+            }
+            step *= 0.9;
+        }
+
+        long cost = (long) Math.ceil(best - EPSILON);
+        long[] fixed = null;
+        if (cost < limit) {
+            lagrangianValue(uncovered, first, available, weights, bestMultipliers, reducedCosts);
+            for (int candidate = 0; candidate < candidateCount; candidate++) {
+                if (available[candidate] && Math.ceil(best + reducedCosts[candidate] - EPSILON) >= limit) {
+                    if (fixed == null) {
+                        fixed = new long[(candidateCount + 63) >>> 6];
+                    }
+                    fixed[candidate >>> 6] |= 1L << candidate;
+                }
+            }
+        }
+        long size = cost;
+        if (!unitCosts) {
+            double[] unitWeights = new double[candidateCount];
+            Arrays.fill(unitWeights, 1);
+            size = (long) Math.ceil(Arrays.stream(dualAscent(uncovered, first, available, unitWeights)).sum() - EPSILON);
+        }
+        return new Bound(cost, size, bestMultipliers, fixed);
+    }
+
+    /**
+     * Builds a feasible dual solution in two passes: the remaining cost of every candidate is first split evenly
+     * among its elements without a share, what is left is then handed out element by element
+     * @param uncovered the elements that still have to be covered
+     * @param first position of the first coverer that may be chosen for every element
+     * @param available candidates that may be chosen
+     * @param weights cost of every candidate
+     * @return the share of every element
+     */
+    private double[] dualAscent(long[] uncovered, int[] first, boolean[] available, double[] weights) {
+        double[] slack = weights.clone();
+        int[] remaining = new int[candidateCount];
+        double[] shares = new double[coverers.length];
+        for (int element = nextElement(uncovered, 0); element >= 0; element = nextElement(uncovered, element + 1)) {
+            for (int k = first[element]; k < coverers[element].length; k++) {
+                if (available[coverers[element][k]]) {
+                    remaining[coverers[element][k]]++;
+                }
+            }
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int element : elementOrder) {
+                if (!isSet(uncovered, element)) {
+                    continue;
+                }
+                double share = Double.MAX_VALUE;
+                for (int k = first[element]; k < coverers[element].length; k++) {
+                    int candidate = coverers[element][k];
+                    if (available[candidate]) {
+                        share = Math.min(share, pass == 0 ? slack[candidate] / remaining[candidate] : slack[candidate]);
+                    }
+                }
+                for (int k = first[element]; k < coverers[element].length; k++) {
+                    int candidate = coverers[element][k];
+                    if (available[candidate]) {
+                        slack[candidate] -= share;
+                        remaining[candidate]--;
+                    }
+                }
+                shares[element] += share;
+            }
+        }
+        return shares;
+    }
+
+    /**
+     * Evaluates the Lagrangian relaxation for the given multipliers
+     * @param uncovered the elements that still have to be covered
+     * @param first position of the first coverer that may be chosen for every element
+     * @param available candidates that may be chosen
+     * @param weights cost of every candidate
+     * @param multipliers multiplier of every element
+     * @param reducedCosts receives the reduced cost of every available candidate
+     * @return the lower bound of the relaxation
+     */
+    private double lagrangianValue(long[] uncovered, int[] first, boolean[] available, double[] weights,
+                                   double[] multipliers, double[] reducedCosts) {
+        System.arraycopy(weights, 0, reducedCosts, 0, candidateCount);
+        double value = 0;
+        for (int element = nextElement(uncovered, 0); element >= 0; element = nextElement(uncovered, element + 1)) {
+            value += multipliers[element];
+            for (int k = first[element]; k < coverers[element].length; k++) {
+                reducedCosts[coverers[element][k]] -= multipliers[element];
+            }
+        }
+        for (int candidate = 0; candidate < candidateCount; candidate++) {
+            if (available[candidate] && reducedCosts[candidate] < 0) {
+                value += reducedCosts[candidate];
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Sorts the indices 0 to count - 1 by a key, keeping the index order for equal keys
+     * @param count number of indices
+     * @param key key of every index
+     * @return the sorted indices
+     */
+    private static int[] sortedBy(int count, IntUnaryOperator key) {
+        return IntStream.range(0, count)
+                .boxed()
+                .sorted(Comparator.comparingInt(key::applyAsInt))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Calls the action for every set element of a bitset in ascending order
+     * @param bits the bitset words
+     * @param action the action
+     */
+    private static void forEachElement(long[] bits, IntConsumer action) {
+        for (int element = nextElement(bits, 0); element >= 0; element = nextElement(bits, element + 1)) {
+            action.accept(element);
+        }
+    }
+
+    /**
+     * Finds the next set element of a bitset
+     * @param bits the bitset words
+     * @param from the first element to check
+     * @return the next set element, -1 if there is none
+     */
+    private static int nextElement(long[] bits, int from) {
+        int word = from >>> 6;
+        if (word >= bits.length) {
+            return -1;
+        }
+        long current = bits[word] & (-1L << from);
+        while (current == 0) {
+            if (++word == bits.length) {
+                return -1;
+            }
+            current = bits[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(current);
+    }
+
+    /**
+     * @param bits the bitset words
+     * @param index the element
+     * @return true if the element is set
+     */
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @param bits the bitset words
+     * @return true if no element is set
+     */
+    private static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param bits the bitset words
+     * @return the number of set elements
+     */
+    private static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @param a the first bitset
+     * @param b the second bitset
+     * @return the number of elements set in both
+     */
+    private static int intersectionCount(long[] a, long[] b) {
+        int count = 0;
+        for (int word = 0; word < a.length; word++) {
+            count += Long.bitCount(a[word] & b[word]);
+        }
+        return count;
+    }
+
+    /**
+     * @param a the first bitset
+     * @param b the second bitset
+     * @return true if an element is set in both
+     */
+    private static boolean intersects(long[] a, long[] b) {
+        for (int word = 0; word < a.length; word++) {
+            if ((a[word] & b[word]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param a the possible subset
+     * @param b the possible superset
+     * @return true if every element of a is set in b
+     */
+    private static boolean isSubset(long[] a, long[] b) {
+        for (int word = 0; word < a.length; word++) {
+            if ((a[word] & ~b[word]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the elements of b to a
+     * @param a the bitset to be changed
+     * @param b the added elements
+     */
+    private static void or(long[] a, long[] b) {
+        for (int word = 0; word < a.length; word++) {
+            a[word] |= b[word];
+        }
+    }
+
+    /**
+     * @param a the first bitset
+     * @param b the second bitset
+     * @return a new bitset with the elements of a and b
+     */
+    private static long[] orCopy(long[] a, long[] b) {
+        long[] result = a.clone();
+        or(result, b);
+        return result;
+    }
+
+    /**
+     * @param a the first bitset
+     * @param b the removed elements
+     * @return a new bitset with the elements of a that are not set in b
+     */
+    private static long[] andNotCopy(long[] a, long[] b) {
+        long[] result = a.clone();
+        for (int word = 0; word < result.length; word++) {
+            result[word] &= ~b[word];
+        }
+        return result;
+    }
+}
@@ -70,7 +70,7 @@ public class Car {
             }
         } else if (currentTime > spawnTime) {
             this.counter++;
-            previousPos = counter > 0 ? trip.get(counter - 1) : new Position2D(-1, -1);
+            previousPos = counter > 0 ? trip.get(Math.min(counter - 1, trip.size() - 1)) : new Position2D(-1, -1);
             if (counter < trip.size()) {
                 currentPos = trip.get(counter);
             } else {
@@ -0,0 +1,426 @@
+package model.cars;
+
+import model.Position2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Struct of arrays storage of a fleet of cars.
+ * Every car is addressed by its index in the store, its state is held in primitive arrays and all trips are
+ * packed into one shared array of cell indices row * columns + column. A cell of -1 stands for the position
+ * (-1, -1) of a car that is not on the map. Updating the store follows the rules of Car exactly,
+ * but does not allocate any objects. Car views of single cars are available through getCar.
+ */
+public class CarStore {
+    /**
+     * Number of columns of the map the cells refer to
+     */
+    private final int columns;
+    /**
+     * Number of cars in the store
+     */
+    private final int size;
+    /**
+     * Unique identifier of every car
+     */
+    private final int[] ids;
+    /**
+     * Time step at which every car spawns
+     */
+    private final int[] spawnTimes;
+    /**
+     * Start of the trip of every car in tripCells, the trip of car i ends at tripStarts[i + 1]
+     */
+    private int[] tripStarts;
+    /**
+     * Cells of all trips one after another
+     */
+    private int[] tripCells;
+    /**
+     * Current time step of every car
+     */
+    private final int[] currentTimes;
+    /**
+     * Position of every car on its trip
+     */
+    private final int[] counters;
+    /**
+     * Current cell of every car, -1 if it is not on the map
+     */
+    private final int[] currentCells;
+    /**
+     * Previous cell of every car, -1 if there is none
+     */
+    private final int[] previousCells;
+    /**
+     * Car views handed out by getCar, created on first access
+     */
+    private Car[] views;
+
+    /**
+     * Constructor of a store of new cars that have not been updated yet
+     * @param ids unique identifier of every car
+     * @param spawnTimes spawn time of every car
+     * @param tripStarts start of the trip of every car in tripCells followed by the total number of trip cells
+     * @param tripCells cells of all trips one after another, every trip holds at least one cell
+     * @param columns number of columns of the map the cells refer to
+     */
+    public CarStore(int[] ids, int[] spawnTimes, int[] tripStarts, int[] tripCells, int columns) {
+        if (ids.length != spawnTimes.length || tripStarts.length != ids.length + 1
+                || tripStarts[ids.length] != tripCells.length) {
+            throw new IllegalArgumentException("Car arrays do not match");
+        }
+        if (columns <= 0) {
+            throw new IllegalArgumentException("Number of columns must be positive");
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (tripStarts[i + 1] <= tripStarts[i]) {
+                throw new IllegalArgumentException("Trip of car " + ids[i] + " is empty");
+            }
+        }
+        for (int cell : tripCells) {
+            if (cell < 0) {
+                throw new IllegalArgumentException("Trip cells must not be negative");
+            }
+        }
+        this.columns = columns;
+        this.size = ids.length;
+        this.ids = ids.clone();
+        this.spawnTimes = spawnTimes.clone();
+        this.tripStarts = tripStarts.clone();
+        this.tripCells = tripCells.clone();
+        this.currentTimes = new int[size];
+        this.counters = new int[size];
+        this.currentCells = new int[size];
+        this.previousCells = new int[size];
+        Arrays.fill(counters, -1);
+        Arrays.fill(currentCells, -1);
+        Arrays.fill(previousCells, -1);
+    }
+
+    /**
+     * Constructor of a store holding a copy of the given cars including their current state
+     * @param cars the cars to copy
+     * @param columns number of columns of the map the trips lie on
+     */
+    public CarStore(List<Car> cars, int columns) {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("Number of columns must be positive");
+        }
+        this.columns = columns;
+        this.size = cars.size();
+        this.ids = new int[size];
+        this.spawnTimes = new int[size];
+        this.tripStarts = new int[size + 1];
+        this.currentTimes = new int[size];
+        this.counters = new int[size];
+        this.currentCells = new int[size];
+        this.previousCells = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            tripStarts[i + 1] = tripStarts[i] + cars.get(i).getTrip().size();
+        }
+        this.tripCells = new int[tripStarts[size]];
+        for (int i = 0; i < size; i++) {
+            Car car = cars.get(i);
+            ids[i] = car.getId();
+            spawnTimes[i] = car.getSpawnTime();
+            currentTimes[i] = car.getCurrentTime();
+            counters[i] = car.getCounter();
+            currentCells[i] = cellOf(car.getCurrentPos());
+            previousCells[i] = cellOf(car.getPreviousPos());
+            int cell = tripStarts[i];
+            for (Position2D position : car.getTrip()) {
+                tripCells[cell++] = cellOf(position);
+            }
+        }
+    }
+
+    /**
+     * Updates a car to the given time step, see Car.update
+     * @param car index of the car
+     * @param nextTimeStep the next time step to update to
+     */
+    public void update(int car, int nextTimeStep) {
+        currentTimes[car] = nextTimeStep;
+        int tripStart = tripStarts[car];
+        int tripLength = tripStarts[car + 1] - tripStart;
+
+        if (nextTimeStep == spawnTimes[car]) {
+            previousCells[car] = currentCells[car];
+            counters[car]++;
+            if (counters[car] < tripLength) {
+                currentCells[car] = tripCells[tripStart + counters[car]];
+            }
+        } else if (nextTimeStep > spawnTimes[car]) {
+            int counter = ++counters[car];
+            previousCells[car] = counter > 0 ? tripCells[tripStart + Math.min(counter - 1, tripLength - 1)] : -1;
+            currentCells[car] = tripCells[tripStart + Math.min(counter, tripLength - 1)];
+        } else {
+            currentCells[car] = -1;
+            previousCells[car] = -1;
+            counters[car] = -1;
+        }
+    }
+
+    /**
+     * Updates all cars to the given time step
+     * @param nextTimeStep the next time step to update to
+     */
+    public void updateAll(int nextTimeStep) {
+        updateRange(0, size, nextTimeStep);
+    }
+
+    /**
+     * Updates a range of cars to the given time step, ranges of different threads must not overlap
+     * @param from index of the first car
+     * @param to index behind the last car
+     * @param nextTimeStep the next time step to update to
+     */
+    public void updateRange(int from, int to, int nextTimeStep) {
+        for (int car = from; car < to; car++) {
+            update(car, nextTimeStep);
+        }
+    }
+
+    /**
+     * Moves a car one step back on its trip, see Car.onePositionBack
+     * @param car index of the car
+     */
+    public void onePositionBack(int car) {
+        if (currentTimes[car] > spawnTimes[car]) {
+            int counter = --counters[car];
+            int tripLength = tripStarts[car + 1] - tripStarts[car];
+            currentCells[car] = counter >= 0 && counter < tripLength ? tripCells[tripStarts[car] + counter] : -1;
+        }
+    }
+
+    /**
+     * Takes a car that just spawned off the map again
+     * @param car index of the car
+     */
+    public void resetToPreSpawn(int car) {
+        currentCells[car] = -1;
+        previousCells[car] = -1;
+        counters[car] = -1;
+    }
+
+    /**
+     * @param position position on the map
+     * @return the cell of the position, -1 for positions outside of the map
+     */
+    private int cellOf(Position2D position) {
+        if (position.getRow() < 0 || position.getColumn() < 0 || position.getColumn() >= columns) {
+            return -1;
+        }
+        return position.getRow() * columns + position.getColumn();
+    }
+
+    /**
+     * @param cell cell index
+     * @return the position of the cell, (-1, -1) for -1
+     */
+    Position2D positionOf(int cell) {
+        return cell < 0 ? new Position2D(-1, -1) : new Position2D(cell / columns, cell % columns);
+    }
+
+    /**
+     * Returns a view of a car that reads and writes the state in the store
+     * @param car index of the car
+     * @return the car view
+     */
+    public Car getCar(int car) {
+        if (views == null) {
+            views = new Car[size];
+        }
+        if (views[car] == null) {
+            ArrayList<Position2D> trip = new ArrayList<>(getTripLength(car));
+            for (int cell = tripStarts[car]; cell < tripStarts[car + 1]; cell++) {
+                trip.add(positionOf(tripCells[cell]));
+            }
+            views[car] = new StoredCar(this, car, trip);
+        }
+        return views[car];
+    }
+
+    /**
+     * @return views of all cars in store order
+     */
+    public ArrayList<Car> getCars() {
+        ArrayList<Car> cars = new ArrayList<>(size);
+        for (int car = 0; car < size; car++) {
+            cars.add(getCar(car));
+        }
+        return cars;
+    }
+
+    /**
+     * @return the number of cars in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of columns of the map the cells refer to
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of rows needed to hold every trip cell
+     */
+    public int getRows() {
+        int maxCell = -1;
+        for (int cell : tripCells) {
+            maxCell = Math.max(maxCell, cell);
+        }
+        return maxCell / columns + 1;
+    }
+
+    /**
+     * @param car index of the car
+     * @return the ID of the car
+     */
+    public int getId(int car) {
+        return ids[car];
+    }
+
+    /**
+     * @param car index of the car
+     * @param id new ID of the car
+     */
+    public void setId(int car, int id) {
+        ids[car] = id;
+    }
+
+    /**
+     * @param car index of the car
+     * @return the spawn time of the car
+     */
+    public int getSpawnTime(int car) {
+        return spawnTimes[car];
+    }
+
+    /**
+     * @param car index of the car
+     * @return the current time step of the car
+     */
+    public int getCurrentTime(int car) {
+        return currentTimes[car];
+    }
+
+    /**
+     * @param car index of the car
+     * @param currentTime new current time step of the car
+     */
+    public void setCurrentTime(int car, int currentTime) {
+        currentTimes[car] = currentTime;
+    }
+
+    /**
+     * @param car index of the car
+     * @return the position of the car on its trip
+     */
+    public int getCounter(int car) {
+        return counters[car];
+    }
+
+    /**
+     * @param car index of the car
+     * @param counter new position of the car on its trip
+     */
+    public void setCounter(int car, int counter) {
+        counters[car] = counter;
+    }
+
+    /**
+     * @param car index of the car
+     * @return the current cell of the car, -1 if it is not on the map
+     */
+    public int getCurrentCell(int car) {
+        return currentCells[car];
+    }
+
+    /**
+     * @param car index of the car
+     * @param cell new current cell of the car, -1 to take it off the map
+     */
+    public void setCurrentCell(int car, int cell) {
+        currentCells[car] = cell;
+    }
+
+    /**
+     * @param car index of the car
+     * @return the previous cell of the car, -1 if there is none
+     */
+    public int getPreviousCell(int car) {
+        return previousCells[car];
+    }
+
+    /**
+     * @param car index of the car
+     * @param cell new previous cell of the car
+     */
+    public void setPreviousCell(int car, int cell) {
+        previousCells[car] = cell;
+    }
+
+    /**
+     * @param car index of the car
+     * @return the number of cells of the trip of the car
+     */
+    public int getTripLength(int car) {
+        return tripStarts[car + 1] - tripStarts[car];
+    }
+
+    /**
+     * Replaces the trip of a car, the cells of all later trips move to make room for it.
+     * The state of the car is kept, like Car.setTrip keeps it.
+     * @param car index of the car
+     * @param trip the positions of the new trip
+     * @throws IllegalArgumentException if the trip is empty or leaves the map
+     */
+    public void setTrip(int car, List<Position2D> trip) {
+        if (trip.isEmpty()) {
+            throw new IllegalArgumentException("Trip of car " + ids[car] + " is empty");
+        }
+        int[] cells = new int[trip.size()];
+        for (int step = 0; step < cells.length; step++) {
+            cells[step] = cellOf(trip.get(step));
+            if (cells[step] < 0) {
+                throw new IllegalArgumentException("Trip cells must not be negative");
+            }
+        }
+        int shift = cells.length - getTripLength(car);
+        int[] newCells = new int[tripCells.length + shift];
+        System.arraycopy(tripCells, 0, newCells, 0, tripStarts[car]);
+        System.arraycopy(cells, 0, newCells, tripStarts[car], cells.length);
+        System.arraycopy(tripCells, tripStarts[car + 1], newCells, tripStarts[car + 1] + shift,
+                tripCells.length - tripStarts[car + 1]);
+        for (int later = car + 1; later <= size; later++) {
+            tripStarts[later] += shift;
+        }
+        tripCells = newCells;
+    }
+
+    /**
+     * @param car index of the car
+     * @param step position on the trip
+     * @return the cell of the trip at the given position
+     */
+    public int getTripCell(int car, int step) {
+        return tripCells[tripStarts[car] + step];
+    }
+
+    /**
+     * @param position position on the map
+     * @return the cell index of the position in this store, -1 for positions outside of the map
+     */
+    public int getCellIndex(Position2D position) {
+        return cellOf(position);
+    }
+}
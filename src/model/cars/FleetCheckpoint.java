@@ -0,0 +1,87 @@
+package model.cars;
+
+/**
+ * Compact snapshot of the state of all cars of a fleet at one time step.
+ * For every car the counter and the current and previous position are stored as ints. For cars held as Car
+ * objects a position is encoded as its index in the trip of the car, -1 for a car that is not on the map and
+ * -2 - (row * columns + column) for a position that is not part of the trip. For cars held in a CarStore the
+ * positions are the cells of the store.
+ */
+public class FleetCheckpoint {
+    /**
+     * Time step of the snapshot
+     */
+    private final int timeStep;
+    /**
+     * Number of columns used to encode positions that are not part of a trip
+     */
+    private final int columns;
+    /**
+     * Position of every car on its trip
+     */
+    private final int[] counters;
+    /**
+     * Encoded current position of every car
+     */
+    private final int[] currentPositions;
+    /**
+     * Encoded previous position of every car
+     */
+    private final int[] previousPositions;
+
+    /**
+     * Constructor of an empty snapshot that is filled by the FleetController
+     * @param timeStep time step of the snapshot
+     * @param carCount number of cars in the fleet
+     * @param columns number of columns used to encode positions that are not part of a trip
+     */
+    FleetCheckpoint(int timeStep, int carCount, int columns) {
+        this.timeStep = timeStep;
+        this.columns = columns;
+        this.counters = new int[carCount];
+        this.currentPositions = new int[carCount];
+        this.previousPositions = new int[carCount];
+    }
+
+    /**
+     * @return the time step of the snapshot
+     */
+    public int getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * @return the number of cars in the snapshot
+     */
+    public int getCarCount() {
+        return counters.length;
+    }
+
+    /**
+     * @return the number of columns used to encode positions that are not part of a trip
+     */
+    int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the position of every car on its trip
+     */
+    int[] getCounters() {
+        return counters;
+    }
+
+    /**
+     * @return the encoded current position of every car
+     */
+    int[] getCurrentPositions() {
+        return currentPositions;
+    }
+
+    /**
+     * @return the encoded previous position of every car
+     */
+    int[] getPreviousPositions() {
+        return previousPositions;
+    }
+}
@@ -1,9 +1,16 @@
 package model.cars;
 
 import model.Position2D;
+import model.trajectories.TrafficHeatmap;
+import model.trajectories.TrajectorySink;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
 
 
 /**
@@ -11,15 +18,111 @@ import java.util.stream.Collectors;
  */
 public class FleetController {
     /**
-     * List of cars managed by the fleet controller
+     * List of cars managed by the fleet controller, null if the fleet is held in a car store
      */
     private ArrayList<Car> cars;
+    /**
+     * Struct of arrays storage of the fleet, null if the fleet is held as a list of cars
+     */
+    private CarStore carStore;
 
     /**
      * Time stepper that manages the progression of the time steps
      */
     private TimeStepper timeStepper;
-
+    /**
+     * Number of rows of the occupancy grid, covers every position of every trip
+     */
+    private int gridRows;
+    /**
+     * Number of columns of the occupancy grid, covers every position of every trip
+     */
+    private int gridColumns;
+    /**
+     * Conflict round in which a cell was last occupied, saves clearing the grid between rounds
+     */
+    private int[] cellStamps;
+    /**
+     * Index of the first car on a cell, only valid where the stamp matches the current round
+     */
+    private int[] cellFirstCar;
+    /**
+     * Index of the last car on a cell, only valid where the stamp matches the current round
+     */
+    private int[] cellLastCar;
+    /**
+     * Index of the next car on the same cell for every car, -1 for the last one
+     */
+    private int[] nextCarInCell;
+    /**
+     * Index of the idle parked car on every cell, -1 if there is none
+     */
+    private int[] parkedCars;
+    /**
+     * Time step up to which the counter of an idle parked car is up to date, -1 for all other cars
+     */
+    private int[] parkedSince;
+    /**
+     * Buffers of the serial conflict resolution
+     */
+    private ConflictBuffers buffers;
+    /**
+     * Buffers of the parallel conflict resolution, one per band of rows
+     */
+    private ConflictBuffers[] bandBuffers;
+    /**
+     * Cell of every car in the current round of the parallel conflict resolution
+     */
+    private int[] carCells;
+    /**
+     * Indices of the cars grouped by band of rows and in fleet order within a band
+     */
+    private int[] bandCars;
+    /**
+     * Current conflict round
+     */
+    private int stamp;
+    /**
+     * The way the fleet is advanced in time
+     */
+    private StepMode stepMode;
+    /**
+     * Number of time steps between two automatic checkpoints, 0 if no checkpoints are taken
+     */
+    private int checkpointInterval;
+    /**
+     * Checkpoints of the fleet by time step
+     */
+    private TreeMap<Integer, FleetCheckpoint> checkpoints;
+    /**
+     * Receiver of the positions of all cars after every time step, null if none are recorded
+     */
+    private TrajectorySink trajectorySink;
+    /**
+     * Running per-cell occupancy and conflict counts, null if none are kept
+     */
+    private TrafficHeatmap heatmap;
+    /**
+     * Number of conflicts solved so far, one per cell and time step holding more than one car
+     */
+    private long conflictCount;
+    /**
+     * Latest time step whose conflicts and positions were passed on, time steps simulated again after
+     * restore or rewindTo up to this one are not passed on a second time
+     */
+    private int recordedUntil;
+    /**
+     * Idle parked cars of the event-driven mode in no particular order
+     */
+    private int[] parkedList;
+    /**
+     * Number of idle parked cars
+     */
+    private int parkedCount;
+    /**
+     * Position of every idle parked car in parkedList
+     */
+    private int[] parkedSlots;
 
     /**
      * Constructor of the FleetController with the specified list of cars and the end time
@@ -29,87 +132,852 @@ public class FleetController {
     public FleetController(ArrayList<Car> cars, int endTime) {
         this.cars = cars;
         this.timeStepper = new TimeStepper(endTime);
+        this.stepMode = StepMode.TICK_BY_TICK;
+        this.checkpoints = new TreeMap<>();
+        initOccupancyGrid();
 
-
+        timeStepper.addSubscribers(cars);
         for (Car car : cars) {
-            timeStepper.addSubscriber(car);
             car.update(0);
         }
     }
 
+    /**
+     * Constructor of the FleetController for a fleet held in a car store and the end time.
+     * The cars are stepped directly in the store without Car objects.
+     * @param carStore the store holding the cars of the fleet
+     * @param endTime ending time for the time stepper
+     */
+    public FleetController(CarStore carStore, int endTime) {
+        this.carStore = carStore;
+        this.timeStepper = new TimeStepper(endTime);
+        this.stepMode = StepMode.TICK_BY_TICK;
+        this.checkpoints = new TreeMap<>();
+        initOccupancyGrid();
+
+        timeStepper.setCarStore(carStore);
+        carStore.updateAll(0);
+    }
+
 
     /**
-     * Runs a simulation until the specified time step
+     * Runs a simulation until the specified time step, at most until the end of the time stepper
      * @param targetTimeStep the target time step
      */
     public void runUntilTimeStep(int targetTimeStep) {
-        while (timeStepper.getTimeStep() < targetTimeStep) {
+        int target = Math.min(targetTimeStep, timeStepper.getEnd());
+        fitOccupancyGrid();
+        if (stepMode == StepMode.EVENT_DRIVEN) {
+            runEventDriven(target);
+            return;
+        }
+        if (stepMode == StepMode.PARALLEL) {
+            while (timeStepper.getTimeStep() < target) {
+                timeStepper.oneStepForwardInParallel();
+                solveConflictsInParallel(timeStepper.getTimeStep());
+                for (ConflictBuffers bandBuffer : bandBuffers) {
+                    recordConflicts(bandBuffer, timeStepper.getTimeStep());
+                }
+                recordPositions(timeStepper.getTimeStep());
+                recordCheckpointIfDue(timeStepper.getTimeStep());
+            }
+            return;
+        }
+        while (timeStepper.getTimeStep() < target) {
             timeStepper.oneStepForward();
-            solveConflicts();
+            solveConflicts(null, carCount(), timeStepper.getTimeStep());
+            recordConflicts(buffers, timeStepper.getTimeStep());
+            recordPositions(timeStepper.getTimeStep());
+            recordCheckpointIfDue(timeStepper.getTimeStep());
         }
     }
 
-
     /**
-     * Solves conflicts by ensuring no two cars are on the same position
+     * Runs the simulation until the target time step updating only active cars.
+     * Cars that have not spawned wait in a spawn queue ordered by spawn time. A car that stands alone on the
+     * last position of its trip only counts up its counter, it is parked on the occupancy grid and woken up
+     * when another car drives onto its cell. Time steps without active cars are skipped in one jump.
+     * @param target the target time step
      */
-    private void solveConflicts() {
-        Map<Position2D, ArrayList<Car>> positionMap = new HashMap<>();
+    private void runEventDriven(int target) {
+        int timeStep = timeStepper.getTimeStep();
+        if (timeStep >= target) {
+            return;
+        }
 
-        for (Car car : cars) {
-            Position2D pos = car.getCurrentPos();
-            if (!pos.equals(new Position2D(-1, -1))) {
-                positionMap.putIfAbsent(pos, new ArrayList<>());
-                positionMap.get(pos).add(car);
+        long[] spawnQueue = new long[carCount()];
+        int spawnCount = 0;
+        int[] active = new int[carCount()];
+        int activeCount = 0;
+        for (int carIndex = 0; carIndex < carCount(); carIndex++) {
+            if (getSpawnTime(carIndex) > timeStep) {
+                spawnQueue[spawnCount++] = (long) getSpawnTime(carIndex) << 32 | carIndex;
+            } else {
+                active[activeCount++] = carIndex;
+            }
+        }
+        Arrays.sort(spawnQueue, 0, spawnCount);
+        int nextSpawn = 0;
+
+        while (timeStep < target) {
+            if (activeCount == 0) {
+                int nextSpawnTime = nextSpawn < spawnCount ? (int) (spawnQueue[nextSpawn] >>> 32) : target;
+                int nextCheckpointTime = checkpointInterval > 0
+                        ? (timeStep / checkpointInterval + 1) * checkpointInterval : target;
+                int nextTimeStep = Math.max(timeStep + 1, Math.min(Math.min(nextSpawnTime, nextCheckpointTime), target));
+                while ((trajectorySink != null || heatmap != null) && timeStep + 1 < nextTimeStep) {
+                    timeStep++;
+                    if (timeStep > recordedUntil) {
+                        recordParkedPositions(timeStep);
+                    }
+                    completeRecordedStep(timeStep);
+                }
+                timeStep = nextTimeStep;
+            } else {
+                timeStep++;
+            }
+
+            int previousCount = activeCount;
+            while (nextSpawn < spawnCount && (int) (spawnQueue[nextSpawn] >>> 32) == timeStep) {
+                active[activeCount++] = (int) spawnQueue[nextSpawn++];
+            }
+            if (activeCount > previousCount) {
+                Arrays.sort(active, 0, activeCount);
+            }
+            for (int i = 0; i < activeCount; i++) {
+                update(active[i], timeStep);
+            }
+
+            int woken = solveConflicts(active, activeCount, timeStep);
+            recordConflicts(buffers, timeStep);
+            if (woken > 0) {
+                System.arraycopy(buffers.woken, 0, active, activeCount, woken);
+                activeCount += woken;
+                Arrays.sort(active, 0, activeCount);
+            }
+            activeCount = parkCars(active, activeCount, timeStep);
+            if (timeStep > recordedUntil && (trajectorySink != null || heatmap != null)) {
+                for (int i = 0; i < activeCount; i++) {
+                    recordPosition(active[i], timeStep);
+                }
+                recordParkedPositions(timeStep);
+            }
+            completeRecordedStep(timeStep);
+            recordCheckpointIfDue(timeStep);
+        }
+
+        for (int carIndex = 0; carIndex < carCount(); carIndex++) {
+            if (parkedSince[carIndex] >= 0) {
+                parkedCars[getCell(carIndex)] = -1;
+                wakeUp(carIndex, timeStep);
             }
+            setCurrentTime(carIndex, timeStep);
         }
+        timeStepper.setTimeStep(timeStep);
+    }
 
-        for (Map.Entry<Position2D, ArrayList<Car>> entry : positionMap.entrySet()) {
-            ArrayList<Car> carsAtPosition = entry.getValue();
-            if (carsAtPosition.size() > 1) {
-                solveConflictAtPosition(carsAtPosition);
+    /**
+     * Passes the positions of all cars on the map to the trajectory sink and the heatmap,
+     * unless the time step was passed on before
+     * @param timeStep current time step
+     */
+    private void recordPositions(int timeStep) {
+        if (timeStep > recordedUntil && (trajectorySink != null || heatmap != null)) {
+            for (int carIndex = 0; carIndex < carCount(); carIndex++) {
+                recordPosition(carIndex, timeStep);
             }
         }
+        completeRecordedStep(timeStep);
     }
 
-    private void solveConflictAtPosition(ArrayList<Car> carsAtPosition) {
-        Car carToStay = carsAtPosition.getFirst();
-        Position2D position = carToStay.getCurrentPos();
+    /**
+     * Passes the positions of all idle parked cars to the trajectory sink and the heatmap
+     * @param timeStep current time step
+     */
+    private void recordParkedPositions(int timeStep) {
+        for (int i = 0; i < parkedCount; i++) {
+            recordPosition(parkedList[i], timeStep);
+        }
+    }
 
-        for (Car car : carsAtPosition) {
-            if (car.getPreviousPos().equals(position)) {
-                carToStay = car;
-                break;
+    /**
+     * Passes the position of a car to the trajectory sink and the heatmap if it is on the map
+     * @param carIndex index of the car
+     * @param timeStep current time step
+     */
+    private void recordPosition(int carIndex, int timeStep) {
+        int row;
+        int column;
+        if (carStore != null) {
+            int cell = carStore.getCurrentCell(carIndex);
+            row = cell < 0 ? -1 : cell / carStore.getColumns();
+            column = cell < 0 ? -1 : cell % carStore.getColumns();
+        } else {
+            Position2D pos = cars.get(carIndex).getCurrentPos();
+            row = pos.getRow();
+            column = pos.getColumn();
+        }
+        if (row < 0 || column < 0) {
+            return;
+        }
+        if (trajectorySink != null) {
+            trajectorySink.record(timeStep, getId(carIndex), row * trajectorySink.getColumns() + column);
+        }
+        if (heatmap != null) {
+            heatmap.recordOccupancy(row, column);
+        }
+    }
+
+    /**
+     * Counts the conflicts found by the last conflict resolution and passes their cells to the heatmap,
+     * unless the time step was passed on before
+     * @param conflictBuffers buffers of the conflict resolution
+     * @param timeStep current time step
+     */
+    private void recordConflicts(ConflictBuffers conflictBuffers, int timeStep) {
+        if (timeStep <= recordedUntil) {
+            return;
+        }
+        conflictCount += conflictBuffers.cellCount;
+        if (heatmap == null) {
+            return;
+        }
+        for (int i = 0; i < conflictBuffers.cellCount; i++) {
+            int cell = conflictBuffers.cells[i];
+            heatmap.recordConflict(cell / gridColumns, cell % gridColumns);
+        }
+    }
+
+    /**
+     * Tells the trajectory sink and the heatmap that all positions of a time step have been passed,
+     * unless the time step was passed on before
+     * @param timeStep the completed time step
+     */
+    private void completeRecordedStep(int timeStep) {
+        if (timeStep <= recordedUntil) {
+            return;
+        }
+        recordedUntil = timeStep;
+        if (trajectorySink != null) {
+            trajectorySink.stepCompleted(timeStep);
+        }
+        if (heatmap != null) {
+            heatmap.stepCompleted();
+        }
+    }
+
+    /**
+     * Takes a checkpoint if the time step is a multiple of the checkpoint interval and there is none yet
+     * @param timeStep current time step
+     */
+    private void recordCheckpointIfDue(int timeStep) {
+        if (checkpointInterval > 0 && timeStep % checkpointInterval == 0 && !checkpoints.containsKey(timeStep)) {
+            checkpoints.put(timeStep, capture(timeStep));
+        }
+    }
+
+    /**
+     * Takes a checkpoint of the current state of the fleet and keeps it for restore and rewindTo
+     * @return the checkpoint
+     */
+    public FleetCheckpoint checkpoint() {
+        fitOccupancyGrid();
+        FleetCheckpoint checkpoint = capture(timeStepper.getTimeStep());
+        checkpoints.put(checkpoint.getTimeStep(), checkpoint);
+        return checkpoint;
+    }
+
+    /**
+     * Encodes the state of all cars, counters of parked cars are brought up to date on the fly
+     * @param timeStep current time step
+     * @return the checkpoint
+     */
+    private FleetCheckpoint capture(int timeStep) {
+        FleetCheckpoint checkpoint = new FleetCheckpoint(timeStep, carCount(),
+                carStore != null ? carStore.getColumns() : gridColumns);
+        int[] counters = checkpoint.getCounters();
+        int[] currentPositions = checkpoint.getCurrentPositions();
+        int[] previousPositions = checkpoint.getPreviousPositions();
+        for (int carIndex = 0; carIndex < carCount(); carIndex++) {
+            counters[carIndex] = getCounter(carIndex)
+                    + (parkedSince[carIndex] >= 0 ? timeStep - parkedSince[carIndex] : 0);
+            if (carStore != null) {
+                currentPositions[carIndex] = carStore.getCurrentCell(carIndex);
+                previousPositions[carIndex] = carStore.getPreviousCell(carIndex);
+            } else {
+                Car car = cars.get(carIndex);
+                currentPositions[carIndex] = encodePosition(car, car.getCurrentPos(), gridColumns);
+                previousPositions[carIndex] = encodePosition(car, car.getPreviousPos(), gridColumns);
+            }
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Restores the state of the fleet from the checkpoint taken at the given time step
+     * @param timeStep time step of the checkpoint
+     */
+    public void restore(int timeStep) {
+        FleetCheckpoint checkpoint = checkpoints.get(timeStep);
+        if (checkpoint == null) {
+            throw new IllegalArgumentException("There is no checkpoint at time step " + timeStep);
+        }
+        restore(checkpoint);
+    }
+
+    /**
+     * Restores the state of the fleet from a checkpoint. The trajectory sink, the heatmap and the conflict
+     * count keep the time steps recorded so far, simulating them again does not record them twice.
+     * @param checkpoint checkpoint of this fleet
+     */
+    public void restore(FleetCheckpoint checkpoint) {
+        if (checkpoint.getCarCount() != carCount()) {
+            throw new IllegalArgumentException("Checkpoint does not match the fleet");
+        }
+        int timeStep = checkpoint.getTimeStep();
+        int[] counters = checkpoint.getCounters();
+        int[] currentPositions = checkpoint.getCurrentPositions();
+        int[] previousPositions = checkpoint.getPreviousPositions();
+        for (int carIndex = 0; carIndex < carCount(); carIndex++) {
+            if (carStore != null) {
+                carStore.setCounter(carIndex, counters[carIndex]);
+                carStore.setCurrentCell(carIndex, currentPositions[carIndex]);
+                carStore.setPreviousCell(carIndex, previousPositions[carIndex]);
+                carStore.setCurrentTime(carIndex, timeStep);
+            } else {
+                Car car = cars.get(carIndex);
+                car.setCounter(counters[carIndex]);
+                car.setCurrentPos(decodePosition(car, currentPositions[carIndex], checkpoint.getColumns()));
+                car.setPreviousPos(decodePosition(car, previousPositions[carIndex], checkpoint.getColumns()));
+                car.setCurrentTime(timeStep);
             }
         }
+        timeStepper.setTimeStep(timeStep);
+    }
 
-        if (!carToStay.getPreviousPos().equals(position)) {
-                carToStay = Collections.min(carsAtPosition, Comparator.comparingInt(Car::getId));
+    /**
+     * Moves the fleet to any time step: the latest checkpoint at or before it is restored and the
+     * remaining time steps are simulated again. Time steps that were simulated before are not passed to the
+     * trajectory sink, the heatmap and the conflict count a second time, they already hold them.
+     * @param timeStep the target time step
+     */
+    public void rewindTo(int timeStep) {
+        Map.Entry<Integer, FleetCheckpoint> entry = checkpoints.floorEntry(timeStep);
+        if (entry == null) {
+            throw new IllegalStateException("There is no checkpoint at or before time step " + timeStep);
+        }
+        if (timeStep < timeStepper.getTimeStep() || entry.getKey() > timeStepper.getTimeStep()) {
+            restore(entry.getValue());
+        }
+        runUntilTimeStep(timeStep);
+    }
 
+    /**
+     * Encodes a position of a car for a checkpoint
+     * @param car the car
+     * @param position current or previous position of the car
+     * @param columns number of columns for positions that are not part of the trip
+     * @return the index of the position in the trip, -1 if it is not on the map, -2 - cell otherwise
+     */
+    private static int encodePosition(Car car, Position2D position, int columns) {
+        if (position.getRow() < 0 || position.getColumn() < 0) {
+            return -1;
+        }
+        ArrayList<Position2D> trip = car.getTrip();
+        int expected = Math.max(0, Math.min(car.getCounter(), trip.size() - 1));
+        if (trip.get(expected) == position) {
+            return expected;
+        }
+        if (expected > 0 && trip.get(expected - 1) == position) {
+            return expected - 1;
+        }
+        for (int step = 0; step < trip.size(); step++) {
+            if (trip.get(step) == position) {
+                return step;
             }
+        }
+        return -2 - (position.getRow() * columns + position.getColumn());
+    }
 
+    /**
+     * Decodes a position of a car from a checkpoint
+     * @param car the car
+     * @param code the encoded position
+     * @param columns number of columns for positions that are not part of the trip
+     * @return the position
+     */
+    private static Position2D decodePosition(Car car, int code, int columns) {
+        if (code >= 0) {
+            return car.getTrip().get(code);
+        }
+        if (code == -1) {
+            return new Position2D(-1, -1);
+        }
+        return new Position2D((-2 - code) / columns, (-2 - code) % columns);
+    }
 
-        for (Car car : carsAtPosition) {
-            if (car != carToStay) {
-                if (car.getCurrentTime() == car.getSpawnTime()) {
-                    car.setCurrentPos(new Position2D(-1, -1));
-                    car.setPreviousPos(new Position2D(-1, -1));
-                    car.setCounter(-1);
+    /**
+     * Parks every active car that stays on the last position of its trip without sharing its cell
+     * @param active indices of the active cars in fleet order
+     * @param activeCount number of active cars
+     * @param timeStep current time step
+     * @return the number of cars that remain active, they are kept in fleet order at the front of active
+     */
+    private int parkCars(int[] active, int activeCount, int timeStep) {
+        nextStamp();
+        for (int i = 0; i < activeCount; i++) {
+            int cell = getCell(active[i]);
+            if (cell >= 0) {
+                if (cellStamps[cell] != stamp) {
+                    cellStamps[cell] = stamp;
+                    cellFirstCar[cell] = active[i];
                 } else {
-                    car.onePositionBack();
+                    cellFirstCar[cell] = -1;
                 }
             }
         }
+
+        int remaining = 0;
+        for (int i = 0; i < activeCount; i++) {
+            int cell = getCell(active[i]);
+            if (isParked(active[i]) && cellFirstCar[cell] == active[i] && parkedCars[cell] < 0) {
+                parkedCars[cell] = active[i];
+                parkedSlots[active[i]] = parkedCount;
+                parkedList[parkedCount++] = active[i];
+                parkedSince[active[i]] = timeStep;
+            } else {
+                active[remaining++] = active[i];
+            }
+        }
+        return remaining;
     }
 
+    /**
+     * Checks if further updates of a car only count up its counter
+     * @param carIndex index of the car to check
+     * @return true if the car has spawned, passed the end of its trip and stands on its last position
+     */
+    private boolean isParked(int carIndex) {
+        if (carStore != null) {
+            int lastCell = carStore.getTripCell(carIndex, carStore.getTripLength(carIndex) - 1);
+            return carStore.getCurrentTime(carIndex) > carStore.getSpawnTime(carIndex)
+                    && carStore.getCounter(carIndex) >= carStore.getTripLength(carIndex)
+                    && carStore.getCurrentCell(carIndex) == lastCell && carStore.getPreviousCell(carIndex) == lastCell;
+        }
+        Car car = cars.get(carIndex);
+        ArrayList<Position2D> trip = car.getTrip();
+        return car.getCurrentTime() > car.getSpawnTime() && car.getCounter() >= trip.size()
+                && car.getCurrentPos() == trip.getLast() && car.getPreviousPos() == trip.getLast();
+    }
 
+    /**
+     * Sizes the occupancy grid to the bounding box of all trips, every position a car can occupy lies inside
+     */
+    private void initOccupancyGrid() {
+        if (carStore != null) {
+            resizeOccupancyGrid(carStore.getRows(), carStore.getColumns());
+            return;
+        }
+        int rows = 0;
+        int columns = 0;
+        for (Car car : cars) {
+            for (Position2D position : car.getTrip()) {
+                rows = Math.max(rows, position.getRow() + 1);
+                columns = Math.max(columns, position.getColumn() + 1);
+            }
+        }
+        resizeOccupancyGrid(rows, columns);
+    }
 
+    /**
+     * Grows the occupancy grid if the fleet changed or a car was placed outside of it
+     */
+    private void fitOccupancyGrid() {
+        if (nextCarInCell.length != carCount()) {
+            initOccupancyGrid();
+        }
+        if (carStore != null) {
+            return;
+        }
+        int rows = gridRows;
+        int columns = gridColumns;
+        for (Car car : cars) {
+            rows = Math.max(rows, Math.max(car.getCurrentPos().getRow(), car.getPreviousPos().getRow()) + 1);
+            columns = Math.max(columns, Math.max(car.getCurrentPos().getColumn(), car.getPreviousPos().getColumn()) + 1);
+        }
+        if (rows != gridRows || columns != gridColumns) {
+            resizeOccupancyGrid(rows, columns);
+        }
+    }
 
     /**
-     * @return the list of cars in the fleet
+     * Allocates the occupancy grid with the given size
+     * @param rows number of rows
+     * @param columns number of columns
+     */
+    private void resizeOccupancyGrid(int rows, int columns) {
+        this.gridRows = rows;
+        this.gridColumns = columns;
+        this.cellStamps = new int[rows * columns];
+        this.cellFirstCar = new int[rows * columns];
+        this.cellLastCar = new int[rows * columns];
+        this.parkedCars = new int[rows * columns];
+        Arrays.fill(parkedCars, -1);
+        this.nextCarInCell = new int[carCount()];
+        this.parkedSince = new int[carCount()];
+        Arrays.fill(parkedSince, -1);
+        this.parkedList = new int[carCount()];
+        this.parkedSlots = new int[carCount()];
+        this.parkedCount = 0;
+        this.buffers = new ConflictBuffers();
+        this.bandBuffers = null;
+        this.carCells = null;
+        this.bandCars = null;
+        this.stamp = 0;
+    }
+
+    /**
+     * Starts a new round on the occupancy grid
+     */
+    private void nextStamp() {
+        stamp++;
+        if (stamp == 0) {
+            Arrays.fill(cellStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * @return the number of cars in the fleet
+     */
+    private int carCount() {
+        return carStore != null ? carStore.size() : cars.size();
+    }
+
+    /**
+     * @param carIndex index of the car
+     * @return the cell of the car on the occupancy grid, -1 if it is not on the map
+     */
+    private int getCell(int carIndex) {
+        if (carStore != null) {
+            return carStore.getCurrentCell(carIndex);
+        }
+        Position2D pos = cars.get(carIndex).getCurrentPos();
+        if (pos.getRow() < 0 || pos.getColumn() < 0) {
+            return -1;
+        }
+        return pos.getRow() * gridColumns + pos.getColumn();
+    }
+
+    /**
+     * @param carIndex index of the car
+     * @param cell cell on the occupancy grid
+     * @return true if the previous position of the car lies on the cell
+     */
+    private boolean wasOnCell(int carIndex, int cell) {
+        if (carStore != null) {
+            return carStore.getPreviousCell(carIndex) == cell;
+        }
+        Position2D pos = cars.get(carIndex).getPreviousPos();
+        return pos.getRow() == cell / gridColumns && pos.getColumn() == cell % gridColumns;
+    }
+
+    /**
+     * @param carIndex index of the car
+     * @return the ID of the car
+     */
+    private int getId(int carIndex) {
+        return carStore != null ? carStore.getId(carIndex) : cars.get(carIndex).getId();
+    }
+
+    /**
+     * @param carIndex index of the car
+     * @return the spawn time of the car
+     */
+    private int getSpawnTime(int carIndex) {
+        return carStore != null ? carStore.getSpawnTime(carIndex) : cars.get(carIndex).getSpawnTime();
+    }
+
+    /**
+     * @param carIndex index of the car
+     * @return the current time step of the car
+     */
+    private int getCurrentTime(int carIndex) {
+        return carStore != null ? carStore.getCurrentTime(carIndex) : cars.get(carIndex).getCurrentTime();
+    }
+
+    /**
+     * @param carIndex index of the car
+     * @param timeStep new current time step of the car
+     */
+    private void setCurrentTime(int carIndex, int timeStep) {
+        if (carStore != null) {
+            carStore.setCurrentTime(carIndex, timeStep);
+        } else {
+            cars.get(carIndex).setCurrentTime(timeStep);
+        }
+    }
+
+    /**
+     * @param carIndex index of the car
+     * @return the position of the car on its trip
+     */
+    private int getCounter(int carIndex) {
+        return carStore != null ? carStore.getCounter(carIndex) : cars.get(carIndex).getCounter();
+    }
+
+    /**
+     * @param carIndex index of the car
+     * @param counter new position of the car on its trip
+     */
+    private void setCounter(int carIndex, int counter) {
+        if (carStore != null) {
+            carStore.setCounter(carIndex, counter);
+        } else {
+            cars.get(carIndex).setCounter(counter);
+        }
+    }
+
+    /**
+     * Updates a car to the given time step
+     * @param carIndex index of the car
+     * @param timeStep the next time step
+     */
+    private void update(int carIndex, int timeStep) {
+        if (carStore != null) {
+            carStore.update(carIndex, timeStep);
+        } else {
+            cars.get(carIndex).update(timeStep);
+        }
+    }
+
+    /**
+     * Moves a car that lost a conflict: one position back, or off the map if it just spawned
+     * @param carIndex index of the car
+     */
+    private void giveWay(int carIndex) {
+        if (getCurrentTime(carIndex) != getSpawnTime(carIndex)) {
+            if (carStore != null) {
+                carStore.onePositionBack(carIndex);
+            } else {
+                cars.get(carIndex).onePositionBack();
+            }
+        } else if (carStore != null) {
+            carStore.resetToPreSpawn(carIndex);
+        } else {
+            Car car = cars.get(carIndex);
+            car.setCurrentPos(new Position2D(-1, -1));
+            car.setPreviousPos(new Position2D(-1, -1));
+            car.setCounter(-1);
+        }
+    }
+
+    /**
+     * Solves conflicts by ensuring no two cars are on the same position.
+     * The cars are chained per cell on the occupancy grid in fleet order, only cells
+     * holding more than one car are visited afterwards. A parked car on a cell another car drives onto
+     * takes part in the conflict and is woken up.
+     * @param carIndices indices of the cars to check in fleet order, null for all cars
+     * @param carCount number of cars to check
+     * @param timeStep current time step
+     * @return the number of woken up parked cars, their indices are stored in buffers.woken
+     */
+    private int solveConflicts(int[] carIndices, int carCount, int timeStep) {
+        nextStamp();
+        return solveConflicts(carIndices, 0, carCount, timeStep, buffers);
+    }
+
+    /**
+     * Solves the conflicts among a range of cars in the current round of the occupancy grid.
+     * Ranges whose cars lie in disjoint sets of cells may be solved at the same time with separate buffers.
+     * @param carIndices indices of the cars in fleet order, null for all cars
+     * @param from first position in carIndices
+     * @param to position behind the last car in carIndices
+     * @param timeStep current time step
+     * @param buffers buffers for the conflict cells, groups and woken up cars
+     * @return the number of woken up parked cars, their indices are stored in buffers.woken
+     */
+    private int solveConflicts(int[] carIndices, int from, int to, int timeStep, ConflictBuffers buffers) {
+        int conflictCount = 0;
+        for (int i = from; i < to; i++) {
+            int carIndex = carIndices == null ? i : carIndices[i];
+            int cell = getCell(carIndex);
+            if (cell < 0) {
+                continue;
+            }
+            nextCarInCell[carIndex] = -1;
+            if (cellStamps[cell] != stamp) {
+                cellStamps[cell] = stamp;
+                cellFirstCar[cell] = carIndex;
+                if (parkedCars[cell] >= 0) {
+                    buffers.cells = append(buffers.cells, conflictCount++, cell);
+                }
+            } else {
+                if (cellFirstCar[cell] == cellLastCar[cell] && parkedCars[cell] < 0) {
+                    buffers.cells = append(buffers.cells, conflictCount++, cell);
+                }
+                nextCarInCell[cellLastCar[cell]] = carIndex;
+            }
+            cellLastCar[cell] = carIndex;
+        }
+
+        int woken = 0;
+        for (int i = 0; i < conflictCount; i++) {
+            int cell = buffers.cells[i];
+            int groupSize = 0;
+            int parkedCar = parkedCars[cell];
+            for (int carIndex = cellFirstCar[cell]; carIndex >= 0; carIndex = nextCarInCell[carIndex]) {
+                if (parkedCar >= 0 && parkedCar < carIndex) {
+                    buffers.group = append(buffers.group, groupSize++, parkedCar);
+                    parkedCar = -1;
+                }
+                buffers.group = append(buffers.group, groupSize++, carIndex);
+            }
+            if (parkedCar >= 0) {
+                buffers.group = append(buffers.group, groupSize++, parkedCar);
+            }
+            if (parkedCars[cell] >= 0) {
+                wakeUp(parkedCars[cell], timeStep);
+                buffers.woken = append(buffers.woken, woken++, parkedCars[cell]);
+                parkedCars[cell] = -1;
+            }
+            solveConflictAtCell(cell, buffers.group, groupSize);
+        }
+        buffers.cellCount = conflictCount;
+        return woken;
+    }
+
+    /**
+     * Solves the conflicts of all cars in parallel bands of rows of the occupancy grid.
+     * The cars are distributed to the bands in fleet order: every chunk of cars counts its cars per band,
+     * prefix sums give every chunk its own slots per band and the chunks scatter their cars in parallel.
+     * Every band then solves its cells on its own, a conflict only involves cars on the same cell and
+     * every car moves one position back at most, so the result is identical to the serial resolution.
+     * @param timeStep current time step
+     */
+    private void solveConflictsInParallel(int timeStep) {
+        int carCount = carCount();
+        int bands = Math.max(1, Math.min(gridRows, Runtime.getRuntime().availableProcessors() * 4));
+        int chunks = Math.max(1, Math.min(carCount, Runtime.getRuntime().availableProcessors() * 4));
+        if (carCells == null || carCells.length != carCount) {
+            carCells = new int[carCount];
+            bandCars = new int[carCount];
+        }
+        if (bandBuffers == null || bandBuffers.length != bands) {
+            bandBuffers = new ConflictBuffers[bands];
+            for (int band = 0; band < bands; band++) {
+                bandBuffers[band] = new ConflictBuffers();
+            }
+        }
+        nextStamp();
+
+        int[][] chunkCounts = new int[chunks][bands + 1];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            for (int carIndex = chunk * carCount / chunks; carIndex < (chunk + 1) * carCount / chunks; carIndex++) {
+                int cell = getCell(carIndex);
+                carCells[carIndex] = cell;
+                chunkCounts[chunk][cell < 0 ? bands : bandOf(cell, bands)]++;
+            }
+        });
+
+        int[] bandStarts = new int[bands + 1];
+        int offset = 0;
+        for (int band = 0; band < bands; band++) {
+            bandStarts[band] = offset;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int count = chunkCounts[chunk][band];
+                chunkCounts[chunk][band] = offset;
+                offset += count;
+            }
+        }
+        bandStarts[bands] = offset;
+
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int[] slots = chunkCounts[chunk];
+            for (int carIndex = chunk * carCount / chunks; carIndex < (chunk + 1) * carCount / chunks; carIndex++) {
+                if (carCells[carIndex] >= 0) {
+                    bandCars[slots[bandOf(carCells[carIndex], bands)]++] = carIndex;
+                }
+            }
+        });
+
+        IntStream.range(0, bands).parallel().forEach(band ->
+                solveConflicts(bandCars, bandStarts[band], bandStarts[band + 1], timeStep, bandBuffers[band]));
+    }
+
+    /**
+     * @param cell cell on the occupancy grid
+     * @param bands number of bands of rows
+     * @return the band of rows holding the cell
+     */
+    private int bandOf(int cell, int bands) {
+        return (int) ((long) (cell / gridColumns) * bands / gridRows);
+    }
+
+    /**
+     * Brings the counter and time of a parked car up to date so it can take part in a conflict
+     * @param carIndex index of the parked car
+     * @param timeStep current time step
+     */
+    private void wakeUp(int carIndex, int timeStep) {
+        setCounter(carIndex, getCounter(carIndex) + timeStep - parkedSince[carIndex]);
+        setCurrentTime(carIndex, timeStep);
+        parkedSince[carIndex] = -1;
+        int lastParked = parkedList[--parkedCount];
+        parkedList[parkedSlots[carIndex]] = lastParked;
+        parkedSlots[lastParked] = parkedSlots[carIndex];
+    }
+
+    /**
+     * Appends a value to an array, growing it if necessary
+     * @param values array of values
+     * @param count number of values in the array
+     * @param value value to append
+     * @return the array holding the values
+     */
+    private static int[] append(int[] values, int count, int value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count] = value;
+        return values;
+    }
+
+    /**
+     * Solves the conflict on one cell: a car that already stood there stays, otherwise the car with the
+     * smallest ID. All other cars move one position back or leave the map if they just spawned.
+     * @param cell the cell holding more than one car
+     * @param group indices of the cars on the cell in fleet order
+     * @param groupSize number of cars on the cell
+     */
+    private void solveConflictAtCell(int cell, int[] group, int groupSize) {
+        int carToStay = -1;
+        for (int i = 0; i < groupSize; i++) {
+            if (wasOnCell(group[i], cell)) {
+                carToStay = group[i];
+                break;
+            }
+        }
+        if (carToStay < 0) {
+            for (int i = 0; i < groupSize; i++) {
+                if (carToStay < 0 || getId(group[i]) < getId(carToStay)) {
+                    carToStay = group[i];
+                }
+            }
+        }
+
+        for (int i = 0; i < groupSize; i++) {
+            if (group[i] != carToStay) {
+                giveWay(group[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the list of cars in the fleet, views of the stored cars if the fleet is held in a car store
      */
     public ArrayList<Car> getCars() {
-        return cars;
+        return carStore != null ? carStore.getCars() : cars;
     }
 
     /**
@@ -117,7 +985,108 @@ public class FleetController {
      * @param cars is set
      */
     public void setCars(ArrayList<Car> cars) {
+        if (carStore != null && timeStepper.getCarStore() == carStore) {
+            timeStepper.setCarStore(null);
+        }
         this.cars = cars;
+        this.carStore = null;
+        this.checkpoints.clear();
+        initOccupancyGrid();
+    }
+
+    /**
+     * @return the car store holding the fleet, null if the fleet is held as a list of cars
+     */
+    public CarStore getCarStore() {
+        return carStore;
+    }
+
+    /**
+     * @return the way the fleet is advanced in time
+     */
+    public StepMode getStepMode() {
+        return stepMode;
+    }
+
+    /**
+     * Sets the way the fleet is advanced in time
+     * @param stepMode new step mode
+     */
+    public void setStepMode(StepMode stepMode) {
+        this.stepMode = stepMode;
+    }
+
+    /**
+     * @return the number of time steps between two automatic checkpoints, 0 if no checkpoints are taken
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Sets the number of time steps between two automatic checkpoints and takes a checkpoint of the current state
+     * @param checkpointInterval number of time steps, 0 to stop taking checkpoints
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        if (checkpointInterval < 0) {
+            throw new IllegalArgumentException("Checkpoint interval must not be negative");
+        }
+        this.checkpointInterval = checkpointInterval;
+        if (checkpointInterval > 0) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * @return the time steps of all checkpoints in ascending order
+     */
+    public NavigableSet<Integer> getCheckpointTimeSteps() {
+        return Collections.unmodifiableNavigableSet(checkpoints.navigableKeySet());
+    }
+
+    /**
+     * Removes all checkpoints
+     */
+    public void clearCheckpoints() {
+        checkpoints.clear();
+    }
+
+    /**
+     * @return the receiver of the positions of all cars after every time step, null if none are recorded
+     */
+    public TrajectorySink getTrajectorySink() {
+        return trajectorySink;
+    }
+
+    /**
+     * Sets the receiver of the positions of all cars on the map after every time step.
+     * Records of one time step are passed in fleet order, in the event-driven mode in no particular order.
+     * @param trajectorySink the receiver, null to stop recording
+     */
+    public void setTrajectorySink(TrajectorySink trajectorySink) {
+        this.trajectorySink = trajectorySink;
+    }
+
+    /**
+     * @return the number of conflicts solved so far, one per cell and time step holding more than one car
+     */
+    public long getConflictCount() {
+        return conflictCount;
+    }
+
+    /**
+     * @return the running per-cell occupancy and conflict counts, null if none are kept
+     */
+    public TrafficHeatmap getHeatmap() {
+        return heatmap;
+    }
+
+    /**
+     * Sets the heatmap counting the cars on every cell and the conflicts on every cell after every time step
+     * @param heatmap the heatmap, null to stop counting
+     */
+    public void setHeatmap(TrafficHeatmap heatmap) {
+        this.heatmap = heatmap;
     }
 
     /**
@@ -134,4 +1103,26 @@ public class FleetController {
     public void setTimeStepper(TimeStepper timeStepper) {
         this.timeStepper = timeStepper;
     }
+
+    /**
+     * Growable buffers of one conflict resolution
+     */
+    private static final class ConflictBuffers {
+        /**
+         * Cells holding more than one car
+         */
+        private int[] cells = new int[16];
+        /**
+         * Number of cells holding more than one car
+         */
+        private int cellCount;
+        /**
+         * Indices of the cars of one conflict in fleet order
+         */
+        private int[] group = new int[16];
+        /**
+         * Parked cars woken up
+         */
+        private int[] woken = new int[16];
+    }
 }
@@ -0,0 +1,178 @@
+package model.cars;
+
+import model.MapSnapshot;
+import model.SparseMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs many independent fleet scenarios on one shared map concurrently.
+ * Every run builds its own fleet and FleetController. All runs of one call get the same snapshot of the map,
+ * taken when the call starts, so they see the same cells even if the map changes meanwhile. The indexes of the
+ * snapshot are built before the runs are submitted, the FleetFactory may be called by several threads at once
+ * and only reads them. The runs are executed on a bounded pool of platform threads since they are bound by
+ * computation, the summary of every run is passed to a consumer as soon as the run completes.
+ */
+public class ScenarioRunner {
+    /**
+     * Source of the fleet of one run
+     */
+    @FunctionalInterface
+    public interface FleetFactory {
+        /**
+         * Creates the fleet of one run, called concurrently for different runs
+         * @param snapshot the snapshot of the map shared by all runs of a call
+         * @param run index of the run
+         * @return the cars of the run
+         */
+        ArrayList<Car> createFleet(MapSnapshot snapshot, int run);
+    }
+
+    /**
+     * The map shared by all runs
+     */
+    private final SparseMap sparseMap;
+    /**
+     * Maximum number of runs executed at the same time
+     */
+    private final int parallelism;
+    /**
+     * Step mode of the FleetController of every run
+     */
+    private StepMode stepMode;
+
+    /**
+     * Constructor of a runner with one run per available processor at a time
+     * @param sparseMap the map shared by all runs
+     */
+    public ScenarioRunner(SparseMap sparseMap) {
+        this(sparseMap, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor of a runner
+     * @param sparseMap the map shared by all runs
+     * @param parallelism maximum number of runs executed at the same time
+     */
+    public ScenarioRunner(SparseMap sparseMap, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.sparseMap = sparseMap;
+        this.parallelism = parallelism;
+        this.stepMode = StepMode.EVENT_DRIVEN;
+    }
+
+    /**
+     * Executes the runs on one snapshot of the map and passes the summary of every run to the consumer in order
+     * of completion. The consumer is called by one thread at a time.
+     * @param runs number of runs
+     * @param fleetFactory source of the fleet of every run
+     * @param endTime time step every run is simulated to
+     * @param consumer receiver of the summaries
+     */
+    public void run(int runs, FleetFactory fleetFactory, int endTime, Consumer<ScenarioSummary> consumer) {
+        MapSnapshot snapshot = sparseMap.getSnapshot();
+        snapshot.getLineOfSightIndex();
+        snapshot.getStreetComponentIndex();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, runs)));
+        try {
+            List<Future<?>> futures = new ArrayList<>(runs);
+            for (int run = 0; run < runs; run++) {
+                int index = run;
+                futures.add(executor.submit(() -> {
+                    ScenarioSummary summary = runScenario(snapshot, index, fleetFactory, endTime);
+                    synchronized (consumer) {
+                        consumer.accept(summary);
+                    }
+                }));
+            }
+            for (int run = 0; run < runs; run++) {
+                try {
+                    futures.get(run).get();
+                } catch (ExecutionException e) {
+                    futures.forEach(future -> future.cancel(true));
+                    throw new IllegalStateException("Scenario run " + run + " failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the scenario runs", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Executes the runs and collects their summaries
+     * @param runs number of runs
+     * @param fleetFactory source of the fleet of every run
+     * @param endTime time step every run is simulated to
+     * @return the summaries ordered by run
+     */
+    public ArrayList<ScenarioSummary> run(int runs, FleetFactory fleetFactory, int endTime) {
+        ScenarioSummary[] summaries = new ScenarioSummary[runs];
+        run(runs, fleetFactory, endTime, summary -> summaries[summary.getRun()] = summary);
+        return new ArrayList<>(List.of(summaries));
+    }
+
+    /**
+     * Simulates one run
+     * @param snapshot the snapshot of the map shared by the runs
+     * @param run index of the run
+     * @param fleetFactory source of the fleet
+     * @param endTime time step the run is simulated to
+     * @return the summary of the run
+     */
+    private ScenarioSummary runScenario(MapSnapshot snapshot, int run, FleetFactory fleetFactory, int endTime) {
+        long start = System.nanoTime();
+        ArrayList<Car> cars = fleetFactory.createFleet(snapshot, run);
+        FleetController fleetController = new FleetController(cars, endTime);
+        fleetController.setStepMode(stepMode);
+        fleetController.runUntilTimeStep(endTime);
+
+        int arrivedCount = 0;
+        for (Car car : cars) {
+            if (car.getCounter() >= car.getTrip().size() - 1) {
+                arrivedCount++;
+            }
+        }
+        return new ScenarioSummary(run, cars.size(), arrivedCount, fleetController.getConflictCount(),
+                fleetController.getTimeStepper().getTimeStep(), System.nanoTime() - start);
+    }
+
+    /**
+     * @return the map shared by all runs
+     */
+    public SparseMap getSparseMap() {
+        return sparseMap;
+    }
+
+    /**
+     * @return the maximum number of runs executed at the same time
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the step mode of the FleetController of every run
+     */
+    public StepMode getStepMode() {
+        return stepMode;
+    }
+
+    /**
+     * Sets the step mode of the FleetController of every run, EVENT_DRIVEN by default
+     * @param stepMode the step mode
+     */
+    public void setStepMode(StepMode stepMode) {
+        this.stepMode = stepMode;
+    }
+}
@@ -0,0 +1,98 @@
+package model.cars;
+
+/**
+ * Summary statistics of one run of a ScenarioRunner
+ */
+public class ScenarioSummary {
+    /**
+     * Index of the run
+     */
+    private final int run;
+    /**
+     * Number of cars in the fleet
+     */
+    private final int carCount;
+    /**
+     * Number of cars standing on the last position of their trip at the end of the run
+     */
+    private final int arrivedCount;
+    /**
+     * Number of conflicts solved during the run
+     */
+    private final long conflictCount;
+    /**
+     * Time step the run ended at
+     */
+    private final int timeStep;
+    /**
+     * Wall clock time of the run in nanoseconds
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Constructor of the summary of one run
+     * @param run index of the run
+     * @param carCount number of cars in the fleet
+     * @param arrivedCount number of cars standing on the last position of their trip at the end of the run
+     * @param conflictCount number of conflicts solved during the run
+     * @param timeStep time step the run ended at
+     * @param elapsedNanos wall clock time of the run in nanoseconds
+     */
+    public ScenarioSummary(int run, int carCount, int arrivedCount, long conflictCount, int timeStep,
+                           long elapsedNanos) {
+        this.run = run;
+        this.carCount = carCount;
+        this.arrivedCount = arrivedCount;
+        this.conflictCount = conflictCount;
+        this.timeStep = timeStep;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the index of the run
+     */
+    public int getRun() {
+        return run;
+    }
+
+    /**
+     * @return the number of cars in the fleet
+     */
+    public int getCarCount() {
+        return carCount;
+    }
+
+    /**
+     * @return the number of cars standing on the last position of their trip at the end of the run
+     */
+    public int getArrivedCount() {
+        return arrivedCount;
+    }
+
+    /**
+     * @return the number of conflicts solved during the run
+     */
+    public long getConflictCount() {
+        return conflictCount;
+    }
+
+    /**
+     * @return the time step the run ended at
+     */
+    public int getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * @return the wall clock time of the run in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "run " + run + ": " + arrivedCount + "/" + carCount + " cars arrived, " + conflictCount
+                + " conflicts at time step " + timeStep + " in " + elapsedNanos / 1_000_000 + " ms";
+    }
+}
@@ -0,0 +1,22 @@
+package model.cars;
+
+/**
+ * Ways a FleetController advances its fleet in time
+ */
+public enum StepMode {
+    /**
+     * Every car is updated in every time step
+     */
+    TICK_BY_TICK,
+    /**
+     * Only cars that can still change are updated, cars that have not spawned yet or are parked at the
+     * end of their trip are skipped and time steps without any active car are jumped over.
+     * The resulting state is identical to TICK_BY_TICK.
+     */
+    EVENT_DRIVEN,
+    /**
+     * Every car is updated in every time step, the cars and the conflicts are processed on the fork/join pool.
+     * The resulting state is identical to TICK_BY_TICK.
+     */
+    PARALLEL
+}
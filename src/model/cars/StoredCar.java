@@ -0,0 +1,153 @@
+package model.cars;
+
+import model.Position2D;
+
+import java.util.ArrayList;
+
+/**
+ * View of a car in a CarStore, all state is read from and written to the store.
+ * The positions of the trip are created once with the view, getCurrentPos and getPreviousPos return these
+ * instances like Car does, so positions can be compared by identity with the trip.
+ */
+class StoredCar extends Car {
+    /**
+     * The store holding the state of the car
+     */
+    private final CarStore store;
+    /**
+     * Index of the car in the store
+     */
+    private final int index;
+    /**
+     * Current position off the trip, reused while the current cell is unchanged
+     */
+    private Position2D currentPos;
+    /**
+     * Previous position off the trip, reused while the previous cell is unchanged
+     */
+    private Position2D previousPos;
+
+    /**
+     * Constructor of the view of a car in the store
+     * @param store the store holding the state of the car
+     * @param index index of the car in the store
+     * @param trip the positions of the trip of the car
+     */
+    StoredCar(CarStore store, int index, ArrayList<Position2D> trip) {
+        super(store.getId(index), trip, store.getSpawnTime(index));
+        this.store = store;
+        this.index = index;
+    }
+
+    @Override
+    public void update(int nextTimeStep) {
+        store.update(index, nextTimeStep);
+    }
+
+    @Override
+    public void onePositionBack() {
+        store.onePositionBack(index);
+    }
+
+    @Override
+    public int getId() {
+        return store.getId(index);
+    }
+
+    @Override
+    public void setId(int id) {
+        store.setId(index, id);
+    }
+
+    @Override
+    public void setTrip(ArrayList<Position2D> trip) {
+        store.setTrip(index, trip);
+        super.setTrip(trip);
+    }
+
+    @Override
+    public int getCurrentTime() {
+        return store.getCurrentTime(index);
+    }
+
+    @Override
+    public void setCurrentTime(int currentTime) {
+        store.setCurrentTime(index, currentTime);
+    }
+
+    @Override
+    public Position2D getCurrentPos() {
+        int cell = store.getCurrentCell(index);
+        Position2D position = tripPositionOf(cell, store.getCounter(index));
+        if (position != null) {
+            return position;
+        }
+        if (currentPos == null || store.getCellIndex(currentPos) != cell) {
+            currentPos = store.positionOf(cell);
+        }
+        return currentPos;
+    }
+
+    @Override
+    public void setCurrentPos(Position2D currentPos) {
+        store.setCurrentCell(index, store.getCellIndex(currentPos));
+        this.currentPos = currentPos;
+    }
+
+    @Override
+    public Position2D getPreviousPos() {
+        int cell = store.getPreviousCell(index);
+        Position2D position = tripPositionOf(cell, store.getCounter(index) - 1);
+        if (position != null) {
+            return position;
+        }
+        if (previousPos == null || store.getCellIndex(previousPos) != cell) {
+            previousPos = store.positionOf(cell);
+        }
+        return previousPos;
+    }
+
+    @Override
+    public void setPreviousPos(Position2D previousPos) {
+        store.setPreviousCell(index, store.getCellIndex(previousPos));
+        this.previousPos = previousPos;
+    }
+
+    /**
+     * Finds the trip position of a cell, looking at the expected step of the trip and the step after it
+     * first, the previous position keeps the later step when the car moved one position back
+     * @param cell cell index, -1 if the car is not on the map
+     * @param expected step of the trip the cell most likely belongs to
+     * @return the position of the trip in the cell, null if the cell is not part of the trip
+     */
+    private Position2D tripPositionOf(int cell, int expected) {
+        if (cell < 0) {
+            return null;
+        }
+        int tripLength = store.getTripLength(index);
+        int step = Math.max(0, Math.min(expected, tripLength - 1));
+        if (store.getTripCell(index, step) == cell) {
+            return getTrip().get(step);
+        }
+        step = Math.max(0, Math.min(expected + 1, tripLength - 1));
+        if (store.getTripCell(index, step) == cell) {
+            return getTrip().get(step);
+        }
+        for (step = 0; step < tripLength; step++) {
+            if (store.getTripCell(index, step) == cell) {
+                return getTrip().get(step);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getCounter() {
+        return store.getCounter(index);
+    }
+
+    @Override
+    public void setCounter(int counter) {
+        store.setCounter(index, counter);
+    }
+}
@@ -1,11 +1,18 @@
 package model.cars;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 /**
- * Class managing the progression of time steps acting as the publisher in an observer pattern
+ * Class managing the progression of time steps acting as the publisher in an observer pattern.
+ * The subscribers are kept in an ArrayList sorted by ID, which the updates walk by index. Adding or removing
+ * a single car finds its place by binary search but shifts the cars behind it, so fleets are subscribed
+ * with addSubscribers and removed with removeSubscribers, which cost one pass over the list.
  */
 public class TimeStepper {
     /**
@@ -20,6 +27,10 @@ public class TimeStepper {
      * List of cars sorted by their ID
      */
     private ArrayList<Car> subscribers;
+    /**
+     * Store of cars updated together with the subscribers, null if there is none
+     */
+    private CarStore carStore;
 
 
     /**
@@ -42,6 +53,34 @@ public class TimeStepper {
         }
     }
 
+    /**
+     * Advances the time step by one and updates the cars in parallel
+     */
+    public void oneStepForwardInParallel() {
+        if (timeStep < end) {
+            timeStep++;
+            updateSubscribersInParallel();
+        }
+    }
+
+    /**
+     * Notifies the cars to update to the current time step in parallel ranges of subscribers.
+     * Every car only changes its own state, the result is the same as with updateSubscribers.
+     */
+    public void updateSubscribersInParallel() {
+        int chunks = Math.max(1, Runtime.getRuntime().availableProcessors() * 4);
+        int subscriberCount = subscribers.size();
+        int storeSize = carStore == null ? 0 : carStore.size();
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            for (int i = chunk * subscriberCount / chunks; i < (chunk + 1) * subscriberCount / chunks; i++) {
+                subscribers.get(i).update(timeStep);
+            }
+            if (carStore != null) {
+                carStore.updateRange(chunk * storeSize / chunks, (chunk + 1) * storeSize / chunks, timeStep);
+            }
+        });
+    }
+
     /**
      * Notifies the cars to update to the current time step
      */
@@ -49,23 +88,90 @@ public class TimeStepper {
         for (Car car : subscribers) {
             car.update(timeStep);
         }
+        if (carStore != null) {
+            carStore.updateAll(timeStep);
+        }
     }
 
     /**
-     * Adds a car to the list of subscribers
+     * Adds a car to the list of subscribers, behind all cars with the same ID.
+     * Finding the place takes O(log n), moving the cars behind it O(n).
      * @param car the car to be added
      */
     public void addSubscriber(Car car) {
-        subscribers.add(car);
+        subscribers.add(upperBound(car.getId()), car);
+    }
+
+    /**
+     * Adds several cars to the list of subscribers with a single sort.
+     * The order is the same as adding the cars one by one with addSubscriber.
+     * @param cars the cars to be added
+     */
+    public void addSubscribers(Collection<Car> cars) {
+        subscribers.addAll(cars);
         subscribers.sort(Comparator.comparingInt(Car::getId));
     }
 
     /**
-     * Removes a car from the list of subscribers
+     * Removes a car from the list of subscribers.
+     * The car is found by binary search over its ID, which must not have changed since it was added.
+     * Finding it takes O(log n) plus the cars with the same ID, moving the cars behind it O(n).
      * @param car the car to be removed
      */
     public void removeSubscriber(Car car) {
-        subscribers.remove(car);
+        int id = car.getId();
+        for (int i = lowerBound(id); i < subscribers.size() && subscribers.get(i).getId() == id; i++) {
+            if (subscribers.get(i) == car) {
+                subscribers.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes several cars from the list of subscribers in one pass, keeping the order of the others
+     * @param cars the cars to be removed
+     */
+    public void removeSubscribers(Collection<Car> cars) {
+        Set<Car> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.addAll(cars);
+        subscribers.removeIf(removed::contains);
+    }
+
+    /**
+     * @param id car ID
+     * @return the index of the first subscriber with an ID not smaller than id
+     */
+    private int lowerBound(int id) {
+        int low = 0;
+        int high = subscribers.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (subscribers.get(middle).getId() < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param id car ID
+     * @return the index of the first subscriber with an ID greater than id
+     */
+    private int upperBound(int id) {
+        int low = 0;
+        int high = subscribers.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (subscribers.get(middle).getId() <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
     }
 
 
@@ -114,4 +220,19 @@ public class TimeStepper {
     public void setSubscribers(ArrayList<Car> subscribers) {
         this.subscribers = subscribers;
     }
+
+    /**
+     * @return the store of cars updated together with the subscribers, null if there is none
+     */
+    public CarStore getCarStore() {
+        return carStore;
+    }
+
+    /**
+     * Sets the store of cars that is updated together with the subscribers
+     * @param carStore store of cars, null to remove it
+     */
+    public void setCarStore(CarStore carStore) {
+        this.carStore = carStore;
+    }
 }
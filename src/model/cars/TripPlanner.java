@@ -0,0 +1,120 @@
+package model.cars;
+
+import model.BasicVertex;
+import model.Position2D;
+import model.distances.DistanceDurationGrid;
+import model.distances.DistanceTimeMap;
+import model.distances.ShortestPathEngine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Plans the trips of cars along the fastest routes of a DistanceTimeMap.
+ * The requests of a batch are grouped by origin, every origin is searched once with a single search tree
+ * for all of its destinations and the origins are searched in parallel. Every search borrows a
+ * ShortestPathEngine from a pool of the batch, so there are at most as many engines as concurrent searches
+ * and they are released with the batch. A trip holds one position per vertex of the route, the car advances
+ * one vertex per time step.
+ */
+public class TripPlanner {
+    /**
+     * The map providing the routes
+     */
+    private final DistanceTimeMap distanceTimeMap;
+
+    /**
+     * Constructor of a trip planner on the given map
+     * @param distanceTimeMap the map providing the routes
+     */
+    public TripPlanner(DistanceTimeMap distanceTimeMap) {
+        this.distanceTimeMap = distanceTimeMap;
+    }
+
+    /**
+     * Plans the trips of a batch of requests.
+     * Requests without a route are left out, the cars keep the IDs of their requests.
+     * @param requests the trip requests
+     * @return the planned cars in the order of the requests, ready for a FleetController
+     */
+    public ArrayList<Car> planTrips(List<TripRequest> requests) {
+        ArrayList<ArrayList<BasicVertex>> routes = computeRoutes(requests);
+        ArrayList<Car> cars = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ArrayList<BasicVertex> route = routes.get(i);
+            if (route.isEmpty()) {
+                continue;
+            }
+            ArrayList<Position2D> trip = new ArrayList<>(route.size());
+            for (BasicVertex vertex : route) {
+                trip.add(new Position2D(vertex.getPosition().getRow(), vertex.getPosition().getColumn()));
+            }
+            cars.add(new Car(requests.get(i).getId(), trip, requests.get(i).getSpawnTime()));
+        }
+        return cars;
+    }
+
+    /**
+     * Computes the fastest route of every request.
+     * All routes are searched on the grid of the distance time map at the time of the call and the snapshot it
+     * was built on, so they stay consistent while the map changes.
+     * @param requests the trip requests
+     * @return the route of every request in the order of the requests, empty where there is none
+     */
+    public ArrayList<ArrayList<BasicVertex>> computeRoutes(List<TripRequest> requests) {
+        ArrayList<ArrayList<BasicVertex>> routes = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            routes.add(null);
+        }
+        DistanceDurationGrid grid = distanceTimeMap.getGrid();
+        ShortestPathEngine firstEngine = new ShortestPathEngine(grid.getMapView(), grid);
+        if (firstEngine.hasNegativeWeights()) {
+            for (int i = 0; i < requests.size(); i++) {
+                TripRequest request = requests.get(i);
+                routes.set(i, distanceTimeMap.computeRoute(request.getOrigin(), request.getDestination()));
+            }
+            return routes;
+        }
+
+        Map<BasicVertex, ArrayList<Integer>> requestsByOrigin = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            requestsByOrigin.computeIfAbsent(requests.get(i).getOrigin(), origin -> new ArrayList<>()).add(i);
+        }
+        List<ArrayList<Integer>> groups = new ArrayList<>(requestsByOrigin.values());
+
+        ConcurrentLinkedQueue<ShortestPathEngine> idleEngines = new ConcurrentLinkedQueue<>();
+        idleEngines.offer(firstEngine);
+        IntStream.range(0, groups.size()).parallel().forEach(group -> {
+            ArrayList<Integer> indices = groups.get(group);
+            ArrayList<BasicVertex> destinations = new ArrayList<>(indices.size());
+            for (int index : indices) {
+                destinations.add(requests.get(index).getDestination());
+            }
+            ShortestPathEngine engine = idleEngines.poll();
+            if (engine == null) {
+                engine = new ShortestPathEngine(grid.getMapView(), grid);
+            }
+            try {
+                ArrayList<ArrayList<BasicVertex>> groupRoutes = engine
+                        .computeRoutes(requests.get(indices.getFirst()).getOrigin(), destinations);
+                for (int i = 0; i < indices.size(); i++) {
+                    routes.set(indices.get(i), groupRoutes.get(i));
+                }
+            } finally {
+                idleEngines.offer(engine);
+            }
+        });
+        return routes;
+    }
+
+    /**
+     * @return the map providing the routes
+     */
+    public DistanceTimeMap getDistanceTimeMap() {
+        return distanceTimeMap;
+    }
+}
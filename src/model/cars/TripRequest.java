@@ -0,0 +1,70 @@
+package model.cars;
+
+import model.BasicVertex;
+
+/**
+ * Request for the trip of one car from an origin to a destination, planned by a TripPlanner
+ */
+public class TripRequest {
+    /**
+     * Unique identifier of the planned car
+     */
+    private final int id;
+    /**
+     * Vertex the trip starts on
+     */
+    private final BasicVertex origin;
+    /**
+     * Vertex the trip ends on
+     */
+    private final BasicVertex destination;
+    /**
+     * Time step at which the car spawns
+     */
+    private final int spawnTime;
+
+    /**
+     * Constructor of a trip request
+     * @param id unique identifier of the planned car
+     * @param origin vertex the trip starts on
+     * @param destination vertex the trip ends on
+     * @param spawnTime time step at which the car spawns
+     */
+    public TripRequest(int id, BasicVertex origin, BasicVertex destination, int spawnTime) {
+        if (origin == null || destination == null) {
+            throw new IllegalArgumentException("Origin and destination must not be null");
+        }
+        this.id = id;
+        this.origin = origin;
+        this.destination = destination;
+        this.spawnTime = spawnTime;
+    }
+
+    /**
+     * @return the unique identifier of the planned car
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the vertex the trip starts on
+     */
+    public BasicVertex getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return the vertex the trip ends on
+     */
+    public BasicVertex getDestination() {
+        return destination;
+    }
+
+    /**
+     * @return the time step at which the car spawns
+     */
+    public int getSpawnTime() {
+        return spawnTime;
+    }
+}
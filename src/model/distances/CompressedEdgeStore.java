@@ -0,0 +1,212 @@
+package model.distances;
+
+/**
+ * Compressed sparse row storage of the edges between adjacent cells of a map.
+ * The edges of the cell with index row * columns + column are stored in the slots
+ * offsets[cell] to offsets[cell + 1] - 1, in the neighbour order up, down, left, right.
+ * Every slot holds the target cell and the spatial and temporal weight of the edge.
+ */
+public class CompressedEdgeStore {
+    /**
+     * Number of rows of the map
+     */
+    private final int rows;
+    /**
+     * Number of columns of the map
+     */
+    private final int columns;
+    /**
+     * First edge slot of every cell, with one extra entry marking the end of the last cell
+     */
+    private final int[] offsets;
+    /**
+     * Target cell of every edge
+     */
+    private final int[] targets;
+    /**
+     * Spatial weight of every edge
+     */
+    private final int[] spatialWeights;
+    /**
+     * Temporal weight of every edge
+     */
+    private final int[] temporalWeights;
+    /**
+     * Counter that changes with every write of a temporal weight, lets readers notice changed durations
+     */
+    private int temporalModifications;
+
+    /**
+     * Constructor of the store for a grid of the specified size, all weights start at 0
+     * @param rows number of rows of the map
+     * @param columns number of columns of the map
+     */
+    public CompressedEdgeStore(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.offsets = new int[rows * columns + 1];
+
+        int edge = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                offsets[row * columns + column] = edge;
+                edge += neighbourCount(row, column);
+            }
+        }
+        offsets[rows * columns] = edge;
+
+        this.targets = new int[edge];
+        this.spatialWeights = new int[edge];
+        this.temporalWeights = new int[edge];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int slot = offsets[row * columns + column];
+                int cell = row * columns + column;
+                if (row > 0) {
+                    targets[slot++] = cell - columns;
+                }
+                if (row < rows - 1) {
+                    targets[slot++] = cell + columns;
+                }
+                if (column > 0) {
+                    targets[slot++] = cell - 1;
+                }
+                if (column < columns - 1) {
+                    targets[slot] = cell + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the neighbours of a cell inside the map
+     * @param row row of the cell
+     * @param column column of the cell
+     * @return the number of neighbours
+     */
+    private int neighbourCount(int row, int column) {
+        int count = 0;
+        if (row > 0) {
+            count++;
+        }
+        if (row < rows - 1) {
+            count++;
+        }
+        if (column > 0) {
+            count++;
+        }
+        if (column < columns - 1) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the edge slot between two cells
+     * @param from the source cell
+     * @param to the target cell
+     * @return the edge slot, -1 if the cells are not adjacent
+     */
+    public int findEdge(int from, int to) {
+        for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+            if (targets[edge] == to) {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param cell cell index
+     * @return the first edge slot of the cell
+     */
+    public int getEdgeStart(int cell) {
+        return offsets[cell];
+    }
+
+    /**
+     * @param cell cell index
+     * @return the slot after the last edge of the cell
+     */
+    public int getEdgeEnd(int cell) {
+        return offsets[cell + 1];
+    }
+
+    /**
+     * @param edge edge slot
+     * @return the target cell of the edge
+     */
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * @param edge edge slot
+     * @return the spatial weight of the edge
+     */
+    public int getSpatialWeight(int edge) {
+        return spatialWeights[edge];
+    }
+
+    /**
+     * Sets the spatial weight of an edge
+     * @param edge edge slot
+     * @param weight new spatial weight
+     */
+    public void setSpatialWeight(int edge, int weight) {
+        spatialWeights[edge] = weight;
+    }
+
+    /**
+     * @param edge edge slot
+     * @return the temporal weight of the edge
+     */
+    public int getTemporalWeight(int edge) {
+        return temporalWeights[edge];
+    }
+
+    /**
+     * Sets the temporal weight of an edge
+     * @param edge edge slot
+     * @param weight new temporal weight
+     */
+    public void setTemporalWeight(int edge, int weight) {
+        temporalWeights[edge] = weight;
+        temporalModifications++;
+    }
+
+    /**
+     * @return a counter that differs from its earlier values once a temporal weight was written since
+     */
+    public int getTemporalModificationCount() {
+        return temporalModifications;
+    }
+
+    /**
+     * @return the number of rows of the map
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns of the map
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of cells of the map
+     */
+    public int getCellCount() {
+        return rows * columns;
+    }
+
+    /**
+     * @return the number of stored edges
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+}
@@ -2,88 +2,221 @@ package model.distances;
 
 import model.BasicStreet;
 import model.BasicVertex;
+import model.MapSnapshot;
 import model.SparseMap;
+import model.abstractClasses.MapView;
 
 import java.util.*;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
 
 /**
  * Class that computes the spatial and temporal distances between vertices in a sparse map
+ * or in a snapshot of it
  */
 public class DistanceDurationGrid {
     /**
-     * Represents a sparse map where the calculations will be made
+     * Represents a sparse map where the calculations will be made, null if the grid was built from a snapshot
      */
     private SparseMap sparseMap;
     /**
-     * Map storing the spatial distances between vertices
+     * View the vertices and speed limits are read from, the sparse map itself or a snapshot of it
      */
-    private LinkedHashMap<BasicVertex, LinkedHashMap<BasicVertex, Integer>> distances;
+    private MapView mapView;
     /**
-     * Map storing the temporal distances between vertices
+     * Edge store holding the spatial and temporal distances between adjacent vertices
      */
-    private LinkedHashMap<BasicVertex, LinkedHashMap<BasicVertex, Integer>> durations;
+    private CompressedEdgeStore edgeStore;
+    /**
+     * Map view of the spatial distances, created on first request
+     */
+    private WeightMap distances;
+    /**
+     * Map view of the temporal distances, created on first request
+     */
+    private WeightMap durations;
 
     /**
      * Constructor for the Distance Duration Grid with the specified sparse map
      * @param sparseMap sparse map the grid is based on
      */
     public DistanceDurationGrid(SparseMap sparseMap) {
+        this(sparseMap, sparseMap);
+    }
+
+    /**
+     * Constructor for the Distance Duration Grid of a snapshot, later changes of the map do not reach the grid
+     * @param snapshot snapshot the grid is based on
+     */
+    public DistanceDurationGrid(MapSnapshot snapshot) {
+        this(null, snapshot);
+    }
+
+    /**
+     * Constructor for the Distance Duration Grid reading the specified view
+     * @param sparseMap sparse map the grid is based on, null for a snapshot
+     * @param mapView view the vertices and speed limits are read from
+     */
+    private DistanceDurationGrid(SparseMap sparseMap, MapView mapView) {
         this.sparseMap = sparseMap;
-        this.distances = new LinkedHashMap<>();
-        this.durations = new LinkedHashMap<>();
-        initDistances();
-        initDurations();
+        this.mapView = mapView;
+        this.edgeStore = new CompressedEdgeStore(mapView.getRows(), mapView.getColumns());
+        fillWeights(true, this::spatialDistance);
+        fillWeights(false, this::temporalDistance);
     }
 
     /**
-     * Initializes the map with the temporal distances
+     * Initializes the edge store with the temporal distances
      */
     public void initDurations() {
-        BasicVertex[][] vertexArray = sparseMap.getSparseVertexArray();
-
-        for (BasicVertex[] row : vertexArray) {
-            for (BasicVertex vertex : row) {
-                LinkedHashMap<BasicVertex, Integer> neighbourDurations = new LinkedHashMap<>();
-                for (BasicVertex neighbour : vertex.getNeighbours()) {
-                    int duration = temporalDistance(vertex, neighbour);
-                    neighbourDurations.put(neighbour, duration);
-                }
-                durations.put(vertex, neighbourDurations);
-            }
-        }
+        fillWeights(false, this::temporalDistance);
     }
 
     /**
-     * Initializes the spatial distances between vertices
+     * Initializes the edge store with the spatial distances
      */
     public void initDistances() {
-        BasicVertex[][] vertexArray = sparseMap.getSparseVertexArray();
-        for (BasicVertex[] row : vertexArray) {
-            for (BasicVertex vertex : row) {
-                LinkedHashMap<BasicVertex, Integer> neighbourDistances = new LinkedHashMap<>();
-                for (BasicVertex neighbour : vertex.getNeighbours()) {
-                    int distance = spatialDistance(vertex, neighbour);
-                    neighbourDistances.put(neighbour, distance);
+        fillWeights(true, this::spatialDistance);
+    }
+
+    /**
+     * Computes the weights of all edges in parallel bands of rows, every cell only writes its own edge slots
+     * @param spatial true for the spatial weights, false for the temporal weights
+     * @param weight function computing the weight between a cell and its neighbour
+     */
+    private void fillWeights(boolean spatial, IntBinaryOperator weight) {
+        int rows = edgeStore.getRows();
+        int columns = edgeStore.getColumns();
+        int bands = Math.max(1, Math.min(rows, Runtime.getRuntime().availableProcessors() * 4));
+
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            for (int cell = band * rows / bands * columns; cell < (band + 1) * rows / bands * columns; cell++) {
+                for (int edge = edgeStore.getEdgeStart(cell); edge < edgeStore.getEdgeEnd(cell); edge++) {
+                    int value = weight.applyAsInt(cell, edgeStore.getTarget(edge));
+                    if (spatial) {
+                        edgeStore.setSpatialWeight(edge, value);
+                    } else {
+                        edgeStore.setTemporalWeight(edge, value);
+                    }
                 }
-                distances.put(vertex, neighbourDistances);
+            }
+        });
+    }
 
+    /**
+     * Writes the weights of a map into the edge store, weights between vertices that are no neighbours in the
+     * view are ignored
+     * @param map map from vertices to the weights towards their neighbours
+     * @param spatial true for the spatial weights, false for the temporal weights
+     */
+    private void fromMap(Map<BasicVertex, ? extends Map<BasicVertex, Integer>> map, boolean spatial) {
+        for (int cell = 0; cell < edgeStore.getCellCount(); cell++) {
+            Map<BasicVertex, Integer> neighbourWeights = map.get(vertexAt(cell));
+            if (neighbourWeights == null) {
+                continue;
+            }
+            for (int edge = edgeStore.getEdgeStart(cell); edge < edgeStore.getEdgeEnd(cell); edge++) {
+                Integer weight = neighbourWeights.get(vertexAt(edgeStore.getTarget(edge)));
+                if (weight != null) {
+                    setWeight(edge, spatial, weight);
+                }
             }
         }
     }
 
     /**
-     * Calculates the spatial distance between two vertices
-     * @param a vertice a
-     * @param b vertice b
+     * @param edge edge slot
+     * @param spatial true for the spatial weight, false for the temporal weight
+     * @return the weight of the edge
+     */
+    private int getWeight(int edge, boolean spatial) {
+        return spatial ? edgeStore.getSpatialWeight(edge) : edgeStore.getTemporalWeight(edge);
+    }
+
+    /**
+     * Sets the weight of an edge
+     * @param edge edge slot
+     * @param spatial true for the spatial weight, false for the temporal weight
+     * @param weight the new weight
+     */
+    private void setWeight(int edge, boolean spatial, int weight) {
+        if (spatial) {
+            edgeStore.setSpatialWeight(edge, weight);
+        } else {
+            edgeStore.setTemporalWeight(edge, weight);
+        }
+    }
+
+    /**
+     * Finds the cell a vertex of the view stands in
+     * @param key the looked up key
+     * @return the cell index, -1 if the key is no vertex of the view
+     */
+    private int cellOf(Object key) {
+        if (!(key instanceof BasicVertex vertex) || vertex.getPosition() == null) {
+            return -1;
+        }
+        int row = vertex.getPosition().getRow();
+        int column = vertex.getPosition().getColumn();
+        if (!mapView.isInBound(row, column) || !vertex.equals(mapView.getVertex(row, column))) {
+            return -1;
+        }
+        return row * edgeStore.getColumns() + column;
+    }
+
+    /**
+     * Looks up the spatial distance between two adjacent vertices
+     * @param a vertex a
+     * @param b vertex b
+     * @return the spatial distance
+     * @throws IllegalArgumentException if the vertices are not adjacent
+     */
+    public int getDistance(BasicVertex a, BasicVertex b) {
+        return edgeStore.getSpatialWeight(findEdge(a, b));
+    }
+
+    /**
+     * Looks up the temporal distance between two adjacent vertices
+     * @param a vertex a
+     * @param b vertex b
+     * @return the temporal distance
+     * @throws IllegalArgumentException if the vertices are not adjacent
+     */
+    public int getDuration(BasicVertex a, BasicVertex b) {
+        return edgeStore.getTemporalWeight(findEdge(a, b));
+    }
+
+    /**
+     * Finds the edge slot between two vertices
+     * @param a vertex a
+     * @param b vertex b
+     * @return the edge slot
+     * @throws IllegalArgumentException if the vertices are not adjacent
+     */
+    private int findEdge(BasicVertex a, BasicVertex b) {
+        int columns = edgeStore.getColumns();
+        int edge = a.getBasicManhattanDistance(b) != 1 ? -1 : edgeStore.findEdge(
+                a.getPosition().getRow() * columns + a.getPosition().getColumn(),
+                b.getPosition().getRow() * columns + b.getPosition().getColumn());
+        if (edge < 0) {
+            throw new IllegalArgumentException("Vertices are not adjacent");
+        }
+        return edge;
+    }
+
+    /**
+     * Calculates the spatial distance between the vertices of two adjacent cells, the edge store only holds
+     * adjacent pairs
+     * @param cell cell index of vertice a
+     * @param target cell index of vertice b
      * @return the spatial difference as an int
      */
-    private int spatialDistance(BasicVertex a, BasicVertex b) {
+    private int spatialDistance(int cell, int target) {
+        BasicVertex a = vertexAt(cell);
+        BasicVertex b = vertexAt(target);
         if (a.equals(b)) {
             return 0;
         }
-        if (!a.isBasicStreetConnectedTo(b)) {
-            return Integer.MAX_VALUE;
-        }
 
         if (a instanceof BasicStreet && b instanceof BasicStreet) {
             return 1200;
@@ -98,12 +231,14 @@ public class DistanceDurationGrid {
 
 
     /**
-     * Calculates the temporal distances between two vertices
-     * @param a vertice a
-     * @param b vertice b
+     * Calculates the temporal distances between the vertices of two cells, with the speed limits of the view
+     * @param cell cell index of vertice a
+     * @param target cell index of vertice b
      * @return the temporal distance as an int
      */
-    private int temporalDistance(BasicVertex a, BasicVertex b) {
+    private int temporalDistance(int cell, int target) {
+        BasicVertex a = vertexAt(cell);
+        BasicVertex b = vertexAt(target);
         if (a.equals(b)) {
             return 0;
         }
@@ -111,8 +246,9 @@ public class DistanceDurationGrid {
             return 5;
         }
 
-        int sa = ((BasicStreet) a).getSpeedLimit();
-        int sb = ((BasicStreet) b).getSpeedLimit();
+        int columns = edgeStore.getColumns();
+        int sa = mapView.getSpeedLimit(cell / columns, cell % columns);
+        int sb = mapView.getSpeedLimit(target / columns, target % columns);
 
         if (sa == 0 || sb == 0) {
             return Integer.MAX_VALUE;
@@ -121,7 +257,16 @@ public class DistanceDurationGrid {
     }
 
     /**
-     * @return the sparse map used by the grid
+     * @param cell cell index
+     * @return the vertex stored in the cell of the view
+     */
+    private BasicVertex vertexAt(int cell) {
+        int columns = edgeStore.getColumns();
+        return mapView.getVertex(cell / columns, cell % columns);
+    }
+
+    /**
+     * @return the sparse map used by the grid, null if the grid was built from a snapshot
      */
     public SparseMap getSparseMap() {
         return sparseMap;
@@ -133,36 +278,279 @@ public class DistanceDurationGrid {
      */
     public void setSparseMap(SparseMap sparseMap) {
         this.sparseMap = sparseMap;
+        this.mapView = sparseMap;
+    }
+
+    /**
+     * @return the view the vertices and speed limits are read from, the sparse map or a snapshot of it
+     */
+    public MapView getMapView() {
+        return mapView;
+    }
+
+    /**
+     * @return the edge store with the distances and durations between adjacent vertices
+     */
+    public CompressedEdgeStore getEdgeStore() {
+        return edgeStore;
     }
 
     /**
+     * Returns the spatial distances as a map from every vertex to the distances towards its neighbours, in
+     * row-major order. The map reads and writes the edge store: changes of the store show in it, and weights
+     * set through the neighbour maps or their entries are written into the store. Vertices and neighbours can
+     * not be added or removed.
      * @return the spatial distances between two vertices
      */
-    public LinkedHashMap<BasicVertex, LinkedHashMap<BasicVertex, Integer>> getDistances() {
+    public Map<BasicVertex, Map<BasicVertex, Integer>> getDistances() {
+        if (distances == null) {
+            distances = new WeightMap(true);
+        }
         return distances;
     }
 
     /**
-     * Sets the spatial distance between two vertices
+     * Copies the spatial distances between neighbours into the edge store
      * @param distances vertice distances
      */
-    public void setDistances(LinkedHashMap<BasicVertex, LinkedHashMap<BasicVertex, Integer>> distances) {
-        this.distances = distances;
+    public void setDistances(Map<BasicVertex, ? extends Map<BasicVertex, Integer>> distances) {
+        fromMap(distances, true);
     }
 
     /**
+     * Returns the temporal distances as a map from every vertex to the durations towards its neighbours, with
+     * the same write-through behaviour as getDistances
      * @return the temporal distances between 2 vertices
      */
-    public LinkedHashMap<BasicVertex, LinkedHashMap<BasicVertex, Integer>> getDurations() {
+    public Map<BasicVertex, Map<BasicVertex, Integer>> getDurations() {
+        if (durations == null) {
+            durations = new WeightMap(false);
+        }
         return durations;
     }
 
     /**
-     * Sets the temporal distances between 2 vertices
+     * Copies the temporal distances between neighbours into the edge store
      * @param durations between 2 vertices
      */
-    public void setDurations(LinkedHashMap<BasicVertex, LinkedHashMap<BasicVertex, Integer>> durations) {
-        this.durations = durations;
+    public void setDurations(Map<BasicVertex, ? extends Map<BasicVertex, Integer>> durations) {
+        fromMap(durations, false);
     }
 
-}
\ No newline at end of file
+    /**
+     * Map view from every vertex of the view to the weights towards its neighbours
+     */
+    private final class WeightMap extends AbstractMap<BasicVertex, Map<BasicVertex, Integer>> {
+        /**
+         * True for the spatial weights, false for the temporal weights
+         */
+        private final boolean spatial;
+
+        /**
+         * @param spatial true for the spatial weights, false for the temporal weights
+         */
+        private WeightMap(boolean spatial) {
+            this.spatial = spatial;
+        }
+
+        @Override
+        public Map<BasicVertex, Integer> get(Object key) {
+            int cell = cellOf(key);
+            return cell < 0 ? null : new NeighbourWeights(cell, spatial);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return cellOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return edgeStore.getCellCount();
+        }
+
+        @Override
+        public Set<Entry<BasicVertex, Map<BasicVertex, Integer>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<BasicVertex, Map<BasicVertex, Integer>>> iterator() {
+                    return new Iterator<>() {
+                        private int cell;
+
+                        @Override
+                        public boolean hasNext() {
+                            return cell < edgeStore.getCellCount();
+                        }
+
+                        @Override
+                        public Entry<BasicVertex, Map<BasicVertex, Integer>> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int current = cell++;
+                            return new SimpleImmutableEntry<>(vertexAt(current),
+                                    new NeighbourWeights(current, spatial));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return edgeStore.getCellCount();
+                }
+            };
+        }
+    }
+
+    /**
+     * Map view from the neighbours of one cell to the weights of the edges towards them
+     */
+    private final class NeighbourWeights extends AbstractMap<BasicVertex, Integer> {
+        /**
+         * Cell the edges start in
+         */
+        private final int cell;
+        /**
+         * True for the spatial weights, false for the temporal weights
+         */
+        private final boolean spatial;
+
+        /**
+         * @param cell cell the edges start in
+         * @param spatial true for the spatial weights, false for the temporal weights
+         */
+        private NeighbourWeights(int cell, boolean spatial) {
+            this.cell = cell;
+            this.spatial = spatial;
+        }
+
+        /**
+         * @param key the looked up key
+         * @return the edge slot towards the key, -1 if the key is no neighbour of the cell
+         */
+        private int edgeTo(Object key) {
+            int target = cellOf(key);
+            return target < 0 ? -1 : edgeStore.findEdge(cell, target);
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int edge = edgeTo(key);
+            return edge < 0 ? null : getWeight(edge, spatial);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return edgeTo(key) >= 0;
+        }
+
+        /**
+         * Sets the weight of the edge towards a neighbour
+         * @param key the neighbour
+         * @param weight the new weight
+         * @return the previous weight
+         * @throws IllegalArgumentException if the key is no neighbour of the cell
+         */
+        @Override
+        public Integer put(BasicVertex key, Integer weight) {
+            int edge = edgeTo(key);
+            if (edge < 0) {
+                throw new IllegalArgumentException("Vertices are not adjacent");
+            }
+            int previous = getWeight(edge, spatial);
+            setWeight(edge, spatial, weight);
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return edgeStore.getEdgeEnd(cell) - edgeStore.getEdgeStart(cell);
+        }
+
+        @Override
+        public Set<Entry<BasicVertex, Integer>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<BasicVertex, Integer>> iterator() {
+                    return new Iterator<>() {
+                        private int edge = edgeStore.getEdgeStart(cell);
+
+                        @Override
+                        public boolean hasNext() {
+                            return edge < edgeStore.getEdgeEnd(cell);
+                        }
+
+                        @Override
+                        public Entry<BasicVertex, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            return new WeightEntry(edge++, spatial);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return NeighbourWeights.this.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Entry of a neighbour map, its value is the weight of the edge in the store
+     */
+    private final class WeightEntry implements Map.Entry<BasicVertex, Integer> {
+        /**
+         * Edge slot of the entry
+         */
+        private final int edge;
+        /**
+         * True for the spatial weight, false for the temporal weight
+         */
+        private final boolean spatial;
+
+        /**
+         * @param edge edge slot of the entry
+         * @param spatial true for the spatial weight, false for the temporal weight
+         */
+        private WeightEntry(int edge, boolean spatial) {
+            this.edge = edge;
+            this.spatial = spatial;
+        }
+
+        @Override
+        public BasicVertex getKey() {
+            return vertexAt(edgeStore.getTarget(edge));
+        }
+
+        @Override
+        public Integer getValue() {
+            return getWeight(edge, spatial);
+        }
+
+        @Override
+        public Integer setValue(Integer weight) {
+            int previous = getWeight(edge, spatial);
+            setWeight(edge, spatial, weight);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Map.Entry<?, ?> entry && getKey().equals(entry.getKey())
+                    && getValue().equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package model.distances;
 
+import model.BasicBuilding;
+import model.BasicGreen;
 import model.BasicStreet;
 import model.BasicVertex;
+import model.MapSnapshot;
 import model.SparseMap;
+import model.abstractClasses.MapView;
 
 import java.util.*;
 
 
 /**
- * Class to compute spatial and temporal distances between vertices in a sparse map using DistanceDurationGrid
+ * Class to compute spatial and temporal distances between vertices in a sparse map using DistanceDurationGrid.
+ * The grid is built on a snapshot of the map, all searches read the vertices of that snapshot, so changes of the
+ * map while a search runs do not reach it. initGrid takes a new snapshot.
  */
 public class DistanceTimeMap {
+    /**
+     * Row and column steps to the neighbours of a cell, in the order of BasicVertex.getNeighbour
+     */
+    private static final int[][] NEIGHBOUR_STEPS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
     /**
      * The sparse map where the grid is based on
      */
@@ -19,6 +30,10 @@ public class DistanceTimeMap {
      * the grid that stores the distances and duration between vertices
      */
     private DistanceDurationGrid grid;
+    /**
+     * Shortest path engine on the grid, created on first use
+     */
+    private ShortestPathEngine shortestPathEngine;
 
     /**
      * Constructor of the Distance time map with the specified sparse map
@@ -31,10 +46,11 @@ public class DistanceTimeMap {
 
 
     /**
-     * Initializes the grid with a new distance duration grid based on the sparse map
+     * Initializes the grid with a new distance duration grid based on a snapshot of the sparse map
      */
     public void initGrid() {
-        this.grid = new DistanceDurationGrid(sparseMap);
+        this.grid = new DistanceDurationGrid(sparseMap.getSnapshot());
+        this.shortestPathEngine = null;
     }
 
     /**
@@ -44,7 +60,10 @@ public class DistanceTimeMap {
      * @return the spatial distance in int
      */
     public int computeDistance(BasicVertex start, BasicVertex end) {
-        if (!sparseMap.areStreetConnected(start, end)) {
+        MapView view = getMapView();
+        boolean connected = view instanceof MapSnapshot snapshot ? snapshot.areStreetConnected(start, end)
+                : sparseMap.areStreetConnected(start, end);
+        if (!connected) {
             return Integer.MAX_VALUE;
         }
 
@@ -63,9 +82,11 @@ public class DistanceTimeMap {
                 return distances.get(current);
             }
 
-            for (BasicVertex neighbour : current.getNeighbours()) {
-                if (!visited.contains(neighbour) && (neighbour instanceof BasicStreet || neighbour.equals(end))) {
-                    int newDistance = distances.get(current) + grid.getDistances().get(current).get(neighbour);
+            for (int[] step : NEIGHBOUR_STEPS) {
+                BasicVertex neighbour = neighbourOf(view, current, step);
+                if (neighbour != null && !visited.contains(neighbour)
+                        && (neighbour instanceof BasicStreet || neighbour.equals(end))) {
+                    int newDistance = distances.get(current) + grid.getDistance(current, neighbour);
                     if (!distances.containsKey(neighbour) || newDistance < distances.get(neighbour)) {
                         distances.put(neighbour, newDistance);
                         queue.offer(neighbour);
@@ -78,13 +99,19 @@ public class DistanceTimeMap {
     }
 
     /**
-     * Computes the temporal distance between 2 vertices
+     * Computes the temporal distance between 2 vertices.
+     * Uses a Dijkstra search on the grid durations, maps with negative durations
+     * (streets with a negative speed limit) fall back to enumerating all paths.
      * @param start vertex
      * @param end vertex
      * @return the temporal distance between 2 vertices
      */
 
     public int computeDuration(BasicVertex start, BasicVertex end) {
+        ShortestPathEngine engine = getShortestPathEngine();
+        if (!engine.hasNegativeWeights()) {
+            return engine.computeDuration(start, end);
+        }
         ArrayList<ArrayList<BasicVertex>> paths = getPath(start, end);
 
         int duration = Integer.MAX_VALUE;
@@ -97,6 +124,59 @@ public class DistanceTimeMap {
         return duration;
     }
 
+    /**
+     * Computes the fastest route between 2 vertices with the same rules as computeDuration
+     * @param start vertex
+     * @param end vertex
+     * @return the vertices of the fastest route, an empty list if there is none
+     */
+    public ArrayList<BasicVertex> computeRoute(BasicVertex start, BasicVertex end) {
+        ShortestPathEngine engine = getShortestPathEngine();
+        if (!engine.hasNegativeWeights()) {
+            return engine.computeRoute(start, end);
+        }
+        ArrayList<BasicVertex> route = new ArrayList<>();
+        int duration = Integer.MAX_VALUE;
+        for (ArrayList<BasicVertex> path : getPath(start, end)) {
+            int tripDuration = computeDurationOfTrip(path);
+            if (duration > tripDuration) {
+                duration = tripDuration;
+                route = path;
+            }
+        }
+        return route;
+    }
+
+    /**
+     * @return the shortest path engine on the current grid and the view it was built on
+     */
+    public ShortestPathEngine getShortestPathEngine() {
+        if (shortestPathEngine == null) {
+            shortestPathEngine = new ShortestPathEngine(grid.getMapView(), grid);
+        }
+        return shortestPathEngine;
+    }
+
+    /**
+     * @return the view the grid was built on, all searches read their vertices from it
+     */
+    public MapView getMapView() {
+        return grid.getMapView();
+    }
+
+    /**
+     * Looks up the neighbour of a vertex in the view
+     * @param view the view the neighbour is read from
+     * @param vertex the vertex
+     * @param step row and column step to the neighbour
+     * @return the neighbour, null if the step leaves the view
+     */
+    private static BasicVertex neighbourOf(MapView view, BasicVertex vertex, int[] step) {
+        int row = vertex.getPosition().getRow() + step[0];
+        int column = vertex.getPosition().getColumn() + step[1];
+        return view.isInBound(row, column) ? view.getVertex(row, column) : null;
+    }
+
     /**
      * Getting every possible path between start and end and filtering out all of those, that are not connected by streets
      * using a dfs
@@ -107,7 +187,7 @@ public class DistanceTimeMap {
     private ArrayList<ArrayList<BasicVertex>> getPath(BasicVertex start, BasicVertex end) {
         ArrayList<ArrayList<BasicVertex>> allPaths = new ArrayList<>();
 
-        if (start.getNeighbours().contains(end)) {
+        if (start.getBasicManhattanDistance(end) == 1) {
             ArrayList<BasicVertex> directPath = new ArrayList<>();
             directPath.add(start);
             directPath.add(end);
@@ -117,13 +197,13 @@ public class DistanceTimeMap {
 
         ArrayList<BasicVertex> currentPath = new ArrayList<>();
         Set<BasicVertex> visited = new HashSet<>();
-        dfs(start, end, currentPath, visited, allPaths);
+        dfs(getMapView(), start, end, currentPath, visited, allPaths);
 
 
         return allPaths;
     }
 
-    private void dfs(BasicVertex current, BasicVertex end, ArrayList<BasicVertex> currentPath,
+    private void dfs(MapView view, BasicVertex current, BasicVertex end, ArrayList<BasicVertex> currentPath,
                      Set<BasicVertex> visited, ArrayList<ArrayList<BasicVertex>> allPaths) {
 
 
@@ -131,13 +211,14 @@ public class DistanceTimeMap {
         visited.add(current);
 
         if (current.equals(end)) {
-            if (sparseMap.isBasicPathOverStreets(currentPath)) {
+            if (isPathOverStreets(currentPath)) {
                 allPaths.add(new ArrayList<>(currentPath));
             }
         } else {
-            for (BasicVertex neighbour : current.getNeighbours()) {
-                if (!visited.contains(neighbour)) {
-                        dfs(neighbour, end, currentPath, visited, allPaths);
+            for (int[] step : NEIGHBOUR_STEPS) {
+                BasicVertex neighbour = neighbourOf(view, current, step);
+                if (neighbour != null && !visited.contains(neighbour)) {
+                        dfs(view, neighbour, end, currentPath, visited, allPaths);
                     }
                 }
             }
@@ -147,6 +228,32 @@ public class DistanceTimeMap {
         visited.remove(current);
     }
 
+    /**
+     * Checks a path found by the dfs like BasicMap.isBasicPathOverStreets, its vertices are adjacent and distinct
+     * by construction, so only the kinds of the vertices are left to check
+     * @param path the path from start to end
+     * @return true if the path has at least 3 vertices, valid ends and only streets in between
+     */
+    private static boolean isPathOverStreets(ArrayList<BasicVertex> path) {
+        if (path.size() < 3 || !isValidEndVertex(path.getFirst()) || !isValidEndVertex(path.getLast())) {
+            return false;
+        }
+        for (int i = 1; i < path.size() - 1; i++) {
+            if (!(path.get(i) instanceof BasicStreet)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param vertex end vertex of a path
+     * @return true if a path may start or end on the vertex
+     */
+    private static boolean isValidEndVertex(BasicVertex vertex) {
+        return vertex instanceof BasicStreet || vertex instanceof BasicGreen || vertex instanceof BasicBuilding;
+    }
+
     /**
      * Computes the temporal duration of a trip represented by a list of vertices
      * @param vertexList list of
@@ -158,7 +265,7 @@ public class DistanceTimeMap {
             BasicVertex current = vertexList.get(i);
             BasicVertex next = vertexList.get(i + 1);
 
-            int duration = grid.getDurations().get(current).get(next);
+            int duration = grid.getDuration(current, next);
 
             if (duration == Integer.MAX_VALUE) {
                 return Integer.MAX_VALUE;
@@ -183,6 +290,7 @@ public class DistanceTimeMap {
      */
     public void setSparseMap(SparseMap sparseMap) {
         this.sparseMap = sparseMap;
+        this.shortestPathEngine = null;
     }
 
     /**
@@ -198,5 +306,6 @@ public class DistanceTimeMap {
      */
     public void setGrid(DistanceDurationGrid grid) {
         this.grid = grid;
+        this.shortestPathEngine = null;
     }
 }
\ No newline at end of file
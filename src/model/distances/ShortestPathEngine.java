@@ -0,0 +1,405 @@
+package model.distances;
+
+import model.BasicBuilding;
+import model.BasicGreen;
+import model.BasicStreet;
+import model.BasicVertex;
+import model.abstractClasses.MapView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dijkstra based shortest path search over the temporal distances in the edge store of a DistanceDurationGrid.
+ * A route follows the rules of SparseMap.isBasicPathOverStreets: it starts and ends on a street,
+ * green or building and only passes streets in between. Adjacent start and end vertices are
+ * always connected directly, like DistanceTimeMap did before.
+ *
+ * The search works on cell indices with primitive distance and predecessor arrays and a binary heap
+ * of packed (duration, cell) entries. Routes from one start to many ends share one search tree.
+ * The arrays are reused between searches, an engine must therefore not be shared between threads.
+ */
+public class ShortestPathEngine {
+    /**
+     * The map the routes are searched on, a SparseMap or a snapshot of it
+     */
+    private final MapView mapView;
+    /**
+     * The edge store providing the temporal distances between adjacent cells
+     */
+    private final CompressedEdgeStore edgeStore;
+    /**
+     * Number of rows of the map
+     */
+    private final int rows;
+    /**
+     * Number of columns of the map
+     */
+    private final int columns;
+    /**
+     * True if the grid contained a negative duration at the last check, Dijkstra is not applicable then
+     */
+    private boolean negativeWeights;
+    /**
+     * Modification count of the temporal weights at the last check for negative durations
+     */
+    private int checkedModifications;
+    /**
+     * Best known duration per cell, only valid where the stamp matches the current search
+     */
+    private final int[] durations;
+    /**
+     * Predecessor of every reached cell on its best route
+     */
+    private final int[] predecessors;
+    /**
+     * Search generation in which a cell was last reached, saves clearing the arrays
+     */
+    private final int[] stamps;
+    /**
+     * Search generation in which a cell was an end of the search, created on first use
+     */
+    private int[] targetStamps;
+    /**
+     * Current search generation
+     */
+    private int stamp;
+    /**
+     * Binary min heap of entries (duration << 32 | cell)
+     */
+    private long[] heap;
+    /**
+     * Number of entries in the heap
+     */
+    private int heapSize;
+
+    /**
+     * Constructor of the engine for the specified map and grid.
+     * To route on a pinned version of a map, pass a MapSnapshot and a grid built from the same snapshot.
+     * @param mapView the map the routes are searched on
+     * @param grid the grid providing the durations between adjacent vertices
+     */
+    public ShortestPathEngine(MapView mapView, DistanceDurationGrid grid) {
+        this.mapView = mapView;
+        this.edgeStore = grid.getEdgeStore();
+        this.rows = mapView.getRows();
+        this.columns = mapView.getColumns();
+        this.durations = new int[rows * columns];
+        this.predecessors = new int[rows * columns];
+        this.stamps = new int[rows * columns];
+        this.heap = new long[64];
+        this.checkedModifications = edgeStore.getTemporalModificationCount();
+        this.negativeWeights = containsNegativeWeight();
+    }
+
+    /**
+     * Scans the grid for negative durations, they occur for streets with a negative speed limit
+     * @return true if at least one duration is negative
+     */
+    private boolean containsNegativeWeight() {
+        for (int edge = 0; edge < edgeStore.getEdgeCount(); edge++) {
+            if (edgeStore.getTemporalWeight(edge) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the shortest temporal distance between two vertices
+     * @param start start vertex
+     * @param end end vertex
+     * @return the duration of the fastest route, Integer.MAX_VALUE if there is none
+     */
+    public int computeDuration(BasicVertex start, BasicVertex end) {
+        int endCell = search(start, end);
+        return endCell < 0 ? Integer.MAX_VALUE : durations[endCell];
+    }
+
+    /**
+     * Computes the fastest route between two vertices
+     * @param start start vertex
+     * @param end end vertex
+     * @return the vertices of the route from start to end, empty if there is none
+     */
+    public ArrayList<BasicVertex> computeRoute(BasicVertex start, BasicVertex end) {
+        int endCell = search(start, end);
+        ArrayList<BasicVertex> route = new ArrayList<>();
+        if (endCell < 0) {
+            return route;
+        }
+        for (int cell = endCell; cell >= 0; cell = predecessors[cell]) {
+            route.add(vertexAt(cell));
+        }
+        Collections.reverse(route);
+        return route;
+    }
+
+    /**
+     * Computes the fastest routes from one start vertex to many end vertices with a single search tree.
+     * Every route is the one computeRoute returns for the same pair of vertices.
+     * @param start start vertex
+     * @param ends end vertices
+     * @return the route to every end vertex in the order of ends, empty where there is none
+     */
+    public ArrayList<ArrayList<BasicVertex>> computeRoutes(BasicVertex start, List<BasicVertex> ends) {
+        if (hasNegativeWeights()) {
+            throw new IllegalStateException("Durations must not be negative for a shortest path search");
+        }
+        ArrayList<ArrayList<BasicVertex>> routes = new ArrayList<>(ends.size());
+        if (start == null || !isInBound(start)) {
+            for (int i = 0; i < ends.size(); i++) {
+                routes.add(new ArrayList<>());
+            }
+            return routes;
+        }
+        if (targetStamps == null) {
+            targetStamps = new int[rows * columns];
+        }
+        int startCell = start.getPosition().getRow() * columns + start.getPosition().getColumn();
+        startSearch(startCell);
+
+        int targetCount = 0;
+        if (isValidEndVertex(start)) {
+            for (BasicVertex end : ends) {
+                int endCell = cellOfEnd(start, end);
+                if (endCell >= 0 && start.getBasicManhattanDistance(end) != 1 && isValidEndVertex(end)
+                        && targetStamps[endCell] != stamp) {
+                    targetStamps[endCell] = stamp;
+                    targetCount++;
+                }
+            }
+        }
+        if (targetCount > 0) {
+            settle(startCell, targetCount);
+        }
+
+        for (BasicVertex end : ends) {
+            ArrayList<BasicVertex> route = new ArrayList<>();
+            int endCell = cellOfEnd(start, end);
+            if (endCell >= 0 && start.getBasicManhattanDistance(end) == 1) {
+                if (edgeStore.getTemporalWeight(edgeStore.findEdge(startCell, endCell)) != Integer.MAX_VALUE) {
+                    route.add(start);
+                    route.add(end);
+                }
+            } else if (endCell >= 0 && targetStamps[endCell] == stamp && stamps[endCell] == stamp) {
+                for (int cell = endCell; cell >= 0; cell = predecessors[cell]) {
+                    route.add(vertexAt(cell));
+                }
+                Collections.reverse(route);
+            }
+            routes.add(route);
+        }
+        return routes;
+    }
+
+    /**
+     * @param start start vertex of the search
+     * @param end end vertex
+     * @return the cell of end if it is a possible end of a route from start, -1 otherwise
+     */
+    private int cellOfEnd(BasicVertex start, BasicVertex end) {
+        if (end == null || end == start || !isInBound(end)) {
+            return -1;
+        }
+        int endCell = end.getPosition().getRow() * columns + end.getPosition().getColumn();
+        return vertexAt(endCell) == end ? endCell : -1;
+    }
+
+    /**
+     * Runs the search between two vertices
+     * @param start start vertex
+     * @param end end vertex
+     * @return the cell of end if it was reached, -1 otherwise
+     */
+    private int search(BasicVertex start, BasicVertex end) {
+        if (hasNegativeWeights()) {
+            throw new IllegalStateException("Durations must not be negative for a shortest path search");
+        }
+        if (start == null || end == null || start == end || !isInBound(start) || !isInBound(end)) {
+            return -1;
+        }
+        int startCell = start.getPosition().getRow() * columns + start.getPosition().getColumn();
+        int endCell = end.getPosition().getRow() * columns + end.getPosition().getColumn();
+        if (vertexAt(endCell) != end) {
+            return -1;
+        }
+
+        startSearch(startCell);
+        if (start.getBasicManhattanDistance(end) == 1) {
+            int duration = edgeStore.getTemporalWeight(edgeStore.findEdge(startCell, endCell));
+            if (duration == Integer.MAX_VALUE) {
+                return -1;
+            }
+            reach(endCell, duration, startCell);
+            return endCell;
+        }
+        if (!isValidEndVertex(start) || !isValidEndVertex(end)) {
+            return -1;
+        }
+        if (targetStamps == null) {
+            targetStamps = new int[rows * columns];
+        }
+        targetStamps[endCell] = stamp;
+        return settle(startCell, 1) ? endCell : -1;
+    }
+
+    /**
+     * Runs Dijkstra from the start cell of the current search until all marked end cells are settled.
+     * Routes pass only streets between start and end, an end cell that is no street is not expanded.
+     * @param startCell cell the search starts from
+     * @param targetCount number of distinct cells marked as ends in targetStamps
+     * @return true if all end cells were reached
+     */
+    private boolean settle(int startCell, int targetCount) {
+        int remaining = targetCount;
+        while (heapSize > 0) {
+            long entry = poll();
+            int cell = (int) entry;
+            int duration = (int) (entry >>> 32);
+            if (duration != durations[cell]) {
+                continue;
+            }
+            if (targetStamps[cell] == stamp) {
+                remaining--;
+                if (remaining == 0) {
+                    return true;
+                }
+                if (!(vertexAt(cell) instanceof BasicStreet)) {
+                    continue;
+                }
+            }
+            for (int edge = edgeStore.getEdgeStart(cell); edge < edgeStore.getEdgeEnd(cell); edge++) {
+                int neighbour = edgeStore.getTarget(edge);
+                int weight = edgeStore.getTemporalWeight(edge);
+                if (neighbour == startCell || weight == Integer.MAX_VALUE
+                        || (targetStamps[neighbour] != stamp && !(vertexAt(neighbour) instanceof BasicStreet))) {
+                    continue;
+                }
+                long candidate = (long) duration + weight;
+                if (candidate < Integer.MAX_VALUE && (stamps[neighbour] != stamp || candidate < durations[neighbour])) {
+                    reach(neighbour, (int) candidate, cell);
+                    offer(candidate << 32 | neighbour);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resets the search state for a new search from the given cell
+     * @param startCell cell the search starts from
+     */
+    private void startSearch(int startCell) {
+        stamp++;
+        if (stamp == 0) {
+            Arrays.fill(stamps, 0);
+            if (targetStamps != null) {
+                Arrays.fill(targetStamps, 0);
+            }
+            stamp = 1;
+        }
+        heapSize = 0;
+        reach(startCell, 0, -1);
+        offer(startCell);
+    }
+
+    /**
+     * Records a new best duration for a cell
+     * @param cell the reached cell
+     * @param duration the duration to reach it
+     * @param predecessor the cell it was reached from
+     */
+    private void reach(int cell, int duration, int predecessor) {
+        stamps[cell] = stamp;
+        durations[cell] = duration;
+        predecessors[cell] = predecessor;
+    }
+
+    /**
+     * Adds an entry to the heap
+     * @param entry packed duration and cell
+     */
+    private void offer(long entry) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        int index = heapSize++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = entry;
+    }
+
+    /**
+     * Removes the smallest entry from the heap
+     * @return the entry with the smallest duration
+     */
+    private long poll() {
+        long result = heap[0];
+        long last = heap[--heapSize];
+        int index = 0;
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = last;
+        return result;
+    }
+
+    /**
+     * @param cell cell index
+     * @return the vertex stored in the cell
+     */
+    private BasicVertex vertexAt(int cell) {
+        return mapView.getVertex(cell / columns, cell % columns);
+    }
+
+    /**
+     * Checks if a vertex lies inside the map
+     * @param vertex vertex to check
+     * @return true if its position is inside the map
+     */
+    private boolean isInBound(BasicVertex vertex) {
+        int row = vertex.getPosition().getRow();
+        int column = vertex.getPosition().getColumn();
+        return row >= 0 && row < rows && column >= 0 && column < columns;
+    }
+
+    /**
+     * Checks if a vertex may start or end a route
+     * @param vertex vertex to check
+     * @return true for streets, greens and buildings
+     */
+    private boolean isValidEndVertex(BasicVertex vertex) {
+        return vertex instanceof BasicStreet || vertex instanceof BasicGreen || vertex instanceof BasicBuilding;
+    }
+
+    /**
+     * Checks the grid for negative durations, the grid is only scanned again after its durations were written
+     * @return true if the grid contains negative durations and the engine cannot be used
+     */
+    public boolean hasNegativeWeights() {
+        int modifications = edgeStore.getTemporalModificationCount();
+        if (modifications != checkedModifications) {
+            checkedModifications = modifications;
+            negativeWeights = containsNegativeWeight();
+        }
+        return negativeWeights;
+    }
+}
@@ -19,4 +19,17 @@ public class Site extends BasicStreet {
     public Site(int row, int column, int value, int speedLimit) {
         super(row, column, value, 0);
     }
+
+    /**
+     * Creates a site at the same position, with the same value and containing map and the given speed limit
+     * @param speedLimit the speed limit of the copy
+     * @return the copy
+     */
+    @Override
+    public Site withSpeedLimit(int speedLimit) {
+        Site site = new Site(getPosition().getRow(), getPosition().getColumn(), getValue(), speedLimit);
+        site.setSpeedLimit(speedLimit);
+        site.setContainingMap(getContainingMap());
+        return site;
+    }
 }
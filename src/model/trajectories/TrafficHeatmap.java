@@ -0,0 +1,293 @@
+package model.trajectories;
+
+import model.BasicVertex;
+import model.SparseMap;
+
+import java.util.Arrays;
+
+/**
+ * Running per-cell traffic density of a simulation.
+ * For every cell the heatmap counts the time steps a car stood on it and the time steps in which cars collided
+ * on it, both in total and for a sliding window over the last time steps. The cells of a time step are
+ * collected while it runs and kept in a ring one longer than the window, when a time step leaves the window its
+ * cells are subtracted again. Grids of the counts are indexed like SparseMap.getSparseVertexArray().
+ * A FleetController passes every time step once, time steps it simulates again after a rewind are not counted.
+ */
+public class TrafficHeatmap {
+    /**
+     * Number of rows of the map
+     */
+    private final int rows;
+    /**
+     * Number of columns of the map
+     */
+    private final int columns;
+    /**
+     * Number of time steps of the sliding window
+     */
+    private final int windowSize;
+    /**
+     * Occupied time steps of every cell in total
+     */
+    private final long[] totalOccupancy;
+    /**
+     * Conflict time steps of every cell in total
+     */
+    private final long[] totalConflicts;
+    /**
+     * Occupied time steps of every cell in the window
+     */
+    private final int[] windowOccupancy;
+    /**
+     * Conflict time steps of every cell in the window
+     */
+    private final int[] windowConflicts;
+    /**
+     * Occupied cells of the running time step and every time step in the window, one entry per car
+     */
+    private final int[][] occupancyRing;
+    /**
+     * Number of occupied cells of every time step in the window
+     */
+    private final int[] occupancyRingSizes;
+    /**
+     * Conflict cells of the running time step and every time step in the window
+     */
+    private final int[][] conflictRing;
+    /**
+     * Number of conflict cells of every time step in the window
+     */
+    private final int[] conflictRingSizes;
+    /**
+     * Slot of the running time step in the rings
+     */
+    private int ringSlot;
+    /**
+     * Number of completed time steps
+     */
+    private long completedSteps;
+
+    /**
+     * Constructor of a heatmap for the given map
+     * @param sparseMap the map the cars drive on
+     * @param windowSize number of time steps of the sliding window
+     */
+    public TrafficHeatmap(SparseMap sparseMap, int windowSize) {
+        this(sparseMap.getSparseVertexArray().length, sparseMap.getSparseVertexArray()[0].length, windowSize);
+    }
+
+    /**
+     * Constructor of a heatmap for a map of the given size
+     * @param rows number of rows of the map
+     * @param columns number of columns of the map
+     * @param windowSize number of time steps of the sliding window
+     */
+    public TrafficHeatmap(int rows, int columns, int windowSize) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("Map size must be positive");
+        }
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.windowSize = windowSize;
+        this.totalOccupancy = new long[rows * columns];
+        this.totalConflicts = new long[rows * columns];
+        this.windowOccupancy = new int[rows * columns];
+        this.windowConflicts = new int[rows * columns];
+        this.occupancyRing = new int[windowSize + 1][16];
+        this.occupancyRingSizes = new int[windowSize + 1];
+        this.conflictRing = new int[windowSize + 1][4];
+        this.conflictRingSizes = new int[windowSize + 1];
+    }
+
+    /**
+     * Counts a car standing on a cell in the running time step
+     * @param row row of the cell
+     * @param column column of the cell
+     */
+    public void recordOccupancy(int row, int column) {
+        if (!isInBound(row, column)) {
+            return;
+        }
+        int cell = row * columns + column;
+        totalOccupancy[cell]++;
+        windowOccupancy[cell]++;
+        int size = occupancyRingSizes[ringSlot];
+        if (size == occupancyRing[ringSlot].length) {
+            occupancyRing[ringSlot] = Arrays.copyOf(occupancyRing[ringSlot], size * 2);
+        }
+        occupancyRing[ringSlot][size] = cell;
+        occupancyRingSizes[ringSlot] = size + 1;
+    }
+
+    /**
+     * Counts a conflict of cars on a cell in the running time step
+     * @param row row of the cell
+     * @param column column of the cell
+     */
+    public void recordConflict(int row, int column) {
+        if (!isInBound(row, column)) {
+            return;
+        }
+        int cell = row * columns + column;
+        totalConflicts[cell]++;
+        windowConflicts[cell]++;
+        int size = conflictRingSizes[ringSlot];
+        if (size == conflictRing[ringSlot].length) {
+            conflictRing[ringSlot] = Arrays.copyOf(conflictRing[ringSlot], size * 2);
+        }
+        conflictRing[ringSlot][size] = cell;
+        conflictRingSizes[ringSlot] = size + 1;
+    }
+
+    /**
+     * Completes the running time step, the oldest time step leaves the window
+     */
+    public void stepCompleted() {
+        completedSteps++;
+        ringSlot = (ringSlot + 1) % occupancyRing.length;
+        for (int i = 0; i < occupancyRingSizes[ringSlot]; i++) {
+            windowOccupancy[occupancyRing[ringSlot][i]]--;
+        }
+        for (int i = 0; i < conflictRingSizes[ringSlot]; i++) {
+            windowConflicts[conflictRing[ringSlot][i]]--;
+        }
+        occupancyRingSizes[ringSlot] = 0;
+        conflictRingSizes[ringSlot] = 0;
+    }
+
+    /**
+     * @param row row of the cell
+     * @param column column of the cell
+     * @return true if the cell lies on the map
+     */
+    private boolean isInBound(int row, int column) {
+        return row >= 0 && row < rows && column >= 0 && column < columns;
+    }
+
+    /**
+     * @param row row of the cell
+     * @param column column of the cell
+     * @return the number of time steps a car stood on the cell
+     */
+    public long getTotalOccupancy(int row, int column) {
+        return totalOccupancy[row * columns + column];
+    }
+
+    /**
+     * @param row row of the cell
+     * @param column column of the cell
+     * @return the number of time steps in which cars collided on the cell
+     */
+    public long getTotalConflicts(int row, int column) {
+        return totalConflicts[row * columns + column];
+    }
+
+    /**
+     * @param row row of the cell
+     * @param column column of the cell
+     * @return the number of time steps in the window a car stood on the cell
+     */
+    public int getWindowOccupancy(int row, int column) {
+        return windowOccupancy[row * columns + column];
+    }
+
+    /**
+     * @param row row of the cell
+     * @param column column of the cell
+     * @return the number of time steps in the window in which cars collided on the cell
+     */
+    public int getWindowConflicts(int row, int column) {
+        return windowConflicts[row * columns + column];
+    }
+
+    /**
+     * @param vertex a vertex of the map
+     * @return the number of time steps a car stood on the vertex
+     */
+    public long getTotalOccupancy(BasicVertex vertex) {
+        return getTotalOccupancy(vertex.getPosition().getRow(), vertex.getPosition().getColumn());
+    }
+
+    /**
+     * @return the occupied time steps in total for every cell, indexed like the vertex array of the map
+     */
+    public long[][] getTotalOccupancyGrid() {
+        return toGrid(totalOccupancy);
+    }
+
+    /**
+     * @return the conflict time steps in total for every cell, indexed like the vertex array of the map
+     */
+    public long[][] getTotalConflictGrid() {
+        return toGrid(totalConflicts);
+    }
+
+    /**
+     * @return the occupied time steps in the window for every cell, indexed like the vertex array of the map
+     */
+    public int[][] getWindowOccupancyGrid() {
+        return toGrid(windowOccupancy);
+    }
+
+    /**
+     * @return the conflict time steps in the window for every cell, indexed like the vertex array of the map
+     */
+    public int[][] getWindowConflictGrid() {
+        return toGrid(windowConflicts);
+    }
+
+    /**
+     * @param counts counts by cell index
+     * @return the counts as rows of the map
+     */
+    private long[][] toGrid(long[] counts) {
+        long[][] grid = new long[rows][];
+        for (int row = 0; row < rows; row++) {
+            grid[row] = Arrays.copyOfRange(counts, row * columns, (row + 1) * columns);
+        }
+        return grid;
+    }
+
+    /**
+     * @param counts counts by cell index
+     * @return the counts as rows of the map
+     */
+    private int[][] toGrid(int[] counts) {
+        int[][] grid = new int[rows][];
+        for (int row = 0; row < rows; row++) {
+            grid[row] = Arrays.copyOfRange(counts, row * columns, (row + 1) * columns);
+        }
+        return grid;
+    }
+
+    /**
+     * @return the number of rows of the map
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns of the map
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of time steps of the sliding window
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return the number of completed time steps
+     */
+    public long getCompletedSteps() {
+        return completedSteps;
+    }
+}
@@ -0,0 +1,443 @@
+package model.trajectories;
+
+import model.Position2D;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Spatio-temporal index over the trajectories of a fleet, filled as a trajectory sink during a simulation.
+ * Time is split into buckets of up to 64 time steps. For every cell and bucket the index keeps a posting list
+ * of the cars that were on the cell, each with a bit mask of the time steps of the bucket they were there.
+ * Posting lists are stored compressed in one byte array: the number of entries followed by the delta of the
+ * car ID to the previous entry and the step mask, all as variable-length integers. A step mask that is one run
+ * of time steps, the common case of a car passing or standing on a cell, is stored as its first step and length.
+ * Records of a bucket are collected in a hash table and written as posting lists once the bucket is complete
+ * or a query is made. Time steps must be recorded in non-decreasing order.
+ */
+public class TrajectoryIndex implements TrajectorySink {
+    /**
+     * Marks an empty slot of the hash table
+     */
+    private static final long EMPTY = -1;
+
+    /**
+     * Number of columns of the map
+     */
+    private final int columns;
+    /**
+     * Number of time steps per bucket
+     */
+    private final int bucketSize;
+    /**
+     * Bucket of every posting list of every cell in ascending order
+     */
+    private int[][] cellBuckets;
+    /**
+     * Start of every posting list of every cell in data
+     */
+    private int[][] cellOffsets;
+    /**
+     * Number of posting lists of every cell
+     */
+    private int[] postingCounts;
+    /**
+     * Compressed posting lists
+     */
+    private byte[] data;
+    /**
+     * Number of used bytes in data
+     */
+    private int dataSize;
+    /**
+     * Keys (cell, car ID) of the hash table of the open bucket, EMPTY for free slots
+     */
+    private long[] openKeys;
+    /**
+     * Step masks of the hash table of the open bucket
+     */
+    private long[] openMasks;
+    /**
+     * Number of entries in the hash table of the open bucket
+     */
+    private int openCount;
+    /**
+     * Bucket collected in the hash table
+     */
+    private int openBucket;
+    /**
+     * Last recorded time step
+     */
+    private int lastTimeStep;
+    /**
+     * Read position in data while decoding a posting list
+     */
+    private int readOffset;
+
+    /**
+     * Constructor of an index with buckets of 64 time steps
+     * @param columns number of columns of the map
+     */
+    public TrajectoryIndex(int columns) {
+        this(columns, 64);
+    }
+
+    /**
+     * Constructor of an index with the given bucket size
+     * @param columns number of columns of the map
+     * @param bucketSize number of time steps per bucket, between 1 and 64
+     */
+    public TrajectoryIndex(int columns, int bucketSize) {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("Number of columns must be positive");
+        }
+        if (bucketSize < 1 || bucketSize > 64) {
+            throw new IllegalArgumentException("Bucket size must be between 1 and 64");
+        }
+        this.columns = columns;
+        this.bucketSize = bucketSize;
+        this.cellBuckets = new int[0][];
+        this.cellOffsets = new int[0][];
+        this.postingCounts = new int[0];
+        this.data = new byte[1 << 12];
+        this.openKeys = new long[1 << 10];
+        this.openMasks = new long[1 << 10];
+        Arrays.fill(openKeys, EMPTY);
+        this.lastTimeStep = Integer.MIN_VALUE;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public void record(int timeStep, int carId, int cell) {
+        if (timeStep < lastTimeStep) {
+            throw new IllegalArgumentException("Time steps must be recorded in non-decreasing order");
+        }
+        if (cell < 0) {
+            throw new IllegalArgumentException("Cell must not be negative");
+        }
+        lastTimeStep = timeStep;
+        int bucket = Math.floorDiv(timeStep, bucketSize);
+        if (bucket != openBucket) {
+            sealOpenBucket();
+            openBucket = bucket;
+        }
+        long key = (long) cell << 32 | ((carId ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+        long mask = 1L << (timeStep - bucket * bucketSize);
+
+        int slot = slotOf(key);
+        if (openKeys[slot] == key) {
+            openMasks[slot] |= mask;
+            return;
+        }
+        openKeys[slot] = key;
+        openMasks[slot] = mask;
+        if (++openCount * 2 > openKeys.length) {
+            growOpenTable();
+        }
+    }
+
+    /**
+     * Finds the slot of a key in the hash table of the open bucket
+     * @param key the key
+     * @return the slot holding the key or the free slot it belongs in
+     */
+    private int slotOf(long key) {
+        int slot = hash(key) & (openKeys.length - 1);
+        while (openKeys[slot] != EMPTY && openKeys[slot] != key) {
+            slot = (slot + 1) & (openKeys.length - 1);
+        }
+        return slot;
+    }
+
+    /**
+     * Mixes all 64 bits of a key into 32 bits, the table takes its slot from the low bits
+     * @param key the key
+     * @return the hash of the key
+     */
+    private static int hash(long key) {
+        long h = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int) (h ^ (h >>> 33));
+    }
+
+    /**
+     * Doubles the hash table of the open bucket
+     */
+    private void growOpenTable() {
+        long[] keys = openKeys;
+        long[] masks = openMasks;
+        openKeys = new long[keys.length * 2];
+        openMasks = new long[keys.length * 2];
+        Arrays.fill(openKeys, EMPTY);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                int slot = slotOf(keys[i]);
+                openKeys[slot] = keys[i];
+                openMasks[slot] = masks[i];
+            }
+        }
+    }
+
+    /**
+     * Writes the posting lists of the open bucket, the entries are sorted by cell and car ID
+     */
+    private void sealOpenBucket() {
+        if (openCount == 0) {
+            return;
+        }
+        long[] keys = new long[openCount];
+        int count = 0;
+        for (long key : openKeys) {
+            if (key != EMPTY) {
+                keys[count++] = key;
+            }
+        }
+        Arrays.sort(keys);
+
+        int start = 0;
+        while (start < count) {
+            int cell = (int) (keys[start] >>> 32);
+            int end = start;
+            while (end < count && (int) (keys[end] >>> 32) == cell) {
+                end++;
+            }
+            addPosting(cell, openBucket);
+            writeVarLong(end - start);
+            int previousId = 0;
+            for (int i = start; i < end; i++) {
+                int carId = (int) keys[i] ^ Integer.MIN_VALUE;
+                writeVarLong(i == start ? zigZag(carId) : (long) carId - previousId);
+                writeMask(openMasks[slotOf(keys[i])]);
+                previousId = carId;
+            }
+            start = end;
+        }
+
+        Arrays.fill(openKeys, EMPTY);
+        openCount = 0;
+    }
+
+    /**
+     * Registers a new posting list of a cell that starts at the end of data
+     * @param cell the cell
+     * @param bucket the bucket of the posting list
+     */
+    private void addPosting(int cell, int bucket) {
+        if (cell >= postingCounts.length) {
+            int length = Math.max(cell + 1, postingCounts.length * 2);
+            cellBuckets = Arrays.copyOf(cellBuckets, length);
+            cellOffsets = Arrays.copyOf(cellOffsets, length);
+            postingCounts = Arrays.copyOf(postingCounts, length);
+        }
+        int count = postingCounts[cell];
+        if (cellBuckets[cell] == null) {
+            cellBuckets[cell] = new int[4];
+            cellOffsets[cell] = new int[4];
+        } else if (count == cellBuckets[cell].length) {
+            cellBuckets[cell] = Arrays.copyOf(cellBuckets[cell], count * 2);
+            cellOffsets[cell] = Arrays.copyOf(cellOffsets[cell], count * 2);
+        }
+        cellBuckets[cell][count] = bucket;
+        cellOffsets[cell][count] = dataSize;
+        postingCounts[cell]++;
+    }
+
+    /**
+     * Appends a non-negative number as variable-length integer to data
+     * @param value the number
+     */
+    private void writeVarLong(long value) {
+        if (dataSize + 10 > data.length) {
+            if (data.length >= Integer.MAX_VALUE / 2) {
+                throw new IllegalStateException("Trajectory index exceeds its maximum size");
+            }
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        while ((value & ~0x7FL) != 0) {
+            data[dataSize++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        data[dataSize++] = (byte) value;
+    }
+
+    /**
+     * Appends a step mask to data: (length - 1, first step, 0) of a single run of steps or a 1 followed by the mask
+     * @param mask the step mask, not 0
+     */
+    private void writeMask(long mask) {
+        int first = Long.numberOfTrailingZeros(mask);
+        long run = mask >>> first;
+        if ((run & (run + 1)) == 0) {
+            writeVarLong((long) (Long.bitCount(mask) - 1) << 7 | (long) first << 1);
+        } else {
+            writeVarLong(1);
+            writeVarLong(mask);
+        }
+    }
+
+    /**
+     * Reads a step mask written by writeMask at readOffset
+     * @return the step mask
+     */
+    private long readMask() {
+        long token = readVarLong();
+        if ((token & 1) != 0) {
+            return readVarLong();
+        }
+        int first = (int) (token >>> 1) & 0x3F;
+        int length = (int) (token >>> 7) + 1;
+        return (length == 64 ? -1L : (1L << length) - 1) << first;
+    }
+
+    /**
+     * @param value a number
+     * @return the number mapped to a non-negative number with small absolute values staying small
+     */
+    private static long zigZag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Finds the cars that were on any of the given positions during a window of time steps
+     * @param positions the positions
+     * @param fromTimeStep first time step of the window
+     * @param toTimeStep last time step of the window
+     * @return the IDs of the cars in ascending order
+     */
+    public int[] query(Collection<Position2D> positions, int fromTimeStep, int toTimeStep) {
+        int[] cells = new int[positions.size()];
+        int count = 0;
+        for (Position2D position : positions) {
+            if (position.getRow() >= 0 && position.getColumn() >= 0 && position.getColumn() < columns) {
+                cells[count++] = position.getRow() * columns + position.getColumn();
+            }
+        }
+        return query(Arrays.copyOf(cells, count), fromTimeStep, toTimeStep);
+    }
+
+    /**
+     * Finds the cars that were on any of the given cells during a window of time steps
+     * @param cells the cells
+     * @param fromTimeStep first time step of the window
+     * @param toTimeStep last time step of the window
+     * @return the IDs of the cars in ascending order
+     */
+    public int[] query(int[] cells, int fromTimeStep, int toTimeStep) {
+        sealOpenBucket();
+        int[] result = new int[16];
+        int resultSize = 0;
+        if (fromTimeStep > toTimeStep) {
+            return new int[0];
+        }
+        int fromBucket = Math.floorDiv(fromTimeStep, bucketSize);
+        int toBucket = Math.floorDiv(toTimeStep, bucketSize);
+
+        for (int cell : cells) {
+            if (cell < 0 || cell >= postingCounts.length) {
+                continue;
+            }
+            int[] buckets = cellBuckets[cell];
+            int posting = lowerBound(buckets, postingCounts[cell], fromBucket);
+            for (; posting < postingCounts[cell] && buckets[posting] <= toBucket; posting++) {
+                long windowMask = windowMask(buckets[posting], fromTimeStep, toTimeStep);
+                readOffset = cellOffsets[cell][posting];
+                long entries = readVarLong();
+                long carId = 0;
+                for (long entry = 0; entry < entries; entry++) {
+                    long value = readVarLong();
+                    carId = entry == 0 ? (value >>> 1) ^ -(value & 1) : carId + value;
+                    if ((readMask() & windowMask) != 0) {
+                        if (resultSize == result.length) {
+                            result = Arrays.copyOf(result, resultSize * 2);
+                        }
+                        result[resultSize++] = (int) carId;
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(result, 0, resultSize);
+        int distinct = 0;
+        for (int i = 0; i < resultSize; i++) {
+            if (distinct == 0 || result[distinct - 1] != result[i]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    /**
+     * @param bucket a bucket
+     * @param fromTimeStep first time step of the window
+     * @param toTimeStep last time step of the window
+     * @return the mask of the time steps of the bucket that lie in the window
+     */
+    private long windowMask(int bucket, int fromTimeStep, int toTimeStep) {
+        long bucketStart = (long) bucket * bucketSize;
+        long first = Math.max(0, fromTimeStep - bucketStart);
+        long last = Math.min(bucketSize - 1, toTimeStep - bucketStart);
+        long upTo = last == 63 ? -1L : (1L << (last + 1)) - 1;
+        return upTo & (-1L << first);
+    }
+
+    /**
+     * @param values ascending values
+     * @param count number of values
+     * @param key searched value
+     * @return the index of the first value not smaller than key
+     */
+    private static int lowerBound(int[] values, int count, int key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads a variable-length integer from data at readOffset and advances readOffset behind it
+     * @return the number
+     */
+    private long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = data[readOffset++];
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while (current < 0);
+        return value;
+    }
+
+    @Override
+    public void stepCompleted(int timeStep) {
+        if (Math.floorDiv(timeStep + 1, bucketSize) != openBucket) {
+            sealOpenBucket();
+        }
+    }
+
+    /**
+     * @return the number of time steps per bucket
+     */
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    /**
+     * @return the number of bytes used by the compressed posting lists
+     */
+    public int getCompressedSize() {
+        return dataSize;
+    }
+}
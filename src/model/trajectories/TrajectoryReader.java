@@ -0,0 +1,170 @@
+package model.trajectories;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming reader of a trajectory file written by TrajectoryWriter.
+ * The file is mapped read-only in windows, next moves to the following record whose fields are then
+ * available through getTimeStep, getCarId and getCell.
+ */
+public class TrajectoryReader implements Closeable {
+    /**
+     * Number of records per mapped window of the file
+     */
+    private static final int WINDOW_RECORDS = 1 << 22;
+
+    /**
+     * Channel of the trajectory file
+     */
+    private final FileChannel channel;
+    /**
+     * Number of columns of the map
+     */
+    private final int columns;
+    /**
+     * Number of records in the file
+     */
+    private final long recordCount;
+    /**
+     * Int view of the currently mapped window
+     */
+    private IntBuffer window;
+    /**
+     * Number of records read so far
+     */
+    private long position;
+    /**
+     * Time step of the current record
+     */
+    private int timeStep;
+    /**
+     * Car ID of the current record
+     */
+    private int carId;
+    /**
+     * Cell of the current record
+     */
+    private int cell;
+
+    /**
+     * Constructor of a reader of the given file
+     * @param path the trajectory file
+     * @throws IOException if the file cannot be read or is no trajectory file
+     */
+    public TrajectoryReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryWriter.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                break;
+            }
+        }
+        header.flip();
+        if (header.remaining() < TrajectoryWriter.HEADER_BYTES || header.getInt() != TrajectoryWriter.MAGIC) {
+            channel.close();
+            throw new IOException("Not a trajectory file: " + path);
+        }
+        this.columns = header.getInt();
+        this.recordCount = header.getLong();
+        if (TrajectoryWriter.HEADER_BYTES + recordCount * TrajectoryWriter.RECORD_BYTES > channel.size()) {
+            channel.close();
+            throw new IOException("Trajectory file is truncated: " + path);
+        }
+    }
+
+    /**
+     * Moves to the next record
+     * @return true if there is a next record, false at the end of the file
+     */
+    public boolean next() {
+        if (position == recordCount) {
+            return false;
+        }
+        if (window == null || !window.hasRemaining()) {
+            mapWindow();
+        }
+        timeStep = window.get();
+        carId = window.get();
+        cell = window.get();
+        position++;
+        return true;
+    }
+
+    /**
+     * Maps the window starting at the current record
+     */
+    private void mapWindow() {
+        long records = Math.min(WINDOW_RECORDS, recordCount - position);
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY,
+                            TrajectoryWriter.HEADER_BYTES + position * TrajectoryWriter.RECORD_BYTES,
+                            records * TrajectoryWriter.RECORD_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the time step of the current record
+     */
+    public int getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * @return the car ID of the current record
+     */
+    public int getCarId() {
+        return carId;
+    }
+
+    /**
+     * @return the cell of the current record
+     */
+    public int getCell() {
+        return cell;
+    }
+
+    /**
+     * @return the row of the cell of the current record
+     */
+    public int getRow() {
+        return cell / columns;
+    }
+
+    /**
+     * @return the column of the cell of the current record
+     */
+    public int getColumn() {
+        return cell % columns;
+    }
+
+    /**
+     * @return the number of columns of the map
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of records in the file
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,57 @@
+package model.trajectories;
+
+/**
+ * Receiver of the positions of the cars of a fleet after every time step.
+ * Positions are cell indices row * columns + column of the map the cars drive on.
+ */
+public interface TrajectorySink {
+    /**
+     * @return the number of columns used to compute the cell indices
+     */
+    int getColumns();
+
+    /**
+     * Records the position of one car in one time step
+     * @param timeStep the time step
+     * @param carId the ID of the car
+     * @param cell the cell of the car
+     */
+    void record(int timeStep, int carId, int cell);
+
+    /**
+     * Called after all positions of a time step have been recorded
+     * @param timeStep the completed time step
+     */
+    default void stepCompleted(int timeStep) {
+    }
+
+    /**
+     * Combines two sinks that use the same number of columns, every record is passed to both
+     * @param first the first sink
+     * @param second the second sink
+     * @return the combined sink
+     */
+    static TrajectorySink both(TrajectorySink first, TrajectorySink second) {
+        if (first.getColumns() != second.getColumns()) {
+            throw new IllegalArgumentException("Sinks must use the same number of columns");
+        }
+        return new TrajectorySink() {
+            @Override
+            public int getColumns() {
+                return first.getColumns();
+            }
+
+            @Override
+            public void record(int timeStep, int carId, int cell) {
+                first.record(timeStep, carId, cell);
+                second.record(timeStep, carId, cell);
+            }
+
+            @Override
+            public void stepCompleted(int timeStep) {
+                first.stepCompleted(timeStep);
+                second.stepCompleted(timeStep);
+            }
+        };
+    }
+}
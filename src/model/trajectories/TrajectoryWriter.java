@@ -0,0 +1,209 @@
+package model.trajectories;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Trajectory sink appending fixed-width records to a memory-mapped file.
+ * The file starts with a 16 byte header: the magic number, the number of columns of the map and the
+ * number of records. Every record holds the time step, the car ID and the cell as three little-endian ints.
+ * Records are collected in an int buffer and copied into the mapping in batches, the file is mapped in
+ * windows that grow it on demand and is cut to its exact length on close.
+ * Attached to a FleetController the log holds every time step once, also after a rewind: time steps that are
+ * simulated again are not passed to the sink.
+ */
+public class TrajectoryWriter implements TrajectorySink, Closeable {
+    /**
+     * Magic number at the start of every trajectory file
+     */
+    static final int MAGIC = 0x4A415254;
+    /**
+     * Size of the header in bytes
+     */
+    static final int HEADER_BYTES = 16;
+    /**
+     * Size of one record in bytes
+     */
+    static final int RECORD_BYTES = 12;
+    /**
+     * Number of records per mapped window of the file
+     */
+    private static final int WINDOW_RECORDS = 1 << 22;
+    /**
+     * Number of records collected before they are copied into the mapping
+     */
+    private static final int BATCH_RECORDS = 1 << 14;
+
+    /**
+     * Channel of the trajectory file
+     */
+    private final FileChannel channel;
+    /**
+     * Number of columns of the map
+     */
+    private final int columns;
+    /**
+     * Records collected since the last copy into the mapping
+     */
+    private final int[] batch;
+    /**
+     * Number of ints in the batch
+     */
+    private int batchSize;
+    /**
+     * The currently mapped window of the file
+     */
+    private MappedByteBuffer window;
+    /**
+     * Int view of the current window
+     */
+    private IntBuffer windowInts;
+    /**
+     * Number of records written to previous windows
+     */
+    private long windowStart;
+    /**
+     * Number of records copied into the mapping
+     */
+    private long recordCount;
+    /**
+     * True after close
+     */
+    private boolean closed;
+
+    /**
+     * Constructor of a writer that creates or replaces the given file
+     * @param path the trajectory file
+     * @param columns number of columns of the map the cells refer to
+     * @throws IOException if the file cannot be opened
+     */
+    public TrajectoryWriter(Path path, int columns) throws IOException {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("Number of columns must be positive");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.columns = columns;
+        this.batch = new int[BATCH_RECORDS * 3];
+        try {
+            mapWindow(0);
+            writeHeader();
+        } catch (RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public void record(int timeStep, int carId, int cell) {
+        if (closed) {
+            throw new IllegalStateException("Trajectory writer is closed");
+        }
+        if (batchSize == batch.length) {
+            drainBatch();
+        }
+        batch[batchSize] = timeStep;
+        batch[batchSize + 1] = carId;
+        batch[batchSize + 2] = cell;
+        batchSize += 3;
+    }
+
+    /**
+     * Copies the collected records into the mapping, switching to the next window whenever one is full
+     */
+    private void drainBatch() {
+        if (closed) {
+            throw new IllegalStateException("Trajectory writer is closed");
+        }
+        int offset = 0;
+        while (offset < batchSize) {
+            if (!windowInts.hasRemaining()) {
+                mapWindow(windowStart + WINDOW_RECORDS);
+            }
+            int length = Math.min(batchSize - offset, windowInts.remaining());
+            windowInts.put(batch, offset, length);
+            offset += length;
+        }
+        recordCount += batchSize / 3;
+        batchSize = 0;
+    }
+
+    /**
+     * Maps the window of the file starting at the given record
+     * @param firstRecord index of the first record of the window
+     */
+    private void mapWindow(long firstRecord) {
+        try {
+            window = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + firstRecord * RECORD_BYTES,
+                    (long) WINDOW_RECORDS * RECORD_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowInts = window.asIntBuffer();
+        windowStart = firstRecord;
+    }
+
+    /**
+     * Writes the header with the current number of records
+     */
+    private void writeHeader() {
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(columns).putLong(recordCount);
+            header.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies all collected records into the file and writes them to the storage device
+     */
+    public void flush() {
+        drainBatch();
+        window.force();
+        writeHeader();
+    }
+
+    /**
+     * @return the number of records written so far
+     */
+    public long getRecordCount() {
+        return recordCount + batchSize / 3;
+    }
+
+    /**
+     * Flushes all records and cuts the file to its exact length
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        window = null;
+        windowInts = null;
+        channel.truncate(HEADER_BYTES + recordCount * RECORD_BYTES);
+        channel.close();
+    }
+}
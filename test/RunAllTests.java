@@ -0,0 +1,43 @@
+/**
+ * Runs the main method of every test class and stops at the first failure.
+ */
+public class RunAllTests {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        Class<?>[] tests = {
+                model.CompactBasicMapTest.class,
+                model.BlockCutIndexTest.class,
+                model.MapOverlayTest.class,
+                model.MapSnapshotTest.class,
+                model.DenseSquareCountTest.class,
+                model.DensityTableTest.class,
+                model.NeighbourCursorTest.class,
+                model.StreetComponentIndexTest.class,
+                model.LineOfSightIndexTest.class,
+                model.distances.DistanceDurationGridTest.class,
+                model.distances.DistanceTimeMapTest.class,
+                model.cameras.CoverSolverTest.class,
+                controller.CameraManagerTest.class,
+                controller.SiteManagerTest.class,
+                model.cars.StoredCarTest.class,
+                model.cars.TimeStepperTest.class,
+                model.cars.TripPlannerTest.class,
+                model.cars.ConflictResolutionTest.class,
+                model.cars.StepModeTest.class,
+                model.cars.FleetCheckpointTest.class,
+                model.cars.FleetControllerTest.class,
+                model.cars.ScenarioRunnerTest.class,
+                model.trajectories.TrajectoryIndexTest.class,
+                model.trajectories.TrajectoryWriterTest.class,
+        };
+        for (Class<?> test : tests) {
+            long start = System.nanoTime();
+            test.getMethod("main", String[].class).invoke(null, (Object) args);
+            System.out.printf("%s passed in %d ms%n", test.getName(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
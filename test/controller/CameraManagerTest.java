@@ -0,0 +1,112 @@
+package controller;
+
+import model.BasicBuilding;
+import model.BasicGreen;
+import model.BasicStreet;
+import model.BasicVertex;
+import model.Position2D;
+import model.SparseMap;
+import model.TestSupport;
+import model.cameras.Camera;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the street coverage of the camera manager with a search of every street in the observed vertices.
+ */
+public class CameraManagerTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        uncoveredStreetsMatchObservedVertices();
+        missingArgumentsAreRejected();
+    }
+
+    /**
+     * Random cameras on random maps leave uncovered exactly the streets that no camera lists as observed, also
+     * after cells of the map were replaced and the vertices a camera observed are no longer on the map.
+     */
+    private static void uncoveredStreetsMatchObservedVertices() {
+        Random random = new Random(7);
+        for (int map = 0; map < 60; map++) {
+            int rows = 1 + random.nextInt(10);
+            int columns = 1 + random.nextInt(10);
+            SparseMap sparseMap = TestSupport.randomMap(random, rows, columns, random.nextDouble());
+            CameraManager manager = new CameraManager(sparseMap, new int[rows][columns]);
+            ArrayList<Camera> cameras = new ArrayList<>();
+            for (int camera = random.nextInt(6); camera > 0; camera--) {
+                cameras.add(new Camera(random.nextInt(5), new Position2D(random.nextInt(rows), random.nextInt(columns)),
+                        sparseMap));
+            }
+            for (int round = 0; round < 4; round++) {
+                String name = "round " + round + " on map " + map;
+                List<BasicVertex> expected = uncoveredStreets(sparseMap, cameras);
+                BitSet expectedCells = new BitSet();
+                for (BasicVertex street : expected) {
+                    expectedCells.set(sparseMap.getCellIndex(street.getPosition().getRow(),
+                            street.getPosition().getColumn()));
+                }
+                checkEquals(expected, manager.getUncoveredStreets(cameras), "uncovered streets in " + name);
+                checkEquals(expectedCells, manager.getUncoveredStreetCells(cameras), "uncovered cells in " + name);
+                checkEquals(expected.isEmpty(), manager.isCameraCover(cameras), "cover in " + name);
+                for (int change = random.nextInt(4); change > 0; change--) {
+                    int row = random.nextInt(rows);
+                    int column = random.nextInt(columns);
+                    int kind = random.nextInt(3);
+                    BasicVertex vertex = kind == 0 ? new BasicStreet(row, column, 0, 1)
+                            : kind == 1 ? new BasicBuilding(row, column, 0, 1) : new BasicGreen(row, column, 0);
+                    vertex.setContainingMap(sparseMap);
+                    sparseMap.replaceVertex(new Position2D(row, column), vertex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Coverage without cameras or without an observed map is refused.
+     */
+    private static void missingArgumentsAreRejected() {
+        CameraManager manager = new CameraManager(TestSupport.randomMap(new Random(8), 3, 3, 0.5), new int[3][3]);
+        try {
+            manager.getUncoveredStreetCells(null);
+            check(false, "coverage without cameras");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        manager.setObservedMap(null);
+        try {
+            manager.getUncoveredStreets(new ArrayList<>());
+            check(false, "coverage without map");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * @return the streets of the map in row-major order that are in no observed vertex list of the cameras
+     */
+    private static List<BasicVertex> uncoveredStreets(SparseMap sparseMap, List<Camera> cameras) {
+        List<BasicVertex> observed = new ArrayList<>();
+        for (Camera camera : cameras) {
+            observed.addAll(camera.getObservedVertices());
+        }
+        List<BasicVertex> uncovered = new ArrayList<>();
+        for (BasicVertex[] row : sparseMap.getSparseVertexArray()) {
+            for (BasicVertex vertex : row) {
+                if (vertex instanceof BasicStreet && !observed.contains(vertex)) {
+                    uncovered.add(vertex);
+                }
+            }
+        }
+        return uncovered;
+    }
+}
@@ -0,0 +1,153 @@
+package controller;
+
+import model.BasicStreet;
+import model.BasicVertex;
+import model.Position2D;
+import model.SparseMap;
+import model.TestSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Checks the what-if queries of the SiteManager against a search on a changed copy of the map, sequentially
+ * and from several threads on one shared map.
+ */
+public class SiteManagerTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        disconnectingSetsMatchSearch();
+        disconnectingSetQueriesRunConcurrently();
+    }
+
+    /**
+     * isDisconnectingSet answers like placing sites, which cannot be driven on, and counting the components.
+     */
+    private static void disconnectingSetsMatchSearch() {
+        Random random = new Random(22);
+        for (int map = 0; map < 2000; map++) {
+            SparseMap sparseMap = TestSupport.randomMap(random, 1 + random.nextInt(8), 1 + random.nextInt(8),
+                    random.nextDouble());
+            SiteManager siteManager = new SiteManager(sparseMap);
+            checkEquals(countDrivableComponents(sparseMap, List.of()), siteManager.countComponents(), "components");
+            for (int query = 0; query < 5; query++) {
+                ArrayList<Position2D> positions = randomPositions(random, sparseMap, random.nextInt(4));
+                int modifications = sparseMap.getModificationCount();
+                boolean expected = countDrivableComponents(sparseMap, positions)
+                        > countDrivableComponents(sparseMap, List.of());
+                checkEquals(expected, siteManager.isDisconnectingSet(positions), "disconnecting set on map " + map);
+                checkEquals(modifications, sparseMap.getModificationCount(), "isDisconnectingSet changed the map");
+            }
+        }
+    }
+
+    /**
+     * Eight threads ask isDisconnectingSet on one map and get the sequential answers.
+     */
+    private static void disconnectingSetQueriesRunConcurrently() throws Exception {
+        Random random = new Random(5);
+        SparseMap sparseMap = TestSupport.randomMap(random, 60, 60, 0.7);
+        SiteManager siteManager = new SiteManager(sparseMap);
+        List<ArrayList<Position2D>> queries = new ArrayList<>();
+        List<Boolean> expected = new ArrayList<>();
+        for (int query = 0; query < 400; query++) {
+            ArrayList<Position2D> positions = randomPositions(random, sparseMap, 1 + random.nextInt(6));
+            queries.add(positions);
+            expected.add(siteManager.isDisconnectingSet(positions));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread;
+                results.add(pool.submit(() -> {
+                    for (int query = offset % 2; query < queries.size(); query += 2) {
+                        checkEquals(expected.get(query), siteManager.isDisconnectingSet(queries.get(query)),
+                                "concurrent disconnecting set " + query);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (BasicVertex[] row : sparseMap.getSparseVertexArray()) {
+            for (BasicVertex vertex : row) {
+                check(!(vertex instanceof model.sites.Site), "site left in the map");
+            }
+        }
+    }
+
+    /**
+     * @return distinct random positions of the map
+     */
+    private static ArrayList<Position2D> randomPositions(Random random, SparseMap map, int count) {
+        int rows = map.getRows();
+        int columns = map.getColumns();
+        ArrayList<Position2D> positions = new ArrayList<>();
+        boolean[] used = new boolean[rows * columns];
+        for (int i = 0; i < count; i++) {
+            int cell = random.nextInt(rows * columns);
+            if (!used[cell]) {
+                used[cell] = true;
+                positions.add(new Position2D(cell / columns, cell % columns));
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Counts the components of the streets with a speed limit other than 0, the given positions count as sites.
+     */
+    private static int countDrivableComponents(SparseMap map, List<Position2D> sites) {
+        int rows = map.getRows();
+        int columns = map.getColumns();
+        boolean[] drivable = new boolean[rows * columns];
+        for (int cell = 0; cell < drivable.length; cell++) {
+            drivable[cell] = map.getVertex(cell / columns, cell % columns) instanceof BasicStreet street
+                    && street.getSpeedLimit() != 0;
+        }
+        for (Position2D site : sites) {
+            drivable[site.getRow() * columns + site.getColumn()] = false;
+        }
+        boolean[] seen = new boolean[drivable.length];
+        int[] stack = new int[drivable.length];
+        int components = 0;
+        for (int cell = 0; cell < drivable.length; cell++) {
+            if (!drivable[cell] || seen[cell]) {
+                continue;
+            }
+            components++;
+            seen[cell] = true;
+            int size = 0;
+            stack[size++] = cell;
+            while (size > 0) {
+                int current = stack[--size];
+                int row = current / columns;
+                int column = current % columns;
+                int[] neighbours = {row > 0 ? current - columns : -1, row < rows - 1 ? current + columns : -1,
+                        column > 0 ? current - 1 : -1, column < columns - 1 ? current + 1 : -1};
+                for (int neighbour : neighbours) {
+                    if (neighbour >= 0 && drivable[neighbour] && !seen[neighbour]) {
+                        seen[neighbour] = true;
+                        stack[size++] = neighbour;
+                    }
+                }
+            }
+        }
+        return components;
+    }
+}
@@ -0,0 +1,292 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the block-cut index with a plain search over the streets, sequentially and from several threads.
+ */
+public class BlockCutIndexTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        connectionMatchesSearchAfterChanges();
+        articulationsMatchSearch();
+        concurrentQueriesMatchSequentialAnswers();
+        queriesSurviveConcurrentChanges();
+    }
+
+    /**
+     * Random queries on random maps whose streets change between the queries.
+     */
+    private static void connectionMatchesSearchAfterChanges() {
+        Random random = new Random(21);
+        for (int map = 0; map < 300; map++) {
+            int rows = 2 + random.nextInt(12);
+            int columns = 2 + random.nextInt(12);
+            boolean[] streets = randomStreets(random, rows * columns, 0.3 + random.nextDouble() * 0.6);
+            BlockCutIndex index = new BlockCutIndex(toVertexArray(streets, rows, columns));
+            for (int query = 0; query < 60; query++) {
+                if (random.nextInt(3) == 0) {
+                    int cell = random.nextInt(rows * columns);
+                    streets[cell] = !streets[cell];
+                    index.setStreet(cell, streets[cell]);
+                }
+                int[] from = randomCells(random, rows * columns, 1 + random.nextInt(3));
+                int[] to = randomCells(random, rows * columns, 1 + random.nextInt(3));
+                int[] removed = randomCells(random, rows * columns, random.nextInt(8));
+                checkEquals(isConnectedBySearch(streets, rows, columns, from, to, removed),
+                        index.isConnectedWithout(from, to, removed), "connection on map " + map + " query " + query);
+            }
+        }
+    }
+
+    /**
+     * Every street is an articulation exactly if removing it splits its component.
+     */
+    private static void articulationsMatchSearch() {
+        Random random = new Random(42);
+        for (int map = 0; map < 200; map++) {
+            int rows = 2 + random.nextInt(10);
+            int columns = 2 + random.nextInt(10);
+            boolean[] streets = randomStreets(random, rows * columns, 0.4 + random.nextDouble() * 0.5);
+            BlockCutIndex index = new BlockCutIndex(toVertexArray(streets, rows, columns));
+            int before = countComponents(streets, rows, columns);
+            for (int cell = 0; cell < streets.length; cell++) {
+                boolean expected = false;
+                if (streets[cell]) {
+                    streets[cell] = false;
+                    expected = countComponents(streets, rows, columns) > before;
+                    streets[cell] = true;
+                }
+                checkEquals(expected, index.isArticulation(cell), "articulation " + cell + " on map " + map);
+            }
+        }
+    }
+
+    /**
+     * Eight threads query one index and get the answers of a sequential run.
+     */
+    private static void concurrentQueriesMatchSequentialAnswers() throws Exception {
+        Random random = new Random(7);
+        int rows = 120;
+        int columns = 120;
+        boolean[] streets = randomStreets(random, rows * columns, 0.7);
+        BlockCutIndex index = new BlockCutIndex(toVertexArray(streets, rows, columns));
+        int queryCount = 4000;
+        int[][] from = new int[queryCount][];
+        int[][] to = new int[queryCount][];
+        int[][] removed = new int[queryCount][];
+        boolean[] expected = new boolean[queryCount];
+        for (int query = 0; query < queryCount; query++) {
+            from[query] = randomCells(random, rows * columns, 2);
+            to[query] = randomCells(random, rows * columns, 2);
+            removed[query] = randomPath(random, streets, rows, columns);
+            expected[query] = isConnectedBySearch(streets, rows, columns, from[query], to[query], removed[query]);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread;
+                results.add(pool.submit(() -> {
+                    for (int round = 0; round < 3; round++) {
+                        for (int query = offset; query < queryCount; query += 3) {
+                            checkEquals(expected[query],
+                                    index.isConnectedWithout(from[query], to[query], removed[query]),
+                                    "concurrent query " + query);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Readers keep querying while a writer changes streets, afterwards the index answers like a fresh one.
+     */
+    private static void queriesSurviveConcurrentChanges() throws Exception {
+        Random random = new Random(3);
+        int rows = 80;
+        int columns = 80;
+        boolean[] streets = randomStreets(random, rows * columns, 0.7);
+        BlockCutIndex index = new BlockCutIndex(toVertexArray(streets, rows, columns));
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int thread = 0; thread < 7; thread++) {
+                long seed = thread;
+                readers.add(pool.submit(() -> {
+                    Random local = new Random(seed);
+                    while (!stop.get()) {
+                        index.isConnectedWithout(randomCells(local, rows * columns, 2),
+                                randomCells(local, rows * columns, 2), randomCells(local, rows * columns, 6));
+                        index.isArticulation(local.nextInt(rows * columns));
+                    }
+                }));
+            }
+            for (int change = 0; change < 5000; change++) {
+                int cell = random.nextInt(rows * columns);
+                streets[cell] = !streets[cell];
+                index.setStreet(cell, streets[cell]);
+            }
+            stop.set(true);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int query = 0; query < 2000; query++) {
+            int[] from = randomCells(random, rows * columns, 2);
+            int[] to = randomCells(random, rows * columns, 2);
+            int[] removed = randomCells(random, rows * columns, 6);
+            checkEquals(isConnectedBySearch(streets, rows, columns, from, to, removed),
+                    index.isConnectedWithout(from, to, removed), "query after changes " + query);
+        }
+    }
+
+    /**
+     * @return random street flags
+     */
+    private static boolean[] randomStreets(Random random, int cells, double share) {
+        boolean[] streets = new boolean[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            streets[cell] = random.nextDouble() < share;
+        }
+        return streets;
+    }
+
+    /**
+     * @return random cell indices, possibly repeated
+     */
+    private static int[] randomCells(Random random, int cells, int count) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = random.nextInt(cells);
+        }
+        return result;
+    }
+
+    /**
+     * @return the cells of a random walk over streets, like the interior of a path handed to isCrucialPath
+     */
+    private static int[] randomPath(Random random, boolean[] streets, int rows, int columns) {
+        int cell = random.nextInt(streets.length);
+        int length = 1 + random.nextInt(10);
+        int[] path = new int[length];
+        for (int i = 0; i < length; i++) {
+            path[i] = cell;
+            int row = cell / columns + random.nextInt(3) - 1;
+            int column = cell % columns + random.nextInt(3) - 1;
+            if (row >= 0 && row < rows && column >= 0 && column < columns && streets[row * columns + column]) {
+                cell = row * columns + column;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * @return a vertex array with streets on the flagged cells and buildings elsewhere
+     */
+    private static BasicVertex[][] toVertexArray(boolean[] streets, int rows, int columns) {
+        BasicVertex[][] vertexArray = new BasicVertex[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                vertexArray[row][column] = streets[row * columns + column]
+                        ? new BasicStreet(row, column, 0, 1) : new BasicBuilding(row, column, 0, 1);
+            }
+        }
+        return vertexArray;
+    }
+
+    /**
+     * Breadth-first search from the first set to the second over the streets that are not removed.
+     */
+    private static boolean isConnectedBySearch(boolean[] streets, int rows, int columns, int[] from, int[] to,
+                                               int[] removed) {
+        boolean[] blocked = new boolean[streets.length];
+        for (int cell : removed) {
+            blocked[cell] = true;
+        }
+        boolean[] targets = new boolean[streets.length];
+        for (int cell : to) {
+            targets[cell] = streets[cell] && !blocked[cell];
+        }
+        boolean[] seen = new boolean[streets.length];
+        int[] queue = new int[streets.length];
+        int tail = 0;
+        for (int cell : from) {
+            if (streets[cell] && !blocked[cell] && !seen[cell]) {
+                seen[cell] = true;
+                queue[tail++] = cell;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            if (targets[cell]) {
+                return true;
+            }
+            int row = cell / columns;
+            int column = cell % columns;
+            int[] neighbours = {row > 0 ? cell - columns : -1, row < rows - 1 ? cell + columns : -1,
+                    column > 0 ? cell - 1 : -1, column < columns - 1 ? cell + 1 : -1};
+            for (int neighbour : neighbours) {
+                if (neighbour >= 0 && streets[neighbour] && !blocked[neighbour] && !seen[neighbour]) {
+                    seen[neighbour] = true;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of street components
+     */
+    private static int countComponents(boolean[] streets, int rows, int columns) {
+        boolean[] seen = new boolean[streets.length];
+        int[] stack = new int[streets.length];
+        int components = 0;
+        for (int cell = 0; cell < streets.length; cell++) {
+            if (!streets[cell] || seen[cell]) {
+                continue;
+            }
+            components++;
+            seen[cell] = true;
+            int size = 0;
+            stack[size++] = cell;
+            while (size > 0) {
+                int current = stack[--size];
+                int row = current / columns;
+                int column = current % columns;
+                int[] neighbours = {row > 0 ? current - columns : -1, row < rows - 1 ? current + columns : -1,
+                        column > 0 ? current - 1 : -1, column < columns - 1 ? current + 1 : -1};
+                for (int neighbour : neighbours) {
+                    if (neighbour >= 0 && streets[neighbour] && !seen[neighbour]) {
+                        seen[neighbour] = true;
+                        stack[size++] = neighbour;
+                    }
+                }
+            }
+        }
+        return components;
+    }
+}
@@ -0,0 +1,183 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the compact map and the vertices it hands out with a BasicMap built from the same data.
+ */
+public class CompactBasicMapTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        answersMatchBasicMap();
+        verticesWriteThrough();
+    }
+
+    /**
+     * Random maps answer the map queries like a BasicMap, and their vertices have the kind, value, speed limit,
+     * height, neighbours and street connections of the vertices of the BasicMap.
+     */
+    private static void answersMatchBasicMap() {
+        Random random = new Random(1);
+        int validPaths = 0;
+        for (int map = 0; map < 80; map++) {
+            int rows = 1 + random.nextInt(8);
+            int columns = 1 + random.nextInt(8);
+            double streetShare = random.nextDouble();
+            int[][] baseData = new int[rows][columns];
+            int[][] valueData = new int[rows][columns];
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    baseData[row][column] = random.nextDouble() < streetShare ? 2 : 1 + random.nextInt(4);
+                    valueData[row][column] = random.nextInt(3);
+                }
+            }
+            BasicMap basicMap = basicMapOf(baseData, valueData);
+            CompactBasicMap compactMap = new CompactBasicMap(baseData);
+            compactMap.putValuesToBasicMap(valueData);
+            String name = "map " + map;
+
+            checkEquals(basicMap.countBasicStreets(), compactMap.countBasicStreets(), "streets of " + name);
+            checkEquals(basicMap.countBasicBuildings(), compactMap.countBasicBuildings(), "buildings of " + name);
+            checkEquals(basicMap.countBasicGreens(), compactMap.countBasicGreens(), "greens of " + name);
+            for (int value = 0; value < 3; value++) {
+                checkEquals(basicMap.countBasicVerticesWithValue(value), compactMap.countBasicVerticesWithValue(value),
+                        "vertices with value " + value + " of " + name);
+                checkEquals(basicMap.isBasicPathByValue(value), compactMap.isBasicPathByValue(value),
+                        "path by value " + value + " of " + name);
+            }
+            checkEquals(basicMap.hasValidBuildingPlacements(), compactMap.hasValidBuildingPlacements(),
+                    "building placements of " + name);
+            checkEquals(basicMap.isValidBasicMap(), compactMap.isValidBasicMap(), "validity of " + name);
+
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    BasicVertex expected = basicMap.getVertexArray()[row][column];
+                    BasicVertex actual = compactMap.getBasicVertex(new Position2D(row, column)).orElseThrow();
+                    String cell = "cell " + row + "," + column + " of " + name;
+                    checkEquals(expected.getClass(), actual.getClass().getSuperclass(), "kind of " + cell);
+                    checkEquals(expected.getValue(), actual.getValue(), "value of " + cell);
+                    if (expected instanceof BasicStreet street) {
+                        checkEquals(street.getSpeedLimit(), ((BasicStreet) actual).getSpeedLimit(),
+                                "speed limit of " + cell);
+                    }
+                    if (expected instanceof BasicBuilding building) {
+                        checkEquals(building.getHeight(), ((BasicBuilding) actual).getHeight(), "height of " + cell);
+                    }
+                    checkEquals(compactMap, actual.getContainingMap(), "containing map of " + cell);
+                    checkEquals(expected.isOnBound(), actual.isOnBound(), "bound of " + cell);
+                    checkEquals(expected.isOnCorner(), actual.isOnCorner(), "corner of " + cell);
+                    checkEquals(positionsOf(expected.getNeighbours()), positionsOf(actual.getNeighbours()),
+                            "neighbours of " + cell);
+                    check(actual == compactMap.getVertexArray()[row][column], "vertex array at " + cell);
+                }
+            }
+
+            for (int pair = 0; pair < 30; pair++) {
+                int fromRow = random.nextInt(rows);
+                int fromColumn = random.nextInt(columns);
+                int toRow = random.nextInt(rows);
+                int toColumn = random.nextInt(columns);
+                checkEquals(basicMap.getVertexArray()[fromRow][fromColumn]
+                                .isBasicStreetConnectedTo(basicMap.getVertexArray()[toRow][toColumn]),
+                        compactMap.getVertexArray()[fromRow][fromColumn]
+                                .isBasicStreetConnectedTo(compactMap.getVertexArray()[toRow][toColumn]),
+                        "street connection of " + fromRow + "," + fromColumn + " and " + toRow + "," + toColumn
+                                + " on " + name);
+            }
+
+            for (int walk = 0; walk < 30; walk++) {
+                ArrayList<BasicVertex> basicPath = new ArrayList<>();
+                ArrayList<BasicVertex> compactPath = new ArrayList<>();
+                int row = random.nextInt(rows);
+                int column = random.nextInt(columns);
+                for (int length = 2 + random.nextInt(5); basicPath.size() < length; ) {
+                    basicPath.add(basicMap.getVertexArray()[row][column]);
+                    compactPath.add(compactMap.getVertexArray()[row][column]);
+                    int direction = random.nextInt(4);
+                    row = Math.clamp(row + (direction == 0 ? -1 : direction == 1 ? 1 : 0), 0, rows - 1);
+                    column = Math.clamp(column + (direction == 2 ? -1 : direction == 3 ? 1 : 0), 0, columns - 1);
+                }
+                boolean expected = basicMap.isBasicPathOverStreets(basicPath);
+                checkEquals(expected, compactMap.isBasicPathOverStreets(compactPath), "walk " + walk + " on " + name);
+                if (expected) {
+                    validPaths++;
+                }
+            }
+
+            checkEquals(false, compactMap.getBasicVertex(new Position2D(rows, 0)).isPresent(), "row outside " + name);
+            checkEquals(false, compactMap.getBasicVertex(new Position2D(0, -1)).isPresent(),
+                    "column outside " + name);
+        }
+        check(validPaths > 0, "no walk was a path over streets");
+    }
+
+    /**
+     * Values, speed limits and heights written through a vertex are read by the map, and the ones written
+     * through the map are read by the vertex.
+     */
+    private static void verticesWriteThrough() {
+        CompactBasicMap compactMap = new CompactBasicMap(new int[][]{{1, 2}, {3, 4}});
+        BasicVertex vertex = compactMap.getBasicVertex(new Position2D(0, 0)).orElseThrow();
+        BasicStreet street = (BasicStreet) compactMap.getBasicVertex(new Position2D(0, 1)).orElseThrow();
+        BasicBuilding building = (BasicBuilding) compactMap.getBasicVertex(new Position2D(1, 0)).orElseThrow();
+        BasicVertex green = compactMap.getBasicVertex(new Position2D(1, 1)).orElseThrow();
+        check(vertex == compactMap.getBasicVertex(new Position2D(0, 0)).orElseThrow(), "same vertex per cell");
+
+        vertex.setValue(4);
+        street.setValue(5);
+        street.setSpeedLimit(30);
+        building.setValue(6);
+        building.setHeight(12);
+        green.setValue(7);
+        checkEquals(4, compactMap.getValue(0, 0), "value written through a vertex");
+        checkEquals(5, compactMap.getValue(0, 1), "value written through a street");
+        checkEquals(30, compactMap.getSpeedLimit(0, 1), "speed limit written through a street");
+        checkEquals(6, compactMap.getValue(1, 0), "value written through a building");
+        checkEquals(12, compactMap.getHeight(1, 0), "height written through a building");
+        checkEquals(7, compactMap.getValue(1, 1), "value written through a green area");
+        checkEquals(1, compactMap.countBasicVerticesWithValue(7), "count after a write through a vertex");
+
+        compactMap.setValue(0, 1, 8);
+        compactMap.setSpeedLimit(0, 1, 50);
+        compactMap.setHeight(1, 0, 3);
+        compactMap.putValuesToBasicMap(new int[][]{{9, 8}, {9, 9}});
+        checkEquals(9, vertex.getValue(), "value written through the map");
+        checkEquals(8, street.getValue(), "street value written through the map");
+        checkEquals(50, street.getSpeedLimit(), "speed limit written through the map");
+        checkEquals(3, building.getHeight(), "height written through the map");
+    }
+
+    /**
+     * @return a BasicMap with all containing maps set, like BasicController builds it
+     */
+    private static BasicMap basicMapOf(int[][] baseData, int[][] valueData) {
+        BasicMap basicMap = new BasicMap(baseData);
+        basicMap.putValuesToBasicMap(valueData);
+        for (BasicVertex[] row : basicMap.getVertexArray()) {
+            for (BasicVertex vertex : row) {
+                vertex.setContainingMap(basicMap);
+            }
+        }
+        return basicMap;
+    }
+
+    /**
+     * @return the positions of the vertices as row,column in list order
+     */
+    private static String positionsOf(Iterable<BasicVertex> vertices) {
+        StringBuilder positions = new StringBuilder();
+        for (BasicVertex vertex : vertices) {
+            positions.append(vertex.getPosition().getRow()).append(',').append(vertex.getPosition().getColumn())
+                    .append(' ');
+        }
+        return positions.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the running count of dense squares of a map with a count over the whole map after every change.
+ */
+public class DenseSquareCountTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        countFollowsChanges();
+    }
+
+    /**
+     * Random maps with many streets and some empty cells are changed cell by cell, through the hospital and police
+     * station writers and by direct writes followed by invalidateIndexes. The count and isSparse agree with a
+     * count over the whole map after every change, whether the count was taken before the change or not.
+     */
+    private static void countFollowsChanges() {
+        Random random = new Random(24);
+        for (int map = 0; map < 40; map++) {
+            int rows = 1 + random.nextInt(12);
+            int columns = 1 + random.nextInt(12);
+            SparseMap sparseMap = TestSupport.mapOf(randomBaseData(random, rows, columns));
+            for (int change = 0; change < 200; change++) {
+                String name = "change " + change + " on map " + map;
+                if (random.nextInt(4) > 0) {
+                    checkEquals(denseSquares(sparseMap), sparseMap.getDenseSquareCount(), "count before " + name);
+                }
+                int row = random.nextInt(rows);
+                int column = random.nextInt(columns);
+                Position2D position = new Position2D(row, column);
+                int kind = random.nextInt(10);
+                if (kind < 7) {
+                    sparseMap.replaceVertex(position, randomVertex(random, row, column));
+                } else if (kind == 7) {
+                    ArrayList<Position2D> positions = new ArrayList<>();
+                    positions.add(position);
+                    if (random.nextBoolean()) {
+                        sparseMap.putHospitals(positions);
+                    } else {
+                        sparseMap.putPoliceStations(positions);
+                    }
+                } else {
+                    sparseMap.getSparseVertexArray()[row][column] = randomVertex(random, row, column);
+                    sparseMap.invalidateIndexes();
+                }
+                int expected = denseSquares(sparseMap);
+                checkEquals(expected, sparseMap.getDenseSquareCount(), "count after " + name);
+                checkEquals(expected == 0, sparseMap.isSparse(), "sparseness after " + name);
+            }
+        }
+    }
+
+    /**
+     * @return base data with mostly streets, some buildings, green areas and empty cells
+     */
+    private static int[][] randomBaseData(Random random, int rows, int columns) {
+        int[][] baseData = new int[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                baseData[row][column] = random.nextDouble() < 0.7 ? 2 : random.nextInt(4) + 1;
+            }
+        }
+        return baseData;
+    }
+
+    /**
+     * @return a street in most cases, a building or a green area otherwise
+     */
+    private static BasicVertex randomVertex(Random random, int row, int column) {
+        int kind = random.nextInt(4);
+        if (kind < 2) {
+            return new BasicStreet(row, column, 0, 1 + random.nextInt(30));
+        }
+        return kind == 2 ? new BasicBuilding(row, column, 0, 1) : new BasicGreen(row, column, 0);
+    }
+
+    /**
+     * @return the number of 2x2 squares of the map made of four streets
+     */
+    private static int denseSquares(SparseMap sparseMap) {
+        int count = 0;
+        for (int row = 0; row + 1 < sparseMap.getRows(); row++) {
+            for (int column = 0; column + 1 < sparseMap.getColumns(); column++) {
+                if (sparseMap.getVertex(row, column) instanceof BasicStreet
+                        && sparseMap.getVertex(row, column + 1) instanceof BasicStreet
+                        && sparseMap.getVertex(row + 1, column) instanceof BasicStreet
+                        && sparseMap.getVertex(row + 1, column + 1) instanceof BasicStreet) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,187 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the counts and the square stream of the density table with counts over the cells of the map.
+ */
+public class DensityTableTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        countsMatchCellCounts();
+        squaresMatchSortedCellCounts();
+        rectanglesOutsideTheMapAreRejected();
+    }
+
+    /**
+     * Every rectangle of random maps with empty cells, hospitals and police stations has the counts of its cells.
+     */
+    private static void countsMatchCellCounts() {
+        Random random = new Random(25);
+        for (int map = 0; map < 40; map++) {
+            SparseMap sparseMap = randomMap(random);
+            DensityTable table = sparseMap.getDensityTable();
+            checkEquals(sparseMap.getRows(), table.getRows(), "rows of map " + map);
+            checkEquals(sparseMap.getColumns(), table.getColumns(), "columns of map " + map);
+            for (int rectangle = 0; rectangle < 300; rectangle++) {
+                int row = random.nextInt(sparseMap.getRows() + 1);
+                int column = random.nextInt(sparseMap.getColumns() + 1);
+                int height = random.nextInt(sparseMap.getRows() - row + 1);
+                int width = random.nextInt(sparseMap.getColumns() - column + 1);
+                int[] expected = countCells(sparseMap, row, column, height, width);
+                String name = "rectangle " + row + "," + column + " " + height + "x" + width + " on map " + map;
+                checkEquals(expected[0], table.countStreets(row, column, height, width), "streets of " + name);
+                checkEquals(expected[1], table.countBuildings(row, column, height, width), "buildings of " + name);
+                checkEquals(expected[2], table.countGreens(row, column, height, width), "greens of " + name);
+                checkEquals(expected[3], table.countVertices(row, column, height, width), "vertices of " + name);
+                if (height == width) {
+                    checkEquals(expected[0], table.countStreetsInSquare(row, column, height), "streets of " + name);
+                    checkEquals(expected[1], table.countBuildingsInSquare(row, column, height), "buildings of " + name);
+                    checkEquals(expected[2], table.countGreensInSquare(row, column, height), "greens of " + name);
+                }
+            }
+        }
+    }
+
+    /**
+     * The stream of squares holds every square without empty cells once, ordered by the number of streets and
+     * then row by row, also after the map changed and for squares larger than the map.
+     */
+    private static void squaresMatchSortedCellCounts() {
+        Random random = new Random(26);
+        for (int map = 0; map < 40; map++) {
+            SparseMap sparseMap = randomMap(random);
+            for (int round = 0; round < 3; round++) {
+                for (int size = 1; size <= 5; size++) {
+                    String name = "size " + size + " in round " + round + " on map " + map;
+                    checkEquals(expectedSquares(sparseMap, size), describe(sparseMap.computeAllSquares(size)
+                            .collect(Collectors.toList())), "squares of " + name);
+                }
+                for (int change = 0; change < 5; change++) {
+                    int row = random.nextInt(sparseMap.getRows());
+                    int column = random.nextInt(sparseMap.getColumns());
+                    int kind = random.nextInt(3);
+                    sparseMap.replaceVertex(new Position2D(row, column), kind == 0 ? new BasicStreet(row, column, 0, 1)
+                            : kind == 1 ? new BasicBuilding(row, column, 0, 1) : new BasicGreen(row, column, 0));
+                }
+            }
+        }
+    }
+
+    /**
+     * Rectangles reaching over the border of the map and squares without size are refused.
+     */
+    private static void rectanglesOutsideTheMapAreRejected() {
+        DensityTable table = randomMap(new Random(27)).getDensityTable();
+        int[][] rectangles = {{-1, 0, 1, 1}, {0, -1, 1, 1}, {0, 0, -1, 1}, {0, 0, 1, -1},
+                {0, 0, table.getRows() + 1, 1}, {0, 0, 1, table.getColumns() + 1}, {table.getRows(), 0, 1, 1}};
+        for (int[] rectangle : rectangles) {
+            try {
+                table.countStreets(rectangle[0], rectangle[1], rectangle[2], rectangle[3]);
+                check(false, "rectangle " + rectangle[0] + "," + rectangle[1] + " outside the map");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+        try {
+            table.streamSquares(0);
+            check(false, "squares of size 0");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * @return a random map with empty cells, hospitals and police stations
+     */
+    private static SparseMap randomMap(Random random) {
+        int rows = 1 + random.nextInt(10);
+        int columns = 1 + random.nextInt(10);
+        int[][] baseData = new int[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                baseData[row][column] = random.nextInt(10) == 0 ? 1 : 2 + random.nextInt(3);
+            }
+        }
+        SparseMap sparseMap = TestSupport.mapOf(baseData);
+        ArrayList<Position2D> hospitals = new ArrayList<>();
+        ArrayList<Position2D> policeStations = new ArrayList<>();
+        for (int site = 0; site < 3; site++) {
+            hospitals.add(new Position2D(random.nextInt(rows), random.nextInt(columns)));
+            policeStations.add(new Position2D(random.nextInt(rows), random.nextInt(columns)));
+        }
+        sparseMap.putHospitals(hospitals);
+        sparseMap.putPoliceStations(policeStations);
+        return sparseMap;
+    }
+
+    /**
+     * @return the streets, buildings, green areas and vertices of a rectangle
+     */
+    private static int[] countCells(SparseMap sparseMap, int row, int column, int height, int width) {
+        int[] counts = new int[4];
+        for (int i = row; i < row + height; i++) {
+            for (int j = column; j < column + width; j++) {
+                BasicVertex vertex = sparseMap.getVertex(i, j);
+                if (vertex instanceof BasicStreet) {
+                    counts[0]++;
+                } else if (vertex instanceof BasicBuilding) {
+                    counts[1]++;
+                } else if (vertex instanceof BasicGreen) {
+                    counts[2]++;
+                }
+                if (vertex != null) {
+                    counts[3]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return the squares of the map without empty cells sorted by streets, row and column, as in describe
+     */
+    private static List<String> expectedSquares(SparseMap sparseMap, int size) {
+        List<int[]> squares = new ArrayList<>();
+        for (int row = 0; row + size <= sparseMap.getRows(); row++) {
+            for (int column = 0; column + size <= sparseMap.getColumns(); column++) {
+                int[] counts = countCells(sparseMap, row, column, size, size);
+                if (counts[3] == size * size) {
+                    squares.add(new int[]{counts[0], row, column, counts[1], counts[2]});
+                }
+            }
+        }
+        squares.sort(Comparator.<int[]>comparingInt(square -> square[0]).thenComparingInt(square -> square[1])
+                .thenComparingInt(square -> square[2]));
+        List<String> described = new ArrayList<>();
+        for (int[] square : squares) {
+            described.add(square[1] + "," + square[2] + " " + size + " " + square[0] + "/" + square[3] + "/"
+                    + square[4] + " " + (square[0] < size * size));
+        }
+        return described;
+    }
+
+    /**
+     * @return position, size, counts and sparseness of every window
+     */
+    private static List<String> describe(List<SquareWindow> windows) {
+        List<String> described = new ArrayList<>();
+        for (SquareWindow window : windows) {
+            described.add(window.getRow() + "," + window.getColumn() + " " + window.getSize() + " "
+                    + window.getStreetCount() + "/" + window.getBuildingCount() + "/" + window.getGreenCount() + " "
+                    + window.isSparse());
+        }
+        return described;
+    }
+}
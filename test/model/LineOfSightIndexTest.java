@@ -0,0 +1,165 @@
+package model;
+
+import model.cameras.Camera;
+import model.sites.Hospital;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the line of sight index and the cameras built on it with scans over the cells between two cells.
+ */
+public class LineOfSightIndexTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        updatesMatchFreshIndex();
+        camerasMatchScans();
+    }
+
+    /**
+     * Buildings, hospitals and other cells replace each other on random maps. After every change the index the
+     * new snapshot derived from the previous one holds the same nearest buildings as an index built from
+     * scratch, and answers visibility like a scan.
+     */
+    private static void updatesMatchFreshIndex() {
+        Random random = new Random(9);
+        for (int map = 0; map < 40; map++) {
+            int rows = 1 + random.nextInt(9);
+            int columns = 1 + random.nextInt(9);
+            SparseMap sparseMap = TestSupport.randomMap(random, rows, columns, random.nextDouble());
+            sparseMap.getLineOfSightIndex();
+            for (int change = 0; change < 60; change++) {
+                String name = "change " + change + " on map " + map;
+                replaceRandomCell(sparseMap, random);
+                LineOfSightIndex updated = sparseMap.getLineOfSightIndex();
+                LineOfSightIndex fresh = new LineOfSightIndex(sparseMap.getSparseVertexArray());
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < columns; column++) {
+                        String cell = "cell " + row + "," + column + " after " + name;
+                        checkEquals(fresh.isBuilding(row, column), updated.isBuilding(row, column), "building " + cell);
+                        checkEquals(fresh.getBuildingUp(row, column), updated.getBuildingUp(row, column), "up " + cell);
+                        checkEquals(fresh.getBuildingDown(row, column), updated.getBuildingDown(row, column),
+                                "down " + cell);
+                        checkEquals(fresh.getBuildingLeft(row, column), updated.getBuildingLeft(row, column),
+                                "left " + cell);
+                        checkEquals(fresh.getBuildingRight(row, column), updated.getBuildingRight(row, column),
+                                "right " + cell);
+                    }
+                }
+                BasicVertex[][] vertices = sparseMap.getSparseVertexArray();
+                for (int pair = 0; pair < 40; pair++) {
+                    int fromRow = random.nextInt(rows);
+                    int fromColumn = random.nextInt(columns);
+                    int toRow = random.nextBoolean() ? fromRow : random.nextInt(rows);
+                    int toColumn = toRow != fromRow || random.nextBoolean() ? fromColumn : random.nextInt(columns);
+                    checkEquals(openSight(vertices, fromRow, fromColumn, toRow, toColumn),
+                            updated.isVisible(fromRow, fromColumn, toRow, toColumn), "visibility after " + name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cameras placed after changes to the map observe the vertices a scan of the square around them finds, in
+     * the same order, and see exactly the vertices the scan sees.
+     */
+    private static void camerasMatchScans() {
+        Random random = new Random(10);
+        for (int map = 0; map < 40; map++) {
+            int rows = 1 + random.nextInt(9);
+            int columns = 1 + random.nextInt(9);
+            SparseMap sparseMap = TestSupport.randomMap(random, rows, columns, random.nextDouble());
+            for (int round = 0; round < 10; round++) {
+                for (int change = random.nextInt(4); change > 0; change--) {
+                    replaceRandomCell(sparseMap, random);
+                }
+                BasicVertex[][] vertices = sparseMap.getSparseVertexArray();
+                int range = random.nextInt(6) - 1;
+                Position2D position = new Position2D(random.nextInt(rows), random.nextInt(columns));
+                Camera camera = new Camera(range, position, sparseMap);
+                String name = "camera at " + position.getRow() + "," + position.getColumn() + " in round " + round
+                        + " on map " + map;
+                checkEquals(observedVertices(vertices, position, range), camera.getObservedVertices(),
+                        "observed vertices of " + name);
+                for (BasicVertex[] row : vertices) {
+                    for (BasicVertex vertex : row) {
+                        checkEquals(visible(vertices, position, vertex), camera.isVisible(vertex),
+                                "visibility from " + name);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces a random cell by a street, a building, a hospital or a green area.
+     */
+    private static void replaceRandomCell(SparseMap sparseMap, Random random) {
+        BasicVertex[][] vertices = sparseMap.getSparseVertexArray();
+        int row = random.nextInt(vertices.length);
+        int column = random.nextInt(vertices[0].length);
+        int kind = random.nextInt(4);
+        BasicVertex vertex = kind == 0 ? new BasicStreet(row, column, 0, 1)
+                : kind == 1 ? new BasicBuilding(row, column, random.nextInt(3), 1)
+                : kind == 2 ? new Hospital(row, column, 0, 1) : new BasicGreen(row, column, random.nextInt(3));
+        vertex.setContainingMap(sparseMap);
+        sparseMap.replaceVertex(new Position2D(row, column), vertex);
+    }
+
+    /**
+     * @return true if the cells share a row or column and no building lies strictly between them
+     */
+    private static boolean openSight(BasicVertex[][] vertices, int fromRow, int fromColumn, int toRow, int toColumn) {
+        if (fromRow == toRow) {
+            for (int column = Math.min(fromColumn, toColumn) + 1; column < Math.max(fromColumn, toColumn); column++) {
+                if (vertices[fromRow][column] instanceof BasicBuilding) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (fromColumn == toColumn) {
+            for (int row = Math.min(fromRow, toRow) + 1; row < Math.max(fromRow, toRow); row++) {
+                if (vertices[row][fromColumn] instanceof BasicBuilding) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the vertex is no building and the camera has an open sight on it
+     */
+    private static boolean visible(BasicVertex[][] vertices, Position2D camera, BasicVertex vertex) {
+        return !(vertex instanceof BasicBuilding) && openSight(vertices, camera.getRow(), camera.getColumn(),
+                vertex.getPosition().getRow(), vertex.getPosition().getColumn());
+    }
+
+    /**
+     * @return the visible vertices within the range around the camera in row-major order, sorted by value
+     */
+    private static List<BasicVertex> observedVertices(BasicVertex[][] vertices, Position2D camera, int range) {
+        List<BasicVertex> observed = new ArrayList<>();
+        for (int row = camera.getRow() - range; row <= camera.getRow() + range; row++) {
+            for (int column = camera.getColumn() - range; column <= camera.getColumn() + range; column++) {
+                if (row >= 0 && row < vertices.length && column >= 0 && column < vertices[0].length
+                        && Math.abs(row - camera.getRow()) + Math.abs(column - camera.getColumn()) <= range
+                        && visible(vertices, camera, vertices[row][column])) {
+                    observed.add(vertices[row][column]);
+                }
+            }
+        }
+        observed.sort(Comparator.comparingInt(BasicVertex::getValue));
+        return observed;
+    }
+}
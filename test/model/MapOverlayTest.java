@@ -0,0 +1,205 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Checks that overlays read like the changed map without changing it, and that what-if queries on one shared
+ * map can run from several threads.
+ */
+public class MapOverlayTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        overlayReadsReplacementsAndBase();
+        crucialPathMatchesMutatingSearch();
+        crucialPathQueriesRunConcurrently();
+    }
+
+    /**
+     * Replaced cells read the latest replacement, all other cells read the base, which keeps its vertices.
+     */
+    private static void overlayReadsReplacementsAndBase() {
+        Random random = new Random(22);
+        SparseMap map = TestSupport.randomMap(random, 60, 70, 0.5);
+        BasicVertex[][] before = copy(map.getSparseVertexArray());
+        int modifications = map.getModificationCount();
+        MapOverlay overlay = new MapOverlay(map);
+        Map<Integer, BasicVertex> expected = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            int row = random.nextInt(60);
+            int column = random.nextInt(70);
+            BasicVertex green = new BasicGreen(row, column, i);
+            overlay.replaceVertex(row, column, green);
+            expected.put(row * 70 + column, green);
+        }
+        checkEquals(expected.size(), overlay.size(), "replaced cells");
+        for (int row = 0; row < 60; row++) {
+            for (int column = 0; column < 70; column++) {
+                BasicVertex replacement = expected.get(row * 70 + column);
+                check(overlay.getVertex(row, column) == (replacement != null ? replacement : before[row][column]),
+                        "overlay read " + row + "," + column);
+                checkEquals(replacement != null, overlay.isReplaced(row, column), "replaced flag");
+                check(map.getVertex(row, column) == before[row][column], "base changed at " + row + "," + column);
+            }
+        }
+        checkEquals(modifications, map.getModificationCount(), "modifications of the base");
+        overlay.clear();
+        checkEquals(0, overlay.size(), "size after clear");
+        check(overlay.getVertex(0, 0) == before[0][0], "read after clear");
+    }
+
+    /**
+     * isCrucialPath answers like turning the inner path cells into greens and searching the changed map.
+     */
+    private static void crucialPathMatchesMutatingSearch() {
+        Random random = new Random(11);
+        for (int map = 0; map < 400; map++) {
+            SparseMap sparseMap = TestSupport.randomMap(random, 2 + random.nextInt(12), 2 + random.nextInt(12),
+                    0.3 + random.nextDouble() * 0.6);
+            for (int query = 0; query < 20; query++) {
+                ArrayList<BasicVertex> path = randomPath(random, sparseMap);
+                boolean expected = isCrucialBySearch(sparseMap, path);
+                int modifications = sparseMap.getModificationCount();
+                checkEquals(expected, sparseMap.isCrucialPath(path), "crucial path on map " + map + " query " + query);
+                checkEquals(modifications, sparseMap.getModificationCount(), "isCrucialPath changed the map");
+            }
+        }
+    }
+
+    /**
+     * Eight threads ask isCrucialPath on one map whose index is not built yet and get the sequential answers.
+     */
+    private static void crucialPathQueriesRunConcurrently() throws Exception {
+        Random random = new Random(8);
+        SparseMap sequential = TestSupport.randomMap(random, 150, 150, 0.75);
+        SparseMap shared = TestSupport.mapOf(baseDataOf(sequential));
+        List<ArrayList<BasicVertex>> paths = new ArrayList<>();
+        List<Boolean> expected = new ArrayList<>();
+        for (int query = 0; query < 3000; query++) {
+            ArrayList<BasicVertex> path = randomPath(random, sequential);
+            expected.add(sequential.isCrucialPath(path));
+            paths.add(translate(path, shared));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread;
+                results.add(pool.submit(() -> {
+                    for (int round = 0; round < 4; round++) {
+                        for (int query = (offset + round) % 2; query < paths.size(); query += 2) {
+                            checkEquals(expected.get(query), shared.isCrucialPath(paths.get(query)),
+                                    "concurrent crucial path " + query);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return a random walk of up to twelve steps, over streets except possibly the last cell
+     */
+    private static ArrayList<BasicVertex> randomPath(Random random, SparseMap map) {
+        BasicVertex[][] vertices = map.getSparseVertexArray();
+        int rows = vertices.length;
+        int columns = vertices[0].length;
+        ArrayList<BasicVertex> path = new ArrayList<>();
+        BasicVertex current = vertices[random.nextInt(rows)][random.nextInt(columns)];
+        path.add(current);
+        int length = 1 + random.nextInt(12);
+        int[][] steps = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+        for (int step = 0; step < length; step++) {
+            List<BasicVertex> candidates = new ArrayList<>();
+            for (int[] direction : steps) {
+                int row = current.getPosition().getRow() + direction[0];
+                int column = current.getPosition().getColumn() + direction[1];
+                if (row >= 0 && row < rows && column >= 0 && column < columns && !path.contains(vertices[row][column])
+                        && (step == length - 1 || vertices[row][column] instanceof BasicStreet)) {
+                    candidates.add(vertices[row][column]);
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            current = candidates.get(random.nextInt(candidates.size()));
+            path.add(current);
+        }
+        return path;
+    }
+
+    /**
+     * The former implementation: replace the inner cells with greens, search, and restore the cells.
+     */
+    private static boolean isCrucialBySearch(SparseMap map, ArrayList<BasicVertex> path) {
+        if (path.size() < 2 || !map.isBasicPathOverStreets(path)) {
+            return false;
+        }
+        List<BasicVertex> inner = new ArrayList<>(path.subList(1, path.size() - 1));
+        for (BasicVertex vertex : inner) {
+            BasicGreen green = new BasicGreen(vertex.getPosition().getRow(), vertex.getPosition().getColumn(), 0);
+            green.setContainingMap(map);
+            map.replaceVertex(vertex.getPosition(), green);
+        }
+        boolean crucial = !path.getFirst().isBasicStreetConnectedTo(path.getLast());
+        for (BasicVertex vertex : inner) {
+            map.replaceVertex(vertex.getPosition(), vertex);
+        }
+        return crucial;
+    }
+
+    /**
+     * @return the base data the map was built from
+     */
+    private static int[][] baseDataOf(SparseMap map) {
+        BasicVertex[][] vertices = map.getSparseVertexArray();
+        int[][] baseData = new int[vertices.length][vertices[0].length];
+        for (int row = 0; row < vertices.length; row++) {
+            for (int column = 0; column < vertices[0].length; column++) {
+                BasicVertex vertex = vertices[row][column];
+                baseData[row][column] = vertex instanceof BasicStreet ? 2 : vertex instanceof BasicBuilding ? 3 : 4;
+            }
+        }
+        return baseData;
+    }
+
+    /**
+     * @return the same path on another map with the same layout
+     */
+    private static ArrayList<BasicVertex> translate(ArrayList<BasicVertex> path, SparseMap map) {
+        ArrayList<BasicVertex> translated = new ArrayList<>();
+        for (BasicVertex vertex : path) {
+            translated.add(map.getVertex(vertex.getPosition()));
+        }
+        return translated;
+    }
+
+    /**
+     * @return a copy of the rows of a vertex array
+     */
+    private static BasicVertex[][] copy(BasicVertex[][] vertices) {
+        BasicVertex[][] copy = new BasicVertex[vertices.length][];
+        for (int row = 0; row < vertices.length; row++) {
+            copy[row] = vertices[row].clone();
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,267 @@
+package model;
+
+import model.distances.DistanceDurationGrid;
+import model.distances.ShortestPathEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Routes on a snapshot and reads its indexes while the live map changes, and builds the lazy indexes of a map
+ * from several threads.
+ */
+public class MapSnapshotTest {
+    /** Number of rows of the test maps. */
+    private static final int ROWS = 24;
+    /** Number of columns of the test maps. */
+    private static final int COLUMNS = 24;
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        snapshotRoutesIgnoreLaterChanges();
+        snapshotRoutesDuringConcurrentChanges();
+        snapshotIndexesDuringConcurrentChanges();
+        lazyIndexesAreBuiltOnce();
+    }
+
+    /**
+     * A grid built from a snapshot after the map changed routes like the unchanged twin of the map.
+     */
+    private static void snapshotRoutesIgnoreLaterChanges() {
+        Random random = new Random(23);
+        for (int map = 0; map < 20; map++) {
+            int[][] baseData = randomBaseData(random);
+            long speedSeed = random.nextLong();
+            SparseMap live = TestSupport.withSpeedLimits(TestSupport.mapOf(baseData), new Random(speedSeed));
+            SparseMap twin = TestSupport.withSpeedLimits(TestSupport.mapOf(baseData), new Random(speedSeed));
+            MapSnapshot snapshot = live.getSnapshot();
+            changeRandomly(live, random, 200);
+            check(live.getSnapshot() != snapshot, "changes publish a new snapshot");
+
+            ShortestPathEngine pinned = new ShortestPathEngine(snapshot, new DistanceDurationGrid(snapshot));
+            ShortestPathEngine reference = new ShortestPathEngine(twin, new DistanceDurationGrid(twin));
+            for (int query = 0; query < 100; query++) {
+                int startRow = random.nextInt(ROWS);
+                int startColumn = random.nextInt(COLUMNS);
+                int endRow = random.nextInt(ROWS);
+                int endColumn = random.nextInt(COLUMNS);
+                checkEquals(cellsOf(reference.computeRoute(twin.getVertex(startRow, startColumn),
+                                twin.getVertex(endRow, endColumn))),
+                        cellsOf(pinned.computeRoute(snapshot.getVertex(startRow, startColumn),
+                                snapshot.getVertex(endRow, endColumn))),
+                        "route on map " + map + " query " + query);
+            }
+        }
+    }
+
+    /**
+     * Readers route on the snapshot they took while a writer keeps changing the map.
+     */
+    private static void snapshotRoutesDuringConcurrentChanges() throws Exception {
+        Random random = new Random(5);
+        int[][] baseData = randomBaseData(random);
+        SparseMap live = TestSupport.withSpeedLimits(TestSupport.mapOf(baseData), new Random(17));
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                long seed = thread;
+                readers.add(pool.submit(() -> {
+                    Random local = new Random(seed);
+                    while (!stop.get()) {
+                        MapSnapshot snapshot = live.getSnapshot();
+                        DistanceDurationGrid firstGrid = new DistanceDurationGrid(snapshot);
+                        DistanceDurationGrid secondGrid = new DistanceDurationGrid(snapshot);
+                        ShortestPathEngine first = new ShortestPathEngine(snapshot, firstGrid);
+                        ShortestPathEngine second = new ShortestPathEngine(snapshot, secondGrid);
+                        BasicVertex start = snapshot.getVertex(local.nextInt(ROWS), local.nextInt(COLUMNS));
+                        BasicVertex end = snapshot.getVertex(local.nextInt(ROWS), local.nextInt(COLUMNS));
+                        checkEquals(cellsOf(first.computeRoute(start, end)), cellsOf(second.computeRoute(start, end)),
+                                "routes on snapshot " + snapshot.getVersion());
+                    }
+                }));
+            }
+            changeRandomly(live, random, 3000);
+            stop.set(true);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Readers take snapshots while a writer replaces cells and changes speed limits. The line of sight and street
+     * component indexes of every snapshot answer like indexes built from scratch on its cells, and its cells and
+     * speed limits do not change while the writer goes on.
+     */
+    private static void snapshotIndexesDuringConcurrentChanges() throws Exception {
+        Random random = new Random(7);
+        SparseMap live = TestSupport.withSpeedLimits(TestSupport.mapOf(randomBaseData(random)), new Random(19));
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                long seed = thread;
+                readers.add(pool.submit(() -> {
+                    Random local = new Random(seed);
+                    int checkedSnapshots = 0;
+                    while (!stop.get() || checkedSnapshots == 0) {
+                        MapSnapshot snapshot = live.getSnapshot();
+                        String name = "snapshot " + snapshot.getVersion();
+                        BasicVertex[] vertices = new BasicVertex[ROWS * COLUMNS];
+                        int[] speedLimits = new int[ROWS * COLUMNS];
+                        for (int cell = 0; cell < ROWS * COLUMNS; cell++) {
+                            vertices[cell] = snapshot.getVertex(cell / COLUMNS, cell % COLUMNS);
+                            speedLimits[cell] = snapshot.getSpeedLimit(cell / COLUMNS, cell % COLUMNS);
+                        }
+                        checkIndexes(snapshot, local, name);
+                        for (int cell = 0; cell < ROWS * COLUMNS; cell++) {
+                            check(vertices[cell] == snapshot.getVertex(cell / COLUMNS, cell % COLUMNS),
+                                    "vertex " + cell + " of " + name);
+                            checkEquals(speedLimits[cell], snapshot.getSpeedLimit(cell / COLUMNS, cell % COLUMNS),
+                                    "speed limit " + cell + " of " + name);
+                            if (vertices[cell] instanceof BasicStreet street) {
+                                checkEquals(speedLimits[cell], street.getSpeedLimit(),
+                                        "speed limit of the street " + cell + " of " + name);
+                            }
+                        }
+                        checkedSnapshots++;
+                    }
+                    return checkedSnapshots;
+                }));
+            }
+            changeRandomly(live, random, 3000);
+            stop.set(true);
+            for (Future<Integer> reader : readers) {
+                check(reader.get() > 0, "reader checked a snapshot");
+            }
+            checkIndexes(live.getSnapshot(), random, "last snapshot");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Compares the indexes of a snapshot with indexes built from scratch on its cells.
+     */
+    private static void checkIndexes(MapSnapshot snapshot, Random random, String name) {
+        LineOfSightIndex lineOfSight = snapshot.getLineOfSightIndex();
+        LineOfSightIndex freshLineOfSight = new LineOfSightIndex(snapshot);
+        StreetComponentIndex components = snapshot.getStreetComponentIndex();
+        StreetComponentIndex freshComponents = new StreetComponentIndex(snapshot);
+        checkEquals(freshComponents.getComponentCount(), components.getComponentCount(), "components of " + name);
+        for (int cell = 0; cell < ROWS * COLUMNS; cell++) {
+            int row = cell / COLUMNS;
+            int column = cell % COLUMNS;
+            checkEquals(freshLineOfSight.isBuilding(row, column), lineOfSight.isBuilding(row, column),
+                    "building " + cell + " of " + name);
+            checkEquals(freshLineOfSight.getBuildingUp(row, column), lineOfSight.getBuildingUp(row, column),
+                    "up " + cell + " of " + name);
+            checkEquals(freshLineOfSight.getBuildingDown(row, column), lineOfSight.getBuildingDown(row, column),
+                    "down " + cell + " of " + name);
+            checkEquals(freshLineOfSight.getBuildingLeft(row, column), lineOfSight.getBuildingLeft(row, column),
+                    "left " + cell + " of " + name);
+            checkEquals(freshLineOfSight.getBuildingRight(row, column), lineOfSight.getBuildingRight(row, column),
+                    "right " + cell + " of " + name);
+            checkEquals(freshComponents.isStreet(cell), components.isStreet(cell), "street " + cell + " of " + name);
+        }
+        for (int pair = 0; pair < 50; pair++) {
+            int a = random.nextInt(ROWS * COLUMNS);
+            int b = random.nextInt(ROWS * COLUMNS);
+            checkEquals(freshComponents.sameComponent(a, b), components.sameComponent(a, b),
+                    "cells " + a + " and " + b + " of " + name);
+        }
+    }
+
+    /**
+     * Threads asking a fresh map for its indexes at the same time all get the same instances.
+     */
+    private static void lazyIndexesAreBuiltOnce() throws Exception {
+        Random random = new Random(11);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int map = 0; map < 30; map++) {
+                SparseMap sparseMap = TestSupport.mapOf(randomBaseData(random));
+                CyclicBarrier start = new CyclicBarrier(threads);
+                List<Future<Object[]>> results = new ArrayList<>();
+                for (int thread = 0; thread < threads; thread++) {
+                    results.add(pool.submit(() -> {
+                        start.await();
+                        return new Object[]{sparseMap.getStreetComponentIndex(), sparseMap.getLineOfSightIndex(),
+                                sparseMap.getBlockCutIndex(), sparseMap.getDensityTable(), sparseMap.getSnapshot(),
+                                sparseMap.getDenseSquareCount()};
+                    }));
+                }
+                Object[] expected = results.get(0).get();
+                for (Future<Object[]> result : results) {
+                    Object[] actual = result.get();
+                    for (int i = 0; i < expected.length - 1; i++) {
+                        check(expected[i] == actual[i], "index " + i + " built once on map " + map);
+                    }
+                    checkEquals(expected[expected.length - 1], actual[expected.length - 1], "dense squares");
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return base data with streets on about two thirds of the cells
+     */
+    private static int[][] randomBaseData(Random random) {
+        int[][] baseData = new int[ROWS][COLUMNS];
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                baseData[row][column] = random.nextDouble() < 0.65 ? 2 : 3 + random.nextInt(2);
+            }
+        }
+        return baseData;
+    }
+
+    /**
+     * Replaces random cells by streets or buildings and changes speed limits of the streets.
+     */
+    private static void changeRandomly(SparseMap sparseMap, Random random, int changes) {
+        for (int change = 0; change < changes; change++) {
+            int row = random.nextInt(ROWS);
+            int column = random.nextInt(COLUMNS);
+            Position2D position = new Position2D(row, column);
+            if (random.nextBoolean() && sparseMap.getVertex(row, column) instanceof BasicStreet) {
+                sparseMap.setSpeedLimit(position, 1 + random.nextInt(30));
+            } else if (random.nextBoolean()) {
+                sparseMap.replaceVertex(position, new BasicStreet(row, column, 0, 1 + random.nextInt(30)));
+            } else {
+                sparseMap.replaceVertex(position, new BasicBuilding(row, column, 0, 1));
+            }
+        }
+    }
+
+    /**
+     * @return the cells of a route as "row,column" strings
+     */
+    private static List<String> cellsOf(List<BasicVertex> route) {
+        List<String> cells = new ArrayList<>();
+        for (BasicVertex vertex : route) {
+            cells.add(vertex.getPosition().getRow() + "," + vertex.getPosition().getColumn());
+        }
+        return cells;
+    }
+}
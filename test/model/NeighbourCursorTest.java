@@ -0,0 +1,223 @@
+package model;
+
+import controller.SparseController;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the neighbour cursor and the traversals built on it with the list based definitions they replace.
+ */
+public class NeighbourCursorTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        cursorMatchesNeighbourList();
+        traversalsMatchListDefinitions();
+    }
+
+    /**
+     * Every vertex of random maps walks the neighbours of the list definition in the same order, and
+     * hasNeighbour holds for exactly these vertices.
+     */
+    private static void cursorMatchesNeighbourList() {
+        Random random = new Random(2);
+        for (int map = 0; map < 60; map++) {
+            SparseMap sparseMap = randomMap(random);
+            BasicVertex[][] vertices = sparseMap.getSparseVertexArray();
+            for (BasicVertex[] row : vertices) {
+                for (BasicVertex vertex : row) {
+                    String name = "vertex " + vertex.getPosition().getRow() + "," + vertex.getPosition().getColumn()
+                            + " on map " + map;
+                    List<BasicVertex> expected = neighboursOf(vertex);
+                    List<BasicVertex> cursor = new ArrayList<>();
+                    for (int i = 0, count = vertex.getNeighbourCount(); i < count; i++) {
+                        cursor.add(vertex.getNeighbour(i));
+                    }
+                    checkEquals(expected, cursor, "cursor of " + name);
+                    checkEquals(expected, vertex.getNeighbours(), "neighbours of " + name);
+                    for (BasicVertex[] otherRow : vertices) {
+                        for (BasicVertex other : otherRow) {
+                            checkEquals(expected.contains(other), vertex.hasNeighbour(other),
+                                    "hasNeighbour of " + name);
+                        }
+                    }
+                    try {
+                        vertex.getNeighbour(expected.size());
+                        check(false, "neighbour after the last one of " + name);
+                    } catch (IndexOutOfBoundsException expectedFailure) {
+                        // expected
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * traverse, isBasicStreetConnectedTo, isBasicStreetConnectedMap and isSparse answer like searches over the
+     * neighbour lists and a scan over all 2x2 squares.
+     */
+    private static void traversalsMatchListDefinitions() {
+        Random random = new Random(3);
+        for (int map = 0; map < 60; map++) {
+            SparseMap sparseMap = randomMap(random);
+            BasicVertex[][] vertices = sparseMap.getSparseVertexArray();
+            List<BasicVertex> all = new ArrayList<>();
+            for (BasicVertex[] row : vertices) {
+                for (BasicVertex vertex : row) {
+                    all.add(vertex);
+                }
+            }
+            for (BasicVertex vertex : all) {
+                checkEquals(traverse(vertex, vertex.getValue()), vertex.traverse(vertex.getValue()),
+                        "traversal on map " + map);
+            }
+            for (int pair = 0; pair < 40; pair++) {
+                BasicVertex from = all.get(random.nextInt(all.size()));
+                BasicVertex to = all.get(random.nextInt(all.size()));
+                checkEquals(streetConnected(from, to), from.isBasicStreetConnectedTo(to),
+                        "street connection on map " + map);
+            }
+            checkEquals(streetConnectedMap(all), sparseMap.isBasicStreetConnectedMap(),
+                    "street connected map " + map);
+            checkEquals(sparse(vertices), sparseMap.isSparse(), "sparseness of map " + map);
+        }
+    }
+
+    /**
+     * @return a random map of up to 7 by 7 cells of all kinds with values between 0 and 2
+     */
+    private static SparseMap randomMap(Random random) {
+        int rows = 1 + random.nextInt(7);
+        int columns = 1 + random.nextInt(7);
+        double streetShare = random.nextDouble();
+        int[][] baseData = new int[rows][columns];
+        int[][] valueData = new int[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                baseData[row][column] = random.nextDouble() < streetShare ? 2 : 1 + random.nextInt(4);
+                valueData[row][column] = random.nextInt(3);
+            }
+        }
+        return new SparseController(baseData, valueData).getCompleteSparseMap();
+    }
+
+    /**
+     * @return the neighbours above, below, left and right of the vertex in this order
+     */
+    private static List<BasicVertex> neighboursOf(BasicVertex vertex) {
+        List<BasicVertex> neighbours = new ArrayList<>();
+        int row = vertex.getPosition().getRow();
+        int column = vertex.getPosition().getColumn();
+        BasicVertex[][] map = vertex.getContainingMap().getVertexArray();
+        if (row > 0) {
+            neighbours.add(map[row - 1][column]);
+        }
+        if (row < map.length - 1) {
+            neighbours.add(map[row + 1][column]);
+        }
+        if (column > 0) {
+            neighbours.add(map[row][column - 1]);
+        }
+        if (column < map[0].length - 1) {
+            neighbours.add(map[row][column + 1]);
+        }
+        return neighbours;
+    }
+
+    /**
+     * @return the distances of all vertices reachable over vertices of the given value
+     */
+    private static Map<BasicVertex, Integer> traverse(BasicVertex start, int value) {
+        Map<BasicVertex, Integer> distances = new HashMap<>();
+        if (start.getValue() != value) {
+            return distances;
+        }
+        Queue<BasicVertex> queue = new LinkedList<>();
+        queue.add(start);
+        distances.put(start, 0);
+        while (!queue.isEmpty()) {
+            BasicVertex current = queue.poll();
+            for (BasicVertex neighbour : neighboursOf(current)) {
+                if (!distances.containsKey(neighbour) && neighbour.getValue() == value) {
+                    distances.put(neighbour, distances.get(current) + 1);
+                    queue.add(neighbour);
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * @return true if the target is the start or is reached from it over streets
+     */
+    private static boolean streetConnected(BasicVertex from, BasicVertex to) {
+        Set<BasicVertex> visited = new HashSet<>();
+        Queue<BasicVertex> queue = new LinkedList<>();
+        queue.add(from);
+        visited.add(from);
+        while (!queue.isEmpty()) {
+            BasicVertex current = queue.poll();
+            if (current == to) {
+                return true;
+            }
+            for (BasicVertex neighbour : neighboursOf(current)) {
+                if ((neighbour instanceof BasicStreet || neighbour == to) && visited.add(neighbour)) {
+                    queue.add(neighbour);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if every street is reached from the first street over streets
+     */
+    private static boolean streetConnectedMap(List<BasicVertex> vertices) {
+        BasicVertex first = null;
+        for (BasicVertex vertex : vertices) {
+            if (vertex instanceof BasicStreet) {
+                first = vertex;
+                break;
+            }
+        }
+        if (first == null) {
+            return true;
+        }
+        for (BasicVertex vertex : vertices) {
+            if (vertex instanceof BasicStreet && !streetConnected(first, vertex)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if no 2x2 square consists of four streets
+     */
+    private static boolean sparse(BasicVertex[][] vertices) {
+        for (int row = 0; row + 1 < vertices.length; row++) {
+            for (int column = 0; column + 1 < vertices[row].length; column++) {
+                if (vertices[row][column] instanceof BasicStreet && vertices[row][column + 1] instanceof BasicStreet
+                        && vertices[row + 1][column] instanceof BasicStreet
+                        && vertices[row + 1][column + 1] instanceof BasicStreet) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,146 @@
+package model;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the street connectivity answered by the street component index with searches over the map.
+ */
+public class StreetComponentIndexTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        connectivityFollowsChanges();
+    }
+
+    /**
+     * Random maps lose and gain streets through replaceVertex and through direct writes followed by
+     * invalidateIndexes. After every change the connectivity of vertex pairs, the number of street components and
+     * the connectivity of the map agree with a breadth first search, whether the new snapshot carried the index
+     * of the previous one forward with the new street merged in or built its own.
+     */
+    private static void connectivityFollowsChanges() {
+        Random random = new Random(3);
+        for (int map = 0; map < 40; map++) {
+            int rows = 1 + random.nextInt(9);
+            int columns = 1 + random.nextInt(9);
+            SparseMap sparseMap = TestSupport.randomMap(random, rows, columns, random.nextDouble());
+            for (int change = 0; change < 60; change++) {
+                String name = "change " + change + " on map " + map;
+                if (random.nextInt(3) > 0) {
+                    checkConnectivity(sparseMap, random, "before " + name);
+                }
+                int row = random.nextInt(rows);
+                int column = random.nextInt(columns);
+                BasicVertex vertex = random.nextBoolean() ? new BasicStreet(row, column, 0, 1)
+                        : random.nextBoolean() ? new BasicBuilding(row, column, 0, 1) : new BasicGreen(row, column, 0);
+                vertex.setContainingMap(sparseMap);
+                if (random.nextInt(8) > 0) {
+                    sparseMap.replaceVertex(new Position2D(row, column), vertex);
+                } else {
+                    sparseMap.getSparseVertexArray()[row][column] = vertex;
+                    sparseMap.invalidateIndexes();
+                }
+                checkConnectivity(sparseMap, random, "after " + name);
+            }
+        }
+    }
+
+    /**
+     * Checks the connectivity queries of a map against breadth first searches.
+     */
+    private static void checkConnectivity(SparseMap sparseMap, Random random, String name) {
+        BasicVertex[][] vertices = sparseMap.getSparseVertexArray();
+        int rows = vertices.length;
+        int columns = vertices[0].length;
+        for (int pair = 0; pair < 30; pair++) {
+            BasicVertex a = vertices[random.nextInt(rows)][random.nextInt(columns)];
+            BasicVertex b = vertices[random.nextInt(rows)][random.nextInt(columns)];
+            boolean expected = reachable(vertices, a, b);
+            checkEquals(expected, sparseMap.areStreetConnected(a, b), "areStreetConnected " + name);
+            checkEquals(expected, a.isBasicStreetConnectedTo(b), "isBasicStreetConnectedTo " + name);
+        }
+        int components = 0;
+        StreetComponentIndex index = sparseMap.getStreetComponentIndex();
+        int[] labels = new int[rows * columns];
+        for (int cell = 0; cell < labels.length; cell++) {
+            if (vertices[cell / columns][cell % columns] instanceof BasicStreet && labels[cell] == 0) {
+                label(vertices, cell, ++components, labels);
+            }
+        }
+        checkEquals(components, index.getComponentCount(), "component count " + name);
+        checkEquals(components <= 1, sparseMap.isBasicStreetConnectedMap(), "street connected map " + name);
+        for (int pair = 0; pair < 30; pair++) {
+            int a = random.nextInt(labels.length);
+            int b = random.nextInt(labels.length);
+            if (labels[a] > 0 && labels[b] > 0) {
+                int cellA = sparseMap.getCellIndex(a / columns, a % columns);
+                int cellB = sparseMap.getCellIndex(b / columns, b % columns);
+                checkEquals(labels[a] == labels[b], index.sameComponent(cellA, cellB), "sameComponent " + name);
+            }
+        }
+    }
+
+    /**
+     * @return true if b is a or is reached from a over streets
+     */
+    private static boolean reachable(BasicVertex[][] vertices, BasicVertex a, BasicVertex b) {
+        int columns = vertices[0].length;
+        boolean[] visited = new boolean[vertices.length * columns];
+        Queue<BasicVertex> queue = new LinkedList<>();
+        queue.add(a);
+        visited[a.getPosition().getRow() * columns + a.getPosition().getColumn()] = true;
+        while (!queue.isEmpty()) {
+            BasicVertex current = queue.poll();
+            if (current == b) {
+                return true;
+            }
+            int row = current.getPosition().getRow();
+            int column = current.getPosition().getColumn();
+            int[][] steps = {{row - 1, column}, {row + 1, column}, {row, column - 1}, {row, column + 1}};
+            for (int[] step : steps) {
+                if (step[0] >= 0 && step[0] < vertices.length && step[1] >= 0 && step[1] < columns
+                        && !visited[step[0] * columns + step[1]]) {
+                    BasicVertex neighbour = vertices[step[0]][step[1]];
+                    if (neighbour instanceof BasicStreet || neighbour == b) {
+                        visited[step[0] * columns + step[1]] = true;
+                        queue.add(neighbour);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives every street of the component of a street cell the same label.
+     */
+    private static void label(BasicVertex[][] vertices, int start, int component, int[] labels) {
+        int columns = vertices[0].length;
+        Queue<Integer> queue = new LinkedList<>();
+        queue.add(start);
+        labels[start] = component;
+        while (!queue.isEmpty()) {
+            int cell = queue.poll();
+            int row = cell / columns;
+            int column = cell % columns;
+            int[][] steps = {{row - 1, column}, {row + 1, column}, {row, column - 1}, {row, column + 1}};
+            for (int[] step : steps) {
+                if (step[0] >= 0 && step[0] < vertices.length && step[1] >= 0 && step[1] < columns
+                        && vertices[step[0]][step[1]] instanceof BasicStreet) {
+                    int neighbour = step[0] * columns + step[1];
+                    if (labels[neighbour] == 0) {
+                        labels[neighbour] = component;
+                        queue.add(neighbour);
+                    }
+                }
+            }
+        }
+    }
+}
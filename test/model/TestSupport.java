@@ -0,0 +1,93 @@
+package model;
+
+import controller.SparseController;
+
+import java.util.Random;
+
+/**
+ * Assertions and map builders shared by the tests.
+ * The tests need no test framework, every test class has a main method and RunAllTests runs all of them:
+ * javac -d out $(find src test -name '*.java') && java -cp out RunAllTests
+ */
+public final class TestSupport {
+
+    /**
+     * Utility class, not instantiated.
+     */
+    private TestSupport() {
+    }
+
+    /**
+     * Fails the running test if the condition is false.
+     *
+     * @param condition the checked condition
+     * @param message the message of the failure
+     * @throws AssertionError if the condition is false
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Fails the running test if two values differ.
+     *
+     * @param expected the expected value
+     * @param actual the actual value
+     * @param message the message of the failure
+     * @throws AssertionError if the values differ
+     */
+    public static void checkEquals(Object expected, Object actual, String message) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Builds a map from base data with all containing maps set, like the application does.
+     *
+     * @param baseData 1 for empty cells, 2 for streets, 3 for buildings and 4 for green areas
+     * @return the map
+     */
+    public static SparseMap mapOf(int[][] baseData) {
+        return new SparseController(baseData, new int[baseData.length][baseData[0].length]).getCompleteSparseMap();
+    }
+
+    /**
+     * Builds a random map.
+     *
+     * @param random the source of randomness
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param streetShare the share of street cells between 0 and 1
+     * @return the map
+     */
+    public static SparseMap randomMap(Random random, int rows, int columns, double streetShare) {
+        int[][] baseData = new int[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                baseData[row][column] = random.nextDouble() < streetShare ? 2 : 3 + random.nextInt(2);
+            }
+        }
+        return mapOf(baseData);
+    }
+
+    /**
+     * Gives every street of a map a random speed limit between 1 and 30.
+     *
+     * @param sparseMap the map
+     * @param random the source of randomness
+     * @return the map
+     */
+    public static SparseMap withSpeedLimits(SparseMap sparseMap, Random random) {
+        for (int row = 0; row < sparseMap.getRows(); row++) {
+            for (int column = 0; column < sparseMap.getColumns(); column++) {
+                if (sparseMap.getVertex(row, column) instanceof BasicStreet) {
+                    sparseMap.setSpeedLimit(new Position2D(row, column), 1 + random.nextInt(30));
+                }
+            }
+        }
+        return sparseMap;
+    }
+}
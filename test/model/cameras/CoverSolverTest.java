@@ -0,0 +1,107 @@
+package model.cameras;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the cover solver with a search over all subsets of the candidates.
+ */
+public class CoverSolverTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        coversMatchExhaustiveSearch();
+    }
+
+    /**
+     * Few distinct costs and values make many covers tie on cost and size, the solver must pick the one with
+     * the smallest values and then the smallest indices, like the exhaustive search.
+     */
+    private static void coversMatchExhaustiveSearch() {
+        Random random = new Random(8);
+        for (int round = 0; round < 400; round++) {
+            int candidateCount = 1 + random.nextInt(13);
+            int elementCount = 1 + random.nextInt(random.nextBoolean() ? 10 : 90);
+            double share = 0.2 + random.nextDouble() * 0.5;
+            long[][] masks = new long[candidateCount][(elementCount + 63) >>> 6];
+            long[] costs = new long[candidateCount];
+            int[] values = new int[candidateCount];
+            for (int candidate = 0; candidate < candidateCount; candidate++) {
+                for (int element = 0; element < elementCount; element++) {
+                    if (random.nextDouble() < share) {
+                        masks[candidate][element >>> 6] |= 1L << element;
+                    }
+                }
+                costs[candidate] = random.nextInt(8) == 0 ? -1 : random.nextBoolean() ? 1 : random.nextInt(4);
+                values[candidate] = random.nextInt(3);
+            }
+            int[] expected = exhaustiveCover(masks, elementCount, costs, values);
+            int[] actual = new CoverSolver(masks, elementCount, costs, values).solve();
+            checkEquals(Arrays.toString(expected), Arrays.toString(actual), "cover in round " + round);
+        }
+    }
+
+    /**
+     * @return the cover with the smallest key (cost, size, values, indices), null if there is none
+     */
+    private static int[] exhaustiveCover(long[][] masks, int elementCount, long[] costs, int[] values) {
+        int[] best = null;
+        long bestCost = 0;
+        for (int subset = 0; subset < 1 << masks.length; subset++) {
+            long[] covered = new long[(elementCount + 63) >>> 6];
+            long cost = 0;
+            int[] chosen = new int[Integer.bitCount(subset)];
+            int size = 0;
+            for (int candidate = 0; candidate < masks.length; candidate++) {
+                if ((subset >>> candidate & 1) != 0) {
+                    for (int word = 0; word < covered.length; word++) {
+                        covered[word] |= masks[candidate][word];
+                    }
+                    cost += costs[candidate];
+                    chosen[size++] = candidate;
+                }
+            }
+            if (coversAll(covered, elementCount)
+                    && (best == null || compare(cost, chosen, bestCost, best, values) < 0)) {
+                best = chosen;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return true if every element is set
+     */
+    private static boolean coversAll(long[] covered, int elementCount) {
+        for (int element = 0; element < elementCount; element++) {
+            if ((covered[element >>> 6] >>> element & 1) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares two covers by cost, size, the values of their candidates and their candidate indices.
+     */
+    private static int compare(long costA, int[] coverA, long costB, int[] coverB, int[] values) {
+        if (costA != costB) {
+            return Long.compare(costA, costB);
+        }
+        if (coverA.length != coverB.length) {
+            return Integer.compare(coverA.length, coverB.length);
+        }
+        for (int i = 0; i < coverA.length; i++) {
+            if (values[coverA[i]] != values[coverB[i]]) {
+                return Integer.compare(values[coverA[i]], values[coverB[i]]);
+            }
+        }
+        return Arrays.compare(coverA, coverB);
+    }
+}
@@ -0,0 +1,177 @@
+package model.cars;
+
+import model.Position2D;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the conflict resolution of the fleet controller with a resolution that groups the cars by row and
+ * column in a map.
+ */
+public class ConflictResolutionTest {
+    /** Time steps the fleets are run, no car gets past the end of its trip. */
+    private static final int STEPS = 25;
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        standingCarKeepsItsCell();
+        resolutionMatchesGroupingByCell();
+    }
+
+    /**
+     * A car that stood on a cell keeps it against a car with a smaller ID, and of two cars spawning on the same
+     * cell the one with the smaller ID stays while the other leaves the map.
+     */
+    private static void standingCarKeepsItsCell() {
+        ArrayList<Car> cars = new ArrayList<>();
+        cars.add(new Car(5, tripOf(0, 0, 0, 0, 0, 0), 0));
+        cars.add(new Car(1, tripOf(0, 2, 0, 1, 0, 0), 0));
+        cars.add(new Car(7, tripOf(3, 3, 3, 4), 2));
+        cars.add(new Car(2, tripOf(3, 3, 3, 2), 2));
+        FleetController fleet = new FleetController(cars, STEPS);
+        fleet.runUntilTimeStep(2);
+        checkEquals("0,0 0,0 2", stateOf(cars.get(0)), "standing car");
+        checkEquals("0,1 0,1 1", stateOf(cars.get(1)), "arriving car");
+        checkEquals("-1,-1 -1,-1 -1", stateOf(cars.get(2)), "spawning car with the larger ID");
+        checkEquals("3,3 -1,-1 0", stateOf(cars.get(3)), "spawning car with the smaller ID");
+    }
+
+    /**
+     * Random fleets with shuffled IDs, shared spawn cells and cars that stop on their way are run step by step,
+     * once by the fleet controller and once by twin cars resolved by grouping their positions in a map. Some
+     * fleets lie far from the origin of the map.
+     */
+    private static void resolutionMatchesGroupingByCell() {
+        Random random = new Random(10);
+        for (int fleetNumber = 0; fleetNumber < 60; fleetNumber++) {
+            int rowOffset = random.nextBoolean() ? 0 : random.nextInt(400);
+            int columnOffset = random.nextBoolean() ? 0 : random.nextInt(400);
+            int carCount = 1 + random.nextInt(60);
+            List<ArrayList<Position2D>> trips = new ArrayList<>();
+            int[] spawnTimes = new int[carCount];
+            for (int car = 0; car < carCount; car++) {
+                trips.add(randomTrip(random, rowOffset, columnOffset));
+                spawnTimes[car] = random.nextInt(10);
+            }
+            int[] ids = new int[carCount];
+            for (int car = 0; car < carCount; car++) {
+                int other = random.nextInt(car + 1);
+                ids[car] = ids[other];
+                ids[other] = car;
+            }
+
+            ArrayList<Car> cars = new ArrayList<>();
+            ArrayList<Car> twins = new ArrayList<>();
+            for (int car = 0; car < carCount; car++) {
+                cars.add(new Car(ids[car], trips.get(car), spawnTimes[car]));
+                twins.add(new Car(ids[car], trips.get(car), spawnTimes[car]));
+            }
+            FleetController fleet = new FleetController(cars, STEPS);
+            for (Car twin : twins) {
+                twin.update(0);
+            }
+            for (int timeStep = 1; timeStep <= STEPS; timeStep++) {
+                fleet.runUntilTimeStep(timeStep);
+                for (Car twin : twins) {
+                    twin.update(timeStep);
+                }
+                solveConflicts(twins);
+                for (int car = 0; car < carCount; car++) {
+                    checkEquals(stateOf(twins.get(car)), stateOf(cars.get(car)),
+                            "car " + car + " at " + timeStep + " in fleet " + fleetNumber);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a trip of at least 30 positions walking through an area of 8 by 8 cells, it often stops on a cell
+     */
+    private static ArrayList<Position2D> randomTrip(Random random, int rowOffset, int columnOffset) {
+        ArrayList<Position2D> trip = new ArrayList<>();
+        int row = random.nextInt(3);
+        int column = random.nextInt(3);
+        int[][] steps = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}, {0, 0}};
+        for (int length = 30 + random.nextInt(10); trip.size() < length; ) {
+            trip.add(new Position2D(rowOffset + row, columnOffset + column));
+            int[] step = steps[random.nextInt(steps.length)];
+            row = Math.clamp(row + step[0], 0, 7);
+            column = Math.clamp(column + step[1], 0, 7);
+        }
+        return trip;
+    }
+
+    /**
+     * @return a trip through the cells given as pairs of row and column
+     */
+    private static ArrayList<Position2D> tripOf(int... cells) {
+        ArrayList<Position2D> trip = new ArrayList<>();
+        for (int i = 0; i < cells.length; i += 2) {
+            trip.add(new Position2D(cells[i], cells[i + 1]));
+        }
+        return trip;
+    }
+
+    /**
+     * Solves conflicts like the fleet controller before the occupancy grid, with the cars grouped by row and
+     * column instead of by Position2D instance.
+     */
+    private static void solveConflicts(List<Car> cars) {
+        Map<String, List<Car>> cells = new LinkedHashMap<>();
+        for (Car car : cars) {
+            Position2D pos = car.getCurrentPos();
+            if (pos.getRow() >= 0 && pos.getColumn() >= 0) {
+                cells.computeIfAbsent(pos.getRow() + "," + pos.getColumn(), cell -> new ArrayList<>()).add(car);
+            }
+        }
+        for (List<Car> carsOnCell : cells.values()) {
+            if (carsOnCell.size() < 2) {
+                continue;
+            }
+            Position2D pos = carsOnCell.getFirst().getCurrentPos();
+            Car carToStay = null;
+            for (Car car : carsOnCell) {
+                if (car.getPreviousPos().getRow() == pos.getRow()
+                        && car.getPreviousPos().getColumn() == pos.getColumn()) {
+                    carToStay = car;
+                    break;
+                }
+            }
+            if (carToStay == null) {
+                for (Car car : carsOnCell) {
+                    if (carToStay == null || car.getId() < carToStay.getId()) {
+                        carToStay = car;
+                    }
+                }
+            }
+            for (Car car : carsOnCell) {
+                if (car != carToStay) {
+                    if (car.getCurrentTime() == car.getSpawnTime()) {
+                        car.setCurrentPos(new Position2D(-1, -1));
+                        car.setPreviousPos(new Position2D(-1, -1));
+                        car.setCounter(-1);
+                    } else {
+                        car.onePositionBack();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return current position, previous position and counter of a car
+     */
+    private static String stateOf(Car car) {
+        return car.getCurrentPos().getRow() + "," + car.getCurrentPos().getColumn() + " "
+                + car.getPreviousPos().getRow() + "," + car.getPreviousPos().getColumn() + " " + car.getCounter();
+    }
+}
@@ -0,0 +1,142 @@
+package model.cars;
+
+import model.Position2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+import static model.cars.FleetTestSupport.fleetOf;
+
+/**
+ * Checks that restored and rewound fleets continue like fleets that were run straight to the same time step.
+ */
+public class FleetCheckpointTest {
+    /** End time of the test fleets. */
+    private static final int END_TIME = 60;
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        restoreContinuesLikeStraightRun();
+        rewindMatchesFreshRun();
+        restoreRejectsMissingCheckpoints();
+    }
+
+    /**
+     * A fleet that runs ahead and is restored to a checkpoint, and a twin fleet that gets the same checkpoint,
+     * both reach every later time step in the state of a fleet that was run straight to it.
+     */
+    private static void restoreContinuesLikeStraightRun() {
+        Random random = new Random(15);
+        for (int fleetNumber = 0; fleetNumber < 30; fleetNumber++) {
+            List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, 1 + random.nextInt(70));
+            int[] spawnTimes = FleetTestSupport.randomSpawnTimes(random, trips.size());
+            int checkpointTime = random.nextInt(30);
+            for (StepMode stepMode : StepMode.values()) {
+                for (boolean stored : new boolean[]{false, true}) {
+                    String name = stepMode + (stored ? " store" : " cars") + " fleet " + fleetNumber;
+                    FleetController straight = fleetOf(trips, spawnTimes, stored, stepMode, END_TIME);
+                    FleetController restored = fleetOf(trips, spawnTimes, stored, stepMode, END_TIME);
+                    restored.runUntilTimeStep(checkpointTime);
+                    FleetCheckpoint checkpoint = restored.checkpoint();
+                    restored.runUntilTimeStep(checkpointTime + 1 + random.nextInt(40));
+                    restored.restore(checkpoint);
+                    FleetController twin = fleetOf(trips, spawnTimes, stored, stepMode, END_TIME);
+                    twin.restore(checkpoint);
+                    checkEquals(checkpointTime, restored.getTimeStepper().getTimeStep(), "time step of " + name);
+
+                    for (int target = checkpointTime; target <= END_TIME + 5; target += 1 + random.nextInt(9)) {
+                        straight.runUntilTimeStep(target);
+                        restored.runUntilTimeStep(target);
+                        twin.runUntilTimeStep(target);
+                        checkSameState(straight, restored, "restored " + name + " at " + target);
+                        checkSameState(straight, twin, "twin of " + name + " at " + target);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewinding a fleet with automatic checkpoints back and forth gives at every target the state of a fresh
+     * fleet run to that target.
+     */
+    private static void rewindMatchesFreshRun() {
+        Random random = new Random(16);
+        for (int fleetNumber = 0; fleetNumber < 20; fleetNumber++) {
+            List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, 1 + random.nextInt(70));
+            int[] spawnTimes = FleetTestSupport.randomSpawnTimes(random, trips.size());
+            int checkpointInterval = 1 + random.nextInt(12);
+            for (StepMode stepMode : StepMode.values()) {
+                for (boolean stored : new boolean[]{false, true}) {
+                    String name = stepMode + (stored ? " store" : " cars") + " fleet " + fleetNumber;
+                    FleetController rewound = fleetOf(trips, spawnTimes, stored, stepMode, END_TIME);
+                    rewound.setCheckpointInterval(checkpointInterval);
+                    rewound.runUntilTimeStep(END_TIME);
+                    int firstCheckpoint = rewound.getCheckpointTimeSteps().first();
+                    for (int rewind = 0; rewind < 8; rewind++) {
+                        int target = firstCheckpoint + random.nextInt(END_TIME - firstCheckpoint + 1);
+                        rewound.rewindTo(target);
+                        FleetController fresh = fleetOf(trips, spawnTimes, stored, stepMode, END_TIME);
+                        fresh.runUntilTimeStep(target);
+                        checkSameState(fresh, rewound, name + " rewound to " + target);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Restoring a time step without checkpoint and rewinding before the first checkpoint are refused.
+     */
+    private static void restoreRejectsMissingCheckpoints() {
+        Random random = new Random(17);
+        List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, 10);
+        int[] spawnTimes = FleetTestSupport.randomSpawnTimes(random, trips.size());
+        FleetController fleet = fleetOf(trips, spawnTimes, false, StepMode.TICK_BY_TICK, END_TIME);
+        fleet.runUntilTimeStep(10);
+        fleet.checkpoint();
+        fleet.runUntilTimeStep(20);
+        try {
+            fleet.restore(15);
+            check(false, "restore without checkpoint");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        try {
+            fleet.rewindTo(5);
+            check(false, "rewind before the first checkpoint");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        FleetController smaller = fleetOf(trips.subList(0, 9), spawnTimes, false, StepMode.TICK_BY_TICK, END_TIME);
+        try {
+            smaller.restore(fleet.checkpoint());
+            check(false, "restore of a checkpoint of another fleet");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * Compares the time step and the checkpoint arrays of two fleets, counters of parked cars are brought up
+     * to date by the checkpoints in every step mode.
+     */
+    private static void checkSameState(FleetController expected, FleetController actual, String name) {
+        checkEquals(expected.getTimeStepper().getTimeStep(), actual.getTimeStepper().getTimeStep(),
+                "time step of " + name);
+        FleetCheckpoint expectedState = expected.checkpoint();
+        FleetCheckpoint actualState = actual.checkpoint();
+        check(Arrays.equals(expectedState.getCounters(), actualState.getCounters()), "counters of " + name);
+        check(Arrays.equals(expectedState.getCurrentPositions(), actualState.getCurrentPositions()),
+                "current positions of " + name);
+        check(Arrays.equals(expectedState.getPreviousPositions(), actualState.getPreviousPositions()),
+                "previous positions of " + name);
+    }
+}
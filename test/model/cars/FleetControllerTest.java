@@ -0,0 +1,194 @@
+package model.cars;
+
+import model.Position2D;
+import model.trajectories.TrafficHeatmap;
+import model.trajectories.TrajectoryIndex;
+import model.trajectories.TrajectoryReader;
+import model.trajectories.TrajectoryWriter;
+import model.trajectories.TrajectorySink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+import static model.cars.FleetTestSupport.COLUMNS;
+import static model.cars.FleetTestSupport.ROWS;
+import static model.cars.FleetTestSupport.RecordingSink;
+import static model.cars.FleetTestSupport.fleetOf;
+
+/**
+ * Checks that a rewound fleet does not pass time steps it simulates again to its recorders a second time.
+ */
+public class FleetControllerTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        rewindDoesNotRecordTwice();
+        rewindDoesNotCountHeatmapTwice();
+        rewindDoesNotWriteTwice();
+        rewindDoesNotCountConflictsTwice();
+    }
+
+    /**
+     * Running to 40, rewinding to 25 and running to 40 again leaves the sinks like one run to 40.
+     */
+    private static void rewindDoesNotRecordTwice() {
+        Random random = new Random(17);
+        for (int fleetNumber = 0; fleetNumber < 30; fleetNumber++) {
+            List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, 5 + random.nextInt(60));
+            int[] spawnTimes = FleetTestSupport.randomSpawnTimes(random, trips.size());
+            for (StepMode stepMode : StepMode.values()) {
+                for (boolean stored : new boolean[]{false, true}) {
+                    String name = stepMode + (stored ? " store" : " cars") + " fleet " + fleetNumber;
+                    RecordingSink expectedSink = new RecordingSink();
+                    TrajectoryIndex expectedIndex = new TrajectoryIndex(COLUMNS, 8);
+                    FleetController straight = fleetOf(trips, spawnTimes, stored, stepMode, 60);
+                    straight.setTrajectorySink(TrajectorySink.both(expectedSink, expectedIndex));
+                    straight.runUntilTimeStep(40);
+
+                    RecordingSink sink = new RecordingSink();
+                    TrajectoryIndex index = new TrajectoryIndex(COLUMNS, 8);
+                    FleetController rewound = fleetOf(trips, spawnTimes, stored, stepMode, 60);
+                    rewound.setTrajectorySink(TrajectorySink.both(sink, index));
+                    rewound.setCheckpointInterval(10);
+                    rewound.runUntilTimeStep(40);
+                    rewound.rewindTo(25);
+                    rewound.runUntilTimeStep(40);
+
+                    check(Arrays.equals(expectedSink.sortedRecords(), sink.sortedRecords()), "records of " + name);
+                    for (int cell = 0; cell < ROWS * COLUMNS; cell++) {
+                        for (int from = 0; from <= 40; from += 7) {
+                            check(Arrays.equals(expectedIndex.query(new int[]{cell}, from, from + 9),
+                                    index.query(new int[]{cell}, from, from + 9)), "index of " + name);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The heatmap of a rewound fleet holds every time step once, like the heatmap of one run.
+     */
+    private static void rewindDoesNotCountHeatmapTwice() {
+        Random random = new Random(18);
+        for (int fleetNumber = 0; fleetNumber < 30; fleetNumber++) {
+            List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, 5 + random.nextInt(60));
+            int[] spawnTimes = FleetTestSupport.randomSpawnTimes(random, trips.size());
+            for (StepMode stepMode : StepMode.values()) {
+                String name = stepMode + " fleet " + fleetNumber;
+                TrafficHeatmap expected = new TrafficHeatmap(ROWS, COLUMNS, 5);
+                FleetController straight = fleetOf(trips, spawnTimes, false, stepMode, 60);
+                straight.setHeatmap(expected);
+                straight.runUntilTimeStep(40);
+
+                TrafficHeatmap heatmap = new TrafficHeatmap(ROWS, COLUMNS, 5);
+                FleetController rewound = fleetOf(trips, spawnTimes, false, stepMode, 60);
+                rewound.setHeatmap(heatmap);
+                rewound.setCheckpointInterval(10);
+                rewound.runUntilTimeStep(40);
+                rewound.rewindTo(25);
+                rewound.runUntilTimeStep(40);
+
+                checkEquals(40L, heatmap.getCompletedSteps(), "completed steps of " + name);
+                checkEquals(expected.getCompletedSteps(), heatmap.getCompletedSteps(), "completed steps of " + name);
+                check(Arrays.deepEquals(expected.getTotalOccupancyGrid(), heatmap.getTotalOccupancyGrid()),
+                        "total occupancy of " + name);
+                check(Arrays.deepEquals(expected.getTotalConflictGrid(), heatmap.getTotalConflictGrid()),
+                        "total conflicts of " + name);
+                check(Arrays.deepEquals(expected.getWindowOccupancyGrid(), heatmap.getWindowOccupancyGrid()),
+                        "window occupancy of " + name);
+            }
+        }
+    }
+
+    /**
+     * The trajectory log of a rewound fleet holds every record once, like the log of one run.
+     */
+    private static void rewindDoesNotWriteTwice() throws IOException {
+        Random random = new Random(16);
+        Path expectedFile = Files.createTempFile("expected", ".traj");
+        Path file = Files.createTempFile("rewound", ".traj");
+        try {
+            for (int fleetNumber = 0; fleetNumber < 10; fleetNumber++) {
+                List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, 5 + random.nextInt(60));
+                int[] spawnTimes = FleetTestSupport.randomSpawnTimes(random, trips.size());
+                for (StepMode stepMode : StepMode.values()) {
+                    String name = stepMode + " fleet " + fleetNumber;
+                    try (TrajectoryWriter writer = new TrajectoryWriter(expectedFile, COLUMNS)) {
+                        FleetController straight = fleetOf(trips, spawnTimes, true, stepMode, 60);
+                        straight.setTrajectorySink(writer);
+                        straight.runUntilTimeStep(40);
+                    }
+                    try (TrajectoryWriter writer = new TrajectoryWriter(file, COLUMNS)) {
+                        FleetController rewound = fleetOf(trips, spawnTimes, true, stepMode, 60);
+                        rewound.setTrajectorySink(writer);
+                        rewound.setCheckpointInterval(10);
+                        rewound.runUntilTimeStep(40);
+                        rewound.rewindTo(25);
+                        rewound.runUntilTimeStep(40);
+                    }
+                    long[] expected = readRecords(expectedFile);
+                    long[] records = readRecords(file);
+                    check(Arrays.equals(expected, records), "trajectory log of " + name);
+                    for (int i = 1; i < records.length; i++) {
+                        check(records[i] != records[i - 1], "duplicate record in " + name);
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(expectedFile);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * The conflict count of a rewound fleet equals the count of one run, also when rewinding repeatedly.
+     */
+    private static void rewindDoesNotCountConflictsTwice() {
+        Random random = new Random(20);
+        for (int fleetNumber = 0; fleetNumber < 30; fleetNumber++) {
+            List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, 20 + random.nextInt(60));
+            int[] spawnTimes = FleetTestSupport.randomSpawnTimes(random, trips.size());
+            for (StepMode stepMode : StepMode.values()) {
+                String name = stepMode + " fleet " + fleetNumber;
+                FleetController straight = fleetOf(trips, spawnTimes, fleetNumber % 2 == 0, stepMode, 60);
+                straight.runUntilTimeStep(40);
+
+                FleetController rewound = fleetOf(trips, spawnTimes, fleetNumber % 2 == 0, stepMode, 60);
+                rewound.setCheckpointInterval(10);
+                rewound.runUntilTimeStep(40);
+                rewound.rewindTo(25);
+                rewound.runUntilTimeStep(40);
+                rewound.rewindTo(5);
+                rewound.runUntilTimeStep(40);
+                checkEquals(straight.getConflictCount(), rewound.getConflictCount(), "conflicts of " + name);
+            }
+        }
+    }
+
+    /**
+     * @return the records of a trajectory file packed into longs and sorted
+     */
+    private static long[] readRecords(Path file) throws IOException {
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            long[] records = new long[(int) reader.getRecordCount()];
+            int count = 0;
+            while (reader.next()) {
+                records[count++] = (long) reader.getTimeStep() << 40 | (long) reader.getCarId() << 20 | reader.getCell();
+            }
+            checkEquals(records.length, count, "records read");
+            Arrays.sort(records);
+            return records;
+        }
+    }
+}
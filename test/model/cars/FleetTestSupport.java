@@ -0,0 +1,183 @@
+package model.cars;
+
+import model.Position2D;
+import model.trajectories.TrajectorySink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random fleets and recorders shared by the fleet tests.
+ */
+final class FleetTestSupport {
+    /** Number of rows of the area the trips lie in. */
+    static final int ROWS = 12;
+    /** Number of columns of the area the trips lie in. */
+    static final int COLUMNS = 12;
+
+    /**
+     * Utility class, not instantiated.
+     */
+    private FleetTestSupport() {
+    }
+
+    /**
+     * Draws random trips in a small area, so that many cars meet on the same cells.
+     *
+     * @param random the source of randomness
+     * @param carCount the number of cars
+     * @return the trips, every trip a random walk between 1 and 25 steps
+     */
+    static List<ArrayList<Position2D>> randomTrips(Random random, int carCount) {
+        List<ArrayList<Position2D>> trips = new ArrayList<>();
+        int[][] steps = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+        for (int car = 0; car < carCount; car++) {
+            ArrayList<Position2D> trip = new ArrayList<>();
+            int row = random.nextInt(ROWS);
+            int column = random.nextInt(COLUMNS);
+            trip.add(new Position2D(row, column));
+            int length = random.nextInt(25);
+            for (int step = 0; step < length; step++) {
+                int[] direction = steps[random.nextInt(4)];
+                if (row + direction[0] >= 0 && row + direction[0] < ROWS
+                        && column + direction[1] >= 0 && column + direction[1] < COLUMNS) {
+                    row += direction[0];
+                    column += direction[1];
+                }
+                trip.add(new Position2D(row, column));
+            }
+            trips.add(trip);
+        }
+        return trips;
+    }
+
+    /**
+     * Draws random spawn times.
+     *
+     * @param random the source of randomness
+     * @param carCount the number of cars
+     * @return the spawn times between 0 and 19
+     */
+    static int[] randomSpawnTimes(Random random, int carCount) {
+        int[] spawnTimes = new int[carCount];
+        for (int car = 0; car < carCount; car++) {
+            spawnTimes[car] = random.nextInt(20);
+        }
+        return spawnTimes;
+    }
+
+    /**
+     * Builds a fresh fleet of Car objects.
+     *
+     * @param trips the trips of the cars
+     * @param spawnTimes the spawn times of the cars
+     * @return the cars with IDs in fleet order
+     */
+    static ArrayList<Car> carsOf(List<ArrayList<Position2D>> trips, int[] spawnTimes) {
+        ArrayList<Car> cars = new ArrayList<>();
+        for (int car = 0; car < trips.size(); car++) {
+            cars.add(new Car(car, trips.get(car), spawnTimes[car]));
+        }
+        return cars;
+    }
+
+    /**
+     * Builds a fleet controller.
+     *
+     * @param trips the trips of the cars
+     * @param spawnTimes the spawn times of the cars
+     * @param stored true to hold the fleet in a car store
+     * @param stepMode the step mode
+     * @param endTime the end time
+     * @return the controller
+     */
+    static FleetController fleetOf(List<ArrayList<Position2D>> trips, int[] spawnTimes, boolean stored,
+                                   StepMode stepMode, int endTime) {
+        ArrayList<Car> cars = carsOf(trips, spawnTimes);
+        FleetController fleet = stored ? new FleetController(new CarStore(cars, COLUMNS), endTime)
+                : new FleetController(cars, endTime);
+        fleet.setStepMode(stepMode);
+        return fleet;
+    }
+
+    /**
+     * Encodes the state of every car.
+     *
+     * @param fleet the fleet
+     * @return counter, current and previous cell of every car
+     */
+    static int[] stateOf(FleetController fleet) {
+        CarStore store = fleet.getCarStore();
+        int count = store != null ? store.size() : fleet.getCars().size();
+        int[] state = new int[count * 3];
+        for (int car = 0; car < count; car++) {
+            if (store != null) {
+                state[car * 3] = store.getCounter(car);
+                state[car * 3 + 1] = store.getCurrentCell(car);
+                state[car * 3 + 2] = store.getPreviousCell(car);
+            } else {
+                Car object = fleet.getCars().get(car);
+                state[car * 3] = object.getCounter();
+                state[car * 3 + 1] = cellOf(object.getCurrentPos());
+                state[car * 3 + 2] = cellOf(object.getPreviousPos());
+            }
+        }
+        return state;
+    }
+
+    /**
+     * @param position a position
+     * @return its cell index, -1 if it is not on the map
+     */
+    private static int cellOf(Position2D position) {
+        return position.getRow() < 0 || position.getColumn() < 0 ? -1
+                : position.getRow() * COLUMNS + position.getColumn();
+    }
+
+    /**
+     * Trajectory sink keeping every record, checks that time steps arrive in order and are completed once.
+     */
+    static final class RecordingSink implements TrajectorySink {
+        /** Records as time step, car ID and cell packed into one long. */
+        private long[] records = new long[64];
+        /** Number of records. */
+        private int recordCount;
+        /** Last completed time step. */
+        private int completed = Integer.MIN_VALUE;
+
+        @Override
+        public int getColumns() {
+            return COLUMNS;
+        }
+
+        @Override
+        public void record(int timeStep, int carId, int cell) {
+            if (timeStep <= completed) {
+                throw new AssertionError("Time step " + timeStep + " recorded after it was completed");
+            }
+            if (recordCount == records.length) {
+                records = Arrays.copyOf(records, recordCount * 2);
+            }
+            records[recordCount++] = (long) timeStep << 40 | (long) carId << 20 | cell;
+        }
+
+        @Override
+        public void stepCompleted(int timeStep) {
+            if (timeStep <= completed) {
+                throw new AssertionError("Time step " + timeStep + " completed twice");
+            }
+            completed = timeStep;
+        }
+
+        /**
+         * @return the records sorted, independent of the order of the records inside a time step
+         */
+        long[] sortedRecords() {
+            long[] sorted = Arrays.copyOf(records, recordCount);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
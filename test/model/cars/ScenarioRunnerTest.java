@@ -0,0 +1,61 @@
+package model.cars;
+
+import model.MapSnapshot;
+import model.Position2D;
+import model.SparseMap;
+import model.TestSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static model.TestSupport.checkEquals;
+
+/**
+ * Checks that concurrent scenario runs on one map summarize like the same runs one after the other.
+ */
+public class ScenarioRunnerTest {
+
+    /**
+     * @param args ignored
+     */
+    public static void main(String[] args) {
+        concurrentRunsMatchSequentialRuns();
+    }
+
+    /**
+     * Eight runs at a time give the summaries of one run at a time, and all runs of a call get the same
+     * snapshot of the map.
+     */
+    private static void concurrentRunsMatchSequentialRuns() {
+        SparseMap sparseMap = TestSupport.randomMap(new Random(20), FleetTestSupport.ROWS, FleetTestSupport.COLUMNS, 0.6);
+        Set<MapSnapshot> snapshots = ConcurrentHashMap.newKeySet();
+        ScenarioRunner.FleetFactory fleetFactory = (snapshot, run) -> {
+            snapshots.add(snapshot);
+            Random random = new Random(run);
+            List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, 20 + random.nextInt(80));
+            return FleetTestSupport.carsOf(trips, FleetTestSupport.randomSpawnTimes(random, trips.size()));
+        };
+        for (StepMode stepMode : StepMode.values()) {
+            ScenarioRunner sequential = new ScenarioRunner(sparseMap, 1);
+            sequential.setStepMode(stepMode);
+            ScenarioRunner concurrent = new ScenarioRunner(sparseMap, 8);
+            concurrent.setStepMode(stepMode);
+            ArrayList<ScenarioSummary> expected = sequential.run(64, fleetFactory, 50);
+            ArrayList<ScenarioSummary> summaries = concurrent.run(64, fleetFactory, 50);
+            checkEquals(Set.of(sparseMap.getSnapshot()), snapshots, "snapshots of the runs in " + stepMode);
+            for (int run = 0; run < 64; run++) {
+                String name = stepMode + " run " + run;
+                checkEquals(run, summaries.get(run).getRun(), "run of " + name);
+                checkEquals(expected.get(run).getCarCount(), summaries.get(run).getCarCount(), "cars of " + name);
+                checkEquals(expected.get(run).getArrivedCount(), summaries.get(run).getArrivedCount(),
+                        "arrived cars of " + name);
+                checkEquals(expected.get(run).getConflictCount(), summaries.get(run).getConflictCount(),
+                        "conflicts of " + name);
+                checkEquals(expected.get(run).getTimeStep(), summaries.get(run).getTimeStep(), "time step of " + name);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package model.cars;
+
+import model.Position2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+import static model.cars.FleetTestSupport.RecordingSink;
+import static model.cars.FleetTestSupport.fleetOf;
+
+/**
+ * Checks that every step mode moves a fleet like stepping it tick by tick.
+ */
+public class StepModeTest {
+    /** Time steps the compared fleets are run to one after another. */
+    private static final int[] TARGETS = {3, 11, 12, 27, 45, 80};
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        modeMatchesTickByTick(StepMode.EVENT_DRIVEN, 11);
+        modeMatchesTickByTick(StepMode.PARALLEL, 14);
+    }
+
+    /**
+     * Runs random fleets of Car objects and of car stores in the given mode and tick by tick, and compares
+     * the checkpoints, the recorded positions and the conflict counts after every target time step.
+     *
+     * @param stepMode the step mode compared with TICK_BY_TICK
+     * @param seed the seed of the random fleets
+     */
+    private static void modeMatchesTickByTick(StepMode stepMode, long seed) {
+        Random random = new Random(seed);
+        for (int fleetNumber = 0; fleetNumber < 40; fleetNumber++) {
+            List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, 1 + random.nextInt(80));
+            int[] spawnTimes = FleetTestSupport.randomSpawnTimes(random, trips.size());
+            for (boolean stored : new boolean[]{false, true}) {
+                FleetController expected = fleetOf(trips, spawnTimes, stored, StepMode.TICK_BY_TICK, 70);
+                FleetController actual = fleetOf(trips, spawnTimes, stored, stepMode, 70);
+                RecordingSink expectedSink = new RecordingSink();
+                RecordingSink actualSink = new RecordingSink();
+                expected.setTrajectorySink(expectedSink);
+                actual.setTrajectorySink(actualSink);
+                for (int target : TARGETS) {
+                    String name = stepMode + (stored ? " store" : " cars") + " fleet " + fleetNumber + " at " + target;
+                    expected.runUntilTimeStep(target);
+                    actual.runUntilTimeStep(target);
+                    checkEquals(expected.getTimeStepper().getTimeStep(), actual.getTimeStepper().getTimeStep(),
+                            "time step of " + name);
+                    FleetCheckpoint expectedState = expected.checkpoint();
+                    FleetCheckpoint actualState = actual.checkpoint();
+                    check(Arrays.equals(expectedState.getCounters(), actualState.getCounters()), "counters of " + name);
+                    check(Arrays.equals(expectedState.getCurrentPositions(), actualState.getCurrentPositions()),
+                            "current positions of " + name);
+                    check(Arrays.equals(expectedState.getPreviousPositions(), actualState.getPreviousPositions()),
+                            "previous positions of " + name);
+                    check(Arrays.equals(expectedSink.sortedRecords(), actualSink.sortedRecords()),
+                            "records of " + name);
+                    checkEquals(expected.getConflictCount(), actual.getConflictCount(), "conflicts of " + name);
+                }
+            }
+        }
+    }
+}
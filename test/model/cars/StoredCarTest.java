@@ -0,0 +1,136 @@
+package model.cars;
+
+import model.Position2D;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+import static model.cars.FleetTestSupport.COLUMNS;
+
+/**
+ * Drives Car objects and the views of a car store through the same steps and compares their positions.
+ */
+public class StoredCarTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        viewsFollowTheCarContract();
+        parkedViewsMatchTheirTrip();
+    }
+
+    /**
+     * Updates, single steps back like in conflict resolution and new trips leave a view with the positions
+     * of a Car. Positions a Car takes from its trip are trip instances of the view as well, and every call
+     * returns the same instance.
+     */
+    private static void viewsFollowTheCarContract() {
+        Random random = new Random(13);
+        for (int round = 0; round < 200; round++) {
+            int carCount = 1 + random.nextInt(6);
+            List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, carCount);
+            int[] spawnTimes = FleetTestSupport.randomSpawnTimes(random, carCount);
+            ArrayList<Car> cars = FleetTestSupport.carsOf(trips, spawnTimes);
+            CarStore store = new CarStore(FleetTestSupport.carsOf(trips, spawnTimes), COLUMNS);
+            boolean[] tripChanged = new boolean[carCount];
+
+            for (int timeStep = 0; timeStep < 40; timeStep++) {
+                for (int car = 0; car < carCount; car++) {
+                    Car expected = cars.get(car);
+                    Car view = store.getCar(car);
+                    if (random.nextInt(10) == 0) {
+                        ArrayList<Position2D> trip = FleetTestSupport.randomTrips(random, 1).getFirst();
+                        expected.setTrip(trip);
+                        view.setTrip(copyOf(trip));
+                        tripChanged[car] = true;
+                    } else {
+                        expected.update(timeStep);
+                        view.update(timeStep);
+                        tripChanged[car] = false;
+                        if (random.nextInt(4) == 0) {
+                            expected.onePositionBack();
+                            view.onePositionBack();
+                        }
+                    }
+                    String where = "car " + car + " in round " + round + " at " + timeStep;
+                    checkEquals(cellOf(expected.getCurrentPos()), cellOf(view.getCurrentPos()),
+                            "current cell of " + where);
+                    checkEquals(cellOf(expected.getPreviousPos()), cellOf(view.getPreviousPos()),
+                            "previous cell of " + where);
+                    check(view.getCurrentPos() == view.getCurrentPos(), "stable current position of " + where);
+                    check(view.getPreviousPos() == view.getPreviousPos(), "stable previous position of " + where);
+                    if (!tripChanged[car]) {
+                        checkEquals(stepOf(expected, expected.getCurrentPos()) >= 0,
+                                stepOf(view, view.getCurrentPos()) >= 0, "current position on the trip of " + where);
+                        checkEquals(stepOf(expected, expected.getPreviousPos()) >= 0,
+                                stepOf(view, view.getPreviousPos()) >= 0, "previous position on the trip of " + where);
+                    }
+                }
+            }
+            for (int car = 0; car < carCount; car++) {
+                ArrayList<Position2D> trip = cars.get(car).getTrip();
+                checkEquals(trip.size(), store.getTripLength(car), "trip length of car " + car);
+                for (int step = 0; step < trip.size(); step++) {
+                    checkEquals(cellOf(trip.get(step)), store.getTripCell(car, step), "trip cell of car " + car);
+                }
+            }
+        }
+    }
+
+    /**
+     * A car that stays on its last cell is reported at the last position of its trip, so identity checks
+     * against the trip find it parked like a Car.
+     */
+    private static void parkedViewsMatchTheirTrip() {
+        Random random = new Random(29);
+        List<ArrayList<Position2D>> trips = FleetTestSupport.randomTrips(random, 50);
+        int[] spawnTimes = FleetTestSupport.randomSpawnTimes(random, 50);
+        CarStore store = new CarStore(FleetTestSupport.carsOf(trips, spawnTimes), COLUMNS);
+        store.updateAll(0);
+        for (int timeStep = 1; timeStep < 60; timeStep++) {
+            store.updateAll(timeStep);
+        }
+        for (int car = 0; car < store.size(); car++) {
+            Car view = store.getCar(car);
+            check(view.getCurrentPos() == view.getTrip().getLast(), "car " + car + " parked on its last position");
+            check(view.getPreviousPos() == view.getTrip().getLast(), "car " + car + " came from its last position");
+        }
+    }
+
+    /**
+     * @return new positions with the cells of the trip
+     */
+    private static ArrayList<Position2D> copyOf(ArrayList<Position2D> trip) {
+        ArrayList<Position2D> copy = new ArrayList<>();
+        for (Position2D position : trip) {
+            copy.add(new Position2D(position.getRow(), position.getColumn()));
+        }
+        return copy;
+    }
+
+    /**
+     * @return the first step of the trip holding this very position instance, -1 if there is none
+     */
+    private static int stepOf(Car car, Position2D position) {
+        List<Position2D> trip = car.getTrip();
+        for (int step = 0; step < trip.size(); step++) {
+            if (trip.get(step) == position) {
+                return step;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the cell index of a position, -1 if it is not on the map
+     */
+    private static int cellOf(Position2D position) {
+        return position.getRow() < 0 || position.getColumn() < 0 ? -1
+                : position.getRow() * COLUMNS + position.getColumn();
+    }
+}
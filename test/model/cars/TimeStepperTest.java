@@ -0,0 +1,89 @@
+package model.cars;
+
+import model.Position2D;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the subscriber list of the time stepper with a list kept in order by linear insertion.
+ */
+public class TimeStepperTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        subscribersStayInOrder();
+    }
+
+    /**
+     * Random single and bulk additions and removals keep the cars sorted by ID, later cars behind earlier
+     * cars with the same ID.
+     */
+    private static void subscribersStayInOrder() {
+        Random random = new Random(12);
+        for (int round = 0; round < 200; round++) {
+            TimeStepper stepper = new TimeStepper(10);
+            List<Car> expected = new ArrayList<>();
+            for (int change = 0; change < 100; change++) {
+                int action = random.nextInt(4);
+                if (action == 0) {
+                    Car car = carWithId(random.nextInt(20));
+                    stepper.addSubscriber(car);
+                    insertBehindSameIds(expected, car);
+                } else if (action == 1) {
+                    List<Car> cars = new ArrayList<>();
+                    for (int i = random.nextInt(5); i > 0; i--) {
+                        cars.add(carWithId(random.nextInt(20)));
+                    }
+                    stepper.addSubscribers(cars);
+                    for (Car car : cars) {
+                        insertBehindSameIds(expected, car);
+                    }
+                } else if (action == 2 && !expected.isEmpty()) {
+                    Car car = expected.remove(random.nextInt(expected.size()));
+                    stepper.removeSubscriber(car);
+                } else if (!expected.isEmpty()) {
+                    List<Car> cars = new ArrayList<>();
+                    for (int i = random.nextInt(Math.min(4, expected.size()) + 1); i > 0; i--) {
+                        cars.add(expected.remove(random.nextInt(expected.size())));
+                    }
+                    stepper.removeSubscribers(cars);
+                }
+                List<Car> actual = stepper.getSubscribers();
+                checkEquals(expected.size(), actual.size(), "subscriber count in round " + round);
+                for (int i = 0; i < expected.size(); i++) {
+                    check(expected.get(i) == actual.get(i), "subscriber " + i + " in round " + round);
+                }
+            }
+            stepper.removeSubscriber(carWithId(3));
+            checkEquals(expected.size(), stepper.getSubscribers().size(), "removing an unknown car");
+        }
+    }
+
+    /**
+     * @return a car with the given ID on a one cell trip
+     */
+    private static Car carWithId(int id) {
+        ArrayList<Position2D> trip = new ArrayList<>();
+        trip.add(new Position2D(0, 0));
+        return new Car(id, trip, 0);
+    }
+
+    /**
+     * Inserts a car behind all cars with an ID not greater than its own by walking the list.
+     */
+    private static void insertBehindSameIds(List<Car> cars, Car car) {
+        int index = 0;
+        while (index < cars.size() && cars.get(index).getId() <= car.getId()) {
+            index++;
+        }
+        cars.add(index, car);
+    }
+}
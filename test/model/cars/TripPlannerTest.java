@@ -0,0 +1,63 @@
+package model.cars;
+
+import model.BasicVertex;
+import model.SparseMap;
+import model.TestSupport;
+import model.distances.DistanceTimeMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the routes of a planned batch with the routes of single requests.
+ */
+public class TripPlannerTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        batchRoutesMatchSingleRoutes();
+    }
+
+    /**
+     * Batches with shared origins get the route DistanceTimeMap.computeRoute returns for every request,
+     * and planning the same batch twice gives the same routes.
+     */
+    private static void batchRoutesMatchSingleRoutes() {
+        Random random = new Random(19);
+        for (int map = 0; map < 10; map++) {
+            SparseMap sparseMap = TestSupport.withSpeedLimits(TestSupport.randomMap(random, 30, 30, 0.65), random);
+            DistanceTimeMap distanceTimeMap = new DistanceTimeMap(sparseMap);
+            TripPlanner planner = new TripPlanner(distanceTimeMap);
+            List<BasicVertex> origins = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                origins.add(randomVertex(random, sparseMap));
+            }
+            List<TripRequest> requests = new ArrayList<>();
+            for (int id = 0; id < 400; id++) {
+                requests.add(new TripRequest(id, origins.get(random.nextInt(origins.size())),
+                        randomVertex(random, sparseMap), random.nextInt(20)));
+            }
+
+            ArrayList<ArrayList<BasicVertex>> routes = planner.computeRoutes(requests);
+            for (int i = 0; i < requests.size(); i++) {
+                TripRequest request = requests.get(i);
+                checkEquals(distanceTimeMap.computeRoute(request.getOrigin(), request.getDestination()), routes.get(i),
+                        "route of request " + i + " on map " + map);
+            }
+            checkEquals(routes, planner.computeRoutes(requests), "second batch on map " + map);
+        }
+    }
+
+    /**
+     * @return a random vertex of the map
+     */
+    private static BasicVertex randomVertex(Random random, SparseMap sparseMap) {
+        return sparseMap.getVertex(random.nextInt(sparseMap.getRows()), random.nextInt(sparseMap.getColumns()));
+    }
+}
@@ -0,0 +1,126 @@
+package model.distances;
+
+import model.BasicVertex;
+import model.SparseMap;
+import model.TestSupport;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Checks the distance and duration maps of the grid against the edge store they read and write.
+ */
+public class DistanceDurationGridTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        mapsReadTheEdgeStore();
+        mapsWriteThroughToTheEdgeStore();
+        settersCopyIntoTheEdgeStore();
+    }
+
+    /**
+     * The maps list every vertex in row-major order with its neighbours in the order of the edge store and the
+     * weights the lookups of the grid return.
+     */
+    private static void mapsReadTheEdgeStore() {
+        Random random = new Random(5);
+        for (int map = 0; map < 30; map++) {
+            SparseMap sparseMap = TestSupport.withSpeedLimits(
+                    TestSupport.randomMap(random, 1 + random.nextInt(6), 1 + random.nextInt(6), 0.7), random);
+            DistanceDurationGrid grid = new DistanceDurationGrid(sparseMap);
+            String name = "map " + map;
+            checkEquals(sparseMap.getRows() * sparseMap.getColumns(), grid.getDistances().size(), "keys of " + name);
+            int cell = 0;
+            for (Map.Entry<BasicVertex, Map<BasicVertex, Integer>> entry : grid.getDurations().entrySet()) {
+                BasicVertex vertex = entry.getKey();
+                check(vertex == sparseMap.getVertex(cell / sparseMap.getColumns(), cell % sparseMap.getColumns()),
+                        "vertex " + cell + " of " + name);
+                checkEquals(vertex.getNeighbours().size(), entry.getValue().size(), "neighbours of " + name);
+                int neighbour = 0;
+                for (Map.Entry<BasicVertex, Integer> weight : entry.getValue().entrySet()) {
+                    check(weight.getKey() == vertex.getNeighbours().get(neighbour++), "neighbour order of " + name);
+                    checkEquals(grid.getDuration(vertex, weight.getKey()), weight.getValue(),
+                            "duration in " + name);
+                    checkEquals(grid.getDistance(vertex, weight.getKey()),
+                            grid.getDistances().get(vertex).get(weight.getKey()), "distance in " + name);
+                }
+                cell++;
+            }
+        }
+    }
+
+    /**
+     * Weights put into a neighbour map or set through its entries reach the edge store, and changes of the
+     * store show in maps requested before. Vertices that are no neighbours can not be added.
+     */
+    private static void mapsWriteThroughToTheEdgeStore() {
+        SparseMap sparseMap = TestSupport.mapOf(new int[][]{{2, 2, 2}, {2, 3, 2}});
+        DistanceDurationGrid grid = new DistanceDurationGrid(sparseMap);
+        Map<BasicVertex, Map<BasicVertex, Integer>> distances = grid.getDistances();
+        Map<BasicVertex, Map<BasicVertex, Integer>> durations = grid.getDurations();
+        BasicVertex corner = sparseMap.getVertex(0, 0);
+        BasicVertex right = sparseMap.getVertex(0, 1);
+        BasicVertex below = sparseMap.getVertex(1, 0);
+
+        checkEquals(1200, distances.get(corner).put(right, 7), "previous distance");
+        checkEquals(7, grid.getDistance(corner, right), "distance put into the map");
+        checkEquals(1200, grid.getDistance(right, corner), "distance of the reverse edge");
+        for (Map.Entry<BasicVertex, Integer> entry : durations.get(corner).entrySet()) {
+            entry.setValue(entry.getKey() == below ? 11 : 13);
+        }
+        checkEquals(11, grid.getDuration(corner, below), "duration set through an entry");
+        checkEquals(13, grid.getDuration(corner, right), "duration set through another entry");
+
+        grid.getEdgeStore().setTemporalWeight(grid.getEdgeStore().findEdge(0, 3), 17);
+        checkEquals(17, durations.get(corner).get(below), "store change seen by the map");
+        grid.initDistances();
+        checkEquals(1200, distances.get(corner).get(right), "refilled distances seen by the map");
+
+        try {
+            distances.get(corner).put(sparseMap.getVertex(1, 2), 1);
+            check(false, "distance to a vertex that is no neighbour");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        checkEquals(null, distances.get(sparseMap.getVertex(1, 1)).get(corner), "distance to no neighbour");
+        checkEquals(null, distances.get(new BasicVertex(0, 0, 0)), "vertex that is not on the map");
+        try {
+            distances.remove(corner);
+            check(false, "removed vertex");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * The setters copy the weights between neighbours of a map into the edge store and ignore the others.
+     */
+    private static void settersCopyIntoTheEdgeStore() {
+        SparseMap sparseMap = TestSupport.mapOf(new int[][]{{2, 4}, {2, 4}});
+        DistanceDurationGrid grid = new DistanceDurationGrid(sparseMap);
+        BasicVertex corner = sparseMap.getVertex(0, 0);
+        BasicVertex right = sparseMap.getVertex(0, 1);
+        BasicVertex below = sparseMap.getVertex(1, 0);
+        int belowDuration = grid.getDuration(corner, below);
+        LinkedHashMap<BasicVertex, Integer> weights = new LinkedHashMap<>();
+        weights.put(right, 3);
+        weights.put(sparseMap.getVertex(1, 1), 4);
+        LinkedHashMap<BasicVertex, LinkedHashMap<BasicVertex, Integer>> map = new LinkedHashMap<>();
+        map.put(corner, weights);
+
+        grid.setDurations(map);
+        checkEquals(3, grid.getDuration(corner, right), "duration copied by the setter");
+        checkEquals(belowDuration, grid.getDuration(corner, below), "duration left by the setter");
+        grid.setDistances(map);
+        checkEquals(3, grid.getDistances().get(corner).get(right), "distance copied by the setter");
+        checkEquals(2, grid.getDistances().get(corner).size(), "neighbours after the setter");
+    }
+}
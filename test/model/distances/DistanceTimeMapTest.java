@@ -0,0 +1,113 @@
+package model.distances;
+
+import model.BasicVertex;
+import model.Position2D;
+import model.SparseMap;
+import model.TestSupport;
+
+import java.util.Random;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the Dijkstra search of the distance time map with the enumeration of all paths it falls back to.
+ */
+public class DistanceTimeMapTest {
+    /** Number of rows of the test maps. */
+    private static final int ROWS = 3;
+    /** Number of columns of the compared area, followed by a column of buildings and one with two streets. */
+    private static final int AREA_COLUMNS = 4;
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        searchMatchesPathEnumeration();
+        negativeDurationsAreNoticedAfterCreation();
+    }
+
+    /**
+     * Two twin maps differ only in a pair of streets behind a wall of buildings, which no route of the compared
+     * area can use. A negative speed limit on that pair makes one map enumerate all paths, the other map runs
+     * the search, and both give the same durations and routes of the same duration.
+     */
+    private static void searchMatchesPathEnumeration() {
+        Random random = new Random(4);
+        for (int map = 0; map < 60; map++) {
+            int[][] baseData = new int[ROWS][AREA_COLUMNS + 2];
+            for (int row = 0; row < ROWS; row++) {
+                for (int column = 0; column < AREA_COLUMNS; column++) {
+                    baseData[row][column] = random.nextDouble() < 0.7 ? 2 : 3 + random.nextInt(2);
+                }
+                baseData[row][AREA_COLUMNS] = 3;
+                baseData[row][AREA_COLUMNS + 1] = row < 2 ? 2 : 3;
+            }
+            long speedSeed = random.nextLong();
+            SparseMap searched = TestSupport.withSpeedLimits(TestSupport.mapOf(baseData), new Random(speedSeed));
+            SparseMap enumerated = TestSupport.withSpeedLimits(TestSupport.mapOf(baseData), new Random(speedSeed));
+            enumerated.setSpeedLimit(new Position2D(0, AREA_COLUMNS + 1), -1);
+            enumerated.setSpeedLimit(new Position2D(1, AREA_COLUMNS + 1), -1);
+            DistanceTimeMap search = new DistanceTimeMap(searched);
+            DistanceTimeMap enumeration = new DistanceTimeMap(enumerated);
+            check(!search.getShortestPathEngine().hasNegativeWeights(), "search map without negative durations");
+            check(enumeration.getShortestPathEngine().hasNegativeWeights(), "enumerated map with negative durations");
+
+            for (int start = 0; start < ROWS * AREA_COLUMNS; start++) {
+                for (int end = 0; end < ROWS * AREA_COLUMNS; end++) {
+                    BasicVertex searchStart = vertexOf(searched, start);
+                    BasicVertex searchEnd = vertexOf(searched, end);
+                    BasicVertex enumerationStart = vertexOf(enumerated, start);
+                    BasicVertex enumerationEnd = vertexOf(enumerated, end);
+                    String pair = start + " to " + end + " on map " + map;
+                    int duration = enumeration.computeDuration(enumerationStart, enumerationEnd);
+                    checkEquals(duration, search.computeDuration(searchStart, searchEnd), "duration from " + pair);
+                    if (duration != Integer.MAX_VALUE) {
+                        checkEquals(duration, search.computeDurationOfTrip(search.computeRoute(searchStart, searchEnd)),
+                                "duration of the route from " + pair);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An engine created before a duration of its grid turns negative refuses to search, the distance time map
+     * falls back to the enumeration of all paths, and the engine searches again once the duration is restored.
+     */
+    private static void negativeDurationsAreNoticedAfterCreation() {
+        SparseMap sparseMap = TestSupport.withSpeedLimits(TestSupport.mapOf(new int[][]{{2, 2, 2}, {2, 3, 2}}),
+                new Random(6));
+        DistanceTimeMap distanceTimeMap = new DistanceTimeMap(sparseMap);
+        ShortestPathEngine engine = distanceTimeMap.getShortestPathEngine();
+        BasicVertex start = sparseMap.getVertex(1, 0);
+        BasicVertex end = sparseMap.getVertex(1, 2);
+        int duration = distanceTimeMap.computeDuration(start, end);
+        check(!engine.hasNegativeWeights(), "engine before the change");
+
+        BasicVertex corner = sparseMap.getVertex(0, 0);
+        BasicVertex right = sparseMap.getVertex(0, 1);
+        int weight = distanceTimeMap.getGrid().getDurations().get(corner).put(right, -1);
+        check(engine.hasNegativeWeights(), "engine after a duration turned negative");
+        try {
+            engine.computeDuration(start, end);
+            check(false, "search with a negative duration");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        checkEquals(duration - weight - 1, distanceTimeMap.computeDuration(start, end),
+                "duration enumerated over the negative edge");
+
+        distanceTimeMap.getGrid().getDurations().get(corner).put(right, weight);
+        check(!engine.hasNegativeWeights(), "engine after the duration was restored");
+        checkEquals(duration, engine.computeDuration(start, end), "duration searched after the restore");
+    }
+
+    /**
+     * @return the vertex of a cell of the compared area
+     */
+    private static BasicVertex vertexOf(SparseMap sparseMap, int cell) {
+        return sparseMap.getVertex(cell / AREA_COLUMNS, cell % AREA_COLUMNS);
+    }
+}
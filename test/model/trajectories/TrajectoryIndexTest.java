@@ -0,0 +1,76 @@
+package model.trajectories;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static model.TestSupport.checkEquals;
+
+/**
+ * Compares the answers of the trajectory index with a scan over all records.
+ */
+public class TrajectoryIndexTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        queriesMatchScan();
+    }
+
+    /**
+     * Records of many cars on few cells and of cars with IDs and cells far apart fill buckets large enough to
+     * grow the hash table several times, every query answers like a scan.
+     */
+    private static void queriesMatchScan() {
+        Random random = new Random(17);
+        for (int round = 0; round < 20; round++) {
+            int columns = 1 + random.nextInt(4000);
+            int cells = columns * (1 + random.nextInt(200));
+            int bucketSize = 1 + random.nextInt(16);
+            boolean spread = random.nextBoolean();
+            TrajectoryIndex index = new TrajectoryIndex(columns, bucketSize);
+            List<int[]> records = new ArrayList<>();
+            for (int timeStep = 0; timeStep < 60; timeStep++) {
+                for (int record = random.nextInt(600); record > 0; record--) {
+                    int carId = spread ? random.nextInt(1 << 20) << 10 : random.nextInt(3000);
+                    int cell = spread ? random.nextInt(cells) : random.nextInt(Math.min(cells, 64));
+                    index.record(timeStep, carId, cell);
+                    records.add(new int[]{timeStep, carId, cell});
+                }
+                index.stepCompleted(timeStep);
+            }
+            for (int query = 0; query < 50; query++) {
+                int[] queryCells = new int[1 + random.nextInt(20)];
+                for (int i = 0; i < queryCells.length; i++) {
+                    queryCells[i] = random.nextInt(2) == 0 ? records.get(random.nextInt(records.size()))[2]
+                            : random.nextInt(cells);
+                }
+                int from = random.nextInt(60);
+                int to = from + random.nextInt(20) - 2;
+                checkEquals(Arrays.toString(scan(records, queryCells, from, to)),
+                        Arrays.toString(index.query(queryCells, from, to)), "query " + query + " in round " + round);
+            }
+        }
+    }
+
+    /**
+     * @return the IDs of the cars on any of the cells between the two time steps in ascending order
+     */
+    private static int[] scan(List<int[]> records, int[] cells, int from, int to) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (int[] record : records) {
+            if (record[0] >= from && record[0] <= to) {
+                for (int cell : cells) {
+                    if (record[2] == cell) {
+                        ids.add(record[1]);
+                    }
+                }
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
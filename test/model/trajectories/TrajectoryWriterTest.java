@@ -0,0 +1,82 @@
+package model.trajectories;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static model.TestSupport.check;
+import static model.TestSupport.checkEquals;
+
+/**
+ * Reads back the files of the trajectory writer and checks that closed writers refuse records.
+ */
+public class TrajectoryWriterTest {
+
+    /**
+     * @param args ignored
+     * @throws Exception the failure of a test
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("trajectories");
+        Path records = directory.resolve("records.traj");
+        Path closed = directory.resolve("closed.traj");
+        try {
+            recordsAreReadBack(records);
+            closedWriterRefusesRecords(closed);
+        } finally {
+            Files.deleteIfExists(records);
+            Files.deleteIfExists(closed);
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Records spanning several batches are read back in the order they were recorded.
+     */
+    private static void recordsAreReadBack(Path path) throws Exception {
+        Random random = new Random(16);
+        int columns = 1 + random.nextInt(500);
+        int[][] records = new int[40_000][];
+        try (TrajectoryWriter writer = new TrajectoryWriter(path, columns)) {
+            for (int i = 0; i < records.length; i++) {
+                records[i] = new int[]{i / 100, random.nextInt(1000), random.nextInt(columns * 300)};
+                writer.record(records[i][0], records[i][1], records[i][2]);
+            }
+            checkEquals((long) records.length, writer.getRecordCount(), "records before close");
+        }
+        try (TrajectoryReader reader = new TrajectoryReader(path)) {
+            checkEquals(columns, reader.getColumns(), "columns");
+            checkEquals((long) records.length, reader.getRecordCount(), "records after close");
+            for (int[] record : records) {
+                check(reader.next(), "record missing");
+                checkEquals(record[0], reader.getTimeStep(), "time step");
+                checkEquals(record[1], reader.getCarId(), "car ID");
+                checkEquals(record[2], reader.getCell(), "cell");
+            }
+            check(!reader.next(), "record after the last one");
+        }
+    }
+
+    /**
+     * Recording or flushing after close is refused at once, closing again does nothing.
+     */
+    private static void closedWriterRefusesRecords(Path path) throws Exception {
+        TrajectoryWriter writer = new TrajectoryWriter(path, 10);
+        writer.record(0, 1, 2);
+        writer.close();
+        writer.close();
+        try {
+            writer.record(1, 1, 3);
+            check(false, "record after close");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        try {
+            writer.flush();
+            check(false, "flush after close");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        checkEquals(1L, writer.getRecordCount(), "records after refused record");
+    }
+}